@@ -0,0 +1,93 @@
+package org.vcsreader.vcs.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.vcsreader.CloneResult;
+import org.vcsreader.vcs.VcsCommand;
+
+import java.io.File;
+
+import static org.vcsreader.vcs.jgit.JGitRepository.vcsError;
+
+/**
+ * Equivalent of "git clone" which runs in-process with JGit.
+ */
+class JGitClone implements VcsCommand<CloneResult> {
+	private final String repoUrl;
+	private final JGitRepository repository;
+	private final boolean bare;
+	private volatile boolean cancelled;
+
+
+	/**
+	 * @param bare if true, clones repository without working tree like "git clone --bare"
+	 */
+	JGitClone(String repoUrl, JGitRepository repository, boolean bare) {
+		this.repoUrl = repoUrl;
+		this.repository = repository;
+		this.bare = bare;
+	}
+
+	@Override public CloneResult execute() {
+		// forget repository which might have been opened before clone (e.g. if previous clone failed)
+		repository.close();
+		try {
+			Git.cloneRepository()
+					.setURI(repoUrl)
+					.setDirectory(new File(repository.repoFolder()))
+					.setBare(bare)
+					.setProgressMonitor(new CancellableMonitor())
+					.call().close();
+			return new CloneResult();
+		} catch (GitAPIException | JGitInternalException e) {
+			return new CloneResult(vcsError(e));
+		}
+	}
+
+	@Override public String describe() {
+		return "in-process git clone " + repoUrl + " " + repository.repoFolder();
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		return true;
+	}
+
+	@SuppressWarnings("RedundantIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		JGitClone that = (JGitClone) o;
+
+		if (bare != that.bare) return false;
+		if (repoUrl != null ? !repoUrl.equals(that.repoUrl) : that.repoUrl != null) return false;
+		if (!repository.equals(that.repository)) return false;
+
+		return true;
+	}
+
+	@Override public int hashCode() {
+		int result = repoUrl != null ? repoUrl.hashCode() : 0;
+		result = 31 * result + repository.hashCode();
+		result = 31 * result + (bare ? 1 : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "JGitClone{" +
+				"repoUrl='" + repoUrl + '\'' +
+				", repoFolder='" + repository.repoFolder() + '\'' +
+				", bare=" + bare +
+				'}';
+	}
+
+
+	private class CancellableMonitor extends EmptyProgressMonitor {
+		@Override public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package org.vcsreader.vcs.jgit;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.LogResult;
+import org.vcsreader.VcsChange;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.Change;
+import org.vcsreader.vcs.Commit;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static java.util.Arrays.asList;
+import static org.vcsreader.VcsChange.Type.*;
+import static org.vcsreader.vcs.git.GitCommitParser.formatMessage;
+import static org.vcsreader.vcs.jgit.JGitRepository.vcsError;
+
+/**
+ * Equivalent of "git log --name-status" which runs in-process with JGit and produces the same commits as GitLog,
+ * i.e. commits are walked from the revision in the order of commit dates, filtered by committer date
+ * ("--after" is inclusive, "--before" is exclusive like in {@link TimeRange}), merge commits and commits
+ * at shallow clone boundary are skipped and changes are compared with the first parent with rename detection.
+ * <p>
+ * Note that like JGit {@link CommitTimeRevFilter#after(long)} history walk stops at the first commit older than time range,
+ * while git only stops walking parents of such commits, so results can differ for histories with skewed commit dates.
+ */
+class JGitLog implements VcsCommand<LogResult> {
+	/**
+	 * Default "diff.renameLimit" of git (JGit default is lower).
+	 */
+	private static final int defaultRenameLimit = 1000;
+
+	private final JGitRepository repository;
+	private final TimeRange timeRange;
+	@Nullable private final String revision;
+	@Nullable private final List<String> revisions;
+	private volatile boolean cancelled;
+
+
+	/**
+	 * @param revision revision from which history is logged, null means current HEAD
+	 */
+	JGitLog(JGitRepository repository, TimeRange timeRange, @Nullable String revision) {
+		this(repository, timeRange, revision, null);
+	}
+
+	private JGitLog(JGitRepository repository, TimeRange timeRange, @Nullable String revision, @Nullable List<String> revisions) {
+		this.repository = repository;
+		this.timeRange = timeRange;
+		this.revision = revision;
+		this.revisions = revisions;
+	}
+
+	/**
+	 * @return command which logs commits with the specified revisions without walking history (like "git log --no-walk")
+	 */
+	static JGitLog logRevisions(JGitRepository repository, Collection<String> revisions) {
+		return new JGitLog(repository, TimeRange.all, null, new ArrayList<>(revisions));
+	}
+
+	@Override public LogResult execute() {
+		try {
+			Repository gitRepository = repository.get();
+			try (ObjectReader reader = gitRepository.newObjectReader();
+			     RevWalk walk = new RevWalk(reader);
+			     DiffFormatter diffFormatter = newDiffFormatter(gitRepository, reader)) {
+				return revisions == null ?
+						new LogResult(log(gitRepository, reader, walk, diffFormatter)) :
+						logRevisions(gitRepository, walk, diffFormatter);
+			}
+		} catch (IOException | RevisionSyntaxException e) {
+			return new LogResult(vcsError(e));
+		}
+	}
+
+	private List<VcsCommit> log(Repository gitRepository, ObjectReader reader, RevWalk walk,
+	                            DiffFormatter diffFormatter) throws IOException {
+		String revisionName = revision == null ? Constants.HEAD : revision;
+		ObjectId startId = gitRepository.resolve(revisionName + "^{commit}");
+		if (startId == null) {
+			// e.g. repository without commits
+			if (revision == null) return new ArrayList<>();
+			throw new IOException("Unknown revision: " + revisionName);
+		}
+		walk.markStart(walk.parseCommit(startId));
+		for (ObjectId shallowCommit : reader.getShallowCommits()) {
+			// without parents all files in shallow commits would be reported as added
+			walk.markUninteresting(walk.parseCommit(shallowCommit));
+		}
+		walk.setRevFilter(revFilter(timeRange));
+
+		List<VcsCommit> result = new ArrayList<>();
+		for (RevCommit commit : walk) {
+			if (cancelled) throw new CancellationException("Log was cancelled");
+			result.add(toVcsCommit(walk, diffFormatter, commit));
+		}
+		return result;
+	}
+
+	private LogResult logRevisions(Repository gitRepository, RevWalk walk, DiffFormatter diffFormatter) throws IOException {
+		List<VcsCommit> commits = new ArrayList<>();
+		List<Exception> errors = new ArrayList<>();
+		//noinspection ConstantConditions
+		for (String revision : revisions) {
+			if (cancelled) throw new CancellationException("Log was cancelled");
+			RevCommit commit;
+			try {
+				// resolve() also throws if revision is id of missing object
+				ObjectId id = gitRepository.resolve(revision + "^{commit}");
+				commit = id == null ? null : walk.parseCommit(id);
+			} catch (MissingObjectException e) {
+				commit = null;
+			}
+			if (commit == null) {
+				errors.add(new VcsError("bad object " + revision));
+			} else if (commit.getParentCount() <= 1) {
+				commits.add(toVcsCommit(walk, diffFormatter, commit));
+			}
+		}
+		return new LogResult(commits, errors);
+	}
+
+	private static RevFilter revFilter(TimeRange timeRange) {
+		List<RevFilter> filters = new ArrayList<>(asList(RevFilter.NO_MERGES));
+		// MIN and MAX timestamps can't be converted to milliseconds
+		if (timeRange.from() != Instant.MIN) {
+			filters.add(CommitTimeRevFilter.after(timeRange.from().getEpochSecond() * 1000));
+		}
+		if (timeRange.to() != Instant.MAX) {
+			// JGit "before" filter is inclusive
+			filters.add(CommitTimeRevFilter.before((timeRange.to().getEpochSecond() - 1) * 1000));
+		}
+		return filters.size() == 1 ? filters.get(0) : AndRevFilter.create(filters);
+	}
+
+	private static DiffFormatter newDiffFormatter(Repository gitRepository, ObjectReader reader) {
+		DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+		diffFormatter.setReader(reader, gitRepository.getConfig());
+		diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+		diffFormatter.setDetectRenames(true);
+		diffFormatter.getRenameDetector().setRenameLimit(
+				gitRepository.getConfig().getInt("diff", "renameLimit", defaultRenameLimit)
+		);
+		return diffFormatter;
+	}
+
+	private static VcsCommit toVcsCommit(RevWalk walk, DiffFormatter diffFormatter, RevCommit commit) throws IOException {
+		String revision = commit.getName();
+		boolean isFirstCommit = commit.getParentCount() == 0;
+		RevCommit parent = isFirstCommit ? null : walk.parseCommit(commit.getParent(0));
+		String revisionBefore = parent == null ? VcsChange.noRevision : parent.getName();
+
+		List<Change> changes = new ArrayList<>();
+		for (DiffEntry entry : diffFormatter.scan(parent == null ? null : parent.getTree(), commit.getTree())) {
+			changes.add(toChange(entry, revision, revisionBefore));
+		}
+		Instant dateTime = commit.getAuthorIdent().getWhen().toInstant();
+		String author = commit.getAuthorIdent().getName();
+		return new Commit(revision, revisionBefore, dateTime, author, formatMessage(commit.getFullMessage()), changes);
+	}
+
+	private static Change toChange(DiffEntry entry, String revision, String revisionBefore) {
+		switch (entry.getChangeType()) {
+			case ADD:
+			// git doesn't detect copies without "-C" option, so copied file is reported as added
+			case COPY:
+				return new Change(Added, entry.getNewPath(), VcsChange.noFilePath, revision, VcsChange.noRevision);
+			case DELETE:
+				return new Change(Deleted, VcsChange.noFilePath, entry.getOldPath(), revision, revisionBefore);
+			case RENAME:
+				return new Change(Moved, entry.getNewPath(), entry.getOldPath(), revision, revisionBefore);
+			default:
+				return new Change(Modified, entry.getNewPath(), entry.getOldPath(), revision, revisionBefore);
+		}
+	}
+
+	@Override public String describe() {
+		if (revisions != null) return "in-process git log --no-walk " + revisions + " in " + repository.repoFolder();
+		return "in-process git log " + (revision == null ? "HEAD" : revision) + " " + timeRange + " in " + repository.repoFolder();
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		return true;
+	}
+
+	@SuppressWarnings("RedundantIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		JGitLog that = (JGitLog) o;
+
+		if (!repository.equals(that.repository)) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		if (revision != null ? !revision.equals(that.revision) : that.revision != null) return false;
+		if (revisions != null ? !revisions.equals(that.revisions) : that.revisions != null) return false;
+
+		return true;
+	}
+
+	@Override public int hashCode() {
+		int result = repository.hashCode();
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		result = 31 * result + (revisions != null ? revisions.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "JGitLog{" +
+				"repoFolder='" + repository.repoFolder() + '\'' +
+				", timeRange=" + timeRange +
+				", revision='" + revision + '\'' +
+				", revisions=" + revisions +
+				'}';
+	}
+}
@@ -0,0 +1,116 @@
+package org.vcsreader.vcs.jgit;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.vcsreader.LogFileContentResult;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.vcs.VcsCommand;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.vcsreader.lang.StringUtil.trimLastNewLine;
+
+/**
+ * Equivalent of "git show revision:filePath" which reads blob in-process with JGit.
+ * Content is decoded in the same way as by GitLogFileContent, i.e. with auto-detected charset if possible.
+ */
+class JGitLogFileContent implements VcsCommand<LogFileContentResult> {
+	private static final int maxBufferForCharsetDetection = 8192;
+	private static final int gitFatalErrorExitCode = 128;
+
+	private final JGitRepository repository;
+	private final String filePath;
+	private final String revision;
+	private final Charset charset;
+
+
+	JGitLogFileContent(JGitRepository repository, String filePath, String revision, Charset charset) {
+		this.repository = repository;
+		this.filePath = filePath;
+		this.revision = revision;
+		this.charset = charset;
+	}
+
+	@Override public LogFileContentResult execute() {
+		try {
+			Repository gitRepository = repository.get();
+			try (ObjectReader reader = gitRepository.newObjectReader(); RevWalk walk = new RevWalk(reader)) {
+				ObjectId commitId = gitRepository.resolve(revision + "^{commit}");
+				RevCommit commit;
+				try {
+					commit = commitId == null ? null : walk.parseCommit(commitId);
+				} catch (MissingObjectException e) {
+					commit = null;
+				}
+				if (commit == null) {
+					return new LogFileContentResult("fatal: invalid object name '" + revision + "'.", gitFatalErrorExitCode);
+				}
+
+				TreeWalk treeWalk = TreeWalk.forPath(reader, filePath, commit.getTree());
+				if (treeWalk == null) {
+					return new LogFileContentResult("fatal: path '" + filePath + "' does not exist in '" + revision + "'", gitFatalErrorExitCode);
+				}
+				FileMode fileMode = treeWalk.getFileMode(0);
+				if (fileMode == FileMode.TREE || fileMode == FileMode.GITLINK) {
+					return new LogFileContentResult("fatal: path '" + filePath + "' is not a file in '" + revision + "'", gitFatalErrorExitCode);
+				}
+
+				byte[] bytes = reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getBytes();
+				Charset detectedCharset = CommandLine.detectCharset(bytes, maxBufferForCharsetDetection);
+				String text = new String(bytes, detectedCharset != null ? detectedCharset : charset);
+				return new LogFileContentResult(trimLastNewLine(text));
+			}
+		} catch (IOException | RevisionSyntaxException e) {
+			return new LogFileContentResult(e);
+		}
+	}
+
+	@Override public String describe() {
+		return "in-process git show " + revision + ":" + filePath + " in " + repository.repoFolder();
+	}
+
+	@Override public boolean cancel() {
+		return true;
+	}
+
+	@SuppressWarnings("RedundantIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		JGitLogFileContent that = (JGitLogFileContent) o;
+
+		if (charset != null ? !charset.equals(that.charset) : that.charset != null) return false;
+		if (filePath != null ? !filePath.equals(that.filePath) : that.filePath != null) return false;
+		if (!repository.equals(that.repository)) return false;
+		if (revision != null ? !revision.equals(that.revision) : that.revision != null) return false;
+
+		return true;
+	}
+
+	@Override public int hashCode() {
+		int result = repository.hashCode();
+		result = 31 * result + (filePath != null ? filePath.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		result = 31 * result + (charset != null ? charset.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "JGitLogFileContent{" +
+				"repoFolder='" + repository.repoFolder() + '\'' +
+				", filePath='" + filePath + '\'' +
+				", revision='" + revision + '\'' +
+				", charset=" + charset +
+				'}';
+	}
+}
@@ -0,0 +1,72 @@
+package org.vcsreader.vcs.jgit;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.vcsreader.vcs.VcsError;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Lazily opened JGit repository shared by all commands of {@link JGitVcsRoot},
+ * so that pack files, indices and object caches are reused between commands instead of being read for each of them.
+ * This class is thread-safe (as {@link Repository} itself).
+ */
+class JGitRepository {
+	private final String repoFolder;
+	private Repository repository;
+
+
+	JGitRepository(String repoFolder) {
+		this.repoFolder = repoFolder;
+	}
+
+	synchronized Repository get() throws IOException {
+		if (repository == null) {
+			File folder = new File(repoFolder);
+			FileRepositoryBuilder builder = new FileRepositoryBuilder().setMustExist(true);
+			if (new File(folder, ".git").exists()) {
+				builder.setWorkTree(folder);
+			} else {
+				// bare repository
+				builder.setGitDir(folder);
+			}
+			repository = builder.build();
+		}
+		return repository;
+	}
+
+	synchronized void close() {
+		if (repository != null) {
+			repository.close();
+			repository = null;
+		}
+	}
+
+	String repoFolder() {
+		return repoFolder;
+	}
+
+	static VcsError vcsError(Exception e) {
+		return new VcsError(e.getMessage() != null ? e.getMessage() : e.toString());
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		JGitRepository that = (JGitRepository) o;
+
+		return repoFolder.equals(that.repoFolder);
+	}
+
+	@Override public int hashCode() {
+		return repoFolder.hashCode();
+	}
+
+	@Override public String toString() {
+		return "JGitRepository{" +
+				"repoFolder='" + repoFolder + '\'' +
+				'}';
+	}
+}
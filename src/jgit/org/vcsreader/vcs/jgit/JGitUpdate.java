@@ -0,0 +1,82 @@
+package org.vcsreader.vcs.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+import org.vcsreader.UpdateResult;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.io.IOException;
+
+import static org.vcsreader.vcs.jgit.JGitRepository.vcsError;
+
+/**
+ * Equivalent of "git pull origin" (or "git fetch origin" for bare repositories) which runs in-process with JGit.
+ */
+class JGitUpdate implements VcsCommand<UpdateResult> {
+	private final JGitRepository repository;
+	private volatile boolean cancelled;
+
+
+	JGitUpdate(JGitRepository repository) {
+		this.repository = repository;
+	}
+
+	@Override public UpdateResult execute() {
+		try {
+			Repository gitRepository = repository.get();
+			Git git = Git.wrap(gitRepository);
+			if (gitRepository.isBare()) {
+				git.fetch().setRemote("origin").setProgressMonitor(new CancellableMonitor()).call();
+				return new UpdateResult();
+			}
+			PullResult pullResult = git.pull().setRemote("origin").setProgressMonitor(new CancellableMonitor()).call();
+			if (pullResult.isSuccessful()) {
+				return new UpdateResult();
+			} else {
+				return new UpdateResult(new VcsError("Failed to pull from origin: " + pullResult));
+			}
+		} catch (IOException | GitAPIException | JGitInternalException e) {
+			return new UpdateResult(vcsError(e));
+		}
+	}
+
+	@Override public String describe() {
+		return "in-process git pull origin in " + repository.repoFolder();
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		return true;
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		JGitUpdate that = (JGitUpdate) o;
+
+		return repository.equals(that.repository);
+	}
+
+	@Override public int hashCode() {
+		return repository.hashCode();
+	}
+
+	@Override public String toString() {
+		return "JGitUpdate{" +
+				"repoFolder='" + repository.repoFolder() + '\'' +
+				'}';
+	}
+
+
+	private class CancellableMonitor extends EmptyProgressMonitor {
+		@Override public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package org.vcsreader.vcs.jgit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.*;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.MutableChangeView;
+import org.vcsreader.vcs.MutableCommitView;
+import org.vcsreader.vcs.RunningCommands;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsCommand.ExceptionWrapper;
+import org.vcsreader.vcs.VcsError;
+import org.vcsreader.vcs.git.GitSettings;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Alternative to {@link org.vcsreader.vcs.git.GitVcsRoot} which reads repository in-process with JGit
+ * instead of running git command line, so that reading history doesn't fork any processes.
+ * It's shipped as a separate "vcsreader-jgit" artifact, so that core library doesn't depend on JGit.
+ * <p>
+ * Commits and changes are the same as logged by {@link org.vcsreader.vcs.git.GitVcsRoot}.
+ * JGit repository is opened once and shared by all commands on this root (and roots created by {@link #withListener}),
+ * it should be released with {@link #close()} when the root is no longer used.
+ * <p>
+ * Only settings which are not specific to git command line are used, i.e. {@link GitSettings#defaultFileCharset()},
+ * {@link GitSettings#failFast()}, {@link GitSettings#maxConcurrentCommands()}, {@link GitSettings#rootTimeout()},
+ * {@link GitSettings#asyncExecutor()} and bare {@link GitSettings#cloneMode()}.
+ */
+public class JGitVcsRoot implements VcsRoot, VcsCommand.Observer, AutoCloseable {
+	@NotNull private final String repoFolder;
+	@Nullable private final String repoUrl;
+	@NotNull private final GitSettings settings;
+	private final VcsCommand.Listener listener;
+	private final RunningCommands runningCommands;
+	private final JGitRepository repository;
+
+
+	public JGitVcsRoot(@NotNull String repoFolder) {
+		this(repoFolder, null);
+	}
+
+	public JGitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl) {
+		this(repoFolder, repoUrl, GitSettings.defaults());
+	}
+
+	/**
+	 * @param repoFolder path to folder with repository from which history will be read.
+	 *                   If there is no local clone of repository, you can call {@link #cloneIt()} to clone it.
+	 * @param repoUrl    remote repository URL supported by JGit.
+	 * @param settings   settings which will be used by VCS commands executed on this root
+	 */
+	public JGitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl, GitSettings settings) {
+		this(repoFolder, repoUrl, settings, VcsCommand.Listener.none, new JGitRepository(repoFolder));
+	}
+
+	private JGitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl, @NotNull GitSettings settings,
+	                    VcsCommand.Listener listener, JGitRepository repository) {
+		this.repoFolder = repoFolder;
+		this.repoUrl = repoUrl;
+		this.settings = settings;
+		this.listener = listener;
+		this.runningCommands = new RunningCommands(settings.maxConcurrentCommands(), settings.rootTimeout());
+		this.repository = repository;
+	}
+
+	@Override public JGitVcsRoot withListener(VcsCommand.Listener listener) {
+		return new JGitVcsRoot(repoFolder, repoUrl, settings, listener, repository);
+	}
+
+	@Override public CloneResult cloneIt() {
+		return execute(jGitClone(), CloneResult.adapter);
+	}
+
+	@Override public CompletableFuture<CloneResult> cloneAsync() {
+		return executeAsync(jGitClone(), CloneResult.adapter);
+	}
+
+	private JGitClone jGitClone() {
+		if (repoUrl == null && settings.failFast()) {
+			throw new IllegalStateException("Cannot clone repository because remote URL is not specified for root: " + this);
+		}
+		return new JGitClone(repoUrl, repository, settings.cloneMode() != GitSettings.CloneMode.WorkingTree);
+	}
+
+	@Override public UpdateResult update() {
+		return execute(new JGitUpdate(repository), UpdateResult.adapter);
+	}
+
+	@Override public CompletableFuture<UpdateResult> updateAsync() {
+		return executeAsync(new JGitUpdate(repository), UpdateResult.adapter);
+	}
+
+	@Override public LogResult log(TimeRange timeRange) {
+		return execute(new JGitLog(repository, timeRange, null), LogResult.adapter);
+	}
+
+	@Override public CompletableFuture<LogResult> logAsync(TimeRange timeRange) {
+		return executeAsync(new JGitLog(repository, timeRange, null), LogResult.adapter);
+	}
+
+	/**
+	 * Reads commits in chronological order (oldest first) like {@link org.vcsreader.vcs.git.GitVcsRoot#logStream}.
+	 * Note that all commits are read before the stream is returned because JGit can only walk history
+	 * in reverse order after reading all commits.
+	 */
+	@Override public Stream<VcsCommit> logStream(TimeRange timeRange) {
+		LogResult logResult = logOldestFirst(timeRange);
+		if (!logResult.isSuccessful()) {
+			List<String> messages = logResult.exceptions().stream().map(Exception::getMessage).collect(toList());
+			throw new VcsError(messages);
+		}
+		return logResult.commits().stream();
+	}
+
+	/**
+	 * Visits commits in chronological order (oldest first) like {@link org.vcsreader.vcs.git.GitVcsRoot#log(TimeRange, LogVisitor)}.
+	 */
+	@Override public LogResult log(TimeRange timeRange, LogVisitor visitor) {
+		LogResult logResult = logOldestFirst(timeRange);
+		MutableCommitView commitView = new MutableCommitView();
+		MutableChangeView changeView = new MutableChangeView();
+		for (VcsCommit commit : logResult.commits()) {
+			commitView.visit(commit, changeView, visitor);
+		}
+		return new LogResult(new ArrayList<>(), logResult.exceptions());
+	}
+
+	private LogResult logOldestFirst(TimeRange timeRange) {
+		LogResult logResult = log(timeRange);
+		List<VcsCommit> commits = new ArrayList<>(logResult.commits());
+		Collections.reverse(commits);
+		return new LogResult(commits, logResult.exceptions());
+	}
+
+	@Override public LogResult logRevisions(Collection<String> revisions) {
+		if (revisions.isEmpty()) return new LogResult();
+		return execute(JGitLog.logRevisions(repository, revisions), LogResult.adapter);
+	}
+
+	@Override public LogFileContentResult logFileContent(String filePath, String revision) {
+		return execute(jGitLogFileContent(filePath, revision), LogFileContentResult.adapter);
+	}
+
+	@Override public CompletableFuture<LogFileContentResult> logFileContentAsync(String filePath, String revision) {
+		return executeAsync(jGitLogFileContent(filePath, revision), LogFileContentResult.adapter);
+	}
+
+	private JGitLogFileContent jGitLogFileContent(String filePath, String revision) {
+		return new JGitLogFileContent(repository, filePath, revision, settings.defaultFileCharset());
+	}
+
+	private <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
+		return runningCommands.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
+	}
+
+	private <T> CompletableFuture<T> executeAsync(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
+		return VcsCommand.supplyAsync(() -> execute(vcsCommand, exceptionWrapper), vcsCommand::cancel, settings.asyncExecutor());
+	}
+
+	/**
+	 * Closes JGit repository (it will be reopened if this root is used again).
+	 */
+	@Override public void close() {
+		repository.close();
+	}
+
+	@Override @NotNull public String repoFolder() {
+		return repoFolder;
+	}
+
+	@Override @Nullable public String repoUrl() {
+		return repoUrl;
+	}
+
+	@Override public boolean cancelLastCommand() {
+		return runningCommands.cancelAll();
+	}
+
+	@SuppressWarnings("RedundantIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		JGitVcsRoot that = (JGitVcsRoot) o;
+
+		if (!repoFolder.equals(that.repoFolder)) return false;
+		if (repoUrl != null ? !repoUrl.equals(that.repoUrl) : that.repoUrl != null) return false;
+		if (!settings.equals(that.settings)) return false;
+
+		return true;
+	}
+
+	@Override public int hashCode() {
+		int result = repoFolder.hashCode();
+		result = 31 * result + (repoUrl != null ? repoUrl.hashCode() : 0);
+		result = 31 * result + settings.hashCode();
+		return result;
+	}
+
+	@Override public String toString() {
+		return "JGitVcsRoot{" +
+				"repoFolder='" + repoFolder + '\'' +
+				", repoUrl='" + repoUrl + '\'' +
+				", settings=" + settings +
+				'}';
+	}
+}
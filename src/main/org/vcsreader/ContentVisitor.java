@@ -0,0 +1,28 @@
+package org.vcsreader;
+
+import java.util.Map;
+
+/**
+ * Callback for reading commits together with file contents in a single pass over history
+ * (see {@link org.vcsreader.vcs.git.GitVcsRoot#logWithContents} and {@link org.vcsreader.vcs.svn.SvnVcsRoot#logWithContents}).
+ * <p>
+ * Contents are visited before the first commit which references them and each content is visited only once,
+ * so that the same file content in several commits (e.g. after revert) is not read again.
+ * Commits are visited in chronological order (oldest first).
+ */
+public interface ContentVisitor {
+
+	/**
+	 * @param contentId id of content which can be used to match it with {@link #visitCommit} calls
+	 *                  (e.g. git blob id or SHA-1 checksum of svn file text)
+	 * @param content   file content as it's stored in repository, i.e. without charset conversion
+	 */
+	void visitContent(String contentId, byte[] content);
+
+	/**
+	 * @param contentIds ids of file contents after the commit by file path,
+	 *                   e.g. for added, modified and moved files (but not for git submodules).
+	 *                   Content of moved files might not be visited if the file was last changed before the logged time range.
+	 */
+	void visitCommit(VcsCommit commit, Map<String, String> contentIds);
+}
@@ -0,0 +1,50 @@
+package org.vcsreader;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Callback for reading commits without allocating {@link VcsCommit} and {@link VcsChange} objects
+ * (see {@link VcsProject#log(org.vcsreader.lang.TimeRange, LogVisitor)}).
+ * <p>
+ * Views passed to visitor methods are reused between calls and are only valid until the method returns.
+ * Therefore, any values which need to be kept must be explicitly copied, e.g. with {@link CharSequence#toString()}.
+ * Changes of a commit are visited right after the commit.
+ */
+public interface LogVisitor {
+
+	void visitCommit(CommitView commit);
+
+	void visitChange(ChangeView change);
+
+
+	/**
+	 * Reusable view of a commit. See {@link VcsCommit} for description of fields.
+	 */
+	interface CommitView {
+		@NotNull CharSequence revision();
+
+		@NotNull CharSequence revisionBefore();
+
+		long epochMillis();
+
+		@NotNull CharSequence author();
+
+		@NotNull CharSequence message();
+	}
+
+
+	/**
+	 * Reusable view of a change. See {@link VcsChange} for description of fields.
+	 */
+	interface ChangeView {
+		@NotNull VcsChange.Type type();
+
+		@NotNull CharSequence filePath();
+
+		@NotNull CharSequence filePathBefore();
+
+		@NotNull CharSequence revision();
+
+		@NotNull CharSequence revisionBefore();
+	}
+}
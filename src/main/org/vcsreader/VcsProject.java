@@ -1,21 +1,35 @@
 package org.vcsreader;
 
+import org.vcsreader.lang.Aggregatable;
 import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.CommandExecution;
 import org.vcsreader.vcs.VcsCommand;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
 import static java.util.stream.Collectors.toList;
 
 /**
  * Represents a project as a set of {@link VcsRoot}s.
  * This class is the main entry point for cloning/updating/reading version control history.
  * <p>
- * It is intended to be used from single thread
- * except for {@link #cancelLastCommand()} method which can be called from any thread.
+ * It can be used from several threads, e.g. to request file contents concurrently
+ * (see also async methods like {@link #logAsync(TimeRange)}).
+ * Note that {@link #cancelLastCommand()} cancels all currently running commands.
  */
 public class VcsProject {
 	private final List<VcsRoot> vcsRoots;
@@ -82,6 +96,72 @@ public class VcsProject {
 		return result;
 	}
 
+	/**
+	 * Asynchronous version of {@link #cloneIt()} which clones all {@link VcsRoot}s concurrently
+	 * using their async API (see {@link VcsRoot#cloneAsync()}).
+	 * Cancelling returned future cancels commands for all roots.
+	 */
+	public CompletableFuture<CloneResult> cloneAsync() {
+		List<CompletableFuture<CloneResult>> futures = new ArrayList<>();
+		for (VcsRoot vcsRoot : vcsRoots) {
+			futures.add(vcsRoot.cloneAsync());
+		}
+		return aggregateAsync(futures, new CloneResult(), (cloneResult, vcsRoot) -> cloneResult);
+	}
+
+	/**
+	 * Asynchronous version of {@link #update()} (see also {@link #cloneAsync()}).
+	 */
+	public CompletableFuture<UpdateResult> updateAsync() {
+		List<CompletableFuture<UpdateResult>> futures = new ArrayList<>();
+		for (VcsRoot vcsRoot : vcsRoots) {
+			futures.add(vcsRoot.updateAsync());
+		}
+		return aggregateAsync(futures, new UpdateResult(), (updateResult, vcsRoot) -> updateResult);
+	}
+
+	/**
+	 * Asynchronous version of {@link #log(TimeRange)} (see also {@link #cloneAsync()}).
+	 */
+	public CompletableFuture<LogResult> logAsync(TimeRange timeRange) {
+		List<CompletableFuture<LogResult>> futures = new ArrayList<>();
+		for (VcsRoot vcsRoot : vcsRoots) {
+			futures.add(vcsRoot.logAsync(timeRange));
+		}
+		return aggregateAsync(futures, new LogResult(), (logResult, vcsRoot) -> logResult != null ? logResult.setVcsRoot(vcsRoot) : null);
+	}
+
+	/**
+	 * Version of {@link #log(TimeRange)} which passes commits to the visitor as they are read from VCS
+	 * without allocating {@link VcsCommit} and {@link VcsChange} objects (where it's supported by VCS root).
+	 * Similar to {@link #logStream(TimeRange)} commits are not sorted across {@link VcsRoot}s.
+	 *
+	 * @return result which only contains exceptions
+	 */
+	public LogResult log(TimeRange timeRange, LogVisitor visitor) {
+		LogResult result = new LogResult();
+		for (VcsRoot vcsRoot : vcsRoots) {
+			LogResult logResult = vcsRoot.log(timeRange, visitor);
+			result = result.aggregateWith(logResult);
+		}
+		return result;
+	}
+
+	/**
+	 * Streaming version of {@link #log(TimeRange)} which reads commits from VCS as the stream is consumed
+	 * so that memory usage doesn't depend on the size of history.
+	 * Unlike {@link #log(TimeRange)} commits are not sorted across {@link VcsRoot}s,
+	 * i.e. they are read from one root after another (see also {@link VcsRoot#logStream(TimeRange)}).
+	 * <p>
+	 * The stream must be closed after use (e.g. with try-with-resources)
+	 * which will also terminate VCS command if the stream wasn't fully consumed.
+	 */
+	public Stream<VcsCommit> logStream(TimeRange timeRange) {
+		RootsLogIterator iterator = new RootsLogIterator(timeRange);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, ORDERED | NONNULL), false)
+				.onClose(iterator::close);
+	}
+
 	public VcsProject addListener(VcsCommand.Listener listener) {
 		compositeListener.add(listener);
 		return this;
@@ -111,9 +191,79 @@ public class VcsProject {
 		return "VcsProject{" + vcsRoots + '}';
 	}
 
+	/**
+	 * @param futures results for each of {@link #vcsRoots} in the same order
+	 */
+	private <T extends Aggregatable<T>> CompletableFuture<T> aggregateAsync(List<CompletableFuture<T>> futures, T result,
+	                                                                        BiFunction<T, VcsRoot, T> beforeAggregate) {
+		CompletableFuture<T> aggregatedFuture = new CompletableFuture<T>() {
+			@Override public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				if (cancelled) {
+					for (CompletableFuture<T> future : futures) {
+						future.cancel(mayInterruptIfRunning);
+					}
+				}
+				return cancelled;
+			}
+		};
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, e) -> {
+			if (e != null) {
+				aggregatedFuture.completeExceptionally(e);
+				return;
+			}
+			T aggregatedResult = result;
+			for (int i = 0; i < futures.size(); i++) {
+				aggregatedResult = aggregatedResult.aggregateWith(beforeAggregate.apply(futures.get(i).join(), vcsRoots.get(i)));
+			}
+			aggregatedFuture.complete(aggregatedResult);
+		});
+		return aggregatedFuture;
+	}
+
+
+	private class RootsLogIterator implements Iterator<VcsCommit> {
+		private final TimeRange timeRange;
+		private final Iterator<VcsRoot> rootsIterator = vcsRoots.iterator();
+		private VcsRoot vcsRoot;
+		private Stream<VcsCommit> stream;
+		private Iterator<VcsCommit> commitsIterator = Collections.emptyIterator();
+
+		private RootsLogIterator(TimeRange timeRange) {
+			this.timeRange = timeRange;
+		}
+
+		@Override public boolean hasNext() {
+			while (!commitsIterator.hasNext()) {
+				close();
+				if (!rootsIterator.hasNext()) return false;
+				vcsRoot = rootsIterator.next();
+				stream = vcsRoot.logStream(timeRange);
+				commitsIterator = stream.iterator();
+			}
+			return true;
+		}
+
+		@Override public VcsCommit next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			VcsCommit commit = commitsIterator.next();
+			if (commit instanceof VcsCommit.WithRootReference) {
+				((VcsCommit.WithRootReference) commit).setVcsRoot(vcsRoot);
+			}
+			return commit;
+		}
+
+		private void close() {
+			if (stream != null) {
+				stream.close();
+				stream = null;
+			}
+		}
+	}
+
 
 	private class CompositeListener implements VcsCommand.Listener {
-		private final List<VcsCommand.Listener> listeners = new ArrayList<>();
+		private final List<VcsCommand.Listener> listeners = new CopyOnWriteArrayList<>();
 
 		public void add(VcsCommand.Listener listener) {
 			listeners.add(listener);
@@ -134,5 +284,11 @@ public class VcsProject {
 				listener.afterCommand(command);
 			}
 		}
+
+		@Override public void afterCommand(VcsCommand<?> command, CommandExecution execution) {
+			for (VcsCommand.Listener listener : listeners) {
+				listener.afterCommand(command, execution);
+			}
+		}
 	}
 }
@@ -3,6 +3,20 @@ package org.vcsreader;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.MutableChangeView;
+import org.vcsreader.vcs.MutableCommitView;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
 
 /**
  * Represents VCS repository.
@@ -21,7 +35,95 @@ public interface VcsRoot {
 
 	LogResult log(TimeRange timeRange);
 
+	/**
+	 * Streaming version of {@link #log(TimeRange)} which reads commits as the stream is consumed.
+	 * The stream must be closed after use (e.g. with try-with-resources).
+	 * Any errors are thrown as exceptions because there is no result object to aggregate them into.
+	 * <p>
+	 * By default this method reads all commits using {@link #log(TimeRange)}.
+	 */
+	default Stream<VcsCommit> logStream(TimeRange timeRange) {
+		LogResult logResult = log(timeRange);
+		if (!logResult.isSuccessful()) {
+			List<String> messages = logResult.exceptions().stream().map(Exception::getMessage).collect(toList());
+			throw new VcsError(messages);
+		}
+		return logResult.commits().stream();
+	}
+
+	/**
+	 * Version of {@link #log(TimeRange)} which passes commits to the visitor instead of returning them.
+	 * The returned result only contains exceptions.
+	 * <p>
+	 * By default this method reads all commits using {@link #log(TimeRange)}.
+	 */
+	default LogResult log(TimeRange timeRange, LogVisitor visitor) {
+		LogResult logResult = log(timeRange);
+		MutableCommitView commitView = new MutableCommitView();
+		MutableChangeView changeView = new MutableChangeView();
+		for (VcsCommit commit : logResult.commits()) {
+			commitView.visit(commit, changeView, visitor);
+		}
+		return new LogResult(new ArrayList<>(), logResult.exceptions());
+	}
+
+	/**
+	 * Requests commits with the specified revisions (e.g. revisions mentioned in issue tracker or found by previous log),
+	 * which is much faster than reading the whole history when there are relatively few revisions.
+	 * Merge commits are not included into result.
+	 * Revisions which don't exist in repository are reported as errors by git and svn, and are skipped by hg.
+	 * In all cases commits of the other revisions are still read.
+	 * <p>
+	 * By default this method reads all commits using {@link #log(TimeRange)} and filters them by revision.
+	 */
+	default LogResult logRevisions(Collection<String> revisions) {
+		LogResult logResult = log(TimeRange.all);
+		Set<String> revisionSet = new HashSet<>(revisions);
+		List<VcsCommit> commits = logResult.commits().stream()
+				.filter(commit -> revisionSet.contains(commit.getRevision()))
+				.collect(toList());
+		return new LogResult(commits, logResult.exceptions());
+	}
+
 	LogFileContentResult logFileContent(String filePath, String revision);
 
+	/**
+	 * Cancels all commands which are currently running on this root (possibly in different threads).
+	 * The method name is kept for backward compatibility.
+	 *
+	 * @return true if there are no running commands, false otherwise
+	 */
 	boolean cancelLastCommand();
+
+	/**
+	 * Asynchronous version of {@link #cloneIt()}.
+	 * Cancelling returned future terminates VCS process.
+	 * <p>
+	 * By default this method calls {@link #cloneIt()} on {@link VcsCommand#defaultAsyncExecutor}
+	 * and uses {@link #cancelLastCommand()} for cancellation.
+	 */
+	default CompletableFuture<CloneResult> cloneAsync() {
+		return VcsCommand.supplyAsync(this::cloneIt, this::cancelLastCommand, VcsCommand.defaultAsyncExecutor);
+	}
+
+	/**
+	 * Asynchronous version of {@link #update()} (see also {@link #cloneAsync()}).
+	 */
+	default CompletableFuture<UpdateResult> updateAsync() {
+		return VcsCommand.supplyAsync(this::update, this::cancelLastCommand, VcsCommand.defaultAsyncExecutor);
+	}
+
+	/**
+	 * Asynchronous version of {@link #log(TimeRange)} (see also {@link #cloneAsync()}).
+	 */
+	default CompletableFuture<LogResult> logAsync(TimeRange timeRange) {
+		return VcsCommand.supplyAsync(() -> log(timeRange), this::cancelLastCommand, VcsCommand.defaultAsyncExecutor);
+	}
+
+	/**
+	 * Asynchronous version of {@link #logFileContent(String, String)} (see also {@link #cloneAsync()}).
+	 */
+	default CompletableFuture<LogFileContentResult> logFileContentAsync(String filePath, String revision) {
+		return VcsCommand.supplyAsync(() -> logFileContent(filePath, revision), this::cancelLastCommand, VcsCommand.defaultAsyncExecutor);
+	}
 }
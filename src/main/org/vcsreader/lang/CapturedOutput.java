@@ -0,0 +1,283 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Process output which is kept in memory while it's smaller than spill threshold
+ * and is written to a temporary file once the threshold is exceeded.
+ * The file is memory-mapped for reading so that heap usage doesn't depend on the size of output
+ * (this also allows reading output larger than the maximum size of java array).
+ * <p>
+ * Must be closed after use to delete temporary file.
+ */
+public class CapturedOutput implements AutoCloseable {
+	private static final int maxChunkSize = Integer.MAX_VALUE;
+
+	private final byte[] bytes;
+	private final File file;
+	private final long size;
+	private final List<ByteBuffer> buffers;
+	private final ProcessGovernor.Lease lease;
+
+
+	private CapturedOutput(byte[] bytes, File file, long size, List<ByteBuffer> buffers, ProcessGovernor.Lease lease) {
+		this.bytes = bytes;
+		this.file = file;
+		this.size = size;
+		this.buffers = buffers;
+		this.lease = lease;
+	}
+
+	public static CapturedOutput inMemory(@NotNull byte[] bytes) {
+		return inMemory(bytes, null);
+	}
+
+	private static CapturedOutput inMemory(@NotNull byte[] bytes, ProcessGovernor.Lease lease) {
+		return new CapturedOutput(bytes, null, bytes.length, Collections.singletonList(ByteBuffer.wrap(bytes).asReadOnlyBuffer()), lease);
+	}
+
+	/**
+	 * Reads input stream until the end.
+	 *
+	 * @param spillThreshold max amount of bytes kept in memory before output is written to a temporary file
+	 */
+	public static CapturedOutput read(InputStream inputStream, int bufferSize, long spillThreshold) throws IOException {
+		return read(inputStream, bufferSize, spillThreshold, ProcessGovernor.unlimited.newLease());
+	}
+
+	/**
+	 * Same as {@link #read(InputStream, int, long)} except that output kept in memory is acquired from the lease.
+	 * Output is also spilled to a temporary file if the lease can't acquire more bytes.
+	 * The lease is released when output is spilled to file or when captured output is closed.
+	 */
+	public static CapturedOutput read(InputStream inputStream, int bufferSize, long spillThreshold,
+	                                  @NotNull ProcessGovernor.Lease lease) throws IOException {
+		return read(inputStream, bufferSize, spillThreshold, lease, maxChunkSize);
+	}
+
+	static CapturedOutput read(InputStream inputStream, int bufferSize, long spillThreshold,
+	                           ProcessGovernor.Lease lease, int chunkSize) throws IOException {
+		try {
+			ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[bufferSize];
+			int n;
+			while ((n = inputStream.read(buffer, 0, buffer.length)) != -1) {
+				boolean acquired = lease.tryAcquire(n);
+				byteArrayStream.write(buffer, 0, n);
+				if (!acquired || byteArrayStream.size() > spillThreshold) {
+					lease.close();
+					return spillToFile(byteArrayStream, inputStream, buffer, chunkSize);
+				}
+			}
+			return inMemory(byteArrayStream.toByteArray(), lease);
+		} catch (IOException | RuntimeException e) {
+			lease.close();
+			throw e;
+		}
+	}
+
+	private static CapturedOutput spillToFile(ByteArrayOutputStream bytesRead, InputStream inputStream,
+	                                          byte[] buffer, int chunkSize) throws IOException {
+		File file = Files.createTempFile("vcsreader-output-", ".tmp").toFile();
+		try {
+			long size = bytesRead.size();
+			try (OutputStream outputStream = Files.newOutputStream(file.toPath())) {
+				bytesRead.writeTo(outputStream);
+				bytesRead.reset();
+				int n;
+				while ((n = inputStream.read(buffer, 0, buffer.length)) != -1) {
+					outputStream.write(buffer, 0, n);
+					size += n;
+				}
+			}
+			List<ByteBuffer> buffers = new ArrayList<>();
+			try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+				for (long position = 0; position < size; position += chunkSize) {
+					buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position)));
+				}
+			}
+			return new CapturedOutput(null, file, size, Collections.unmodifiableList(buffers), null);
+		} catch (IOException | RuntimeException e) {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+			throw e;
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public boolean isSpilledToFile() {
+		return file != null;
+	}
+
+	/**
+	 * @return read-only buffers with output in the original order
+	 * (there is more than one buffer only if output is larger than {@link Integer#MAX_VALUE} bytes)
+	 */
+	public List<ByteBuffer> buffers() {
+		List<ByteBuffer> result = new ArrayList<>();
+		for (ByteBuffer buffer : buffers) {
+			result.add(buffer.duplicate());
+		}
+		return result;
+	}
+
+	public InputStream inputStream() {
+		return new BuffersInputStream(buffers());
+	}
+
+	/**
+	 * @param from start position in output (inclusive)
+	 * @param to   end position in output (exclusive)
+	 */
+	public InputStream inputStream(long from, long to) {
+		return slice(from, to);
+	}
+
+	private BuffersInputStream slice(long from, long to) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+		}
+		List<ByteBuffer> result = new ArrayList<>();
+		long bufferStart = 0;
+		for (ByteBuffer buffer : buffers) {
+			long bufferEnd = bufferStart + buffer.limit();
+			if (bufferEnd > from && bufferStart < to) {
+				ByteBuffer slice = buffer.duplicate();
+				slice.limit((int) (Math.min(to, bufferEnd) - bufferStart));
+				slice.position((int) (Math.max(from, bufferStart) - bufferStart));
+				result.add(slice);
+			}
+			bufferStart = bufferEnd;
+		}
+		return new BuffersInputStream(result);
+	}
+
+	/**
+	 * @return position of the first occurrence of bytes in output starting from the specified position or -1 if not found
+	 */
+	public long indexOf(@NotNull byte[] bytes, long from) {
+		if (bytes.length == 0) return from;
+		long bufferStart = 0;
+		int bufferIndex = 0;
+		while (bufferIndex < buffers.size() && bufferStart + buffers.get(bufferIndex).limit() <= from) {
+			bufferStart += buffers.get(bufferIndex).limit();
+			bufferIndex++;
+		}
+		for (long position = Math.max(from, 0); position <= size - bytes.length; position++) {
+			while (position - bufferStart >= buffers.get(bufferIndex).limit()) {
+				bufferStart += buffers.get(bufferIndex).limit();
+				bufferIndex++;
+			}
+			if (buffers.get(bufferIndex).get((int) (position - bufferStart)) == bytes[0] && matchesAt(bytes, position)) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	private boolean matchesAt(byte[] bytes, long position) {
+		BuffersInputStream inputStream = slice(position, position + bytes.length);
+		for (byte b : bytes) {
+			if ((byte) inputStream.read() != b) return false;
+		}
+		return true;
+	}
+
+	public Reader reader(@NotNull Charset charset) {
+		return new InputStreamReader(inputStream(), charset);
+	}
+
+	/**
+	 * Note that this method loads all output into memory.
+	 */
+	public byte[] toByteArray() {
+		if (bytes != null) return bytes;
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Output is too large to fit into byte array: " + size + " bytes");
+		}
+		byte[] result = new byte[(int) size];
+		int offset = 0;
+		for (ByteBuffer buffer : buffers()) {
+			int length = buffer.remaining();
+			buffer.get(result, offset, length);
+			offset += length;
+		}
+		return result;
+	}
+
+	/**
+	 * Deletes temporary file if output was spilled to disk or releases memory budget if output was kept in memory.
+	 * Note that mapped buffers shouldn't be used after this method was called.
+	 */
+	@Override public void close() {
+		if (lease != null) lease.close();
+		if (file != null && file.exists() && !file.delete()) {
+			throw new UncheckedIOException(new IOException("Failed to delete temporary file: " + file));
+		}
+	}
+
+	@Override public String toString() {
+		return "CapturedOutput{" +
+				"size=" + size +
+				(file != null ? ", file=" + file : "") +
+				'}';
+	}
+
+
+	private static class BuffersInputStream extends InputStream {
+		private final Iterator<ByteBuffer> iterator;
+		private ByteBuffer buffer;
+
+		BuffersInputStream(List<ByteBuffer> buffers) {
+			this.iterator = buffers.iterator();
+			this.buffer = iterator.hasNext() ? iterator.next() : ByteBuffer.allocate(0);
+		}
+
+		@Override public int read() {
+			if (!nextBuffer()) return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		@Override public int read(@NotNull byte[] bytes, int offset, int length) {
+			if (length == 0) return 0;
+			if (!nextBuffer()) return -1;
+			int n = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, n);
+			return n;
+		}
+
+		@Override public int available() {
+			return buffer.remaining();
+		}
+
+		private boolean nextBuffer() {
+			while (!buffer.hasRemaining()) {
+				if (!iterator.hasNext()) return false;
+				buffer = iterator.next();
+			}
+			return true;
+		}
+	}
+}
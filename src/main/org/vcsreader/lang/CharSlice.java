@@ -0,0 +1,119 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Mutable view of a range in a char array which can be reused to avoid allocating strings.
+ * The content of a slice is only valid until the underlying array or the slice is modified,
+ * so use {@link #toString()} to keep a copy of the value.
+ * <p>
+ * Note that {@link #equals(Object)} and {@link #hashCode()} are not overridden because the slice is mutable.
+ */
+public final class CharSlice implements CharSequence {
+	private static final char[] empty = new char[0];
+
+	private char[] chars = empty;
+	private int start;
+	private int end;
+
+
+	public CharSlice set(char[] chars, int start, int end) {
+		this.chars = chars;
+		this.start = start;
+		this.end = end;
+		return this;
+	}
+
+	/**
+	 * Sets this slice to a sub-range of another slice.
+	 * Unlike {@link #subSequence(int, int)} doesn't allocate new slice.
+	 */
+	public CharSlice set(CharSlice slice, int from, int to) {
+		return set(slice.chars, slice.start + from, slice.start + to);
+	}
+
+	public CharSlice clear() {
+		return set(empty, 0, 0);
+	}
+
+	@Override public int length() {
+		return end - start;
+	}
+
+	@Override public char charAt(int index) {
+		return chars[start + index];
+	}
+
+	@Override public CharSequence subSequence(int from, int to) {
+		return new CharSlice().set(this, from, to);
+	}
+
+	public boolean isEmpty() {
+		return start == end;
+	}
+
+	/**
+	 * @return index of the first occurrence of the string (relative to the slice start) or -1 if there is no occurrence.
+	 */
+	public int indexOf(@NotNull String s, int from) {
+		int last = end - s.length();
+		for (int i = start + from; i <= last; i++) {
+			if (regionMatches(i, s)) return i - start;
+		}
+		return -1;
+	}
+
+	public int indexOf(char c, int from) {
+		for (int i = start + from; i < end; i++) {
+			if (chars[i] == c) return i - start;
+		}
+		return -1;
+	}
+
+	public boolean startsWith(@NotNull String s) {
+		return s.length() <= length() && regionMatches(start, s);
+	}
+
+	public boolean contentEquals(@NotNull CharSequence s) {
+		if (s.length() != length()) return false;
+		for (int i = 0; i < s.length(); i++) {
+			if (chars[start + i] != s.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Similar to {@link StringUtil#trim(String, String)} but modifies this slice.
+	 */
+	public CharSlice trim(@NotNull String charsToTrim) {
+		while (start < end && charsToTrim.indexOf(chars[start]) != -1) start++;
+		while (end > start && charsToTrim.indexOf(chars[end - 1]) != -1) end--;
+		return this;
+	}
+
+	/**
+	 * Similar to {@link Long#parseLong(String)} but doesn't allocate a string.
+	 */
+	public long parseLong() {
+		if (isEmpty()) throw new NumberFormatException("Empty string");
+		boolean isNegative = chars[start] == '-';
+		long result = 0;
+		for (int i = isNegative ? start + 1 : start; i < end; i++) {
+			int digit = chars[i] - '0';
+			if (digit < 0 || digit > 9) throw new NumberFormatException("For input string: \"" + toString() + "\"");
+			result = result * 10 + digit;
+		}
+		return isNegative ? -result : result;
+	}
+
+	private boolean regionMatches(int offset, String s) {
+		for (int j = 0; j < s.length(); j++) {
+			if (chars[offset + j] != s.charAt(j)) return false;
+		}
+		return true;
+	}
+
+	@NotNull @Override public String toString() {
+		return new String(chars, start, end - start);
+	}
+}
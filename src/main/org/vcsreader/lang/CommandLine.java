@@ -1,25 +1,41 @@
 package org.vcsreader.lang;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.mozilla.universalchardet.UniversalDetector;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class CommandLine {
 	public static final int exitCodeBeforeFinished = Integer.MIN_VALUE;
+	private static final long killTimeoutMillis = 200;
+	private static final ScheduledThreadPoolExecutor timeoutScheduler = createTimeoutScheduler();
 
 	private final Config config;
 	private final String[] commandAndArgs;
@@ -27,9 +43,23 @@ public class CommandLine {
 	private String stdout = "";
 	private String stderr = "";
 	private int exitCode = exitCodeBeforeFinished;
+	private CompletableFuture<String> stderrFuture;
+	private ScheduledFuture<?> timeoutTask;
+	private Deadline deadline = Deadline.none;
+	private boolean processAcquired;
+	private ProcessStats processStats;
+	private JfrEvents.Event processEvent = JfrEvents.Event.none;
+	private long processStartNanos;
+	private InputStream stdoutInputStream;
+	private volatile long stdoutBytes;
+	private volatile long stderrBytes;
+	private volatile boolean timedOut;
+	private boolean killed; // guarded by processRef
 
 	private final AtomicReference<Process> processRef = new AtomicReference<>();
 	private final Map<String, String> environment = new HashMap<>();
+	private byte[] stdin;
+	private CommandLine parent;
 
 
 	public CommandLine(Collection<String> commandAndArgs) {
@@ -56,6 +86,24 @@ public class CommandLine {
 		return this;
 	}
 
+	/**
+	 * @param bytes input which is written to process stdin (stdin is closed after that)
+	 */
+	public CommandLine stdin(@NotNull byte[] bytes) {
+		this.stdin = bytes;
+		return this;
+	}
+
+	/**
+	 * @param parent command line which runs while this one is executed (e.g. "git log" which needs "git show"
+	 *               for some of the commits), so this command line uses the same slot of {@link ProcessGovernor}
+	 *               instead of waiting for another one (which would deadlock if all slots are taken by parent commands)
+	 */
+	public CommandLine subCommandOf(@NotNull CommandLine parent) {
+		this.parent = parent;
+		return this;
+	}
+
 	public CommandLine outputCharset(@NotNull Charset charset) {
 		return new CommandLine(config.outputCharset(charset), commandAndArgs);
 	}
@@ -64,50 +112,236 @@ public class CommandLine {
 		return new CommandLine(config.charsetAutoDetect(value), commandAndArgs);
 	}
 
+	/**
+	 * @return command line with execution settings (e.g. buffer sizes and executor for reading process output)
+	 * taken from the specified config, while working directory and output charset settings are kept from this command line
+	 */
+	public CommandLine executionConfig(@NotNull Config config) {
+		CommandLine commandLine = new CommandLine(config.withCommandSettingsOf(this.config), commandAndArgs).environment(environment);
+		commandLine.stdin = stdin;
+		commandLine.parent = parent;
+		return commandLine;
+	}
+
 	public CommandLine execute() throws Failure {
+		executeHoldingStdout().close();
+		return this;
+	}
+
+	/**
+	 * Same as {@link #execute()} except that stdout is kept in memory budget of {@link ProcessGovernor}
+	 * until {@code handleOutput} returns, so that budget also bounds decoded stdout while it's being parsed.
+	 * After that stdout is released and is no longer available from {@link #stdout()}.
+	 */
+	public <T> T execute(Function<CommandLine, T> handleOutput) throws Failure {
+		ProcessGovernor.Lease stdoutLease = executeHoldingStdout();
+		try {
+			return handleOutput.apply(this);
+		} finally {
+			stdout = "";
+			stdoutLease.close();
+		}
+	}
+
+	private ProcessGovernor.Lease executeHoldingStdout() throws Failure {
+		ProcessGovernor.Lease stdoutLease = config.governor.newLease();
+		stdout = run(stdoutLease, (stdoutInputStream, lease) -> {
+			try {
+				byte[] bytes = readAsBytes(stdoutInputStream, config.stdoutBufferSize, lease);
+				stdoutBytes = bytes.length;
+				return convertToString(bytes);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return stdoutLease;
+	}
+
+	/**
+	 * Similar to {@link #execute()} but instead of converting stdout to string
+	 * it's captured into {@link CapturedOutput} which is written to a temporary file
+	 * if output is larger than {@link Config#stdoutSpillThreshold(long)}.
+	 * Stderr and exit code are available from this command line as usual.
+	 * Note that charset of captured stdout is not auto-detected (see {@link #outputCharset()}).
+	 *
+	 * @return captured stdout which must be closed after use
+	 */
+	public CapturedOutput executeCapturingStdout() throws Failure {
+		return run(config.governor.newLease(), (stdoutInputStream, lease) -> {
+			try {
+				CapturedOutput output = CapturedOutput.read(stdoutInputStream, config.stdoutBufferSize, config.stdoutSpillThreshold, lease);
+				stdoutBytes = output.size();
+				return output;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * @param stdoutLease lease for buffering stdout which is closed if execution fails
+	 */
+	private <T> T run(ProcessGovernor.Lease stdoutLease, BiFunction<InputStream, ProcessGovernor.Lease, T> readStdout) throws Failure {
 		Process process;
+		T result = null;
 		try {
 
 			ProcessBuilder builder = new ProcessBuilder(commandAndArgs).directory(config.workingDir);
 			builder.environment().putAll(environment);
-			process = builder.start();
-			processRef.set(process);
+			deadline = deadline();
+			acquireProcess(deadline);
+			process = startProcess(builder);
+			timeoutTask = scheduleTimeout(deadline);
+			writeStdinAsync(process);
 
 			try (final InputStream stdoutInputStream = process.getInputStream();
 				 final InputStream stderrInputStream = process.getErrorStream()) {
 
-				CompletableFuture<String> stdoutFuture = CompletableFuture.supplyAsync(
-						() -> readStreamTask(stdoutInputStream, config.stdoutBufferSize), config.asyncExecutor);
+				CompletableFuture<T> stdoutFuture = CompletableFuture.supplyAsync(
+						() -> readStdout.apply(stdoutInputStream, stdoutLease), config.asyncExecutor);
 				CompletableFuture<String> stderrFuture = CompletableFuture.supplyAsync(
-						() -> readStreamTask(stderrInputStream, config.stderrBufferSize), config.asyncExecutor);
+						() -> readStderrTask(stderrInputStream, config.stderrBufferSize), config.asyncExecutor);
 
-				stdout = stdoutFuture.get();
-				stderr = stderrFuture.get();
+				result = awaitOutput(stdoutFuture);
+				stderr = awaitOutput(stderrFuture);
 
 				process.waitFor();
 				process.destroy();
 				exitCode = process.exitValue();
 			}
+			if (timedOut) throw new Timeout(this);
 		} catch (Exception e) {
-			throw new Failure(e);
+			if (result instanceof AutoCloseable) closeQuietly((AutoCloseable) result);
+			stdoutLease.close();
+			if (timedOut) throw new Timeout(this);
+			throw e instanceof Failure ? (Failure) e : new Failure(e);
 		} finally {
-			kill(); // Make sure process is stopped in case of exceptions in java code.
+			cancelTimeout();
+			destroy(processRef.get()); // Make sure process is stopped in case of exceptions in java code.
+			processRef.set(null);
+			releaseProcess();
+			reportProcessEnd();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Starts process without reading its stdout so that it can be consumed incrementally with {@link #stdoutReader()}.
+	 * Because stdout is not buffered, the process will block on writing to it until the reader catches up.
+	 * Stderr is read asynchronously as in {@link #execute()}.
+	 * After stdout was read (or when the process is no longer needed) {@link #finish()} must be called.
+	 */
+	public CommandLine start() throws Failure {
+		try {
+
+			ProcessBuilder builder = new ProcessBuilder(commandAndArgs).directory(config.workingDir);
+			builder.environment().putAll(environment);
+			deadline = deadline();
+			acquireProcess(deadline);
+			Process process = startProcess(builder);
+			stdoutInputStream = new CountingInputStream(process.getInputStream());
+			timeoutTask = scheduleTimeout(deadline);
+			writeStdinAsync(process);
+
+			InputStream stderrInputStream = process.getErrorStream();
+			stderrFuture = CompletableFuture.supplyAsync(
+					() -> readStderrTask(stderrInputStream, config.stderrBufferSize), config.asyncExecutor);
+
+		} catch (Exception e) {
+			cancelTimeout();
+			destroy(processRef.get());
 			processRef.set(null);
+			releaseProcess();
+			reportProcessEnd();
+			throw e instanceof Failure ? (Failure) e : new Failure(e);
 		}
+		return this;
+	}
+
+	/**
+	 * @return reader for stdout of the process started with {@link #start()}.
+	 * Note that output charset is not auto-detected for streamed stdout.
+	 */
+	public Reader stdoutReader() {
+		Process process = processRef.get();
+		if (process == null) throw new IllegalStateException("Process is not running: " + describe());
+		return new InputStreamReader(stdoutInputStream, config.outputCharset);
+	}
+
+	/**
+	 * @return stdout of the process started with {@link #start()} as bytes,
+	 * e.g. for output which mixes text and binary data.
+	 */
+	public InputStream stdoutInputStream() {
+		Process process = processRef.get();
+		if (process == null) throw new IllegalStateException("Process is not running: " + describe());
+		return stdoutInputStream;
+	}
 
+	/**
+	 * Waits for process started with {@link #start()} to terminate and reads its stderr and exit code.
+	 * If stdout hasn't been fully read, it is closed, i.e. the process will fail to write remaining output.
+	 */
+	public CommandLine finish() throws Failure {
+		Process process = processRef.get();
+		if (process == null) return this;
+		try {
+
+			process.getInputStream().close();
+			stderr = awaitOutput(stderrFuture);
+			process.waitFor();
+			exitCode = process.exitValue();
+
+		} catch (Exception e) {
+			if (timedOut) throw new Timeout(this);
+			throw new Failure(e);
+		} finally {
+			cancelTimeout();
+			destroy(processRef.get());
+			processRef.set(null);
+			releaseProcess();
+			reportProcessEnd();
+		}
+		if (timedOut) throw new Timeout(this);
 		return this;
 	}
 
 	/**
+	 * Kills the process if it's running. If the process hasn't been started yet (e.g. it waits for a process slot
+	 * of {@link ProcessGovernor}), it won't be started, i.e. a command line cannot be executed after it was killed.
+	 *
 	 * @return true is underlying process is dead (or there is no process), false if process is still running.
 	 */
 	public boolean kill() {
-		Process process = processRef.get();
+		Process process;
+		synchronized (processRef) {
+			killed = true;
+			process = processRef.get();
+		}
+		return destroy(process);
+	}
+
+	/**
+	 * Starts process unless this command line was killed (e.g. while waiting for a process slot),
+	 * so that cancelled commands don't fork processes only to kill them straight away.
+	 */
+	private Process startProcess(ProcessBuilder builder) throws IOException {
+		synchronized (processRef) {
+			if (killed) throw new Failure("Command was killed before it started: " + describe());
+			reportProcessStart();
+			Process process = builder.start();
+			processRef.set(process);
+			return process;
+		}
+	}
+
+	private static boolean destroy(@Nullable Process process) {
 		if (process != null) {
 			process.destroy();
 			try {
-				for (int i = 0; i < 20 && process.isAlive(); i++) {
-					Thread.sleep(10);
+				if (!process.waitFor(killTimeoutMillis, MILLISECONDS)) {
+					process.destroyForcibly().waitFor(killTimeoutMillis, MILLISECONDS);
 				}
 			} catch (InterruptedException ignored) {
 			}
@@ -116,6 +350,86 @@ public class CommandLine {
 		return true;
 	}
 
+	/**
+	 * @return true if the process was killed because it didn't finish before timeout or deadline
+	 * (see {@link Config#timeout(Duration)} and {@link Deadline#runWithin})
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	private void acquireProcess(Deadline deadline) throws InterruptedException {
+		if (parent != null && parent.processRef.get() != null) return;
+		if (!config.governor.acquireProcess(deadline)) {
+			timedOut = true;
+			throw new Timeout(this);
+		}
+		processAcquired = true;
+	}
+
+	private void reportProcessStart() {
+		processStats = ProcessStats.current();
+		processStartNanos = System.nanoTime();
+		processEvent = JfrEvents.process.begin();
+	}
+
+	private void reportProcessEnd() {
+		if (processStats == null) return;
+		processStats.add(System.nanoTime() - processStartNanos, stdoutBytes, stderrBytes);
+		processStats = null;
+		processEvent.commit(String.join(" ", commandAndArgs), String.valueOf(config.workingDir), exitCode, stdoutBytes, stderrBytes);
+		processEvent = JfrEvents.Event.none;
+	}
+
+	private void releaseProcess() {
+		if (processAcquired) {
+			processAcquired = false;
+			config.governor.releaseProcess();
+		}
+	}
+
+	private Deadline deadline() {
+		Deadline deadline = Deadline.current().earliest(Deadline.after(config.timeout));
+		if (deadline.isExpired()) {
+			timedOut = true;
+			throw new Timeout(this);
+		}
+		return deadline;
+	}
+
+	private ScheduledFuture<?> scheduleTimeout(Deadline deadline) {
+		if (deadline.isNone()) return null;
+		return timeoutScheduler.schedule(() -> {
+			Process process = processRef.get();
+			if (process != null && process.isAlive()) {
+				timedOut = true;
+				destroy(process);
+			}
+		}, deadline.remainingNanos(), NANOSECONDS);
+	}
+
+	/**
+	 * Waits for process output at most until shortly after the deadline because output pipes might be inherited
+	 * by child processes which are not killed on timeout (e.g. ssh started by "git pull"),
+	 * so they can stay open after the process itself was killed.
+	 */
+	private <T> T awaitOutput(CompletableFuture<T> outputFuture) throws Exception {
+		if (deadline.isNone()) return outputFuture.get();
+		try {
+			long waitNanos = Math.max(0, deadline.remainingNanos()) + MILLISECONDS.toNanos(2 * killTimeoutMillis);
+			return outputFuture.get(waitNanos, NANOSECONDS);
+		} catch (TimeoutException e) {
+			timedOut = true;
+			throw new Timeout(this);
+		}
+	}
+
+	private void cancelTimeout() {
+		ScheduledFuture<?> task = timeoutTask;
+		if (task != null) task.cancel(false);
+		timeoutTask = null;
+	}
+
 	@NotNull
 	public String stdout() {
 		return stdout;
@@ -130,6 +444,21 @@ public class CommandLine {
 		return exitCode;
 	}
 
+	/**
+	 * @return number of stdout bytes read from the process
+	 */
+	public long stdoutBytes() {
+		return stdoutBytes;
+	}
+
+	public long stderrBytes() {
+		return stderrBytes;
+	}
+
+	public Charset outputCharset() {
+		return config.outputCharset;
+	}
+
 	public String describe() {
 		StringBuilder result = new StringBuilder();
 		for (int i = 0; i < commandAndArgs.length; i++) {
@@ -147,9 +476,22 @@ public class CommandLine {
 		return describe();
 	}
 
-	private String readStreamTask(final InputStream stdoutInputStream, final int inputBufferSize) {
+	private void writeStdinAsync(Process process) {
+		if (stdin == null) return;
+		byte[] bytes = stdin;
+		CompletableFuture.runAsync(() -> {
+			try (OutputStream outputStream = process.getOutputStream()) {
+				outputStream.write(bytes);
+			} catch (IOException ignored) {
+				// process exited without reading all input, its exit code and stderr will show what happened
+			}
+		}, config.asyncExecutor);
+	}
+
+	private String readStderrTask(final InputStream stderrInputStream, final int inputBufferSize) {
 		try {
-			byte[] bytes = readAsBytes(stdoutInputStream, inputBufferSize);
+			byte[] bytes = readAsBytes(stderrInputStream, inputBufferSize);
+			stderrBytes = bytes.length;
 			return convertToString(bytes);
 		} catch (IOException ex) {
 			throw new UncheckedIOException(ex);
@@ -164,6 +506,22 @@ public class CommandLine {
 		return new String(bytes, charset);
 	}
 
+	private static byte[] readAsBytes(InputStream inputStream, int inputBufferSize, ProcessGovernor.Lease lease) throws IOException {
+		ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[inputBufferSize];
+		int n;
+		while ((n = inputStream.read(buffer, 0, buffer.length)) != -1) {
+			try {
+				lease.acquire(n);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			byteArrayStream.write(buffer, 0, n);
+		}
+		byteArrayStream.flush();
+		return byteArrayStream.toByteArray();
+	}
+
 	private static byte[] readAsBytes(InputStream inputStream, int inputBufferSize) throws IOException {
 		ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
 		byte[] buffer = new byte[inputBufferSize];
@@ -175,7 +533,23 @@ public class CommandLine {
 		return byteArrayStream.toByteArray();
 	}
 
-	private static Charset detectCharset(byte[] bytes, int maxBufferForCharsetDetection) {
+	private static ScheduledThreadPoolExecutor createTimeoutScheduler() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("vcsreader-timeout-"));
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+
+	private static void closeQuietly(AutoCloseable closeable) {
+		try {
+			closeable.close();
+		} catch (Exception ignored) {
+		}
+	}
+
+	/**
+	 * @return charset detected from the beginning of bytes, or null if it can't be detected
+	 */
+	@Nullable public static Charset detectCharset(byte[] bytes, int maxBufferForCharsetDetection) {
 		UniversalDetector detector = new UniversalDetector(null);
 		try {
 			detector.handleData(bytes, 0, Math.min(bytes.length, maxBufferForCharsetDetection));
@@ -196,21 +570,59 @@ public class CommandLine {
 		return command;
 	}
 
+	private class CountingInputStream extends FilterInputStream {
+		CountingInputStream(InputStream inputStream) {
+			super(inputStream);
+		}
+
+		@Override public int read() throws IOException {
+			int result = super.read();
+			if (result != -1) stdoutBytes++;
+			return result;
+		}
+
+		@Override public int read(@NotNull byte[] bytes, int offset, int length) throws IOException {
+			int n = super.read(bytes, offset, length);
+			if (n > 0) stdoutBytes += n;
+			return n;
+		}
+	}
+
 	public static class Failure extends RuntimeException {
 		public Failure(Throwable cause) {
 			super(cause);
 		}
+
+		protected Failure(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Thrown when process was killed because it didn't finish before timeout or deadline.
+	 */
+	public static class Timeout extends Failure {
+		private static final long serialVersionUID = 1L;
+
+		public Timeout(CommandLine commandLine) {
+			super("Command timed out: " + commandLine.describe());
+		}
 	}
 
 	public static class Config {
 		private static final int defaultBufferSize = 8192;
+		public static final long defaultStdoutSpillThreshold = 64 * 1024 * 1024;
+		public static final Duration noTimeout = Duration.ZERO;
 		private static final File currentDirectory = null;
 		public static Config defaults = new Config(
 				currentDirectory,
 				defaultBufferSize,
 				defaultBufferSize,
 				Charset.defaultCharset(), false, defaultBufferSize,
-				ForkJoinPool.commonPool()
+				StreamPumpExecutors.defaultExecutor,
+				defaultStdoutSpillThreshold,
+				noTimeout,
+				ProcessGovernor.unlimited
 		);
 
 		private final File workingDir;
@@ -220,9 +632,20 @@ public class CommandLine {
 		private final boolean charsetAutoDetect;
 		private final int maxBufferForCharsetDetection;
 		private final Executor asyncExecutor;
+		private final long stdoutSpillThreshold;
+		private final Duration timeout;
+		private final ProcessGovernor governor;
 
 		public Config(File workingDir, int stdoutBufferSize, int stderrBufferSize, Charset outputCharset,
 					  boolean charsetAutoDetect, int maxBufferForCharsetDetection, Executor asyncExecutor) {
+			this(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, charsetAutoDetect,
+					maxBufferForCharsetDetection, asyncExecutor, defaultStdoutSpillThreshold, noTimeout,
+					ProcessGovernor.unlimited);
+		}
+
+		private Config(File workingDir, int stdoutBufferSize, int stderrBufferSize, Charset outputCharset,
+					   boolean charsetAutoDetect, int maxBufferForCharsetDetection, Executor asyncExecutor,
+					   long stdoutSpillThreshold, Duration timeout, ProcessGovernor governor) {
 			this.workingDir = workingDir;
 			this.stdoutBufferSize = stdoutBufferSize;
 			this.stderrBufferSize = stderrBufferSize;
@@ -230,25 +653,58 @@ public class CommandLine {
 			this.charsetAutoDetect = charsetAutoDetect;
 			this.maxBufferForCharsetDetection = maxBufferForCharsetDetection;
 			this.asyncExecutor = asyncExecutor;
+			this.stdoutSpillThreshold = stdoutSpillThreshold;
+			this.timeout = timeout;
+			this.governor = governor;
 		}
 
 		public Config workingDir(File newWorkingDirectory) {
 			return new Config(newWorkingDirectory, stdoutBufferSize, stderrBufferSize, outputCharset,
-					charsetAutoDetect, maxBufferForCharsetDetection, asyncExecutor);
+					charsetAutoDetect, maxBufferForCharsetDetection, asyncExecutor, stdoutSpillThreshold, timeout, governor);
 		}
 
 		public Config charsetAutoDetect(boolean value) {
 			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, value,
-					maxBufferForCharsetDetection, asyncExecutor);
+					maxBufferForCharsetDetection, asyncExecutor, stdoutSpillThreshold, timeout, governor);
 		}
 
 		public Config outputCharset(Charset charset) {
 			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, charset, charsetAutoDetect,
-					maxBufferForCharsetDetection, asyncExecutor);
+					maxBufferForCharsetDetection, asyncExecutor, stdoutSpillThreshold, timeout, governor);
 		}
 
+		/**
+		 * @param newAsyncExecutor executor for reading process stdout/stderr (see {@link StreamPumpExecutors})
+		 */
 		public Config asyncExecutor(Executor newAsyncExecutor) {
-			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, charsetAutoDetect, maxBufferForCharsetDetection, newAsyncExecutor);
+			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, charsetAutoDetect, maxBufferForCharsetDetection, newAsyncExecutor, stdoutSpillThreshold, timeout, governor);
+		}
+
+		/**
+		 * @param value max size of stdout in bytes kept in memory by {@link #executeCapturingStdout()},
+		 *              larger output is written to a temporary file
+		 */
+		public Config stdoutSpillThreshold(long value) {
+			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, charsetAutoDetect, maxBufferForCharsetDetection, asyncExecutor, value, timeout, governor);
+		}
+
+		/**
+		 * @param value max time the process can run before it's killed, {@link #noTimeout} means no limit
+		 */
+		public Config timeout(@NotNull Duration value) {
+			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, charsetAutoDetect, maxBufferForCharsetDetection, asyncExecutor, stdoutSpillThreshold, value, governor);
+		}
+
+		/**
+		 * @param value governor limiting the number of processes and buffered stdout shared with other command lines
+		 */
+		public Config governor(@NotNull ProcessGovernor value) {
+			return new Config(workingDir, stdoutBufferSize, stderrBufferSize, outputCharset, charsetAutoDetect, maxBufferForCharsetDetection, asyncExecutor, stdoutSpillThreshold, timeout, value);
+		}
+
+		private Config withCommandSettingsOf(Config config) {
+			return new Config(config.workingDir, stdoutBufferSize, stderrBufferSize, config.outputCharset,
+					config.charsetAutoDetect, maxBufferForCharsetDetection, asyncExecutor, stdoutSpillThreshold, timeout, governor);
 		}
 	}
 }
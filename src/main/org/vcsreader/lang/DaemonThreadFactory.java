@@ -0,0 +1,29 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads so that thread pools owned by the library don't prevent JVM from exiting.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+	private final String namePrefix;
+	private final AtomicInteger threadCount = new AtomicInteger();
+
+
+	public DaemonThreadFactory(@NotNull String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	@Override public Thread newThread(@NotNull Runnable runnable) {
+		Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	@Override public String toString() {
+		return "DaemonThreadFactory{" + namePrefix + "}";
+	}
+}
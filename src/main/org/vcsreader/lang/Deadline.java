@@ -0,0 +1,89 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Point in time after which running VCS commands should be terminated.
+ * <p>
+ * Deadline can be propagated to all command lines executed by the current thread
+ * using {@link #runWithin(Deadline, Supplier)}.
+ * This is used to limit the total time of VCS root operations which run several commands
+ * (see {@link CommandLine#execute()}).
+ */
+public class Deadline {
+	public static final Deadline none = new Deadline(Long.MAX_VALUE);
+	private static final ThreadLocal<Deadline> current = ThreadLocal.withInitial(() -> none);
+
+	private final long nanoTime;
+
+
+	private Deadline(long nanoTime) {
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * @param timeout zero or negative value means there is no deadline
+	 */
+	public static Deadline after(@NotNull Duration timeout) {
+		if (timeout.isZero() || timeout.isNegative()) return none;
+		long now = System.nanoTime();
+		long nanos;
+		try {
+			nanos = timeout.toNanos();
+		} catch (ArithmeticException e) {
+			return none;
+		}
+		// avoid overflow for very long timeouts
+		if (nanos >= Long.MAX_VALUE - now) return none;
+		return new Deadline(now + nanos);
+	}
+
+	/**
+	 * @return deadline of the current thread set by {@link #runWithin(Deadline, Supplier)} or {@link #none}
+	 */
+	public static Deadline current() {
+		return current.get();
+	}
+
+	/**
+	 * Runs supplier with {@link #current()} deadline set to the earliest of the current and the specified deadline.
+	 */
+	public static <T> T runWithin(@NotNull Deadline deadline, Supplier<T> supplier) {
+		Deadline previous = current.get();
+		current.set(previous.earliest(deadline));
+		try {
+			return supplier.get();
+		} finally {
+			current.set(previous);
+		}
+	}
+
+	public Deadline earliest(@NotNull Deadline that) {
+		if (this == none) return that;
+		if (that == none) return this;
+		return nanoTime - that.nanoTime <= 0 ? this : that;
+	}
+
+	public boolean isNone() {
+		return this == none;
+	}
+
+	public boolean isExpired() {
+		return !isNone() && remainingNanos() <= 0;
+	}
+
+	/**
+	 * @return nanoseconds until deadline or {@link Long#MAX_VALUE} if there is no deadline
+	 */
+	public long remainingNanos() {
+		if (isNone()) return Long.MAX_VALUE;
+		return nanoTime - System.nanoTime();
+	}
+
+	@Override public String toString() {
+		return isNone() ? "Deadline{none}" : "Deadline{remaining=" + Duration.ofNanos(remainingNanos()) + "}";
+	}
+}
@@ -0,0 +1,176 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Custom Java Flight Recorder events emitted by the library, so that recordings show
+ * which VCS process or parsing phase a slow command spent its time in.
+ * Events are in "vcsreader" category and can be enabled in recording settings by name (e.g. "org.vcsreader.Process").
+ * <p>
+ * Because the library is compiled for Java 8, event types are created via reflection with {@code jdk.jfr.EventFactory}.
+ * On JVMs without JFR API (or if event types can't be created) all events are no-op.
+ * When event type is not enabled in any recording, {@link EventType#begin()} returns no-op event,
+ * i.e. the cost is one check per command line or parsed log.
+ */
+public class JfrEvents {
+	/**
+	 * VCS process from spawn until exit.
+	 * Fields: command, working directory, exit code, stdout bytes, stderr bytes.
+	 */
+	public static final EventType process = EventType.create(
+			"org.vcsreader.Process", "VCS Process", "VCS process from spawn until exit",
+			field(String.class, "command"), field(String.class, "workingDirectory"), field(int.class, "exitCode"),
+			field(long.class, "stdoutBytes"), field(long.class, "stderrBytes")
+	);
+	/**
+	 * Parsing of VCS log output.
+	 * Fields: parser name, number of parsed commits.
+	 */
+	public static final EventType parse = EventType.create(
+			"org.vcsreader.Parse", "VCS Output Parsing", "Parsing of VCS log output",
+			field(String.class, "parser"), field(int.class, "commitCount")
+	);
+	/**
+	 * Resolution of renamed files in a single commit with additional VCS command (e.g. "git show -M").
+	 * Fields: revision, number of changes after resolution.
+	 */
+	public static final EventType renameResolution = EventType.create(
+			"org.vcsreader.RenameResolution", "VCS Rename Resolution", "Resolution of renamed files in commit with additional VCS command",
+			field(String.class, "revision"), field(int.class, "changeCount")
+	);
+
+	private static final String category = "vcsreader";
+
+
+	private static Field field(Class<?> type, String name) {
+		return new Field(type, name);
+	}
+
+
+	public static class EventType {
+		private static final EventType none = new EventType(null, null, null, null, null, null);
+
+		private final Object eventFactory;
+		private final Object jfrEventType;
+		private final Method newEvent;
+		private final Method isEnabled;
+		private final Method set;
+		private final Method[] beginAndCommit;
+
+		private EventType(Object eventFactory, Object jfrEventType, Method newEvent, Method isEnabled, Method set, Method[] beginAndCommit) {
+			this.eventFactory = eventFactory;
+			this.jfrEventType = jfrEventType;
+			this.newEvent = newEvent;
+			this.isEnabled = isEnabled;
+			this.set = set;
+			this.beginAndCommit = beginAndCommit;
+		}
+
+		private static EventType create(String name, String label, String description, Field... fields) {
+			try {
+				ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+				Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", true, classLoader);
+				Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", true, classLoader);
+				Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor", true, classLoader);
+				Class<?> eventClass = Class.forName("jdk.jfr.Event", true, classLoader);
+
+				Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+				List<Object> annotations = new ArrayList<>(Arrays.asList(
+						annotationElement.newInstance(Class.forName("jdk.jfr.Name", true, classLoader), name),
+						annotationElement.newInstance(Class.forName("jdk.jfr.Label", true, classLoader), label),
+						annotationElement.newInstance(Class.forName("jdk.jfr.Description", true, classLoader), description),
+						annotationElement.newInstance(Class.forName("jdk.jfr.Category", true, classLoader), new String[]{category})
+				));
+				Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class);
+				List<Object> values = new ArrayList<>();
+				for (Field field : fields) {
+					values.add(valueDescriptor.newInstance(field.type, field.name));
+				}
+
+				Object eventFactory = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, values);
+				Object jfrEventType = eventFactoryClass.getMethod("getEventType").invoke(eventFactory);
+				return new EventType(
+						eventFactory,
+						jfrEventType,
+						eventFactoryClass.getMethod("newEvent"),
+						Class.forName("jdk.jfr.EventType", true, classLoader).getMethod("isEnabled"),
+						eventClass.getMethod("set", int.class, Object.class),
+						new Method[]{eventClass.getMethod("begin"), eventClass.getMethod("commit")}
+				);
+			} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+				return none;
+			}
+		}
+
+		public boolean isEnabled() {
+			if (this == none) return false;
+			try {
+				return (Boolean) isEnabled.invoke(jfrEventType);
+			} catch (ReflectiveOperationException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * @return started event or {@link Event#none} if event type is not enabled
+		 */
+		@NotNull public Event begin() {
+			if (!isEnabled()) return Event.none;
+			try {
+				Object event = newEvent.invoke(eventFactory);
+				beginAndCommit[0].invoke(event);
+				return new Event(this, event);
+			} catch (ReflectiveOperationException e) {
+				return Event.none;
+			}
+		}
+	}
+
+
+	public static class Event {
+		public static final Event none = new Event(null, null);
+
+		private final EventType type;
+		private final Object jfrEvent;
+
+		private Event(EventType type, Object jfrEvent) {
+			this.type = type;
+			this.jfrEvent = jfrEvent;
+		}
+
+		/**
+		 * @param values values of event fields in the order they are declared in event type
+		 */
+		public void commit(Object... values) {
+			if (this == none) return;
+			try {
+				for (int i = 0; i < values.length; i++) {
+					type.set.invoke(jfrEvent, i, values[i]);
+				}
+				type.beginAndCommit[1].invoke(jfrEvent);
+			} catch (ReflectiveOperationException ignored) {
+			}
+		}
+
+		public boolean isNone() {
+			return this == none;
+		}
+	}
+
+
+	private static class Field {
+		private final Class<?> type;
+		private final String name;
+
+		Field(Class<?> type, String name) {
+			this.type = type;
+			this.name = name;
+		}
+	}
+}
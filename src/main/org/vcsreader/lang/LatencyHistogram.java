@@ -0,0 +1,113 @@
+package org.vcsreader.lang;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with buckets growing in powers of two (starting from 1 microsecond),
+ * i.e. percentiles have at most 2x error which is good enough to find slow commands.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LatencyHistogram {
+	private static final int bucketCount = 48;
+
+	private final AtomicLongArray buckets;
+	private final AtomicLong count;
+	private final AtomicLong totalNanos;
+	private final AtomicLong maxNanos;
+
+
+	public LatencyHistogram() {
+		this(new AtomicLongArray(bucketCount), 0, 0, 0);
+	}
+
+	private LatencyHistogram(AtomicLongArray buckets, long count, long totalNanos, long maxNanos) {
+		this.buckets = buckets;
+		this.count = new AtomicLong(count);
+		this.totalNanos = new AtomicLong(totalNanos);
+		this.maxNanos = new AtomicLong(maxNanos);
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		buckets.incrementAndGet(bucketIndex(nanos));
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		maxNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * @return histogram with values of both this and that histogram
+	 */
+	public LatencyHistogram merge(LatencyHistogram that) {
+		AtomicLongArray mergedBuckets = new AtomicLongArray(bucketCount);
+		for (int i = 0; i < bucketCount; i++) {
+			mergedBuckets.set(i, buckets.get(i) + that.buckets.get(i));
+		}
+		return new LatencyHistogram(
+				mergedBuckets,
+				count() + that.count(),
+				totalNanos() + that.totalNanos(),
+				Math.max(maxNanos(), that.maxNanos())
+		);
+	}
+
+	public LatencyHistogram copy() {
+		return merge(new LatencyHistogram());
+	}
+
+	public long count() {
+		return count.get();
+	}
+
+	public long totalNanos() {
+		return totalNanos.get();
+	}
+
+	public long maxNanos() {
+		return maxNanos.get();
+	}
+
+	public long meanNanos() {
+		long n = count();
+		return n == 0 ? 0 : totalNanos() / n;
+	}
+
+	/**
+	 * @param percentile value between 0 and 100
+	 * @return upper bound of the bucket which contains the percentile (but not more than max recorded value)
+	 */
+	public long percentileNanos(double percentile) {
+		long n = count();
+		if (n == 0) return 0;
+		long rank = (long) Math.ceil(n * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < bucketCount; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) return Math.min(bucketUpperBoundNanos(i), maxNanos());
+		}
+		return maxNanos();
+	}
+
+	private static int bucketIndex(long nanos) {
+		long micros = nanos / 1000;
+		int index = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(index, bucketCount - 1);
+	}
+
+	private static long bucketUpperBoundNanos(int index) {
+		if (index == bucketCount - 1) return Long.MAX_VALUE;
+		return (1L << index) * 1000;
+	}
+
+	@Override public String toString() {
+		return "LatencyHistogram{" +
+				"count=" + count() +
+				", meanNanos=" + meanNanos() +
+				", p50Nanos=" + percentileNanos(50) +
+				", p99Nanos=" + percentileNanos(99) +
+				", maxNanos=" + maxNanos() +
+				'}';
+	}
+}
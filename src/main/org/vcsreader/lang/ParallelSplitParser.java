@@ -0,0 +1,118 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * Parses captured output in parallel by splitting it into chunks at separator boundaries (e.g. commit start separator)
+ * so that each chunk can be parsed independently on fork-join pool. Results of chunks are concatenated in the original order.
+ * <p>
+ * Output is split as bytes without decoding, therefore splitting is only done for charsets
+ * in which separator bytes can't be part of another character (e.g. UTF-8),
+ * for other charsets or small outputs the whole output is parsed on the current thread.
+ */
+public class ParallelSplitParser {
+	private static final long defaultMinChunkSize = 4 * 1024 * 1024;
+	private static final int chunksPerThread = 4;
+
+
+	public static <T> List<T> parse(@NotNull CapturedOutput output, @NotNull Charset charset, @NotNull String separator,
+	                                @NotNull ForkJoinPool pool, @NotNull Function<Reader, List<T>> parser) {
+		return parse(output, charset, separator, pool, parser, defaultMinChunkSize);
+	}
+
+	static <T> List<T> parse(CapturedOutput output, Charset charset, String separator,
+	                         ForkJoinPool pool, Function<Reader, List<T>> parser, long minChunkSize) {
+		if (!canSplit(charset)) {
+			return parser.apply(output.reader(charset));
+		}
+		long chunkSize = Math.max(minChunkSize, output.size() / (pool.getParallelism() * chunksPerThread));
+		List<long[]> chunks = chunks(output, separator.getBytes(charset), chunkSize);
+		if (chunks.size() == 1) {
+			return parser.apply(output.reader(charset));
+		}
+		List<List<T>> chunkResults = new ArrayList<>();
+		for (int i = 0; i < chunks.size(); i++) {
+			chunkResults.add(null);
+		}
+		pool.invoke(new ParseTask<>(output, charset, parser, chunks, chunkResults, 0, chunks.size()));
+
+		List<T> result = new ArrayList<>();
+		for (List<T> chunkResult : chunkResults) {
+			result.addAll(chunkResult);
+		}
+		return result;
+	}
+
+	/**
+	 * @return start (inclusive) and end (exclusive) positions of chunks, each chunk except the first one starts with separator
+	 */
+	static List<long[]> chunks(CapturedOutput output, byte[] separator, long chunkSize) {
+		List<long[]> result = new ArrayList<>();
+		long start = 0;
+		while (true) {
+			long end = start + chunkSize >= output.size() ? -1 : output.indexOf(separator, start + chunkSize);
+			if (end == -1) {
+				result.add(new long[]{start, output.size()});
+				return result;
+			}
+			result.add(new long[]{start, end});
+			start = end;
+		}
+	}
+
+	private static boolean canSplit(Charset charset) {
+		return charset.equals(UTF_8) || charset.equals(US_ASCII) || charset.equals(ISO_8859_1);
+	}
+
+
+	/**
+	 * Parses chunks in the range by splitting it in halves until there is one chunk per task.
+	 * Each task writes result into its own slot of chunk results.
+	 */
+	private static class ParseTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CapturedOutput output;
+		private final Charset charset;
+		private final Function<Reader, List<T>> parser;
+		private final List<long[]> chunks;
+		private final List<List<T>> chunkResults;
+		private final int from;
+		private final int to;
+
+		ParseTask(CapturedOutput output, Charset charset, Function<Reader, List<T>> parser,
+		          List<long[]> chunks, List<List<T>> chunkResults, int from, int to) {
+			this.output = output;
+			this.charset = charset;
+			this.parser = parser;
+			this.chunks = chunks;
+			this.chunkResults = chunkResults;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override protected void compute() {
+			if (to - from == 1) {
+				long[] chunk = chunks.get(from);
+				chunkResults.set(from, parser.apply(new InputStreamReader(output.inputStream(chunk[0], chunk[1]), charset)));
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(
+					new ParseTask<>(output, charset, parser, chunks, chunkResults, from, middle),
+					new ParseTask<>(output, charset, parser, chunks, chunkResults, middle, to)
+			);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps path prefixes to values so that all prefixes of a path can be found in a single walk over its segments.
+ * Prefixes are matched by whole path segments, e.g. "src/main" matches "src/main/Foo.java" but not "src/mainframe".
+ * Empty prefix matches all paths.
+ * Prefixes which differ only by leading or trailing "/" (e.g. "src" and "src/") are the same prefix
+ * and all values put for it are kept.
+ */
+public class PathPrefixTrie<T> {
+	private final Node<T> root = new Node<>();
+
+
+	/**
+	 * Adds value for the prefix (values previously put for the same prefix are not replaced).
+	 */
+	public PathPrefixTrie<T> put(@NotNull String pathPrefix, @NotNull T value) {
+		Node<T> node = root;
+		for (String segment : segmentsOf(pathPrefix)) {
+			node = node.children.computeIfAbsent(segment, it -> new Node<>());
+		}
+		node.values.add(value);
+		return this;
+	}
+
+	/**
+	 * @return values of all prefixes matching the path ordered from the shortest to the longest prefix.
+	 */
+	@NotNull public List<T> valuesMatching(@NotNull String path) {
+		List<T> result = new ArrayList<>();
+		collectValuesMatching(path, result);
+		return result;
+	}
+
+	/**
+	 * Same as {@link #valuesMatching(String)} but adds values to the specified list
+	 * so that it can be reused across calls.
+	 */
+	public void collectValuesMatching(@NotNull String path, @NotNull List<T> result) {
+		Node<T> node = root;
+		result.addAll(node.values);
+
+		int start = 0;
+		int length = path.length();
+		while (start < length && node != null) {
+			int end = path.indexOf('/', start);
+			if (end == -1) end = length;
+			if (end > start) {
+				node = node.children.get(path.substring(start, end));
+				if (node != null) result.addAll(node.values);
+			}
+			start = end + 1;
+		}
+	}
+
+	private static List<String> segmentsOf(String path) {
+		List<String> result = new ArrayList<>();
+		for (String segment : path.split("/")) {
+			if (!segment.isEmpty()) result.add(segment);
+		}
+		return result;
+	}
+
+
+	private static class Node<T> {
+		private final Map<String, Node<T>> children = new HashMap<>();
+		private final List<T> values = new ArrayList<>(1);
+	}
+}
@@ -0,0 +1,200 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Limits the number of VCS processes running at the same time
+ * and the amount of process stdout buffered in memory by {@link CommandLine}.
+ * The same instance is supposed to be shared by all VCS roots of one type
+ * (see e.g. {@link org.vcsreader.vcs.git.GitSettings#withProcessGovernor(ProcessGovernor)}),
+ * so that a burst of requests doesn't fork hundreds of processes or exhaust heap.
+ * <p>
+ * Commands above the process limit wait until one of the processes has finished.
+ * Stdout is read in chunks and each chunk is acquired from memory budget via {@link Lease}.
+ * When budget is exhausted readers wait (which also makes VCS processes wait on writing to stdout)
+ * unless all readers holding the budget are waiting, in which case budget is exceeded to avoid deadlock.
+ * Output captured with {@link CommandLine#executeCapturingStdout()} is spilled to disk instead of waiting.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ProcessGovernor {
+	public static final ProcessGovernor unlimited = new ProcessGovernor(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+	private final int maxProcesses;
+	private final long maxBufferedBytes;
+	private final Object lock = new Object();
+	private int liveProcesses;
+	private long bufferedBytes;
+	private int leasesHoldingBytes;
+	private int leasesHoldingBytesWaiting;
+	private int waitingForProcess;
+	private int waitingForBytes;
+
+
+	/**
+	 * @param maxProcesses     max number of processes running at the same time
+	 * @param maxBufferedBytes max number of stdout bytes buffered in memory at the same time
+	 */
+	public ProcessGovernor(int maxProcesses, long maxBufferedBytes) {
+		if (maxProcesses < 1) {
+			throw new IllegalArgumentException("Max processes must be positive but was: " + maxProcesses);
+		}
+		if (maxBufferedBytes < 1) {
+			throw new IllegalArgumentException("Max buffered bytes must be positive but was: " + maxBufferedBytes);
+		}
+		this.maxProcesses = maxProcesses;
+		this.maxBufferedBytes = maxBufferedBytes;
+	}
+
+	/**
+	 * Waits until number of live processes is below the limit.
+	 *
+	 * @return false if deadline expired before process could be started
+	 */
+	public boolean acquireProcess(@NotNull Deadline deadline) throws InterruptedException {
+		synchronized (lock) {
+			waitingForProcess++;
+			try {
+				while (liveProcesses >= maxProcesses) {
+					if (deadline.isNone()) {
+						lock.wait();
+					} else {
+						long remainingNanos = deadline.remainingNanos();
+						if (remainingNanos <= 0) return false;
+						NANOSECONDS.timedWait(lock, remainingNanos);
+					}
+				}
+			} finally {
+				waitingForProcess--;
+			}
+			liveProcesses++;
+			return true;
+		}
+	}
+
+	public void releaseProcess() {
+		synchronized (lock) {
+			liveProcesses--;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return lease for buffering output of one process, it must be closed after output is no longer buffered
+	 */
+	public Lease newLease() {
+		return new Lease();
+	}
+
+	/**
+	 * @return number of threads waiting to start a process or to buffer process output
+	 */
+	public int queueDepth() {
+		synchronized (lock) {
+			return waitingForProcess + waitingForBytes;
+		}
+	}
+
+	public int liveProcesses() {
+		synchronized (lock) {
+			return liveProcesses;
+		}
+	}
+
+	public long bufferedBytes() {
+		synchronized (lock) {
+			return bufferedBytes;
+		}
+	}
+
+	public int maxProcesses() {
+		return maxProcesses;
+	}
+
+	public long maxBufferedBytes() {
+		return maxBufferedBytes;
+	}
+
+	@Override public String toString() {
+		synchronized (lock) {
+			return "ProcessGovernor{" +
+					"liveProcesses=" + liveProcesses + "/" + maxProcesses +
+					", bufferedBytes=" + bufferedBytes + "/" + maxBufferedBytes +
+					", queueDepth=" + (waitingForProcess + waitingForBytes) +
+					'}';
+		}
+	}
+
+
+	/**
+	 * Part of memory budget used for buffering output of a single process.
+	 */
+	public class Lease implements AutoCloseable {
+		private long bytes;
+
+		private Lease() {}
+
+		/**
+		 * Waits until {@code amount} of bytes fits into the budget.
+		 */
+		public void acquire(long amount) throws InterruptedException {
+			synchronized (lock) {
+				boolean isHolding = bytes > 0;
+				waitingForBytes++;
+				if (isHolding) leasesHoldingBytesWaiting++;
+				try {
+					while (!fitsIntoBudget(amount) && leasesHoldingBytesWaiting < leasesHoldingBytes) {
+						lock.wait();
+					}
+				} finally {
+					waitingForBytes--;
+					if (isHolding) leasesHoldingBytesWaiting--;
+				}
+				add(amount);
+			}
+		}
+
+		/**
+		 * @return false if {@code amount} of bytes doesn't fit into the budget
+		 */
+		public boolean tryAcquire(long amount) {
+			synchronized (lock) {
+				if (!fitsIntoBudget(amount)) return false;
+				add(amount);
+				return true;
+			}
+		}
+
+		public long bytes() {
+			synchronized (lock) {
+				return bytes;
+			}
+		}
+
+		/**
+		 * Releases all bytes acquired by this lease.
+		 */
+		@Override public void close() {
+			synchronized (lock) {
+				if (bytes == 0) return;
+				bufferedBytes -= bytes;
+				leasesHoldingBytes--;
+				bytes = 0;
+				lock.notifyAll();
+			}
+		}
+
+		private boolean fitsIntoBudget(long amount) {
+			return amount <= maxBufferedBytes - bufferedBytes;
+		}
+
+		private void add(long amount) {
+			if (amount <= 0) return;
+			if (bytes == 0) leasesHoldingBytes++;
+			bytes += amount;
+			bufferedBytes += amount;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.vcsreader.lang;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Accumulates statistics of processes run by {@link CommandLine}, e.g. to separate time spent in VCS processes
+ * from time spent parsing their output (see {@link org.vcsreader.vcs.CommandMetrics}).
+ * <p>
+ * Command lines report to {@link #current()} stats of the thread which started them,
+ * stats can be set for the current thread with {@link #runWith(ProcessStats, Supplier)}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ProcessStats {
+	/**
+	 * Stats which ignore all reported processes.
+	 */
+	public static final ProcessStats none = new ProcessStats();
+	private static final ThreadLocal<ProcessStats> current = ThreadLocal.withInitial(() -> none);
+
+	private final AtomicLong processCount = new AtomicLong();
+	private final AtomicLong processNanos = new AtomicLong();
+	private final AtomicLong stdoutBytes = new AtomicLong();
+	private final AtomicLong stderrBytes = new AtomicLong();
+
+
+	public static ProcessStats current() {
+		return current.get();
+	}
+
+	public static <T> T runWith(ProcessStats stats, Supplier<T> supplier) {
+		ProcessStats previous = current.get();
+		current.set(stats);
+		try {
+			return supplier.get();
+		} finally {
+			current.set(previous);
+		}
+	}
+
+	public void add(long wallNanos, long stdoutBytes, long stderrBytes) {
+		if (this == none) return;
+		this.processCount.incrementAndGet();
+		this.processNanos.addAndGet(wallNanos);
+		this.stdoutBytes.addAndGet(stdoutBytes);
+		this.stderrBytes.addAndGet(stderrBytes);
+	}
+
+	/**
+	 * @return number of forked processes
+	 */
+	public long processCount() {
+		return processCount.get();
+	}
+
+	/**
+	 * @return total wall time of processes from start until their output was read and they terminated
+	 */
+	public long processNanos() {
+		return processNanos.get();
+	}
+
+	public long stdoutBytes() {
+		return stdoutBytes.get();
+	}
+
+	public long stderrBytes() {
+		return stderrBytes.get();
+	}
+
+	@Override public String toString() {
+		return "ProcessStats{" +
+				"processCount=" + processCount +
+				", processNanos=" + processNanos +
+				", stdoutBytes=" + stdoutBytes +
+				", stderrBytes=" + stderrBytes +
+				'}';
+	}
+}
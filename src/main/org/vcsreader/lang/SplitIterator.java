@@ -0,0 +1,39 @@
+package org.vcsreader.lang;
+
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Similar to {@link StringUtil#split(String, String)} but reads text incrementally
+ * so that only the current substring (and a read buffer) is kept in memory.
+ * Empty substrings are skipped.
+ */
+public class SplitIterator implements Iterator<String> {
+	private final SplitReader splitReader;
+	private final CharSlice slice = new CharSlice();
+	private String next;
+
+
+	public SplitIterator(Reader reader, String separator) {
+		this.splitReader = new SplitReader(reader, separator);
+	}
+
+	public SplitIterator(Reader reader, String separator, int bufferSize) {
+		this.splitReader = new SplitReader(reader, separator, bufferSize);
+	}
+
+	@Override public boolean hasNext() {
+		if (next == null && splitReader.next(slice)) {
+			next = slice.toString();
+		}
+		return next != null;
+	}
+
+	@Override public String next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		String result = next;
+		next = null;
+		return result;
+	}
+}
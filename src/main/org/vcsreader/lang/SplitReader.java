@@ -0,0 +1,98 @@
+package org.vcsreader.lang;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Reads text incrementally splitting it by separator into a reusable {@link CharSlice}
+ * so that reading doesn't allocate memory except for growing internal buffer to fit the longest substring.
+ * Empty substrings are skipped.
+ */
+public class SplitReader {
+	private static final int defaultBufferSize = 8192;
+
+	private final Reader reader;
+	private final String separator;
+	private final int readSize;
+	private char[] buffer;
+	private int length = 0;
+	private int substringStart = 0;
+	private int searchFrom = 0;
+	private boolean isEndOfInput = false;
+
+
+	public SplitReader(Reader reader, String separator) {
+		this(reader, separator, defaultBufferSize);
+	}
+
+	public SplitReader(Reader reader, String separator, int bufferSize) {
+		this.reader = reader;
+		this.separator = separator;
+		this.readSize = bufferSize;
+		this.buffer = new char[bufferSize];
+	}
+
+	/**
+	 * Reads next substring into the slice.
+	 * Note that content of the slice is only valid until the next call of this method.
+	 *
+	 * @return false if there are no more substrings
+	 */
+	public boolean next(CharSlice slice) {
+		try {
+			while (true) {
+				int index = indexOfSeparator(searchFrom);
+				if (index != -1) {
+					int start = substringStart;
+					substringStart = index + separator.length();
+					searchFrom = substringStart;
+					if (index > start) {
+						slice.set(buffer, start, index);
+						return true;
+					}
+					continue;
+				}
+				if (isEndOfInput) {
+					if (substringStart == length) return false;
+					slice.set(buffer, substringStart, length);
+					substringStart = length;
+					return true;
+				}
+				readMore();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readMore() throws IOException {
+		int remaining = length - substringStart;
+		System.arraycopy(buffer, substringStart, buffer, 0, remaining);
+		length = remaining;
+		substringStart = 0;
+		// separator can be split between two reads
+		searchFrom = Math.max(0, length - separator.length() + 1);
+
+		if (buffer.length - length < readSize) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + readSize));
+		}
+		int n = reader.read(buffer, length, readSize);
+		if (n == -1) {
+			isEndOfInput = true;
+		} else {
+			length += n;
+		}
+	}
+
+	private int indexOfSeparator(int from) {
+		int last = length - separator.length();
+		for (int i = from; i <= last; i++) {
+			int j = 0;
+			while (j < separator.length() && buffer[i + j] == separator.charAt(j)) j++;
+			if (j == separator.length()) return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,88 @@
+package org.vcsreader.lang;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Executors for reading stdout/stderr of VCS processes (see {@link CommandLine.Config#asyncExecutor(Executor)}).
+ * <p>
+ * Tasks which read process output block until the process closes the stream.
+ * Therefore, they should not run on shared pools like {@link java.util.concurrent.ForkJoinPool#commonPool()}
+ * and must never wait in a queue, otherwise a process can block on writing to stderr
+ * while its stdout is being read, i.e. deadlock.
+ */
+public class StreamPumpExecutors {
+	private static final int defaultMaxPooledThreads = 64;
+	private static final long keepAliveSeconds = 60;
+
+	/**
+	 * Default executor used by {@link CommandLine.Config#defaults},
+	 * i.e. virtual threads on JDK 21+ and pooled platform threads on older JVMs.
+	 */
+	public static final Executor defaultExecutor = virtualThreadsIfSupported();
+
+
+	/**
+	 * Creates executor which reuses up to {@code maxPooledThreads} daemon threads.
+	 * When all pooled threads are busy, tasks run on new short-lived daemon threads
+	 * instead of waiting in a queue (see {@link StreamPumpExecutors} for the reason).
+	 * Note that this only limits the number of idle threads kept for reuse, not the number of threads:
+	 * there can be up to two threads per running process (for stdout and stderr).
+	 */
+	public static ExecutorService pooled(int maxPooledThreads) {
+		DaemonThreadFactory threadFactory = new DaemonThreadFactory("vcsreader-stream-pump-");
+		DaemonThreadFactory overflowThreadFactory = new DaemonThreadFactory("vcsreader-stream-pump-overflow-");
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				0, maxPooledThreads,
+				keepAliveSeconds, SECONDS,
+				new SynchronousQueue<>(),
+				threadFactory,
+				(task, pool) -> {
+					if (pool.isShutdown()) throw new IllegalStateException("Executor was shut down: " + pool);
+					overflowThreadFactory.newThread(task).start();
+				}
+		);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Creates executor which starts new virtual thread for each task.
+	 * Because the library is compiled for Java 8, virtual threads are looked up via reflection.
+	 *
+	 * @throws UnsupportedOperationException if current JVM doesn't support virtual threads (i.e. before JDK 21)
+	 */
+	public static ExecutorService virtualThreads() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by current JVM: " + System.getProperty("java.version"), e);
+		}
+	}
+
+	/**
+	 * @return executor with virtual threads if they are supported by current JVM,
+	 * otherwise {@link #pooled(int)} executor with default number of pooled threads
+	 */
+	@NotNull public static Executor virtualThreadsIfSupported() {
+		return isVirtualThreadsSupported() ? virtualThreads() : pooled(defaultMaxPooledThreads);
+	}
+
+	public static boolean isVirtualThreadsSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+}
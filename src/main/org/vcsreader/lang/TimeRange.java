@@ -60,8 +60,8 @@ public class TimeRange {
 
 		TimeRange timeRange = (TimeRange) o;
 
-		return from != null ? from.equals(timeRange.from) : timeRange.from == null &&
-				(to != null ? to.equals(timeRange.to) : timeRange.to == null);
+		if (from != null ? !from.equals(timeRange.from) : timeRange.from != null) return false;
+		return to != null ? to.equals(timeRange.to) : timeRange.to == null;
 	}
 
 	@Override public int hashCode() {
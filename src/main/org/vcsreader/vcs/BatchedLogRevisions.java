@@ -0,0 +1,130 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.LogResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Logs commits with the specified revisions running one log command per batch of revisions,
+ * so that command line arguments don't exceed length limits (i.e. there is one VCS process per batch).
+ * Batches are executed one after another and no more batches are started after the command was cancelled.
+ * <p>
+ * Some VCS fail the whole log command if one of revisions doesn't exist (e.g. git and svn),
+ * in which case the batch can be executed again without the missing revision
+ * so that one unknown revision doesn't hide commits of other revisions in the batch
+ * (the error about missing revision is still included into result).
+ */
+public class BatchedLogRevisions implements VcsCommand<LogResult> {
+	public static final int defaultBatchSize = 500;
+
+	private final List<String> revisions;
+	private final int batchSize;
+	private final Function<List<String>, VcsCommand<LogResult>> logBatch;
+	private final Function<String, String> missingRevision;
+	private final List<VcsCommand<LogResult>> batches = new ArrayList<>();
+	private final AtomicReference<VcsCommand<LogResult>> currentBatch = new AtomicReference<>();
+	private volatile boolean cancelled;
+
+
+	/**
+	 * @param logBatch        creates log command for a batch of revisions
+	 * @param missingRevision finds revision in error message of failed log command if the error is caused
+	 *                        by missing revision, otherwise returns null (it is never called if VCS skips missing revisions)
+	 */
+	public BatchedLogRevisions(Collection<String> revisions, int batchSize,
+	                           @NotNull Function<List<String>, VcsCommand<LogResult>> logBatch,
+	                           @NotNull Function<String, String> missingRevision) {
+		this.revisions = new ArrayList<>(revisions);
+		this.batchSize = batchSize;
+		this.logBatch = logBatch;
+		this.missingRevision = missingRevision;
+		for (int from = 0; from < this.revisions.size(); from += batchSize) {
+			List<String> batch = this.revisions.subList(from, Math.min(from + batchSize, this.revisions.size()));
+			batches.add(logBatch.apply(batch));
+		}
+	}
+
+	@Override public LogResult execute() {
+		LogResult result = new LogResult();
+		for (int from = 0, i = 0; from < revisions.size(); from += batchSize, i++) {
+			List<String> batch = new ArrayList<>(revisions.subList(from, Math.min(from + batchSize, revisions.size())));
+			LogResult batchResult = execute(batches.get(i));
+			while (batchResult != null && !batchResult.isSuccessful()) {
+				String revision = missingRevisionIn(batchResult);
+				if (revision == null || !batch.remove(revision)) break;
+				result = result.aggregateWith(new LogResult(new ArrayList<>(), batchResult.exceptions()));
+				batchResult = batch.isEmpty() ? new LogResult() : execute(logBatch.apply(batch));
+			}
+			if (batchResult == null) break;
+			result = result.aggregateWith(batchResult);
+		}
+		return result;
+	}
+
+	/**
+	 * @return result of log command or null if this command was cancelled
+	 */
+	@Nullable private LogResult execute(VcsCommand<LogResult> logCommand) {
+		currentBatch.set(logCommand);
+		try {
+			if (cancelled) return null;
+			LogResult logResult = logCommand.execute();
+			return cancelled ? null : logResult;
+		} finally {
+			currentBatch.set(null);
+		}
+	}
+
+	@Nullable private String missingRevisionIn(LogResult logResult) {
+		if (logResult.exceptions().size() != 1) return null;
+		String message = logResult.exceptions().get(0).getMessage();
+		return message == null ? null : missingRevision.apply(message);
+	}
+
+	@Override public String describe() {
+		List<String> descriptions = new ArrayList<>();
+		for (VcsCommand<LogResult> batch : batches) {
+			descriptions.add(batch.describe());
+		}
+		return String.join("\n", descriptions);
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		VcsCommand<LogResult> batch = currentBatch.get();
+		return batch == null || batch.cancel();
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		BatchedLogRevisions that = (BatchedLogRevisions) o;
+
+		if (batchSize != that.batchSize) return false;
+		if (!revisions.equals(that.revisions)) return false;
+		return batches.equals(that.batches);
+	}
+
+	@Override public int hashCode() {
+		int result = revisions.hashCode();
+		result = 31 * result + batchSize;
+		result = 31 * result + batches.hashCode();
+		return result;
+	}
+
+	@Override public String toString() {
+		return "BatchedLogRevisions{" +
+				"revisions=" + revisions +
+				", batchSize=" + batchSize +
+				", batches=" + batches +
+				'}';
+	}
+}
@@ -0,0 +1,63 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.lang.ProcessStats;
+
+/**
+ * Details of finished {@link VcsCommand} passed to {@link VcsCommand.Listener#afterCommand(VcsCommand, CommandExecution)}.
+ */
+public class CommandExecution {
+	private final long wallNanos;
+	private final ProcessStats processStats;
+	private final Object result;
+	private final Throwable exception;
+
+
+	public CommandExecution(long wallNanos, ProcessStats processStats, @Nullable Object result, @Nullable Throwable exception) {
+		this.wallNanos = wallNanos;
+		this.processStats = processStats;
+		this.result = result;
+		this.exception = exception;
+	}
+
+	/**
+	 * @return total wall time of the command including all VCS processes it ran
+	 */
+	public long wallNanos() {
+		return wallNanos;
+	}
+
+	/**
+	 * @return stats of VCS processes run by the command
+	 */
+	public ProcessStats processStats() {
+		return processStats;
+	}
+
+	/**
+	 * @return time spent outside of VCS processes, i.e. mostly parsing their output
+	 * (for streamed commands this includes time spent by the stream consumer)
+	 */
+	public long parseNanos() {
+		return Math.max(0, wallNanos - processStats.processNanos());
+	}
+
+	/**
+	 * @return result returned by the command (or null if the command threw exception or returned stream)
+	 */
+	@Nullable public Object result() {
+		return result;
+	}
+
+	@Nullable public Throwable exception() {
+		return exception;
+	}
+
+	@Override public String toString() {
+		return "CommandExecution{" +
+				"wallNanos=" + wallNanos +
+				", processStats=" + processStats +
+				", exception=" + exception +
+				'}';
+	}
+}
@@ -0,0 +1,415 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.CloneResult;
+import org.vcsreader.LogFileContentResult;
+import org.vcsreader.LogResult;
+import org.vcsreader.UpdateResult;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.LatencyHistogram;
+import org.vcsreader.lang.ProcessStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener which collects metrics of executed commands by VCS type and command type, e.g.
+ * latency histograms (with time spent in VCS processes separated from time spent parsing their output),
+ * number of forked processes, stdout/stderr bytes, number of commits/changes in log results
+ * and number of log cache hits/misses (cached log commands are reported as the log command they wrap, see {@link LogCache}).
+ * Metrics can be read with {@link #snapshot()} or via JMX (see {@link #registerMBean(String)}).
+ * <p>
+ * Usage example:
+ * <pre>
+ * CommandMetrics metrics = new CommandMetrics();
+ * project.addListener(metrics);
+ * ...
+ * metrics.snapshot().entries().forEach(System.out::println);
+ * </pre>
+ * This class is thread-safe.
+ */
+public class CommandMetrics implements VcsCommand.Listener, CommandMetricsMXBean {
+	private final Map<String, Stats> statsByCommand = new ConcurrentHashMap<>();
+
+
+	@Override public void beforeCommand(VcsCommand<?> command) {
+	}
+
+	@Override public void afterCommand(VcsCommand<?> command) {
+	}
+
+	@Override public void afterCommand(VcsCommand<?> command, CommandExecution execution) {
+		Boolean cacheHit = null;
+		if (command instanceof LogCache.Command) {
+			LogCache.Command cachedCommand = (LogCache.Command) command;
+			cacheHit = cachedCommand.isCacheHit();
+			command = cachedCommand.logCommand();
+		}
+		String vcs = vcsTypeOf(command);
+		String commandType = commandTypeOf(command);
+		statsByCommand.computeIfAbsent(vcs + "/" + commandType, key -> new Stats(vcs, commandType)).record(execution, cacheHit);
+	}
+
+	public Snapshot snapshot() {
+		List<Entry> entries = new ArrayList<>();
+		for (Stats stats : statsByCommand.values()) {
+			entries.add(stats.toEntry());
+		}
+		entries.sort(Comparator.comparing(Entry::key));
+		return new Snapshot(entries);
+	}
+
+	@Override public Map<String, Map<String, Long>> getStats() {
+		Snapshot snapshot = snapshot();
+		Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+		for (Entry entry : snapshot.entries()) {
+			result.put(entry.key(), entry.toMap());
+		}
+		for (Entry entry : snapshot.byVcs().values()) {
+			result.put(entry.vcs(), entry.toMap());
+		}
+		return result;
+	}
+
+	@Override public void reset() {
+		statsByCommand.clear();
+	}
+
+	/**
+	 * Registers metrics in platform MBean server as "org.vcsreader:type=CommandMetrics,name={name}".
+	 */
+	public ObjectName registerMBean(@NotNull String name) {
+		try {
+			ObjectName objectName = objectName(name);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Failed to register MBean: " + name, e);
+		}
+	}
+
+	public void unregisterMBean(@NotNull String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = objectName(name);
+			if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new IllegalStateException("Failed to unregister MBean: " + name, e);
+		}
+	}
+
+	private static ObjectName objectName(String name) throws JMException {
+		return new ObjectName("org.vcsreader:type=CommandMetrics,name=" + ObjectName.quote(name));
+	}
+
+	/**
+	 * @return VCS type based on package name, e.g. "git" for {@link org.vcsreader.vcs.git}
+	 */
+	private static String vcsTypeOf(VcsCommand<?> command) {
+		String className = command.getClass().getName();
+		int classStart = className.lastIndexOf('.');
+		if (classStart == -1) return "other";
+		String packageName = className.substring(0, classStart);
+		return packageName.substring(packageName.lastIndexOf('.') + 1);
+	}
+
+	private static String commandTypeOf(VcsCommand<?> command) {
+		String simpleName = command.getClass().getSimpleName();
+		return simpleName.isEmpty() ? command.getClass().getName() : simpleName;
+	}
+
+	@Override public String toString() {
+		return "CommandMetrics{" + statsByCommand.keySet() + "}";
+	}
+
+
+	private static class Stats {
+		private final String vcs;
+		private final String command;
+		private final LongAdder failures = new LongAdder();
+		private final LatencyHistogram wallTime = new LatencyHistogram();
+		private final LatencyHistogram processTime = new LatencyHistogram();
+		private final LatencyHistogram parseTime = new LatencyHistogram();
+		private final LongAdder processCount = new LongAdder();
+		private final LongAdder stdoutBytes = new LongAdder();
+		private final LongAdder stderrBytes = new LongAdder();
+		private final LongAdder commits = new LongAdder();
+		private final LongAdder changes = new LongAdder();
+		private final LongAdder cacheHits = new LongAdder();
+		private final LongAdder cacheMisses = new LongAdder();
+
+		Stats(String vcs, String command) {
+			this.vcs = vcs;
+			this.command = command;
+		}
+
+		/**
+		 * @param cacheHit true/false if the command was executed with log cache, otherwise null
+		 */
+		void record(CommandExecution execution, @Nullable Boolean cacheHit) {
+			ProcessStats processStats = execution.processStats();
+			wallTime.record(execution.wallNanos());
+			processTime.record(processStats.processNanos());
+			parseTime.record(execution.parseNanos());
+			processCount.add(processStats.processCount());
+			stdoutBytes.add(processStats.stdoutBytes());
+			stderrBytes.add(processStats.stderrBytes());
+
+			Object result = execution.result();
+			if (execution.exception() != null || !isSuccessful(result)) {
+				failures.increment();
+			}
+			if (result instanceof LogResult) {
+				List<VcsCommit> logCommits = ((LogResult) result).commits();
+				commits.add(logCommits.size());
+				for (VcsCommit commit : logCommits) {
+					changes.add(commit.getChanges().size());
+				}
+			}
+			if (cacheHit != null) {
+				(cacheHit ? cacheHits : cacheMisses).increment();
+			}
+		}
+
+		private static boolean isSuccessful(Object result) {
+			if (result instanceof LogResult) return ((LogResult) result).isSuccessful();
+			if (result instanceof LogFileContentResult) return ((LogFileContentResult) result).isSuccessful();
+			if (result instanceof CloneResult) return ((CloneResult) result).isSuccessful();
+			if (result instanceof UpdateResult) return ((UpdateResult) result).isSuccessful();
+			return true;
+		}
+
+		Entry toEntry() {
+			return new Entry(
+					vcs, command, failures.sum(),
+					wallTime.copy(), processTime.copy(), parseTime.copy(),
+					processCount.sum(), stdoutBytes.sum(), stderrBytes.sum(),
+					commits.sum(), changes.sum(), cacheHits.sum(), cacheMisses.sum()
+			);
+		}
+	}
+
+
+	public static class Snapshot {
+		private final List<Entry> entries;
+
+		Snapshot(List<Entry> entries) {
+			this.entries = Collections.unmodifiableList(entries);
+		}
+
+		/**
+		 * @return entries by command type ordered by VCS and command type
+		 */
+		public List<Entry> entries() {
+			return entries;
+		}
+
+		public Entry entry(String vcs, String command) {
+			for (Entry entry : entries) {
+				if (entry.vcs.equals(vcs) && entry.command.equals(command)) return entry;
+			}
+			return null;
+		}
+
+		/**
+		 * @return entries for all command types of each VCS merged together
+		 */
+		public Map<String, Entry> byVcs() {
+			Map<String, Entry> result = new LinkedHashMap<>();
+			for (Entry entry : entries) {
+				result.merge(entry.vcs, entry.withCommand(Entry.allCommands), Entry::merge);
+			}
+			return result;
+		}
+
+		/**
+		 * @return entries sorted by total wall time in descending order, e.g. to find slow commands
+		 */
+		public List<Entry> slowest() {
+			List<Entry> result = new ArrayList<>(entries);
+			result.sort(Comparator.comparing((Entry entry) -> entry.wallTime.totalNanos()).reversed());
+			return result;
+		}
+
+		@Override public String toString() {
+			return "Snapshot{entries=" + entries + "}";
+		}
+	}
+
+
+	public static class Entry {
+		static final String allCommands = "*";
+		private final String vcs;
+		private final String command;
+		private final long failures;
+		private final LatencyHistogram wallTime;
+		private final LatencyHistogram processTime;
+		private final LatencyHistogram parseTime;
+		private final long processCount;
+		private final long stdoutBytes;
+		private final long stderrBytes;
+		private final long commits;
+		private final long changes;
+		private final long cacheHits;
+		private final long cacheMisses;
+
+		Entry(String vcs, String command, long failures,
+		      LatencyHistogram wallTime, LatencyHistogram processTime, LatencyHistogram parseTime,
+		      long processCount, long stdoutBytes, long stderrBytes, long commits, long changes,
+		      long cacheHits, long cacheMisses) {
+			this.vcs = vcs;
+			this.command = command;
+			this.failures = failures;
+			this.wallTime = wallTime;
+			this.processTime = processTime;
+			this.parseTime = parseTime;
+			this.processCount = processCount;
+			this.stdoutBytes = stdoutBytes;
+			this.stderrBytes = stderrBytes;
+			this.commits = commits;
+			this.changes = changes;
+			this.cacheHits = cacheHits;
+			this.cacheMisses = cacheMisses;
+		}
+
+		Entry merge(Entry that) {
+			return new Entry(
+					vcs, command, failures + that.failures,
+					wallTime.merge(that.wallTime), processTime.merge(that.processTime), parseTime.merge(that.parseTime),
+					processCount + that.processCount, stdoutBytes + that.stdoutBytes, stderrBytes + that.stderrBytes,
+					commits + that.commits, changes + that.changes,
+					cacheHits + that.cacheHits, cacheMisses + that.cacheMisses
+			);
+		}
+
+		Entry withCommand(String command) {
+			return new Entry(vcs, command, failures, wallTime, processTime, parseTime,
+					processCount, stdoutBytes, stderrBytes, commits, changes, cacheHits, cacheMisses);
+		}
+
+		public String key() {
+			return vcs + "/" + command;
+		}
+
+		public String vcs() {
+			return vcs;
+		}
+
+		public String command() {
+			return command;
+		}
+
+		public long count() {
+			return wallTime.count();
+		}
+
+		/**
+		 * @return number of commands which threw exception or returned unsuccessful result
+		 */
+		public long failures() {
+			return failures;
+		}
+
+		/**
+		 * @return total duration of commands
+		 */
+		public LatencyHistogram wallTime() {
+			return wallTime;
+		}
+
+		/**
+		 * @return duration of VCS processes run by commands
+		 */
+		public LatencyHistogram processTime() {
+			return processTime;
+		}
+
+		/**
+		 * @return duration of commands outside of VCS processes (mostly parsing)
+		 */
+		public LatencyHistogram parseTime() {
+			return parseTime;
+		}
+
+		/**
+		 * @return number of forked VCS processes
+		 */
+		public long processCount() {
+			return processCount;
+		}
+
+		public long stdoutBytes() {
+			return stdoutBytes;
+		}
+
+		public long stderrBytes() {
+			return stderrBytes;
+		}
+
+		public long commits() {
+			return commits;
+		}
+
+		public long changes() {
+			return changes;
+		}
+
+		/**
+		 * @return number of log commands which returned cached result (see {@link LogCache})
+		 */
+		public long cacheHits() {
+			return cacheHits;
+		}
+
+		/**
+		 * @return number of log commands executed with log cache which didn't have cached result
+		 */
+		public long cacheMisses() {
+			return cacheMisses;
+		}
+
+		/**
+		 * @return entry values as a map with durations in microseconds (used by JMX)
+		 */
+		public Map<String, Long> toMap() {
+			Map<String, Long> result = new LinkedHashMap<>();
+			result.put("count", count());
+			result.put("failures", failures);
+			putLatencies(result, "wallTime", wallTime);
+			putLatencies(result, "processTime", processTime);
+			putLatencies(result, "parseTime", parseTime);
+			result.put("processCount", processCount);
+			result.put("stdoutBytes", stdoutBytes);
+			result.put("stderrBytes", stderrBytes);
+			result.put("commits", commits);
+			result.put("changes", changes);
+			result.put("cacheHits", cacheHits);
+			result.put("cacheMisses", cacheMisses);
+			return result;
+		}
+
+		private static void putLatencies(Map<String, Long> map, String name, LatencyHistogram histogram) {
+			map.put(name + "TotalMicros", TimeUnit.NANOSECONDS.toMicros(histogram.totalNanos()));
+			map.put(name + "MeanMicros", TimeUnit.NANOSECONDS.toMicros(histogram.meanNanos()));
+			map.put(name + "P50Micros", TimeUnit.NANOSECONDS.toMicros(histogram.percentileNanos(50)));
+			map.put(name + "P99Micros", TimeUnit.NANOSECONDS.toMicros(histogram.percentileNanos(99)));
+			map.put(name + "MaxMicros", TimeUnit.NANOSECONDS.toMicros(histogram.maxNanos()));
+		}
+
+		@Override public String toString() {
+			return "Entry{" + key() + ", " + toMap() + "}";
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package org.vcsreader.vcs;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link CommandMetrics}.
+ */
+public interface CommandMetricsMXBean {
+	/**
+	 * @return stats by command type (e.g. "git/GitLog") and by VCS type (e.g. "git"),
+	 * see {@link CommandMetrics.Entry#toMap()} for available values
+	 */
+	Map<String, Map<String, Long>> getStats();
+
+	void reset();
+}
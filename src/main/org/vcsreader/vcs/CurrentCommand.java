@@ -0,0 +1,43 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps track of the command which is currently executed as part of a request consisting of several commands
+ * (e.g. clone followed by maintenance), so that the request can be cancelled from another thread.
+ * Once the request was cancelled, each command which becomes current is cancelled before it's executed,
+ * so cancelling works even before the first command or between commands.
+ * <p>
+ * This class is thread-safe.
+ */
+public class CurrentCommand {
+	private VcsCommand<?> command;
+	private boolean cancelled;
+
+
+	public synchronized <T extends VcsCommand<?>> T set(@NotNull T command) {
+		this.command = command;
+		if (cancelled) command.cancel();
+		return command;
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return true if current command is not running (i.e. it was terminated), false otherwise
+	 */
+	public boolean cancel() {
+		VcsCommand<?> command;
+		synchronized (this) {
+			cancelled = true;
+			command = this.command;
+		}
+		return command == null || command.cancel();
+	}
+
+	@Override public String toString() {
+		return "CurrentCommand{" + command + ", cancelled=" + cancelled + '}';
+	}
+}
@@ -0,0 +1,159 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.LogResult;
+import org.vcsreader.lang.TimeRange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caches log results of VCS root while repository head fingerprint doesn't change,
+ * so that polling idle repository doesn't run VCS log command.
+ * Fingerprint is a string which changes when repository gets new commits (e.g. content of git refs)
+ * and is expected to be much cheaper to get than log itself.
+ * When fingerprint changes all cached results are discarded.
+ * <p>
+ * Only successful results are cached. Results are cached per time range,
+ * so time ranges which move with current time (e.g. "last week") never hit the cache.
+ * The least recently used time ranges are evicted when there are more than max entries.
+ * Cached results are shared between callers and shouldn't be modified.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LogCache {
+	private final int maxEntries;
+	private final Map<TimeRange, LogResult> results;
+	private String fingerprint;
+
+
+	public LogCache(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Max entries must be positive but was: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.results = new LinkedHashMap<TimeRange, LogResult>(16, 0.75f, true) {
+			@Override protected boolean removeEldestEntry(Map.Entry<TimeRange, LogResult> eldest) {
+				return size() > LogCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param timeRange   time range requested from log command
+	 * @param fingerprint supplier of current repository head fingerprint,
+	 *                    it's called when the command is executed and can return null if fingerprint is unknown
+	 *                    (in which case log command is always executed)
+	 * @param logCommand  command to execute if there is no cached result
+	 * @return command which returns cached result or executes log command and caches its result
+	 */
+	public Command cached(@NotNull TimeRange timeRange, @NotNull Supplier<String> fingerprint,
+	                      @NotNull VcsCommand<LogResult> logCommand) {
+		return new Command(this, timeRange, fingerprint, logCommand);
+	}
+
+	@Nullable synchronized LogResult get(TimeRange timeRange, @Nullable String fingerprint) {
+		if (fingerprint == null || !fingerprint.equals(this.fingerprint)) return null;
+		return results.get(timeRange);
+	}
+
+	synchronized void put(TimeRange timeRange, @Nullable String fingerprint, LogResult logResult) {
+		if (fingerprint == null || !logResult.isSuccessful()) return;
+		if (!fingerprint.equals(this.fingerprint)) {
+			results.clear();
+			this.fingerprint = fingerprint;
+		}
+		results.put(timeRange, logResult);
+	}
+
+	public synchronized void clear() {
+		results.clear();
+		fingerprint = null;
+	}
+
+	@Override public synchronized String toString() {
+		return "LogCache{" +
+				"maxEntries=" + maxEntries +
+				", entries=" + results.size() +
+				", fingerprint='" + fingerprint + '\'' +
+				'}';
+	}
+
+
+	/**
+	 * Log command which checks repository fingerprint and returns cached result if it's available.
+	 * {@link CommandMetrics} reports it as the wrapped log command and counts cache hits and misses.
+	 */
+	public static class Command implements VcsCommand<LogResult> {
+		private final LogCache cache;
+		private final TimeRange timeRange;
+		private final Supplier<String> fingerprint;
+		private final VcsCommand<LogResult> logCommand;
+		private volatile boolean cacheHit;
+
+
+		private Command(LogCache cache, TimeRange timeRange, Supplier<String> fingerprint, VcsCommand<LogResult> logCommand) {
+			this.cache = cache;
+			this.timeRange = timeRange;
+			this.fingerprint = fingerprint;
+			this.logCommand = logCommand;
+		}
+
+		@Override public LogResult execute() {
+			String currentFingerprint = fingerprint.get();
+			LogResult logResult = cache.get(timeRange, currentFingerprint);
+			if (logResult != null) {
+				cacheHit = true;
+				return logResult;
+			}
+			logResult = logCommand.execute();
+			cache.put(timeRange, currentFingerprint, logResult);
+			return logResult;
+		}
+
+		public VcsCommand<LogResult> logCommand() {
+			return logCommand;
+		}
+
+		/**
+		 * @return true if the last execution of this command returned cached result
+		 */
+		public boolean isCacheHit() {
+			return cacheHit;
+		}
+
+		@Override public String describe() {
+			return logCommand.describe();
+		}
+
+		@Override public boolean cancel() {
+			return logCommand.cancel();
+		}
+
+		@SuppressWarnings("SimplifiableIfStatement")
+		@Override public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+
+			Command that = (Command) o;
+
+			if (!timeRange.equals(that.timeRange)) return false;
+			return logCommand.equals(that.logCommand);
+		}
+
+		@Override public int hashCode() {
+			int result = timeRange.hashCode();
+			result = 31 * result + logCommand.hashCode();
+			return result;
+		}
+
+		@Override public String toString() {
+			return "LogCache.Command{" +
+					"timeRange=" + timeRange +
+					", logCommand=" + logCommand +
+					'}';
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.vcsreader.vcs;
+
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.SplitIterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+
+/**
+ * Parses commits from stdout of a started {@link CommandLine} as the consumer advances.
+ * Because stdout is not buffered, VCS process is blocked by the operating system
+ * when consumer is slower than the process (i.e. only a few commits are kept in memory at any time).
+ * <p>
+ * Closing the stream before all commits have been read kills VCS process.
+ * If VCS command fails, {@link VcsError} is thrown after the last commit.
+ */
+public class LogStream implements Iterator<VcsCommit>, AutoCloseable {
+	private final CommandLine commandLine;
+	private final Iterator<String> commitsAsString;
+	private final Function<String, VcsCommit> parseCommit;
+	private final Predicate<CommandLine> isSuccessful;
+	private VcsCommit next;
+	private boolean isFinished;
+
+
+	/**
+	 * @param commandLine     command line which was already started with {@link CommandLine#start()}
+	 * @param commitSeparator separator between commits in command line output
+	 * @param parseCommit     function to parse a commit; it can return null to skip commit (e.g. for merge commits)
+	 * @param isSuccessful    function to check if command line finished successfully
+	 */
+	public LogStream(CommandLine commandLine, String commitSeparator,
+	                 Function<String, VcsCommit> parseCommit, Predicate<CommandLine> isSuccessful) {
+		this.commandLine = commandLine;
+		this.commitsAsString = new SplitIterator(commandLine.stdoutReader(), commitSeparator);
+		this.parseCommit = parseCommit;
+		this.isSuccessful = isSuccessful;
+	}
+
+	public Stream<VcsCommit> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, ORDERED | NONNULL), false).onClose(this::close);
+	}
+
+	@Override public boolean hasNext() {
+		while (next == null && !isFinished) {
+			if (commitsAsString.hasNext()) {
+				next = parseCommit.apply(commitsAsString.next());
+			} else {
+				finish();
+			}
+		}
+		return next != null;
+	}
+
+	@Override public VcsCommit next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		VcsCommit result = next;
+		next = null;
+		return result;
+	}
+
+	private void finish() {
+		isFinished = true;
+		commandLine.finish();
+		if (!isSuccessful.test(commandLine)) {
+			throw new VcsError(commandLine.stderr());
+		}
+	}
+
+	@Override public void close() {
+		if (isFinished) return;
+		isFinished = true;
+		commandLine.kill();
+		commandLine.finish();
+	}
+}
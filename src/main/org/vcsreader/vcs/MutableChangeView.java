@@ -0,0 +1,51 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+import org.vcsreader.LogVisitor;
+import org.vcsreader.VcsChange;
+
+/**
+ * Reusable {@link LogVisitor.ChangeView} which is filled in by log parsers.
+ */
+public class MutableChangeView implements LogVisitor.ChangeView {
+	@NotNull private VcsChange.Type type = VcsChange.Type.Modified;
+	@NotNull private CharSequence filePath = "";
+	@NotNull private CharSequence filePathBefore = "";
+	@NotNull private CharSequence revision = "";
+	@NotNull private CharSequence revisionBefore = "";
+
+
+	public MutableChangeView set(@NotNull VcsChange.Type type, @NotNull CharSequence filePath, @NotNull CharSequence filePathBefore,
+	                             @NotNull CharSequence revision, @NotNull CharSequence revisionBefore) {
+		this.type = type;
+		this.filePath = filePath;
+		this.filePathBefore = filePathBefore;
+		this.revision = revision;
+		this.revisionBefore = revisionBefore;
+		return this;
+	}
+
+	@NotNull @Override public VcsChange.Type type() {
+		return type;
+	}
+
+	@NotNull @Override public CharSequence filePath() {
+		return filePath;
+	}
+
+	@NotNull @Override public CharSequence filePathBefore() {
+		return filePathBefore;
+	}
+
+	@NotNull @Override public CharSequence revision() {
+		return revision;
+	}
+
+	@NotNull @Override public CharSequence revisionBefore() {
+		return revisionBefore;
+	}
+
+	@Override public String toString() {
+		return "MutableChangeView(" + type + ',' + filePath + ',' + filePathBefore + ',' + revision + ',' + revisionBefore + ')';
+	}
+}
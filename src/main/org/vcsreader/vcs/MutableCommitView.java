@@ -0,0 +1,65 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+import org.vcsreader.LogVisitor;
+import org.vcsreader.VcsChange;
+import org.vcsreader.VcsCommit;
+
+/**
+ * Reusable {@link LogVisitor.CommitView} which is filled in by log parsers.
+ */
+public class MutableCommitView implements LogVisitor.CommitView {
+	@NotNull private CharSequence revision = "";
+	@NotNull private CharSequence revisionBefore = "";
+	private long epochMillis;
+	@NotNull private CharSequence author = "";
+	@NotNull private CharSequence message = "";
+
+
+	public MutableCommitView set(@NotNull CharSequence revision, @NotNull CharSequence revisionBefore, long epochMillis,
+	                             @NotNull CharSequence author, @NotNull CharSequence message) {
+		this.revision = revision;
+		this.revisionBefore = revisionBefore;
+		this.epochMillis = epochMillis;
+		this.author = author;
+		this.message = message;
+		return this;
+	}
+
+	/**
+	 * Visits commit and its changes using this view and the change view.
+	 * This is useful for VCS which don't have allocation-free parser.
+	 */
+	public void visit(VcsCommit commit, MutableChangeView changeView, LogVisitor visitor) {
+		set(commit.getRevision(), commit.getRevisionBefore(), commit.getDateTime().toEpochMilli(), commit.getAuthor(), commit.getMessage());
+		visitor.visitCommit(this);
+		for (VcsChange change : commit.getChanges()) {
+			changeView.set(change.getType(), change.getFilePath(), change.getFilePathBefore(), change.getRevision(), change.getRevisionBefore());
+			visitor.visitChange(changeView);
+		}
+	}
+
+	@NotNull @Override public CharSequence revision() {
+		return revision;
+	}
+
+	@NotNull @Override public CharSequence revisionBefore() {
+		return revisionBefore;
+	}
+
+	@Override public long epochMillis() {
+		return epochMillis;
+	}
+
+	@NotNull @Override public CharSequence author() {
+		return author;
+	}
+
+	@NotNull @Override public CharSequence message() {
+		return message;
+	}
+
+	@Override public String toString() {
+		return "MutableCommitView(" + revision + ',' + revisionBefore + ',' + epochMillis + ',' + author + ',' + message + ')';
+	}
+}
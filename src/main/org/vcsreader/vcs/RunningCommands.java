@@ -0,0 +1,105 @@
+package org.vcsreader.vcs;
+
+import org.jetbrains.annotations.NotNull;
+import org.vcsreader.lang.Deadline;
+import org.vcsreader.vcs.VcsCommand.ExceptionWrapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of commands which are currently executed by a VCS root so that all of them can be cancelled.
+ * Also limits the number of commands which can run concurrently
+ * (commands above the limit wait until one of running commands has finished)
+ * and the time each of them can run.
+ * <p>
+ * This class is thread-safe.
+ */
+public class RunningCommands {
+	// use unique keys because commands with the same arguments are equal to each other
+	private final Map<Object, VcsCommand<?>> commands = new ConcurrentHashMap<>();
+	private final Semaphore permits;
+	private final Duration timeout;
+
+
+	public RunningCommands(int maxConcurrentCommands) {
+		this(maxConcurrentCommands, Duration.ZERO);
+	}
+
+	/**
+	 * @param maxConcurrentCommands maximum number of commands running at the same time,
+	 *                              {@link Integer#MAX_VALUE} means there is no limit
+	 * @param timeout               max time of each command (including all command lines it runs),
+	 *                              zero means there is no limit
+	 */
+	public RunningCommands(int maxConcurrentCommands, @NotNull Duration timeout) {
+		if (maxConcurrentCommands < 1) {
+			throw new IllegalArgumentException("Max concurrent commands must be positive but was: " + maxConcurrentCommands);
+		}
+		this.permits = maxConcurrentCommands == Integer.MAX_VALUE ? null : new Semaphore(maxConcurrentCommands, true);
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Same as {@link VcsCommand#execute(VcsCommand, ExceptionWrapper, VcsCommand.Listener, boolean, Deadline)}
+	 * but tracks the command while it's running.
+	 */
+	public <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper,
+	                     VcsCommand.Listener listener, boolean isFailFast) {
+		Object key = acquire(vcsCommand);
+		try {
+			return VcsCommand.execute(vcsCommand, exceptionWrapper, listener, isFailFast, Deadline.after(timeout));
+		} finally {
+			release(key);
+		}
+	}
+
+	/**
+	 * Same as {@link VcsCommand#executeStream(VcsCommand, VcsCommand.Listener, Deadline)}
+	 * but tracks the command until returned stream is closed.
+	 */
+	public <T> Stream<T> executeStream(VcsCommand<Stream<T>> vcsCommand, VcsCommand.Listener listener) {
+		Object key = acquire(vcsCommand);
+		try {
+			return VcsCommand.executeStream(vcsCommand, listener, Deadline.after(timeout)).onClose(() -> release(key));
+		} catch (Exception e) {
+			release(key);
+			throw e;
+		}
+	}
+
+	/**
+	 * @return true if there are no running commands (i.e. all of them were terminated), false otherwise
+	 */
+	public boolean cancelAll() {
+		boolean result = true;
+		for (VcsCommand<?> command : commands.values()) {
+			result &= command.cancel();
+		}
+		return result;
+	}
+
+	public int size() {
+		return commands.size();
+	}
+
+	private Object acquire(VcsCommand<?> vcsCommand) {
+		if (permits != null) permits.acquireUninterruptibly();
+		Object key = new Object();
+		commands.put(key, vcsCommand);
+		return key;
+	}
+
+	private void release(Object key) {
+		if (commands.remove(key) != null && permits != null) {
+			permits.release();
+		}
+	}
+
+	@Override public String toString() {
+		return "RunningCommands{" + commands.values() + ", timeout=" + timeout + '}';
+	}
+}
@@ -1,8 +1,25 @@
 package org.vcsreader.vcs;
 
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.DaemonThreadFactory;
+import org.vcsreader.lang.Deadline;
+import org.vcsreader.lang.ProcessStats;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 import static org.vcsreader.vcs.VcsCommand.Listener.executeWith;
 
 public interface VcsCommand<R> {
+	/**
+	 * Default executor for asynchronous commands.
+	 * Commands spend most of the time waiting for VCS processes,
+	 * so unbounded pool is used instead of {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+	 */
+	Executor defaultAsyncExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("vcsreader-async-"));
 
 	String describe();
 	R execute();
@@ -21,6 +38,14 @@ public interface VcsCommand<R> {
 		void beforeCommand(VcsCommand<?> command);
 		void afterCommand(VcsCommand<?> command);
 
+		/**
+		 * Same as {@link #afterCommand(VcsCommand)} but with details of command execution (e.g. timing).
+		 * This is the method called by the library, by default it delegates to {@link #afterCommand(VcsCommand)}.
+		 */
+		default void afterCommand(VcsCommand<?> command, CommandExecution execution) {
+			afterCommand(command);
+		}
+
 		Listener none = new Listener() {
 			@Override public void beforeCommand(VcsCommand<?> command) {}
 			@Override public void afterCommand(VcsCommand<?> command) {}
@@ -29,26 +54,110 @@ public interface VcsCommand<R> {
 
 		static <T> T executeWith(Listener listener, VcsCommand<T> command) {
 			listener.beforeCommand(command);
+			ProcessStats processStats = new ProcessStats();
+			long startNanos = System.nanoTime();
+			T result = null;
+			Throwable exception = null;
 			try {
 
-				return command.execute();
+				result = ProcessStats.runWith(processStats, command::execute);
+				return result;
 
+			} catch (Throwable e) {
+				exception = e;
+				throw e;
 			} finally {
-				listener.afterCommand(command);
+				listener.afterCommand(command, new CommandExecution(System.nanoTime() - startNanos, processStats, result, exception));
 			}
 		}
 	}
 
 
 	static <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper, VcsCommand.Listener listener, boolean isFailFast) {
+		return execute(vcsCommand, exceptionWrapper, listener, isFailFast, Deadline.none);
+	}
+
+	/**
+	 * Executes command so that all command lines it runs are killed after the deadline
+	 * (see {@link Deadline#runWithin(Deadline, Supplier)}).
+	 * Command lines terminated because of timeout are reported as {@link VcsTimeoutError}.
+	 */
+	static <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper, VcsCommand.Listener listener,
+	                     boolean isFailFast, Deadline deadline) {
 		try {
-			return executeWith(listener, vcsCommand);
-		} catch (Exception e) {
+			return Deadline.runWithin(deadline, () -> executeWith(listener, vcsCommand));
+		} catch (RuntimeException e) {
+			RuntimeException error = e instanceof CommandLine.Timeout ? new VcsTimeoutError(e.getMessage()) : e;
 			if (isFailFast) {
-				throw e;
+				throw error;
 			} else {
-				return exceptionWrapper.wrapAsResult(e);
+				return exceptionWrapper.wrapAsResult(error);
 			}
 		}
 	}
+
+	/**
+	 * Similar to {@link #execute(VcsCommand, ExceptionWrapper, Listener, boolean)} except that
+	 * the command is considered finished when returned stream is closed.
+	 * Exceptions are always rethrown because there is no result object to aggregate them into.
+	 */
+	static <T> Stream<T> executeStream(VcsCommand<Stream<T>> vcsCommand, VcsCommand.Listener listener) {
+		return executeStream(vcsCommand, listener, Deadline.none);
+	}
+
+	/**
+	 * Same as {@link #executeStream(VcsCommand, Listener)} except that command lines
+	 * started by the command are killed after the deadline even if stream is still being read.
+	 */
+	static <T> Stream<T> executeStream(VcsCommand<Stream<T>> vcsCommand, VcsCommand.Listener listener, Deadline deadline) {
+		listener.beforeCommand(vcsCommand);
+		ProcessStats processStats = new ProcessStats();
+		long startNanos = System.nanoTime();
+		Stream<T> stream;
+		try {
+			stream = ProcessStats.runWith(processStats, () -> Deadline.runWithin(deadline, vcsCommand::execute));
+		} catch (Exception e) {
+			listener.afterCommand(vcsCommand, new CommandExecution(System.nanoTime() - startNanos, processStats, null, e));
+			throw e;
+		}
+		return stream.onClose(() -> listener.afterCommand(vcsCommand, new CommandExecution(System.nanoTime() - startNanos, processStats, null, null)));
+	}
+
+	/**
+	 * Asynchronous version of {@link #execute(VcsCommand, ExceptionWrapper, Listener, boolean)}.
+	 * Cancelling returned future cancels the command, i.e. terminates VCS process.
+	 */
+	static <T> CompletableFuture<T> executeAsync(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper,
+	                                             VcsCommand.Listener listener, boolean isFailFast, Executor executor) {
+		return supplyAsync(() -> execute(vcsCommand, exceptionWrapper, listener, isFailFast), vcsCommand::cancel, executor);
+	}
+
+	/**
+	 * Similar to {@link CompletableFuture#supplyAsync(Supplier, Executor)} except that
+	 * {@code onCancel} is called when returned future is cancelled before supplier has finished.
+	 * Note that futures derived from the returned one (e.g. with {@link CompletableFuture#thenApply})
+	 * don't propagate cancellation back to it.
+	 */
+	static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Runnable onCancel, Executor executor) {
+		CompletableFuture<T> future = new CompletableFuture<T>() {
+			@Override public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				if (cancelled) onCancel.run();
+				return cancelled;
+			}
+		};
+		try {
+			executor.execute(() -> {
+				if (future.isDone()) return;
+				try {
+					future.complete(supplier.get());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
 }
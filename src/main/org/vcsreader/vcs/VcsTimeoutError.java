@@ -0,0 +1,17 @@
+package org.vcsreader.vcs;
+
+/**
+ * Error which means VCS command was terminated because it didn't finish before timeout
+ * (see e.g. {@link org.vcsreader.vcs.git.GitSettings#withCommandTimeout(java.time.Duration)}).
+ */
+public class VcsTimeoutError extends VcsError {
+	private static final long serialVersionUID = 1L;
+
+	public VcsTimeoutError(String vcsError) {
+		super(vcsError);
+	}
+
+	@Override public String toString() {
+		return "Timeout{vcsErrors=" + getMessage() + '}';
+	}
+}
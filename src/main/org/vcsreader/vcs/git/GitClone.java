@@ -1,22 +1,50 @@
 package org.vcsreader.vcs.git;
 
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.CloneResult;
 import org.vcsreader.lang.CommandLine;
 import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.git.GitSettings.CloneMode;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
 import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
 
+/**
+ * See https://git-scm.com/docs/git-clone
+ */
 class GitClone implements VcsCommand<CloneResult> {
 	private final String pathToGit;
 	private final String repoUrl;
 	private final String repoFolder;
+	private final CloneMode cloneMode;
+	private final boolean partialClone;
+	@Nullable private final Instant shallowSince;
+	private final int depth;
+	@Nullable private final String referenceRepo;
 	private final CommandLine commandLine;
 
-	public GitClone(String pathToGit, String repoUrl, String repoFolder) {
+	/**
+	 * See {@link GitSettings#withCloneMode(CloneMode)}, {@link GitSettings#withPartialClone(boolean)},
+	 * {@link GitSettings#withShallowSince(Instant)} and {@link GitSettings#withCloneDepth(int)}.
+	 *
+	 * @param referenceRepo if not null, repository which objects are borrowed by the clone via "--reference"
+	 */
+	public GitClone(String pathToGit, String repoUrl, String repoFolder, CloneMode cloneMode, boolean partialClone,
+	                @Nullable Instant shallowSince, int depth, @Nullable String referenceRepo, CommandLine.Config config) {
 		this.pathToGit = pathToGit;
 		this.repoUrl = repoUrl;
 		this.repoFolder = repoFolder;
-		this.commandLine = gitClone(pathToGit, repoUrl, repoFolder);
+		this.cloneMode = cloneMode;
+		this.partialClone = partialClone;
+		this.shallowSince = shallowSince;
+		this.depth = depth;
+		this.referenceRepo = referenceRepo;
+		this.commandLine = gitClone(pathToGit, repoUrl, repoFolder, cloneMode, partialClone, shallowSince, depth, referenceRepo)
+				.executionConfig(config);
 	}
 
 	@Override public CloneResult execute() {
@@ -33,6 +61,19 @@ class GitClone implements VcsCommand<CloneResult> {
 		return new CommandLine(pathToGit, "clone", "-v", repoUrl, targetPath);
 	}
 
+	static CommandLine gitClone(String pathToGit, String repoUrl, String targetPath, CloneMode cloneMode,
+	                            boolean partialClone, @Nullable Instant shallowSince, int depth, @Nullable String referenceRepo) {
+		List<String> arguments = new ArrayList<>(asList(pathToGit, "clone", "-v"));
+		if (cloneMode == CloneMode.Bare) arguments.add("--bare");
+		else if (cloneMode == CloneMode.Mirror) arguments.add("--mirror");
+		if (partialClone) arguments.add("--filter=blob:none");
+		if (shallowSince != null) arguments.add("--shallow-since=" + shallowSince.getEpochSecond());
+		if (depth > 0) arguments.add("--depth=" + depth);
+		if (referenceRepo != null) arguments.add("--reference=" + referenceRepo);
+		arguments.addAll(asList(repoUrl, targetPath));
+		return new CommandLine(arguments);
+	}
+
 	@Override public String describe() {
 		return commandLine.describe();
 	}
@@ -52,6 +93,11 @@ class GitClone implements VcsCommand<CloneResult> {
 		if (pathToGit != null ? !pathToGit.equals(gitClone.pathToGit) : gitClone.pathToGit != null) return false;
 		if (repoUrl != null ? !repoUrl.equals(gitClone.repoUrl) : gitClone.repoUrl != null)
 			return false;
+		if (cloneMode != gitClone.cloneMode) return false;
+		if (partialClone != gitClone.partialClone) return false;
+		if (shallowSince != null ? !shallowSince.equals(gitClone.shallowSince) : gitClone.shallowSince != null) return false;
+		if (depth != gitClone.depth) return false;
+		if (referenceRepo != null ? !referenceRepo.equals(gitClone.referenceRepo) : gitClone.referenceRepo != null) return false;
 
 		return true;
 	}
@@ -60,6 +106,11 @@ class GitClone implements VcsCommand<CloneResult> {
 		int result = pathToGit != null ? pathToGit.hashCode() : 0;
 		result = 31 * result + (repoUrl != null ? repoUrl.hashCode() : 0);
 		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (cloneMode != null ? cloneMode.hashCode() : 0);
+		result = 31 * result + (partialClone ? 1 : 0);
+		result = 31 * result + (shallowSince != null ? shallowSince.hashCode() : 0);
+		result = 31 * result + depth;
+		result = 31 * result + (referenceRepo != null ? referenceRepo.hashCode() : 0);
 		return result;
 	}
 
@@ -68,6 +119,11 @@ class GitClone implements VcsCommand<CloneResult> {
 				"pathToGit='" + pathToGit + '\'' +
 				", repoUrl='" + repoUrl + '\'' +
 				", repoFolder='" + repoFolder + '\'' +
+				", cloneMode=" + cloneMode +
+				", partialClone=" + partialClone +
+				", shallowSince=" + shallowSince +
+				", depth=" + depth +
+				", referenceRepo='" + referenceRepo + '\'' +
 				'}';
 	}
 }
@@ -0,0 +1,352 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.lang.TimeRange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.vcsreader.vcs.git.GitObject.idLength;
+
+/**
+ * Reads memory-mapped commit-graph file of git repository, i.e. commit ids, parents, commit dates
+ * and generation numbers of all commits which were reachable when the file was written
+ * (see {@link GitSettings#withMaintenance(boolean)} or "git commit-graph write").
+ * See https://git-scm.com/docs/gitformat-commit-graph
+ * <p>
+ * Commits are identified by their position in the graph (from 0 to {@link #commitCount()} exclusive).
+ * Methods which take and return positions read data directly from mapped file without allocating objects,
+ * so that planning queries (e.g. counting commits in time range) don't need to run "git log".
+ * Both single "commit-graph" file and split commit-graph chain are supported.
+ * Note that unlike log, commit-graph includes merge commits and doesn't include commits added after it was written.
+ * <p>
+ * This class is thread-safe.
+ */
+public class GitCommitGraph {
+	public static final int noParent = -1;
+
+	private static final int signature = 0x43475048; // "CGPH"
+	private static final int oidFanoutChunk = 0x4f494446; // "OIDF"
+	private static final int oidLookupChunk = 0x4f49444c; // "OIDL"
+	private static final int commitDataChunk = 0x43444154; // "CDAT"
+	private static final int extraEdgesChunk = 0x45444745; // "EDGE"
+	private static final int parentNone = 0x70000000;
+	private static final int commitDataSize = idLength + 16;
+
+	private final Layer[] layers;
+	private final int commitCount;
+
+
+	private GitCommitGraph(Layer[] layers) {
+		this.layers = layers;
+		this.commitCount = layers.length == 0 ? 0 : layers[layers.length - 1].positionOffset + layers[layers.length - 1].count;
+	}
+
+	/**
+	 * @param repoFolder working tree with ".git" folder or bare repository
+	 * @return commit graph or null if repository has no commit-graph file
+	 */
+	@Nullable public static GitCommitGraph open(@NotNull String repoFolder) throws IOException {
+		File gitDir = GitUtil.gitDir(new File(repoFolder));
+		if (gitDir == null) throw new IOException("Not a git repository: " + repoFolder);
+		File infoFolder = new File(GitUtil.commonDir(gitDir), "objects/info");
+
+		List<File> files = new ArrayList<>();
+		File singleFile = new File(infoFolder, "commit-graph");
+		File chainFile = new File(infoFolder, "commit-graphs/commit-graph-chain");
+		if (singleFile.isFile()) {
+			files.add(singleFile);
+		} else if (chainFile.isFile()) {
+			for (String line : Files.readAllLines(chainFile.toPath(), UTF_8)) {
+				if (!line.trim().isEmpty()) files.add(new File(infoFolder, "commit-graphs/graph-" + line.trim() + ".graph"));
+			}
+		}
+		if (files.isEmpty()) return null;
+
+		Layer[] layers = new Layer[files.size()];
+		int positionOffset = 0;
+		for (int i = 0; i < files.size(); i++) {
+			layers[i] = Layer.read(files.get(i), positionOffset);
+			positionOffset += layers[i].count;
+		}
+		return new GitCommitGraph(layers);
+	}
+
+	public int commitCount() {
+		return commitCount;
+	}
+
+	/**
+	 * @return position of commit in graph or -1 if graph doesn't contain the commit
+	 */
+	public int position(@NotNull String commitId) {
+		byte[] id;
+		try {
+			id = GitUtil.fromHex(commitId);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+		if (id.length != idLength) return -1;
+		for (Layer layer : layers) {
+			int position = layer.find(id);
+			if (position != -1) return layer.positionOffset + position;
+		}
+		return -1;
+	}
+
+	@NotNull public String commitId(int position) {
+		Layer layer = layer(position);
+		int localPosition = position - layer.positionOffset;
+		byte[] id = new byte[idLength];
+		for (int i = 0; i < idLength; i++) {
+			id[i] = layer.buffer.get(layer.oidLookupOffset + localPosition * idLength + i);
+		}
+		return GitUtil.toHex(id, 0, idLength);
+	}
+
+	/**
+	 * @return committer date in epoch seconds
+	 */
+	public long commitTime(int position) {
+		Layer layer = layer(position);
+		int dataOffset = layer.commitDataOffset(position);
+		long high = layer.buffer.getInt(dataOffset + idLength + 8) & 0x3L;
+		long low = layer.buffer.getInt(dataOffset + idLength + 12) & 0xffffffffL;
+		return (high << 32) | low;
+	}
+
+	/**
+	 * @return topological level of commit, i.e. 1 for root commits and 1 + max generation of parents for other commits
+	 * (or 0 if generation numbers were not computed when the file was written)
+	 */
+	public int generation(int position) {
+		Layer layer = layer(position);
+		return layer.buffer.getInt(layer.commitDataOffset(position) + idLength + 8) >>> 2;
+	}
+
+	public int parentCount(int position) {
+		Layer layer = layer(position);
+		int dataOffset = layer.commitDataOffset(position);
+		int parent1 = layer.buffer.getInt(dataOffset + idLength);
+		int parent2 = layer.buffer.getInt(dataOffset + idLength + 4);
+		if (parent1 == parentNone) return 0;
+		if (parent2 == parentNone) return 1;
+		if ((parent2 & 0x80000000) == 0) return 2;
+
+		int count = 1;
+		int edgeOffset = layer.extraEdgesOffset + (parent2 & 0x7fffffff) * 4;
+		while (true) {
+			count++;
+			if ((layer.buffer.getInt(edgeOffset) & 0x80000000) != 0) return count;
+			edgeOffset += 4;
+		}
+	}
+
+	/**
+	 * @param index index of parent in the order of commit parents (the first parent has index 0)
+	 * @return position of parent commit or {@link #noParent} if commit has fewer parents
+	 */
+	public int parent(int position, int index) {
+		Layer layer = layer(position);
+		int dataOffset = layer.commitDataOffset(position);
+		int parent1 = layer.buffer.getInt(dataOffset + idLength);
+		int parent2 = layer.buffer.getInt(dataOffset + idLength + 4);
+		if (index == 0) return parent1 == parentNone ? noParent : parent1;
+		if (parent2 == parentNone) return noParent;
+		if ((parent2 & 0x80000000) == 0) return index == 1 ? parent2 : noParent;
+
+		int edgeOffset = layer.extraEdgesOffset + (parent2 & 0x7fffffff) * 4;
+		for (int i = 1; ; i++) {
+			int edge = layer.buffer.getInt(edgeOffset);
+			if (i == index) return edge & 0x7fffffff;
+			if ((edge & 0x80000000) != 0) return noParent;
+			edgeOffset += 4;
+		}
+	}
+
+	/**
+	 * @return number of commits in graph (including merge commits) with committer date in time range
+	 */
+	public int countCommits(@NotNull TimeRange timeRange) {
+		int result = 0;
+		for (int position = 0; position < commitCount; position++) {
+			if (isInRange(commitTime(position), timeRange)) result++;
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of commits reachable from the commit (including the commit itself and merge commits)
+	 * with committer date in time range
+	 */
+	public int countAncestors(int position, @NotNull TimeRange timeRange) {
+		BitSet visited = new BitSet(commitCount);
+		int[] stack = new int[64];
+		int stackSize = 0;
+		stack[stackSize++] = position;
+		visited.set(position);
+
+		int result = 0;
+		while (stackSize > 0) {
+			int current = stack[--stackSize];
+			if (isInRange(commitTime(current), timeRange)) result++;
+			int parentCount = parentCount(current);
+			for (int i = 0; i < parentCount; i++) {
+				int parent = parent(current, i);
+				if (parent == noParent || visited.get(parent)) continue;
+				visited.set(parent);
+				if (stackSize == stack.length) {
+					int[] newStack = new int[stack.length * 2];
+					System.arraycopy(stack, 0, newStack, 0, stack.length);
+					stack = newStack;
+				}
+				stack[stackSize++] = parent;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return committer date of the earliest commit or null if graph is empty
+	 */
+	@Nullable public Instant earliestCommitTime() {
+		if (commitCount == 0) return null;
+		long result = Long.MAX_VALUE;
+		for (int position = 0; position < commitCount; position++) {
+			result = Math.min(result, commitTime(position));
+		}
+		return Instant.ofEpochSecond(result);
+	}
+
+	/**
+	 * @return committer date of the latest commit or null if graph is empty
+	 */
+	@Nullable public Instant latestCommitTime() {
+		if (commitCount == 0) return null;
+		long result = Long.MIN_VALUE;
+		for (int position = 0; position < commitCount; position++) {
+			result = Math.max(result, commitTime(position));
+		}
+		return Instant.ofEpochSecond(result);
+	}
+
+	private static boolean isInRange(long epochSecond, TimeRange timeRange) {
+		boolean afterFrom = timeRange.from() == Instant.MIN || epochSecond >= timeRange.from().getEpochSecond();
+		boolean beforeTo = timeRange.to() == Instant.MAX || epochSecond < timeRange.to().getEpochSecond();
+		return afterFrom && beforeTo;
+	}
+
+	private Layer layer(int position) {
+		if (position < 0 || position >= commitCount) {
+			throw new IndexOutOfBoundsException("Position " + position + " is not in commit graph with " + commitCount + " commits");
+		}
+		for (int i = layers.length - 1; i > 0; i--) {
+			if (position >= layers[i].positionOffset) return layers[i];
+		}
+		return layers[0];
+	}
+
+	@Override public String toString() {
+		return "GitCommitGraph{" +
+				"layers=" + layers.length +
+				", commitCount=" + commitCount +
+				'}';
+	}
+
+
+	/**
+	 * Single commit-graph file, positions of its commits follow positions of commits in base layers.
+	 */
+	private static class Layer {
+		final ByteBuffer buffer;
+		final int positionOffset;
+		final int count;
+		final int oidFanoutOffset;
+		final int oidLookupOffset;
+		final int commitDataOffset;
+		final int extraEdgesOffset;
+
+		Layer(ByteBuffer buffer, int positionOffset, int oidFanoutOffset, int oidLookupOffset,
+		      int commitDataOffset, int extraEdgesOffset) {
+			this.buffer = buffer;
+			this.positionOffset = positionOffset;
+			this.count = buffer.getInt(oidFanoutOffset + 255 * 4);
+			this.oidFanoutOffset = oidFanoutOffset;
+			this.oidLookupOffset = oidLookupOffset;
+			this.commitDataOffset = commitDataOffset;
+			this.extraEdgesOffset = extraEdgesOffset;
+		}
+
+		static Layer read(File file, int positionOffset) throws IOException {
+			ByteBuffer buffer;
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+				FileChannel channel = randomAccessFile.getChannel();
+				if (channel.size() > Integer.MAX_VALUE) throw new IOException("Commit-graph file is too large: " + file);
+				buffer = channel.map(READ_ONLY, 0, channel.size());
+			}
+			if (buffer.getInt(0) != signature || buffer.get(4) != 1) {
+				throw new IOException("Unsupported commit-graph file: " + file);
+			}
+			if (buffer.get(5) != 1) throw new IOException("Only SHA-1 commit-graph files are supported: " + file);
+
+			int chunkCount = buffer.get(6) & 0xff;
+			int oidFanoutOffset = -1;
+			int oidLookupOffset = -1;
+			int commitDataOffset = -1;
+			int extraEdgesOffset = -1;
+			for (int i = 0; i < chunkCount; i++) {
+				int chunkId = buffer.getInt(8 + i * 12);
+				int chunkOffset = (int) buffer.getLong(8 + i * 12 + 4);
+				if (chunkId == oidFanoutChunk) oidFanoutOffset = chunkOffset;
+				else if (chunkId == oidLookupChunk) oidLookupOffset = chunkOffset;
+				else if (chunkId == commitDataChunk) commitDataOffset = chunkOffset;
+				else if (chunkId == extraEdgesChunk) extraEdgesOffset = chunkOffset;
+			}
+			if (oidFanoutOffset == -1 || oidLookupOffset == -1 || commitDataOffset == -1) {
+				throw new IOException("Commit-graph file doesn't have required chunks: " + file);
+			}
+			return new Layer(buffer, positionOffset, oidFanoutOffset, oidLookupOffset, commitDataOffset, extraEdgesOffset);
+		}
+
+		/**
+		 * @return position of commit in this layer or -1
+		 */
+		int find(byte[] id) {
+			int firstByte = id[0] & 0xff;
+			int from = firstByte == 0 ? 0 : buffer.getInt(oidFanoutOffset + (firstByte - 1) * 4);
+			int to = buffer.getInt(oidFanoutOffset + firstByte * 4);
+			while (from < to) {
+				int middle = (from + to) >>> 1;
+				int comparison = compareId(id, oidLookupOffset + middle * idLength);
+				if (comparison == 0) return middle;
+				if (comparison < 0) to = middle;
+				else from = middle + 1;
+			}
+			return -1;
+		}
+
+		private int compareId(byte[] id, int offset) {
+			for (int i = 0; i < idLength; i++) {
+				int b1 = id[i] & 0xff;
+				int b2 = buffer.get(offset + i) & 0xff;
+				if (b1 != b2) return b1 - b2;
+			}
+			return 0;
+		}
+
+		int commitDataOffset(int position) {
+			return commitDataOffset + (position - positionOffset) * commitDataSize;
+		}
+	}
+}
@@ -2,39 +2,85 @@ package org.vcsreader.vcs.git;
 
 import org.vcsreader.VcsChange;
 import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CapturedOutput;
+import org.vcsreader.lang.JfrEvents;
+import org.vcsreader.lang.ParallelSplitParser;
+import org.vcsreader.lang.SplitIterator;
 import org.vcsreader.vcs.Change;
 import org.vcsreader.vcs.Commit;
 
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.vcsreader.VcsChange.Type.*;
 import static org.vcsreader.lang.StringUtil.split;
 import static org.vcsreader.lang.StringUtil.trim;
 
-class GitCommitParser {
+public class GitCommitParser {
 	private static final String commitStartSeparatorFormat = "%x15%x16%x17%x18%x19";
 	private static final String commitFieldSeparatorFormat = "%x19%x18%x17%x16%x15";
-	private static final String commitStartSeparator = "\u0015\u0016\u0017\u0018\u0019";
-	private static final String commitFieldsSeparator = "\u0019\u0018\u0017\u0016\u0015";
+	static final String commitStartSeparator = "\u0015\u0016\u0017\u0018\u0019";
+	static final String commitFieldsSeparator = "\u0019\u0018\u0017\u0016\u0015";
 
 	public static List<VcsCommit> parseListOfCommits(String stdout) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
 		List<VcsCommit> commits = new ArrayList<>();
 		List<String> commitsAsString = split(stdout, commitStartSeparator);
 
 		for (String s : commitsAsString) {
-			VcsCommit commit = parseCommit(s, commitFieldsSeparator);
+			VcsCommit commit = parseCommit(s);
 			if (commit != null) {
 				commits.add(commit);
 			}
 		}
+		event.commit("GitCommitParser", commits.size());
 		return commits;
 	}
 
-	private static VcsCommit parseCommit(String s, String fieldsSeparator) {
-		List<String> values = split(s, fieldsSeparator);
+	/**
+	 * Same as {@link #parseListOfCommits(String)} but reads commits incrementally
+	 * so that the whole log doesn't have to be kept in memory as a string.
+	 */
+	public static List<VcsCommit> parseListOfCommits(Reader reader) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
+		List<VcsCommit> commits = parseCommits(reader);
+		event.commit("GitCommitParser", commits.size());
+		return commits;
+	}
+
+	/**
+	 * Same as {@link #parseListOfCommits(Reader)} but splits output at commit boundaries into chunks
+	 * which are parsed in parallel on the pool (see {@link ParallelSplitParser}).
+	 */
+	public static List<VcsCommit> parseListOfCommits(CapturedOutput output, Charset charset, ForkJoinPool pool) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
+		List<VcsCommit> commits = ParallelSplitParser.parse(output, charset, commitStartSeparator, pool, GitCommitParser::parseCommits);
+		event.commit("GitCommitParser", commits.size());
+		return commits;
+	}
+
+	private static List<VcsCommit> parseCommits(Reader reader) {
+		List<VcsCommit> commits = new ArrayList<>();
+		SplitIterator iterator = new SplitIterator(reader, commitStartSeparator);
+		while (iterator.hasNext()) {
+			VcsCommit commit = parseCommit(iterator.next());
+			if (commit != null) {
+				commits.add(commit);
+			}
+		}
+		return commits;
+	}
+
+	/**
+	 * @return parsed commit or null for merge commits
+	 */
+	static VcsCommit parseCommit(String s) {
+		List<String> values = split(s, commitFieldsSeparator);
 
 		List<String> previousRevision = split(values.get(1), " ");
 		boolean isFirstCommit = previousRevision.size() == 0;
@@ -92,13 +138,17 @@ class GitCommitParser {
 	/**
 	 * See git4idea.GitUtil#unescapePath(java.lang.String) for more complete implementation.
 	 */
-	private static String unescapeQuotes(String filePath) {
+	static String unescapeQuotes(String filePath) {
 		String quote = "\"";
 		if (!filePath.startsWith(quote)) return filePath;
 		return filePath.substring(1, filePath.length() - 1).replace("\\\"", "\"");
 	}
 
 	private static VcsChange.Type parseChangeType(String s) {
+		return parseChangeType(s.charAt(0));
+	}
+
+	static VcsChange.Type parseChangeType(char c) {
 		// see "--diff-filter" at https://www.kernel.org/pub/software/scm/git/docs/git-log.html
 		char added = 'A';
 		char copied = 'C';
@@ -109,7 +159,6 @@ class GitCommitParser {
 		char deleted = 'D';
 		char renamed = 'R';
 
-		char c = s.charAt(0);
 		if (c == added || c == copied) {
 			return Added;
 		} else if (c == modified || c == typeChanged || c == unmerged || c == unknown) {
@@ -119,7 +168,7 @@ class GitCommitParser {
 		} else if (c == renamed) {
 			return Moved;
 		} else {
-			throw new IllegalStateException("Unknown git change type: " + s);
+			throw new IllegalStateException("Unknown git change type: " + c);
 		}
 	}
 
@@ -127,6 +176,39 @@ class GitCommitParser {
 		return Instant.ofEpochMilli(Long.parseLong(s) * 1000);
 	}
 
+	/**
+	 * Formats full commit message in the same way as "%s%n%n%-b" in {@link #logFormat()},
+	 * so that commits read without "git log" (e.g. in-process, from fast-export or with JGit) have the same messages.
+	 *
+	 * @return subject lines joined with space, blank line and body
+	 */
+	public static String formatMessage(String message) {
+		String[] lines = message.split("\n", -1);
+		int i = 0;
+		while (i < lines.length && lines[i].trim().isEmpty()) i++;
+
+		StringBuilder subject = new StringBuilder();
+		for (; i < lines.length && !lines[i].trim().isEmpty(); i++) {
+			if (subject.length() > 0) subject.append(' ');
+			subject.append(trimTrailingWhitespace(lines[i]));
+		}
+		while (i < lines.length && lines[i].trim().isEmpty()) i++;
+
+		StringBuilder body = new StringBuilder();
+		for (; i < lines.length; i++) {
+			body.append(lines[i]);
+			if (i < lines.length - 1) body.append('\n');
+		}
+		String result = body.length() == 0 ? subject.toString() : subject + "\n\n" + body;
+		return trim(result, " \r\n\t");
+	}
+
+	private static String trimTrailingWhitespace(String s) {
+		int end = s.length();
+		while (end > 0 && Character.isWhitespace(s.charAt(end - 1))) end--;
+		return s.substring(0, end);
+	}
+
 	public static String logFormat() {
 		// see "PRETTY FORMATS" at https://www.kernel.org/pub/software/scm/git/docs/git-log.html
 		String commitHash = "%H";
@@ -0,0 +1,449 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.ContentVisitor;
+import org.vcsreader.LogResult;
+import org.vcsreader.VcsChange;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.Change;
+import org.vcsreader.vcs.Commit;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.vcsreader.VcsChange.Type.*;
+import static org.vcsreader.vcs.git.GitLog.addRevisionArguments;
+import static org.vcsreader.vcs.git.GitCommitParser.formatMessage;
+import static org.vcsreader.vcs.git.GitUtil.containsGitRepo;
+import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
+
+/**
+ * Reads commits together with file contents from a single "git fast-export" process
+ * (see {@link GitVcsRoot#logWithContents(TimeRange, ContentVisitor)}).
+ * This is faster than logging commits and then requesting content of each changed file separately,
+ * because contents are read in the same pass over history and each blob is exported only once.
+ * <p>
+ * Commits are the same as with {@link GitLogStream}, i.e. merge commits and commits at shallow clone boundary
+ * are skipped and changes are compared with the first parent with rename detection.
+ * Because fast-export doesn't distinguish added and modified files, paths of files in the parent commit are tracked
+ * while reading the export. If history is not linear, files of the parent are read with "git ls-tree"
+ * whenever export switches to another branch.
+ */
+class GitFastExport implements VcsCommand<LogResult> {
+	private static final String gitlinkMode = "160000";
+	private static final int bufferSize = 64 * 1024;
+
+	private final String gitPath;
+	private final String repoFolder;
+	private final TimeRange timeRange;
+	@Nullable private final String revision;
+	private final ContentVisitor visitor;
+
+	private final CommandLine.Config config;
+	private final CommandLine commandLine;
+	private final AtomicReference<CommandLine> lsTreeCommandLine = new AtomicReference<>();
+
+
+	/**
+	 * @param revision revision from which history is logged (e.g. remote-tracking branch), null means current HEAD
+	 */
+	public GitFastExport(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision,
+	                     ContentVisitor visitor, CommandLine.Config config) {
+		this.gitPath = gitPath;
+		this.repoFolder = repoFolder;
+		this.timeRange = timeRange;
+		this.revision = revision;
+		this.visitor = visitor;
+		this.config = config;
+		this.commandLine = gitFastExport(gitPath, repoFolder, timeRange, revision).executionConfig(config);
+	}
+
+	@Override public LogResult execute() {
+		if (!containsGitRepo(repoFolder)) {
+			throw new VcsError("Folder doesn't contain git repository: '" + repoFolder + "'.");
+		}
+
+		commandLine.start();
+		boolean readAllOutput = false;
+		try {
+			new ExportReader(new BufferedInputStream(commandLine.stdoutInputStream(), bufferSize)).read();
+			readAllOutput = true;
+		} catch (IOException e) {
+			return new LogResult(new VcsError("Failed to read output of " + commandLine.describe() + ": " + e.getMessage()));
+		} finally {
+			if (!readAllOutput) commandLine.kill();
+			commandLine.finish();
+		}
+
+		if (isSuccessful(commandLine)) {
+			return new LogResult();
+		} else {
+			return new LogResult(new VcsError(commandLine.stderr()));
+		}
+	}
+
+	static CommandLine gitFastExport(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision) {
+		List<String> arguments = new ArrayList<>(asList(
+				gitPath, "fast-export",
+				"--show-original-ids", "--reference-excluded-parents",
+				"--date-order", "-M", "--signed-tags=strip", "--reencode=yes"
+		));
+		// MIN timestamp is not handled correctly by git and must be excluded from command line.
+		if (timeRange.from() != Instant.MIN) {
+			arguments.add("--after=" + Long.toString(timeRange.from().getEpochSecond()));
+		}
+		if (timeRange.to() != Instant.MAX) {
+			arguments.add("--before=" + Long.toString(timeRange.to().getEpochSecond() - 1));
+		}
+		// unlike "git log", fast-export requires explicit revision
+		addRevisionArguments(arguments, revision == null ? "HEAD" : revision, GitUtil.shallowCommits(repoFolder));
+		return new CommandLine(arguments).workingDir(repoFolder);
+	}
+
+	static CommandLine gitLsTree(String gitPath, String repoFolder, String revision) {
+		return new CommandLine(gitPath, "ls-tree", "-r", "-z", "--full-tree", revision).workingDir(repoFolder).outputCharset(UTF_8);
+	}
+
+	private Map<String, String> filesOf(String revision) {
+		CommandLine lsTree = gitLsTree(gitPath, repoFolder, revision).executionConfig(config).subCommandOf(commandLine);
+		lsTreeCommandLine.set(lsTree);
+		try {
+			return lsTree.execute(GitFastExport::parseLsTree);
+		} finally {
+			lsTreeCommandLine.set(null);
+		}
+	}
+
+	private static Map<String, String> parseLsTree(CommandLine lsTree) {
+		if (!isSuccessful(lsTree)) {
+			throw new VcsError(lsTree.stderr());
+		}
+		// each entry is "<mode> SP <type> SP <object> TAB <file>"
+		Map<String, String> files = new HashMap<>();
+		for (String entry : lsTree.stdout().split("\0")) {
+			int tabIndex = entry.indexOf('\t');
+			if (tabIndex == -1) continue;
+			String objectId = entry.substring(entry.lastIndexOf(' ', tabIndex) + 1, tabIndex);
+			files.put(entry.substring(tabIndex + 1), objectId);
+		}
+		return files;
+	}
+
+	/**
+	 * Unquotes file path which fast-export writes in C-style quotes if it contains spaces or special characters
+	 * (non-ascii characters are written as octal escapes of UTF-8 bytes).
+	 *
+	 * @param s file path with characters corresponding to bytes of git output
+	 */
+	static String decodePath(String s) {
+		if (!s.startsWith("\"") || !s.endsWith("\"") || s.length() < 2) {
+			return decodeUtf8(s);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(s.length());
+		for (int i = 1; i < s.length() - 1; i++) {
+			char c = s.charAt(i);
+			if (c != '\\' || i + 1 >= s.length() - 1) {
+				bytes.write(c);
+				continue;
+			}
+			char next = s.charAt(++i);
+			if (next >= '0' && next <= '7' && i + 2 < s.length() - 1) {
+				bytes.write(Integer.parseInt(s.substring(i, i + 3), 8));
+				i += 2;
+			} else {
+				switch (next) {
+					case 'a': bytes.write(7); break;
+					case 'b': bytes.write('\b'); break;
+					case 't': bytes.write('\t'); break;
+					case 'n': bytes.write('\n'); break;
+					case 'v': bytes.write(11); break;
+					case 'f': bytes.write('\f'); break;
+					case 'r': bytes.write('\r'); break;
+					default: bytes.write(next);
+				}
+			}
+		}
+		return new String(bytes.toByteArray(), UTF_8);
+	}
+
+	private static String decodeUtf8(String s) {
+		return new String(s.getBytes(ISO_8859_1), UTF_8);
+	}
+
+	/**
+	 * @return index of space after the first file path in file command (e.g. after source path of "R" command)
+	 */
+	private static int endOfPath(String s, int from) {
+		if (!s.startsWith("\"", from)) return s.indexOf(' ', from);
+		for (int i = from + 1; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\') i++;
+			else if (c == '"') return i + 1;
+		}
+		return -1;
+	}
+
+	@Override public String describe() {
+		return commandLine.describe();
+	}
+
+	@Override public boolean cancel() {
+		boolean notRunning = commandLine.kill();
+		CommandLine subCommand = lsTreeCommandLine.get();
+		if (subCommand != null) {
+			notRunning &= subCommand.kill();
+		}
+		return notRunning;
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitFastExport that = (GitFastExport) o;
+
+		if (gitPath != null ? !gitPath.equals(that.gitPath) : that.gitPath != null) return false;
+		if (repoFolder != null ? !repoFolder.equals(that.repoFolder) : that.repoFolder != null) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		if (revision != null ? !revision.equals(that.revision) : that.revision != null) return false;
+		return visitor != null ? visitor.equals(that.visitor) : that.visitor == null;
+	}
+
+	@Override public int hashCode() {
+		int result = gitPath != null ? gitPath.hashCode() : 0;
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		result = 31 * result + (visitor != null ? visitor.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitFastExport{" +
+				"gitPath='" + gitPath + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				", timeRange=" + timeRange +
+				", revision='" + revision + '\'' +
+				'}';
+	}
+
+
+	/**
+	 * Reads "blob" and "commit" commands of fast-export stream (see https://git-scm.com/docs/git-fast-import).
+	 * Lines are decoded as ISO-8859-1 so that characters correspond to bytes and can be decoded as UTF-8 where needed.
+	 */
+	private class ExportReader {
+		private final InputStream inputStream;
+		private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+		private final Map<String, String> blobIds = new HashMap<>();
+		private final Map<String, String> commitIds = new HashMap<>();
+		/**
+		 * Object ids of files by path in the last read commit.
+		 */
+		private Map<String, String> files = new HashMap<>();
+		@Nullable private String filesRevision;
+
+
+		ExportReader(InputStream inputStream) {
+			this.inputStream = inputStream;
+		}
+
+		void read() throws IOException {
+			String line;
+			while ((line = readLine()) != null) {
+				if (line.equals("blob")) {
+					readBlob();
+				} else if (line.startsWith("commit ")) {
+					readCommit();
+				} else if (line.startsWith("data ")) {
+					// e.g. message of annotated tag
+					readData(line);
+				}
+			}
+		}
+
+		private void readBlob() throws IOException {
+			String mark = null;
+			String objectId = null;
+			String line;
+			while ((line = readLine()) != null) {
+				if (line.startsWith("mark ")) {
+					mark = line.substring("mark ".length());
+				} else if (line.startsWith("original-oid ")) {
+					objectId = line.substring("original-oid ".length());
+				} else if (line.startsWith("data ")) {
+					byte[] content = readData(line);
+					if (mark == null || objectId == null) throw new IOException("Unexpected blob without mark or id");
+					blobIds.put(mark, objectId);
+					visitor.visitContent(objectId, content);
+					return;
+				}
+			}
+		}
+
+		private void readCommit() throws IOException {
+			String mark = null;
+			String revision = null;
+			String author = "";
+			Instant dateTime = Instant.EPOCH;
+			String message = "";
+			String parentRef = null;
+			boolean isMergeCommit = false;
+			List<String> fileCommands = new ArrayList<>();
+
+			String line;
+			while ((line = readLine()) != null && !line.isEmpty()) {
+				if (line.startsWith("mark ")) {
+					mark = line.substring("mark ".length());
+				} else if (line.startsWith("original-oid ")) {
+					revision = line.substring("original-oid ".length());
+				} else if (line.startsWith("author ")) {
+					// e.g. "author Name <email> 1407675696 +0100"
+					int emailStart = line.indexOf('<');
+					int timeStart = line.lastIndexOf(' ', line.lastIndexOf(' ') - 1) + 1;
+					author = decodeUtf8(line.substring("author ".length(), Math.max(emailStart, "author ".length())).trim());
+					dateTime = Instant.ofEpochSecond(Long.parseLong(line.substring(timeStart, line.lastIndexOf(' '))));
+				} else if (line.startsWith("data ")) {
+					message = new String(readData(line), UTF_8);
+				} else if (line.startsWith("from ")) {
+					parentRef = line.substring("from ".length());
+				} else if (line.startsWith("merge ")) {
+					isMergeCommit = true;
+				} else if (line.startsWith("M ") || line.startsWith("D ") || line.startsWith("R ") ||
+						line.startsWith("C ") || line.equals("deleteall")) {
+					fileCommands.add(line);
+				}
+			}
+			if (mark == null || revision == null) throw new IOException("Unexpected commit without mark or id");
+			commitIds.put(mark, revision);
+
+			String revisionBefore = parentRef == null ? VcsChange.noRevision :
+					(parentRef.startsWith(":") ? commitIds.get(parentRef) : parentRef);
+			if (revisionBefore == null) throw new IOException("Unknown parent commit: " + parentRef);
+			updateFilesFor(revisionBefore);
+
+			List<Change> changes = new ArrayList<>();
+			Map<String, String> contentIds = new HashMap<>();
+			Set<String> movedFiles = new HashSet<>();
+			for (String command : fileCommands) {
+				applyFileCommand(command, revision, revisionBefore, changes, contentIds, movedFiles);
+			}
+			filesRevision = revision;
+
+			// merge commits are not logged but are still applied to tracked files because export can continue from them
+			if (isMergeCommit) return;
+			changes.sort(Comparator.comparing(change -> pathBytes(change)));
+			visitor.visitCommit(new Commit(revision, revisionBefore, dateTime, author, formatMessage(message), changes), contentIds);
+		}
+
+		private void updateFilesFor(String revisionBefore) {
+			if (revisionBefore.equals(filesRevision)) return;
+			if (revisionBefore.equals(VcsChange.noRevision)) {
+				files = new HashMap<>();
+			} else {
+				files = filesOf(revisionBefore);
+			}
+		}
+
+		private void applyFileCommand(String command, String revision, String revisionBefore, List<Change> changes,
+		                              Map<String, String> contentIds, Set<String> movedFiles) throws IOException {
+			if (command.equals("deleteall")) {
+				files.clear();
+				return;
+			}
+			char type = command.charAt(0);
+			if (type == 'D') {
+				String filePath = decodePath(command.substring(2));
+				files.remove(filePath);
+				changes.add(new Change(Deleted, VcsChange.noFilePath, filePath, revision, revisionBefore));
+
+			} else if (type == 'M') {
+				// e.g. "M 100644 :1 file.txt" or "M 160000 <commit id> submodule"
+				String[] parts = command.split(" ", 4);
+				if (parts.length < 4) throw new IOException("Unexpected file command: " + command);
+				boolean isGitlink = parts[1].equals(gitlinkMode);
+				String objectId = parts[2].startsWith(":") ? blobIds.get(parts[2]) : parts[2];
+				String filePath = decodePath(parts[3]);
+
+				String previousObjectId = files.put(filePath, objectId);
+				if (!isGitlink) contentIds.put(filePath, objectId);
+				// modification of moved file is reported by fast-export as separate command
+				if (movedFiles.contains(filePath)) return;
+				if (previousObjectId == null) {
+					changes.add(new Change(Added, filePath, VcsChange.noFilePath, revision, VcsChange.noRevision));
+				} else {
+					changes.add(new Change(Modified, filePath, filePath, revision, revisionBefore));
+				}
+
+			} else {
+				// "R <source> <destination>" or "C <source> <destination>"
+				int pathEnd = endOfPath(command, 2);
+				if (pathEnd == -1) throw new IOException("Unexpected file command: " + command);
+				String filePathBefore = decodePath(command.substring(2, pathEnd));
+				String filePath = decodePath(command.substring(pathEnd + 1));
+
+				String objectId = type == 'R' ? files.remove(filePathBefore) : files.get(filePathBefore);
+				if (objectId != null) {
+					files.put(filePath, objectId);
+					contentIds.put(filePath, objectId);
+				}
+				movedFiles.add(filePath);
+				if (type == 'R') {
+					changes.add(new Change(Moved, filePath, filePathBefore, revision, revisionBefore));
+				} else {
+					// git doesn't detect copies without "-C" option, so copied file is reported as added
+					changes.add(new Change(Added, filePath, VcsChange.noFilePath, revision, VcsChange.noRevision));
+				}
+			}
+		}
+
+		/**
+		 * @return path bytes which determine order of changes in "git log" output
+		 */
+		private String pathBytes(Change change) {
+			String filePath = change.getType() == Deleted ? change.getFilePathBefore() : change.getFilePath();
+			return new String(filePath.getBytes(UTF_8), ISO_8859_1);
+		}
+
+		private byte[] readData(String line) throws IOException {
+			int size = Integer.parseInt(line.substring("data ".length()));
+			byte[] bytes = new byte[size];
+			int offset = 0;
+			while (offset < size) {
+				int read = inputStream.read(bytes, offset, size - offset);
+				if (read == -1) throw new EOFException("Unexpected end of fast-export output");
+				offset += read;
+			}
+			return bytes;
+		}
+
+		@Nullable private String readLine() throws IOException {
+			lineBuffer.reset();
+			int b;
+			while ((b = inputStream.read()) != -1 && b != '\n') {
+				lineBuffer.write(b);
+			}
+			if (b == -1 && lineBuffer.size() == 0) return null;
+			return lineBuffer.toString("ISO-8859-1");
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package org.vcsreader.vcs.git;
 
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.LogResult;
 import org.vcsreader.VcsChange;
 import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CapturedOutput;
 import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.JfrEvents;
 import org.vcsreader.lang.TimeRange;
 import org.vcsreader.vcs.Change;
 import org.vcsreader.vcs.Commit;
@@ -12,7 +15,11 @@ import org.vcsreader.vcs.VcsError;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
@@ -20,6 +27,7 @@ import static org.vcsreader.VcsChange.Type.Added;
 import static org.vcsreader.VcsChange.Type.Deleted;
 import static org.vcsreader.vcs.git.GitUtil.containsGitRepo;
 import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
+import static org.vcsreader.vcs.git.GitUtil.shallowCommits;
 import static org.vcsreader.vcs.git.GitCommitParser.*;
 
 /**
@@ -27,19 +35,55 @@ import static org.vcsreader.vcs.git.GitCommitParser.*;
  */
 @SuppressWarnings("Duplicates") // because it's similar to HgLog
 class GitLog implements VcsCommand<LogResult> {
+	private static final Pattern badRevision = Pattern.compile("fatal: bad (?:object (\\S+)|revision '(.*)')");
+
 	private final String gitPath;
 	private final String repoFolder;
 	private final TimeRange timeRange;
+	@Nullable private final String revision;
+	@Nullable private final ForkJoinPool parsePool;
 
+	private final CommandLine.Config config;
 	private final CommandLine commandLine;
 	private final List<CommandLine> externalSubCommands = new ArrayList<>();
 
 
-	public GitLog(String gitPath, String repoFolder, TimeRange timeRange) {
+	/**
+	 * @param revision  revision from which history is logged (e.g. remote-tracking branch), null means current HEAD
+	 * @param parsePool pool for parsing large log output in parallel, null means output is parsed sequentially
+	 */
+	public GitLog(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision,
+	              @Nullable ForkJoinPool parsePool, CommandLine.Config config) {
+		this(gitPath, repoFolder, timeRange, revision, parsePool, gitLog(gitPath, repoFolder, timeRange, revision), config);
+	}
+
+	private GitLog(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision, @Nullable ForkJoinPool parsePool,
+	               CommandLine commandLine, CommandLine.Config config) {
 		this.gitPath = gitPath;
 		this.repoFolder = repoFolder;
 		this.timeRange = timeRange;
-		this.commandLine = gitLog(gitPath, repoFolder, timeRange);
+		this.revision = revision;
+		this.parsePool = parsePool;
+		this.config = config;
+		this.commandLine = commandLine.executionConfig(config);
+	}
+
+	/**
+	 * @return command which logs commits with the specified revisions passing them to a single git process via stdin
+	 */
+	static GitLog logRevisions(String gitPath, String repoFolder, Collection<String> revisions,
+	                           @Nullable ForkJoinPool parsePool, CommandLine.Config config) {
+		return new GitLog(gitPath, repoFolder, TimeRange.all, null, parsePool, gitLogRevisions(gitPath, repoFolder, revisions), config);
+	}
+
+	/**
+	 * @return revision from "bad object" or "bad revision" error of git (which fails the whole log if one of requested
+	 * revisions doesn't exist) or null if error is not about missing revision
+	 */
+	@Nullable static String missingRevisionIn(String stderr) {
+		Matcher matcher = badRevision.matcher(stderr);
+		if (!matcher.find()) return null;
+		return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
 	}
 
 	@Override public LogResult execute() {
@@ -47,20 +91,70 @@ class GitLog implements VcsCommand<LogResult> {
 			throw new VcsError("Folder doesn't contain git repository: '" + repoFolder + "'.");
 		}
 
-		commandLine.execute();
+		List<VcsCommit> commits;
+		// capture stdout so that large logs are spilled to disk instead of being kept in memory as a string
+		try (CapturedOutput stdout = commandLine.executeCapturingStdout()) {
+			if (!isSuccessful(commandLine)) {
+				return new LogResult(new VcsError(commandLine.stderr()));
+			}
+			commits = parsePool != null ?
+					parseListOfCommits(stdout, commandLine.outputCharset(), parsePool) :
+					parseListOfCommits(stdout.reader(commandLine.outputCharset()));
+		}
+		commits = handleFileRenamesIn(commits);
 
-		if (isSuccessful(commandLine)) {
-			List<VcsCommit> commits = parseListOfCommits(commandLine.stdout());
-			commits = handleFileRenamesIn(commits);
+		List<Exception> errors = (commandLine.stderr().trim().isEmpty() ? new ArrayList<>() : asList(new VcsError(commandLine.stderr())));
+		return new LogResult(commits, errors);
+	}
 
-			List<Exception> errors = (commandLine.stderr().trim().isEmpty() ? new ArrayList<>() : asList(new VcsError(commandLine.stderr())));
-			return new LogResult(commits, errors);
-		} else {
-			return new LogResult(new VcsError(commandLine.stderr()));
+	static CommandLine gitLog(String gitPath, String repoFolder, TimeRange timeRange) {
+		return gitLog(gitPath, repoFolder, timeRange, null);
+	}
+
+	static CommandLine gitLog(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision) {
+		List<String> arguments = gitLogArguments(gitPath, timeRange, revision, shallowCommits(repoFolder));
+		return new CommandLine(arguments).workingDir(repoFolder).outputCharset(UTF_8);
+	}
+
+	static CommandLine gitLogRevisions(String gitPath, String repoFolder, Collection<String> revisions) {
+		StringBuilder stdin = new StringBuilder();
+		for (String revision : revisions) {
+			// revisions starting with "-" would be interpreted by git as options
+			if (revision.isEmpty() || revision.startsWith("-") || revision.matches(".*\\s.*")) {
+				throw new IllegalArgumentException("Invalid revision: '" + revision + "'");
+			}
+			stdin.append(revision).append('\n');
 		}
+		List<String> arguments = gitLogArguments(gitPath, TimeRange.all);
+		// see "--no-walk" and "--stdin" at https://git-scm.com/docs/git-log
+		arguments.addAll(asList("--no-walk", "--stdin"));
+		return new CommandLine(arguments).workingDir(repoFolder).outputCharset(UTF_8).stdin(stdin.toString().getBytes(UTF_8));
 	}
 
-	static CommandLine gitLog(String gitPath, String repoFolder, TimeRange timeRange) {
+	static List<String> gitLogArguments(String gitPath, TimeRange timeRange, @Nullable String revision,
+	                                    Collection<String> shallowCommits) {
+		List<String> arguments = gitLogArguments(gitPath, timeRange);
+		addRevisionArguments(arguments, revision, shallowCommits);
+		return arguments;
+	}
+
+	/**
+	 * @param shallowCommits commits at the boundary of shallow clone which are excluded from log
+	 *                       because without their parents all files would be reported as added
+	 */
+	static void addRevisionArguments(List<String> arguments, @Nullable String revision, Collection<String> shallowCommits) {
+		if (revision != null) {
+			arguments.add(revision);
+		}
+		if (!shallowCommits.isEmpty()) {
+			// without positive revision git would log nothing
+			if (revision == null) arguments.add("HEAD");
+			arguments.add("--not");
+			arguments.addAll(shallowCommits);
+		}
+	}
+
+	static List<String> gitLogArguments(String gitPath, TimeRange timeRange) {
 		String showFileStatus = "--name-status"; // see --diff-filter at https://www.kernel.org/pub/software/scm/git/docs/git-log.html
 		String forceUTF8ForCommitMessages = "--encoding=" + UTF_8.name();
 
@@ -77,7 +171,7 @@ class GitLog implements VcsCommand<LogResult> {
 				forceUTF8ForCommitMessages,
 				logFormat()
 		));
-		return new CommandLine(arguments).workingDir(repoFolder).outputCharset(UTF_8);
+		return arguments;
 	}
 
 	static CommandLine gitLogRenames(String gitPath, String folder, String revision) {
@@ -89,21 +183,30 @@ class GitLog implements VcsCommand<LogResult> {
 		List<VcsCommit> result = new ArrayList<>();
 		for (VcsCommit commit : commits) {
 			if (hasPotentialRenames(commit)) {
-				CommandLine commandLine = gitLogRenames(gitPath, repoFolder, commit.getRevision());
+				CommandLine commandLine = gitLogRenames(gitPath, repoFolder, commit.getRevision()).executionConfig(config);
 				externalSubCommands.add(commandLine);
-				commandLine.execute();
-
-				if (isSuccessful(commandLine)) {
-					List<Change> updatedChanges = parseListOfChanges(commandLine.stdout(), commit.getRevision(), commit.getRevisionBefore());
-					commit = new Commit(commit.getRevision(), commit.getRevisionBefore(), commit.getDateTime(), commit.getAuthor(), commit.getMessage(), updatedChanges);
-				}
+				commit = withRenames(commit, commandLine);
 			}
 			result.add(commit);
 		}
 		return result;
 	}
 
-	private static boolean hasPotentialRenames(VcsCommit commit) {
+	static VcsCommit withRenames(VcsCommit commit, CommandLine gitLogRenames) {
+		JfrEvents.Event event = JfrEvents.renameResolution.begin();
+		return gitLogRenames.execute(commandLine -> {
+			if (isSuccessful(commandLine)) {
+				List<Change> updatedChanges = parseListOfChanges(commandLine.stdout(), commit.getRevision(), commit.getRevisionBefore());
+				event.commit(commit.getRevision(), updatedChanges.size());
+				return new Commit(commit.getRevision(), commit.getRevisionBefore(), commit.getDateTime(), commit.getAuthor(), commit.getMessage(), updatedChanges);
+			} else {
+				event.commit(commit.getRevision(), commit.getChanges().size());
+				return commit;
+			}
+		});
+	}
+
+	static boolean hasPotentialRenames(VcsCommit commit) {
 		boolean hasDeletions = false;
 		boolean hasAdditions = false;
 		for (VcsChange change : commit.getChanges()) {
@@ -139,6 +242,8 @@ class GitLog implements VcsCommand<LogResult> {
 		if (gitPath != null ? !gitPath.equals(gitLog.gitPath) : gitLog.gitPath != null) return false;
 		if (repoFolder != null ? !repoFolder.equals(gitLog.repoFolder) : gitLog.repoFolder != null) return false;
 		if (timeRange != null ? !timeRange.equals(gitLog.timeRange) : gitLog.timeRange != null) return false;
+		if (revision != null ? !revision.equals(gitLog.revision) : gitLog.revision != null) return false;
+		if (parsePool != null ? !parsePool.equals(gitLog.parsePool) : gitLog.parsePool != null) return false;
 		if (commandLine != null ? !commandLine.equals(gitLog.commandLine) : gitLog.commandLine != null) return false;
 		return externalSubCommands != null ? externalSubCommands.equals(gitLog.externalSubCommands) : gitLog.externalSubCommands == null;
 	}
@@ -147,6 +252,8 @@ class GitLog implements VcsCommand<LogResult> {
 		int result = gitPath != null ? gitPath.hashCode() : 0;
 		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
 		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		result = 31 * result + (parsePool != null ? parsePool.hashCode() : 0);
 		result = 31 * result + (commandLine != null ? commandLine.hashCode() : 0);
 		result = 31 * result + (externalSubCommands != null ? externalSubCommands.hashCode() : 0);
 		return result;
@@ -157,6 +264,8 @@ class GitLog implements VcsCommand<LogResult> {
 				"gitPath='" + gitPath + '\'' +
 				", repoFolder='" + repoFolder + '\'' +
 				", timeRange=" + timeRange +
+				", revision='" + revision + '\'' +
+				", parsePool=" + parsePool +
 				", commandLine=" + commandLine +
 				", externalSubCommands=" + externalSubCommands +
 				'}';
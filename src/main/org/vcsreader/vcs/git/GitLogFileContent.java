@@ -25,13 +25,13 @@ class GitLogFileContent implements VcsCommand<LogFileContentResult> {
 	private final Charset charset;
 	private final CommandLine commandLine;
 
-	GitLogFileContent(String gitPath, String repoFolder, String filePath, String revision, Charset charset) {
+	GitLogFileContent(String gitPath, String repoFolder, String filePath, String revision, Charset charset, CommandLine.Config config) {
 		this.gitPath = gitPath;
 		this.repoFolder = repoFolder;
 		this.filePath = filePath;
 		this.revision = revision;
 		this.charset = charset;
-		this.commandLine = gitLogFileContent(gitPath, repoFolder, filePath, revision, charset);
+		this.commandLine = gitLogFileContent(gitPath, repoFolder, filePath, revision, charset).executionConfig(config);
 	}
 
 	static CommandLine gitLogFileContent(String pathToGit, String repoFolder, String filePath, String revision, Charset charset) {
@@ -40,12 +40,13 @@ class GitLogFileContent implements VcsCommand<LogFileContentResult> {
 	}
 
 	@Override public LogFileContentResult execute() {
-		commandLine.execute();
-		if (isSuccessful(commandLine)) {
-			return new LogFileContentResult(trimLastNewLine(commandLine.stdout()));
-		} else {
-			return new LogFileContentResult(commandLine.stderr(), commandLine.exitCode());
-		}
+		return commandLine.execute(it -> {
+			if (isSuccessful(it)) {
+				return new LogFileContentResult(trimLastNewLine(it.stdout()));
+			} else {
+				return new LogFileContentResult(it.stderr(), it.exitCode());
+			}
+		});
 	}
 
 	@Override public String describe() {
@@ -0,0 +1,121 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.LogStream;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.vcsreader.vcs.git.GitCommitParser.commitStartSeparator;
+import static org.vcsreader.vcs.git.GitCommitParser.parseCommit;
+import static org.vcsreader.vcs.git.GitLog.*;
+import static org.vcsreader.vcs.git.GitUtil.containsGitRepo;
+
+/**
+ * Streaming version of {@link GitLog}.
+ * Commits are read in chronological order (oldest first) using "--reverse" flag,
+ * which makes git walk the whole time range before the first commit is written to stdout
+ * (see {@link GitVcsRoot#logStream(TimeRange)}).
+ */
+@SuppressWarnings("Duplicates") // because it's similar to HgLogStream
+class GitLogStream implements VcsCommand<Stream<VcsCommit>> {
+	private final String gitPath;
+	private final String repoFolder;
+	private final TimeRange timeRange;
+	@Nullable private final String revision;
+
+	private final CommandLine.Config config;
+	private final CommandLine commandLine;
+	private final AtomicReference<CommandLine> renamesCommandLine = new AtomicReference<>();
+
+
+	/**
+	 * @param revision revision from which history is logged (e.g. remote-tracking branch), null means current HEAD
+	 */
+	public GitLogStream(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision, CommandLine.Config config) {
+		this.gitPath = gitPath;
+		this.repoFolder = repoFolder;
+		this.timeRange = timeRange;
+		this.revision = revision;
+		this.config = config;
+		this.commandLine = gitLogStream(gitPath, repoFolder, timeRange, revision).executionConfig(config);
+	}
+
+	@Override public Stream<VcsCommit> execute() {
+		if (!containsGitRepo(repoFolder)) {
+			throw new VcsError("Folder doesn't contain git repository: '" + repoFolder + "'.");
+		}
+
+		commandLine.start();
+
+		return new LogStream(commandLine, commitStartSeparator, this::parseCommitWithRenames, GitUtil::isSuccessful).stream();
+	}
+
+	static CommandLine gitLogStream(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision) {
+		List<String> arguments = gitLogArguments(gitPath, timeRange);
+		arguments.add("--reverse");
+		addRevisionArguments(arguments, revision, GitUtil.shallowCommits(repoFolder));
+		return new CommandLine(arguments).workingDir(repoFolder).outputCharset(UTF_8);
+	}
+
+	private VcsCommit parseCommitWithRenames(String s) {
+		VcsCommit commit = parseCommit(s);
+		if (commit != null && hasPotentialRenames(commit)) {
+			CommandLine commandLine = gitLogRenames(gitPath, repoFolder, commit.getRevision()).executionConfig(config).subCommandOf(this.commandLine);
+			renamesCommandLine.set(commandLine);
+			commit = withRenames(commit, commandLine);
+			renamesCommandLine.set(null);
+		}
+		return commit;
+	}
+
+	@Override public String describe() {
+		return commandLine.describe();
+	}
+
+	@Override public boolean cancel() {
+		boolean notRunning = commandLine.kill();
+		CommandLine subCommand = renamesCommandLine.get();
+		if (subCommand != null) {
+			notRunning &= subCommand.kill();
+		}
+		return notRunning;
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitLogStream that = (GitLogStream) o;
+
+		if (gitPath != null ? !gitPath.equals(that.gitPath) : that.gitPath != null) return false;
+		if (repoFolder != null ? !repoFolder.equals(that.repoFolder) : that.repoFolder != null) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		return revision != null ? revision.equals(that.revision) : that.revision == null;
+	}
+
+	@Override public int hashCode() {
+		int result = gitPath != null ? gitPath.hashCode() : 0;
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitLogStream{" +
+				"gitPath='" + gitPath + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				", timeRange=" + timeRange +
+				", revision='" + revision + '\'' +
+				'}';
+	}
+}
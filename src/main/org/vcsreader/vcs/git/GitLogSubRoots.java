@@ -0,0 +1,126 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.LogResult;
+import org.vcsreader.VcsChange;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.PathPrefixTrie;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.VcsCommand;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reads history of several sub-folders of the same repository with a single "git log".
+ * Changes are routed to sub-roots by path prefix so that each commit is only included
+ * into results of sub-roots it touches (with changes outside of sub-root filtered out).
+ * File paths are kept relative to repository root, i.e. the same as in {@link GitLog}.
+ */
+class GitLogSubRoots implements VcsCommand<Map<String, LogResult>> {
+	private final GitLog gitLog;
+	private final List<String> subRoots;
+
+
+	public GitLogSubRoots(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision,
+	                      Collection<String> subRoots, @Nullable ForkJoinPool parsePool, CommandLine.Config config) {
+		this.gitLog = new GitLog(gitPath, repoFolder, timeRange, revision, parsePool, config);
+		this.subRoots = new ArrayList<>(new LinkedHashSet<>(subRoots));
+	}
+
+	@Override public Map<String, LogResult> execute() {
+		return partition(gitLog.execute(), subRoots);
+	}
+
+	static Map<String, LogResult> partition(LogResult logResult, List<String> subRoots) {
+		PathPrefixTrie<Integer> trie = new PathPrefixTrie<>();
+		List<List<VcsCommit>> commitsBySubRoot = new ArrayList<>();
+		List<List<VcsChange>> changesBySubRoot = new ArrayList<>();
+		for (int i = 0; i < subRoots.size(); i++) {
+			trie.put(subRoots.get(i), i);
+			commitsBySubRoot.add(new ArrayList<>());
+			changesBySubRoot.add(new ArrayList<>());
+		}
+		List<Integer> matches = new ArrayList<>();
+		boolean[] isMatched = new boolean[subRoots.size()];
+
+		for (VcsCommit commit : logResult.commits()) {
+			for (VcsChange change : commit.getChanges()) {
+				matches.clear();
+				trie.collectValuesMatching(change.getFilePath(), matches);
+				if (!change.getFilePathBefore().equals(change.getFilePath())) {
+					trie.collectValuesMatching(change.getFilePathBefore(), matches);
+				}
+				for (Integer i : matches) {
+					// the same sub-root can be matched by both file path and file path before
+					if (isMatched[i]) continue;
+					isMatched[i] = true;
+					changesBySubRoot.get(i).add(change);
+				}
+				for (Integer i : matches) {
+					isMatched[i] = false;
+				}
+			}
+			for (int i = 0; i < subRoots.size(); i++) {
+				List<VcsChange> changes = changesBySubRoot.get(i);
+				if (changes.isEmpty()) continue;
+				commitsBySubRoot.get(i).add(commit.withChanges(new ArrayList<>(changes)));
+				changes.clear();
+			}
+		}
+
+		Map<String, LogResult> result = new LinkedHashMap<>();
+		for (int i = 0; i < subRoots.size(); i++) {
+			result.put(subRoots.get(i), new LogResult(commitsBySubRoot.get(i), new ArrayList<>(logResult.exceptions())));
+		}
+		return result;
+	}
+
+	static ExceptionWrapper<Map<String, LogResult>> adapter(Collection<String> subRoots) {
+		return e -> {
+			Map<String, LogResult> result = new LinkedHashMap<>();
+			for (String subRoot : subRoots) {
+				result.put(subRoot, new LogResult(e));
+			}
+			return result;
+		};
+	}
+
+	@Override public String describe() {
+		return gitLog.describe();
+	}
+
+	@Override public boolean cancel() {
+		return gitLog.cancel();
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitLogSubRoots that = (GitLogSubRoots) o;
+
+		if (!gitLog.equals(that.gitLog)) return false;
+		return subRoots.equals(that.subRoots);
+	}
+
+	@Override public int hashCode() {
+		int result = gitLog.hashCode();
+		result = 31 * result + subRoots.hashCode();
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitLogSubRoots{" +
+				"gitLog=" + gitLog +
+				", subRoots=" + subRoots +
+				'}';
+	}
+}
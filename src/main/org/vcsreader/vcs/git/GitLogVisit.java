@@ -0,0 +1,259 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.LogResult;
+import org.vcsreader.LogVisitor;
+import org.vcsreader.VcsChange;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CharSlice;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.SplitReader;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.MutableChangeView;
+import org.vcsreader.vcs.MutableCommitView;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static org.vcsreader.VcsChange.Type.Added;
+import static org.vcsreader.VcsChange.Type.Deleted;
+import static org.vcsreader.vcs.git.GitCommitParser.*;
+import static org.vcsreader.vcs.git.GitLog.gitLogRenames;
+import static org.vcsreader.vcs.git.GitLog.withRenames;
+import static org.vcsreader.vcs.git.GitLogStream.gitLogStream;
+import static org.vcsreader.vcs.git.GitUtil.containsGitRepo;
+import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
+
+/**
+ * Reads the same commits as {@link GitLogStream} but passes them to {@link LogVisitor}
+ * using reusable views over the buffer with git output, i.e. without allocating objects for each commit.
+ * The only exception are commits with potential renames which are resolved with additional git command
+ * (see {@link GitLog#hasPotentialRenames(VcsCommit)}).
+ */
+class GitLogVisit implements VcsCommand<LogResult> {
+	private static final int fieldsCount = 6;
+
+	private final String gitPath;
+	private final String repoFolder;
+	private final TimeRange timeRange;
+	@Nullable private final String revision;
+	private final LogVisitor visitor;
+
+	private final CommandLine.Config config;
+	private final CommandLine commandLine;
+	private final AtomicReference<CommandLine> renamesCommandLine = new AtomicReference<>();
+
+	private final CharSlice commitText = new CharSlice();
+	private final CharSlice[] fields = new CharSlice[fieldsCount];
+	private final CharSlice line = new CharSlice();
+	private final CharSlice filePath = new CharSlice();
+	private final CharSlice filePathBefore = new CharSlice();
+	private final MutableCommitView commitView = new MutableCommitView();
+	private final MutableChangeView changeView = new MutableChangeView();
+
+
+	/**
+	 * @param revision revision from which history is logged (e.g. remote-tracking branch), null means current HEAD
+	 */
+	public GitLogVisit(String gitPath, String repoFolder, TimeRange timeRange, @Nullable String revision,
+	                   LogVisitor visitor, CommandLine.Config config) {
+		this.gitPath = gitPath;
+		this.repoFolder = repoFolder;
+		this.timeRange = timeRange;
+		this.revision = revision;
+		this.visitor = visitor;
+		this.config = config;
+		this.commandLine = gitLogStream(gitPath, repoFolder, timeRange, revision).executionConfig(config);
+		for (int i = 0; i < fieldsCount; i++) {
+			fields[i] = new CharSlice();
+		}
+	}
+
+	@Override public LogResult execute() {
+		if (!containsGitRepo(repoFolder)) {
+			throw new VcsError("Folder doesn't contain git repository: '" + repoFolder + "'.");
+		}
+
+		commandLine.start();
+		boolean readAllOutput = false;
+		try {
+			SplitReader splitReader = new SplitReader(commandLine.stdoutReader(), commitStartSeparator);
+			while (splitReader.next(commitText)) {
+				visitCommit(commitText);
+			}
+			readAllOutput = true;
+		} finally {
+			if (!readAllOutput) commandLine.kill();
+			commandLine.finish();
+		}
+
+		if (isSuccessful(commandLine)) {
+			List<Exception> errors = (commandLine.stderr().trim().isEmpty() ? new ArrayList<>() : asList(new VcsError(commandLine.stderr())));
+			return new LogResult(new ArrayList<>(), errors);
+		} else {
+			return new LogResult(new VcsError(commandLine.stderr()));
+		}
+	}
+
+	private void visitCommit(CharSlice s) {
+		int fieldsSize = splitFields(s);
+
+		CharSlice previousRevision = fields[1];
+		boolean isFirstCommit = previousRevision.isEmpty();
+		boolean isMergeCommit = previousRevision.indexOf(' ', 0) != -1;
+		if (isMergeCommit) return;
+
+		boolean hasNoChanges = fieldsSize < 6; // e.g. for commits with --allow-empty flag
+		if (!hasNoChanges && hasPotentialRenames(fields[5])) {
+			VcsCommit commit = parseCommit(s.toString());
+			CommandLine commandLine = gitLogRenames(gitPath, repoFolder, fields[0].toString()).executionConfig(config).subCommandOf(this.commandLine);
+			renamesCommandLine.set(commandLine);
+			commit = withRenames(commit, commandLine);
+			renamesCommandLine.set(null);
+			commitView.visit(commit, changeView, visitor);
+			return;
+		}
+
+		CharSlice revision = fields[0];
+		CharSequence revisionBefore = (isFirstCommit ? VcsChange.noRevision : previousRevision);
+		long epochMillis = fields[2].parseLong() * 1000;
+		CharSlice author = fields[3];
+		CharSlice message = fields[4].trim(" \r\n\t");
+		visitor.visitCommit(commitView.set(revision, revisionBefore, epochMillis, author, message));
+
+		if (hasNoChanges) return;
+		CharSlice changes = fields[5];
+		int from = 0;
+		while (from < changes.length()) {
+			int to = changes.indexOf('\n', from);
+			if (to == -1) to = changes.length();
+			line.set(changes, from, to);
+			if (!isBlank(line)) {
+				visitChange(line, revision, revisionBefore);
+			}
+			from = to + 1;
+		}
+	}
+
+	private void visitChange(CharSlice s, CharSequence revision, CharSequence revisionBefore) {
+		VcsChange.Type changeType = parseChangeType(s.charAt(0));
+
+		int tabIndex = s.indexOf('\t', 0);
+		int secondTabIndex = s.indexOf('\t', tabIndex + 1);
+		boolean hasRenames = secondTabIndex != -1;
+		CharSequence filePath;
+		CharSequence filePathBefore;
+		if (hasRenames) {
+			filePathBefore = unescapeQuotesIn(this.filePathBefore.set(s, tabIndex + 1, secondTabIndex));
+			filePath = unescapeQuotesIn(this.filePath.set(s, secondTabIndex + 1, s.length()));
+		} else {
+			filePath = unescapeQuotesIn(this.filePath.set(s, tabIndex + 1, s.length()));
+			filePathBefore = filePath;
+		}
+
+		if (changeType == Added) {
+			filePathBefore = VcsChange.noFilePath;
+			revisionBefore = VcsChange.noRevision;
+		} else if (changeType == Deleted) {
+			filePathBefore = filePath;
+			filePath = VcsChange.noFilePath;
+		}
+
+		visitor.visitChange(changeView.set(changeType, filePath, filePathBefore, revision, revisionBefore));
+	}
+
+	private int splitFields(CharSlice s) {
+		int fieldsSize = 0;
+		int from = 0;
+		while (fieldsSize < fieldsCount) {
+			int index = s.indexOf(commitFieldsSeparator, from);
+			if (index == -1) {
+				if (from < s.length()) fields[fieldsSize++].set(s, from, s.length());
+				break;
+			}
+			fields[fieldsSize++].set(s, from, index);
+			from = index + commitFieldsSeparator.length();
+		}
+		for (int i = fieldsSize; i < fieldsCount; i++) {
+			fields[i].clear();
+		}
+		return fieldsSize;
+	}
+
+	private static boolean hasPotentialRenames(CharSlice changes) {
+		boolean hasDeletions = false;
+		boolean hasAdditions = false;
+		int from = 0;
+		while (from < changes.length()) {
+			char c = changes.charAt(from);
+			if (c == 'D') hasDeletions = true;
+			else if (c == 'A' || c == 'C') hasAdditions = true;
+
+			int to = changes.indexOf('\n', from);
+			if (to == -1) break;
+			from = to + 1;
+		}
+		return hasDeletions && hasAdditions;
+	}
+
+	private static boolean isBlank(CharSlice s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (!Character.isWhitespace(s.charAt(i))) return false;
+		}
+		return true;
+	}
+
+	private static CharSequence unescapeQuotesIn(CharSlice filePath) {
+		// quoted file paths are rare, so it's ok to allocate string for them
+		return filePath.startsWith("\"") ? unescapeQuotes(filePath.toString()) : filePath;
+	}
+
+	@Override public String describe() {
+		return commandLine.describe();
+	}
+
+	@Override public boolean cancel() {
+		boolean notRunning = commandLine.kill();
+		CommandLine subCommand = renamesCommandLine.get();
+		if (subCommand != null) {
+			notRunning &= subCommand.kill();
+		}
+		return notRunning;
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitLogVisit that = (GitLogVisit) o;
+
+		if (gitPath != null ? !gitPath.equals(that.gitPath) : that.gitPath != null) return false;
+		if (repoFolder != null ? !repoFolder.equals(that.repoFolder) : that.repoFolder != null) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		if (revision != null ? !revision.equals(that.revision) : that.revision != null) return false;
+		return visitor != null ? visitor.equals(that.visitor) : that.visitor == null;
+	}
+
+	@Override public int hashCode() {
+		int result = gitPath != null ? gitPath.hashCode() : 0;
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		result = 31 * result + (visitor != null ? visitor.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitLogVisit{" +
+				"gitPath='" + gitPath + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				", timeRange=" + timeRange +
+				", revision='" + revision + '\'' +
+				'}';
+	}
+}
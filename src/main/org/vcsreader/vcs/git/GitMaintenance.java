@@ -0,0 +1,138 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.UpdateResult;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
+
+/**
+ * Optimizes repository for reading history (see {@link GitSettings#withMaintenance(boolean)}).
+ * If repository has many loose objects or packs, they are repacked (objects borrowed from alternates are not copied).
+ * Then commit-graph file with changed-path Bloom filters is written for all reachable commits,
+ * so that "git log" doesn't need to decompress commit objects to walk history
+ * and can skip commits which don't modify requested paths without reading their trees.
+ * When commit-graph is rewritten after update, Bloom filters of already known commits are reused.
+ */
+class GitMaintenance implements VcsCommand<UpdateResult> {
+	static final int maxLooseObjects = 1000;
+	static final int maxPacks = 20;
+
+	private final String gitPath;
+	private final String repoFolder;
+	private final CommandLine.Config config;
+	private final AtomicReference<CommandLine> currentCommandLine = new AtomicReference<>();
+	private volatile boolean cancelled;
+
+
+	public GitMaintenance(String gitPath, String repoFolder, CommandLine.Config config) {
+		this.gitPath = gitPath;
+		this.repoFolder = repoFolder;
+		this.config = config;
+	}
+
+	@Override public UpdateResult execute() {
+		CommandLine commandLine = run(gitCountObjects(gitPath, repoFolder));
+		if (!isSuccessful(commandLine)) return new UpdateResult(new VcsError(commandLine.stderr()));
+
+		CommandLine repack = gitRepack(gitPath, repoFolder, commandLine.stdout());
+		if (repack != null) {
+			commandLine = run(repack);
+			if (!isSuccessful(commandLine)) return new UpdateResult(new VcsError(commandLine.stderr()));
+		}
+
+		commandLine = run(gitWriteCommitGraph(gitPath, repoFolder));
+		if (!isSuccessful(commandLine)) return new UpdateResult(new VcsError(commandLine.stderr()));
+
+		return new UpdateResult();
+	}
+
+	private CommandLine run(CommandLine commandLine) {
+		commandLine = commandLine.executionConfig(config);
+		currentCommandLine.set(commandLine);
+		// skip remaining steps of maintenance after cancel
+		if (cancelled) commandLine.kill();
+		try {
+			return commandLine.execute();
+		} finally {
+			currentCommandLine.set(null);
+		}
+	}
+
+	static CommandLine gitCountObjects(String gitPath, String repoFolder) {
+		return new CommandLine(gitPath, "count-objects", "-v").workingDir(repoFolder);
+	}
+
+	/**
+	 * @param countObjectsOutput output of "git count-objects -v"
+	 * @return repack command if repository is fragmented, null otherwise
+	 */
+	@Nullable static CommandLine gitRepack(String gitPath, String repoFolder, String countObjectsOutput) {
+		long looseObjects = countObjectsValue(countObjectsOutput, "count");
+		long packs = countObjectsValue(countObjectsOutput, "packs");
+		if (packs > maxPacks) {
+			return new CommandLine(gitPath, "repack", "-a", "-d", "-l", "-q").workingDir(repoFolder);
+		} else if (looseObjects > maxLooseObjects) {
+			return new CommandLine(gitPath, "repack", "-d", "-l", "-q").workingDir(repoFolder);
+		} else {
+			return null;
+		}
+	}
+
+	static CommandLine gitWriteCommitGraph(String gitPath, String repoFolder) {
+		return new CommandLine(gitPath, "commit-graph", "write", "--reachable", "--changed-paths", "--no-progress")
+				.workingDir(repoFolder);
+	}
+
+	private static long countObjectsValue(String countObjectsOutput, String name) {
+		for (String line : countObjectsOutput.split("\n")) {
+			if (line.startsWith(name + ": ")) {
+				try {
+					return Long.parseLong(line.substring(name.length() + 2).trim());
+				} catch (NumberFormatException ignored) {
+					return 0;
+				}
+			}
+		}
+		return 0;
+	}
+
+	@Override public String describe() {
+		CommandLine commandLine = currentCommandLine.get();
+		return commandLine != null ? commandLine.describe() : gitWriteCommitGraph(gitPath, repoFolder).describe();
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		CommandLine commandLine = currentCommandLine.get();
+		return commandLine == null || commandLine.kill();
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitMaintenance that = (GitMaintenance) o;
+
+		if (gitPath != null ? !gitPath.equals(that.gitPath) : that.gitPath != null) return false;
+		return repoFolder != null ? repoFolder.equals(that.repoFolder) : that.repoFolder == null;
+	}
+
+	@Override public int hashCode() {
+		int result = gitPath != null ? gitPath.hashCode() : 0;
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitMaintenance{" +
+				"gitPath='" + gitPath + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				'}';
+	}
+}
@@ -0,0 +1,261 @@
+package org.vcsreader.vcs.git;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.vcsreader.vcs.git.GitUtil.toHex;
+
+/**
+ * Content of git object read from loose object file or pack file (see {@link GitObjectDatabase}).
+ * See https://git-scm.com/book/en/v2/Git-Internals-Git-Objects
+ */
+class GitObject {
+	static final int commitType = 1;
+	static final int treeType = 2;
+	static final int blobType = 3;
+	static final int tagType = 4;
+
+	static final int idLength = 20;
+
+	final int type;
+	final byte[] data;
+
+
+	GitObject(int type, byte[] data) {
+		this.type = type;
+		this.data = data;
+	}
+
+	static int parseType(String typeName) {
+		switch (typeName) {
+			case "commit": return commitType;
+			case "tree": return treeType;
+			case "blob": return blobType;
+			case "tag": return tagType;
+			default: throw new IllegalStateException("Unknown git object type: " + typeName);
+		}
+	}
+
+	static String typeName(int type) {
+		switch (type) {
+			case commitType: return "commit";
+			case treeType: return "tree";
+			case blobType: return "blob";
+			case tagType: return "tag";
+			default: return "unknown(" + type + ")";
+		}
+	}
+
+	Commit asCommit() {
+		checkType(commitType);
+		return Commit.parse(data);
+	}
+
+	List<TreeEntry> asTree() {
+		checkType(treeType);
+		return TreeEntry.parse(data);
+	}
+
+	/**
+	 * @return id of object which annotated tag points to
+	 */
+	String tagTarget() {
+		checkType(tagType);
+		String header = "object ";
+		if (!startsWith(data, 0, header)) throw new IllegalStateException("Invalid tag object");
+		return new String(data, header.length(), idLength * 2, UTF_8);
+	}
+
+	private void checkType(int expectedType) {
+		if (type != expectedType) {
+			throw new IllegalStateException("Expected " + typeName(expectedType) + " but was " + typeName(type));
+		}
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+		if (offset + prefix.length() > bytes.length) return false;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (bytes[offset + i] != prefix.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] bytes, byte b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == b) return i;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Fields of commit object which are needed to log it.
+	 */
+	static class Commit {
+		final String tree;
+		final List<String> parents;
+		final String authorName;
+		final long authorTime;
+		final long committerTime;
+		final String message;
+
+		Commit(String tree, List<String> parents, String authorName, long authorTime, long committerTime, String message) {
+			this.tree = tree;
+			this.parents = parents;
+			this.authorName = authorName;
+			this.authorTime = authorTime;
+			this.committerTime = committerTime;
+			this.message = message;
+		}
+
+		static Commit parse(byte[] data) {
+			String tree = null;
+			List<String> parents = new ArrayList<>(1);
+			int authorNameStart = 0;
+			int authorNameEnd = 0;
+			long authorTime = 0;
+			long committerTime = 0;
+			Charset charset = UTF_8;
+
+			int position = 0;
+			while (position < data.length && data[position] != '\n') {
+				int lineEnd = indexOf(data, (byte) '\n', position, data.length);
+				if (lineEnd == -1) lineEnd = data.length;
+
+				if (startsWith(data, position, "tree ")) {
+					tree = new String(data, position + 5, idLength * 2, UTF_8);
+				} else if (startsWith(data, position, "parent ")) {
+					parents.add(new String(data, position + 7, idLength * 2, UTF_8));
+				} else if (startsWith(data, position, "author ")) {
+					int emailStart = indexOf(data, (byte) '<', position, lineEnd);
+					int emailEnd = indexOf(data, (byte) '>', position, lineEnd);
+					if (emailStart != -1) {
+						authorNameStart = position + 7;
+						authorNameEnd = emailStart;
+					}
+					authorTime = parseTime(data, emailEnd + 1, lineEnd);
+				} else if (startsWith(data, position, "committer ")) {
+					committerTime = parseTime(data, indexOf(data, (byte) '>', position, lineEnd) + 1, lineEnd);
+				} else if (startsWith(data, position, "encoding ")) {
+					charset = charset(new String(data, position + 9, lineEnd - position - 9, UTF_8).trim());
+				}
+				// other headers (e.g. multiline "gpgsig" where continuation lines start with space) are skipped
+				position = lineEnd + 1;
+			}
+			int messageStart = Math.min(position + 1, data.length);
+			String message = new String(data, messageStart, data.length - messageStart, charset);
+			String authorName = new String(data, authorNameStart, authorNameEnd - authorNameStart, charset).trim();
+			if (tree == null) throw new IllegalStateException("Invalid commit object");
+
+			return new Commit(tree, parents, authorName, authorTime, committerTime, message);
+		}
+
+		/**
+		 * @return epoch seconds from "{seconds} {timezone}" part of author or committer line
+		 */
+		private static long parseTime(byte[] data, int from, int to) {
+			long result = 0;
+			int i = from;
+			while (i < to && data[i] == ' ') i++;
+			for (; i < to && data[i] >= '0' && data[i] <= '9'; i++) {
+				result = result * 10 + (data[i] - '0');
+			}
+			return result;
+		}
+
+		private static Charset charset(String name) {
+			try {
+				return Charset.forName(name);
+			} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+				return UTF_8;
+			}
+		}
+	}
+
+
+	static class TreeEntry {
+		private static final int typeMask = 0170000;
+		private static final int treeMode = 0040000;
+		private static final int regularFileMode = 0100000;
+		private static final int gitlinkMode = 0160000;
+
+		final int mode;
+		final String name;
+		final String id;
+
+		TreeEntry(int mode, String name, String id) {
+			this.mode = mode;
+			this.name = name;
+			this.id = id;
+		}
+
+		boolean isTree() {
+			return (mode & typeMask) == treeMode;
+		}
+
+		boolean isRegularFile() {
+			return (mode & typeMask) == regularFileMode;
+		}
+
+		boolean isGitlink() {
+			return (mode & typeMask) == gitlinkMode;
+		}
+
+		int objectType() {
+			return (mode & typeMask);
+		}
+
+		/**
+		 * Tree entries are sorted by name as if tree names had trailing "/"
+		 * (see base_name_compare() in git source code).
+		 */
+		static int compare(TreeEntry entry1, TreeEntry entry2) {
+			String name1 = entry1.name;
+			String name2 = entry2.name;
+			int length = Math.min(name1.length(), name2.length());
+			for (int i = 0; i < length; i++) {
+				char c1 = name1.charAt(i);
+				char c2 = name2.charAt(i);
+				if (c1 != c2) return c1 - c2;
+			}
+			char c1 = name1.length() > length ? name1.charAt(length) : (entry1.isTree() ? '/' : '\0');
+			char c2 = name2.length() > length ? name2.charAt(length) : (entry2.isTree() ? '/' : '\0');
+			return c1 - c2;
+		}
+
+		/**
+		 * Tree object consists of entries "{octal mode} {name}\0{20 bytes of id}".
+		 */
+		static List<TreeEntry> parse(byte[] data) {
+			if (data.length == 0) return Collections.emptyList();
+			List<TreeEntry> result = new ArrayList<>();
+			int position = 0;
+			while (position < data.length) {
+				int mode = 0;
+				for (; data[position] != ' '; position++) {
+					mode = (mode << 3) + (data[position] - '0');
+				}
+				position++;
+				int nameEnd = indexOf(data, (byte) 0, position, data.length);
+				String name = new String(data, position, nameEnd - position, UTF_8);
+				String id = toHex(data, nameEnd + 1, idLength);
+				result.add(new TreeEntry(mode, name, id));
+				position = nameEnd + 1 + idLength;
+			}
+			return result;
+		}
+
+		@Override public String toString() {
+			return "TreeEntry{" +
+					"mode=" + Integer.toOctalString(mode) +
+					", name='" + name + '\'' +
+					", id='" + id + '\'' +
+					'}';
+		}
+	}
+}
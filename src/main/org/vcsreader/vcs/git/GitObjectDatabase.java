@@ -0,0 +1,187 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.vcsreader.vcs.git.GitObject.idLength;
+import static org.vcsreader.vcs.git.GitUtil.fromHex;
+import static org.vcsreader.vcs.git.GitUtil.toHex;
+
+/**
+ * Reads git objects directly from "objects" folder of repository without running git,
+ * i.e. from loose object files, pack files and from object folders of alternate repositories
+ * (e.g. created by "git clone --reference", see {@link GitSettings#withSharedObjectStore(String)}).
+ * See https://git-scm.com/docs/gitrepository-layout
+ * <p>
+ * Only repositories with SHA-1 object ids are supported.
+ * Objects missing in partial clones are not fetched from remote repository.
+ * Packs are found when database is opened, so it should be reopened to read objects added by later fetches
+ * (see {@link #isOutdated()} and {@link GitObjectRepository}).
+ * <p>
+ * This class is thread-safe.
+ */
+class GitObjectDatabase {
+	private static final int maxAlternatesDepth = 5;
+
+	private final File gitDir;
+	private final List<File> objectFolders;
+	private final List<GitPackFile> packs;
+	private final long[] packFoldersModified;
+
+
+	private GitObjectDatabase(File gitDir, List<File> objectFolders, List<GitPackFile> packs) {
+		this.gitDir = gitDir;
+		this.objectFolders = objectFolders;
+		this.packs = packs;
+		this.packFoldersModified = packFoldersModified(objectFolders);
+	}
+
+	/**
+	 * @param repoFolder working tree with ".git" folder or bare repository
+	 */
+	static GitObjectDatabase open(String repoFolder) throws IOException {
+		return open(repoFolder, null);
+	}
+
+	/**
+	 * @param previous database of the same repository which packs are reused if they're still in repository
+	 *                 (pack names are checksums of their content), so that they're not mapped again
+	 *                 and keep their delta base caches
+	 */
+	static GitObjectDatabase open(String repoFolder, @Nullable GitObjectDatabase previous) throws IOException {
+		File gitDir = GitUtil.gitDir(new File(repoFolder));
+		if (gitDir == null) throw new IOException("Not a git repository: " + repoFolder);
+		File objectsFolder = new File(GitUtil.commonDir(gitDir), "objects");
+
+		List<File> objectFolders = new ArrayList<>();
+		addWithAlternates(objectsFolder, objectFolders, 0);
+
+		Map<File, GitPackFile> previousPacks = new HashMap<>();
+		if (previous != null) {
+			for (GitPackFile pack : previous.packs) {
+				previousPacks.put(pack.packFile(), pack);
+			}
+		}
+		List<GitPackFile> packs = new ArrayList<>();
+		for (File objectFolder : objectFolders) {
+			File[] indexFiles = new File(objectFolder, "pack").listFiles((dir, name) -> name.endsWith(".idx"));
+			if (indexFiles == null) continue;
+			// newer packs are more likely to contain recently requested objects
+			Arrays.sort(indexFiles, (file1, file2) -> Long.compare(file2.lastModified(), file1.lastModified()));
+			for (File indexFile : indexFiles) {
+				File packFile = new File(objectFolder, "pack/" + indexFile.getName().replaceAll("\\.idx$", ".pack"));
+				if (packFile.isFile()) {
+					GitPackFile pack = previousPacks.get(packFile);
+					packs.add(pack != null ? pack : GitPackFile.open(indexFile));
+				}
+			}
+		}
+		return new GitObjectDatabase(gitDir, objectFolders, packs);
+	}
+
+	/**
+	 * @return true if packs were added or removed since the database was opened (e.g. by fetch or repack)
+	 */
+	boolean isOutdated() {
+		return !Arrays.equals(packFoldersModified, packFoldersModified(objectFolders));
+	}
+
+	private static long[] packFoldersModified(List<File> objectFolders) {
+		long[] result = new long[objectFolders.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new File(objectFolders.get(i), "pack").lastModified();
+		}
+		return result;
+	}
+
+	private static void addWithAlternates(File objectsFolder, List<File> result, int depth) throws IOException {
+		if (result.contains(objectsFolder)) return;
+		result.add(objectsFolder);
+
+		File alternates = new File(objectsFolder, "info/alternates");
+		if (depth >= maxAlternatesDepth || !alternates.isFile()) return;
+		for (String line : Files.readAllLines(alternates.toPath(), UTF_8)) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			File alternate = new File(line);
+			if (!alternate.isAbsolute()) alternate = new File(objectsFolder, line);
+			addWithAlternates(alternate.getCanonicalFile(), result, depth + 1);
+		}
+	}
+
+	File gitDir() {
+		return gitDir;
+	}
+
+	@Nullable GitObject read(String id) throws IOException {
+		if (id.length() != idLength * 2) return null;
+		try {
+			return read(fromHex(id));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return object or null if it's not in repository
+	 */
+	@Nullable GitObject read(byte[] id) throws IOException {
+		for (GitPackFile pack : packs) {
+			long offset = pack.findOffset(id);
+			if (offset != -1) return pack.read(offset, this);
+		}
+		String hex = toHex(id, 0, idLength);
+		for (File objectFolder : objectFolders) {
+			File file = new File(objectFolder, hex.substring(0, 2) + File.separator + hex.substring(2));
+			if (file.isFile()) return readLooseObject(file);
+		}
+		return null;
+	}
+
+	/**
+	 * Loose object is zlib-compressed "{type} {size}\0{content}".
+	 */
+	private static GitObject readLooseObject(File file) throws IOException {
+		try (InputStream inputStream = new InflaterInputStream(new FileInputStream(file))) {
+			StringBuilder header = new StringBuilder();
+			int b;
+			while ((b = inputStream.read()) > 0) {
+				header.append((char) b);
+			}
+			int separator = header.indexOf(" ");
+			if (b == -1 || separator == -1) throw new IOException("Invalid loose object: " + file);
+			int type = GitObject.parseType(header.substring(0, separator));
+			int size = Integer.parseInt(header.substring(separator + 1));
+
+			ByteArrayOutputStream content = new ByteArrayOutputStream(size);
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = inputStream.read(buffer)) != -1) {
+				content.write(buffer, 0, n);
+			}
+			if (content.size() != size) throw new IOException("Loose object size mismatch: " + file);
+			return new GitObject(type, content.toByteArray());
+		}
+	}
+
+	@Override public String toString() {
+		return "GitObjectDatabase{" +
+				"gitDir=" + gitDir +
+				", objectFolders=" + objectFolders +
+				", packs=" + packs.size() +
+				'}';
+	}
+}
@@ -0,0 +1,186 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.LogResult;
+import org.vcsreader.VcsChange;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.Change;
+import org.vcsreader.vcs.Commit;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import static org.vcsreader.vcs.git.GitCommitParser.formatMessage;
+
+/**
+ * Logs commits reading objects in-process with {@link GitObjectDatabase} instead of running "git log"
+ * (see {@link GitSettings#withInProcessReader(boolean)}).
+ * Commits are the same as with {@link GitLog}: history is walked from the revision
+ * in the order of commit dates like in "git log" without ordering options,
+ * commits are filtered by committer date, merge commits and commits at shallow clone boundary are skipped
+ * and changes are compared with the first parent with rename detection (see {@link GitTreeDiff}).
+ */
+class GitObjectLog implements VcsCommand<LogResult> {
+	private final GitObjectRepository repository;
+	private final TimeRange timeRange;
+	@Nullable private final String revision;
+	private volatile boolean cancelled;
+
+
+	/**
+	 * @param revision revision to log history from, null means HEAD
+	 */
+	public GitObjectLog(GitObjectRepository repository, TimeRange timeRange, @Nullable String revision) {
+		this.repository = repository;
+		this.timeRange = timeRange;
+		this.revision = revision;
+	}
+
+	@Override public LogResult execute() {
+		try {
+			return new LogResult(log());
+		} catch (IOException | IllegalStateException e) {
+			return new LogResult(new VcsError(e.getMessage() != null ? e.getMessage() : e.toString()));
+		}
+	}
+
+	private List<VcsCommit> log() throws IOException {
+		GitObjectDatabase objectDatabase = repository.get();
+		String revisionName = revision == null ? "HEAD" : revision;
+		String startId = GitRefs.resolve(objectDatabase.gitDir(), revisionName);
+		if (startId == null) {
+			// e.g. repository without commits
+			if (revision == null) return new ArrayList<>();
+			throw new IOException("Unknown revision: " + revisionName);
+		}
+		startId = peelTags(objectDatabase, startId);
+		Set<String> shallowCommits = new HashSet<>(GitUtil.shallowCommits(repository.repoFolder()));
+		long from = timeRange.from() == Instant.MIN ? Long.MIN_VALUE : timeRange.from().getEpochSecond();
+		long to = timeRange.to() == Instant.MAX ? Long.MAX_VALUE : timeRange.to().getEpochSecond();
+
+		List<VcsCommit> result = new ArrayList<>();
+		Map<String, GitObject.Commit> queuedCommits = new HashMap<>();
+		Set<String> seen = new HashSet<>();
+		PriorityQueue<QueueItem> queue = new PriorityQueue<>();
+		long sequence = 0;
+
+		queuedCommits.put(startId, readCommit(objectDatabase, startId));
+		seen.add(startId);
+		queue.add(new QueueItem(startId, queuedCommits.get(startId).committerTime, sequence++));
+
+		while (!queue.isEmpty()) {
+			if (cancelled) throw new CancellationException("Log was cancelled");
+			String id = queue.poll().id;
+			GitObject.Commit commit = queuedCommits.remove(id);
+
+			// like "git log --after", don't walk history beyond commits older than time range
+			if (commit.committerTime < from) continue;
+			boolean isShallow = shallowCommits.contains(id);
+			if (!isShallow) {
+				for (String parent : commit.parents) {
+					if (!seen.add(parent)) continue;
+					GitObject.Commit parentCommit = readCommit(objectDatabase, parent);
+					queuedCommits.put(parent, parentCommit);
+					queue.add(new QueueItem(parent, parentCommit.committerTime, sequence++));
+				}
+			}
+
+			boolean isMerge = commit.parents.size() > 1;
+			if (isShallow || isMerge || commit.committerTime >= to) continue;
+			result.add(toVcsCommit(objectDatabase, id, commit));
+		}
+		return result;
+	}
+
+	private static String peelTags(GitObjectDatabase objectDatabase, String id) throws IOException {
+		GitObject object = objectDatabase.read(id);
+		while (object != null && object.type == GitObject.tagType) {
+			id = object.tagTarget();
+			object = objectDatabase.read(id);
+		}
+		return id;
+	}
+
+	private static GitObject.Commit readCommit(GitObjectDatabase objectDatabase, String id) throws IOException {
+		GitObject object = objectDatabase.read(id);
+		if (object == null) throw new IOException("Missing commit object " + id);
+		return object.asCommit();
+	}
+
+	private static VcsCommit toVcsCommit(GitObjectDatabase objectDatabase, String id, GitObject.Commit commit) throws IOException {
+		boolean isFirstCommit = commit.parents.isEmpty();
+		String revisionBefore = isFirstCommit ? VcsChange.noRevision : commit.parents.get(0);
+		String parentTree = isFirstCommit ? null : readCommit(objectDatabase, revisionBefore).tree;
+		List<Change> changes = GitTreeDiff.changes(objectDatabase, parentTree, commit.tree, id, revisionBefore);
+		Instant dateTime = Instant.ofEpochSecond(commit.authorTime);
+		return new Commit(id, revisionBefore, dateTime, commit.authorName, formatMessage(commit.message), changes);
+	}
+
+	@Override public String describe() {
+		return "in-process git log " + (revision == null ? "HEAD" : revision) + " " + timeRange + " in " + repository.repoFolder();
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		return true;
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitObjectLog that = (GitObjectLog) o;
+
+		if (repository != null ? !repository.equals(that.repository) : that.repository != null) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		return revision != null ? revision.equals(that.revision) : that.revision == null;
+	}
+
+	@Override public int hashCode() {
+		int result = repository != null ? repository.hashCode() : 0;
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitObjectLog{" +
+				"repository=" + repository +
+				", timeRange=" + timeRange +
+				", revision='" + revision + '\'' +
+				'}';
+	}
+
+
+	/**
+	 * Commits with later committer date go first, commits with the same date are in the order they were queued.
+	 */
+	private static class QueueItem implements Comparable<QueueItem> {
+		final String id;
+		final long committerTime;
+		final long sequence;
+
+		QueueItem(String id, long committerTime, long sequence) {
+			this.id = id;
+			this.committerTime = committerTime;
+			this.sequence = sequence;
+		}
+
+		@Override public int compareTo(QueueItem that) {
+			if (committerTime != that.committerTime) return Long.compare(that.committerTime, committerTime);
+			return Long.compare(sequence, that.sequence);
+		}
+	}
+}
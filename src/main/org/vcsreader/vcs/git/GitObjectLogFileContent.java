@@ -0,0 +1,114 @@
+package org.vcsreader.vcs.git;
+
+import org.vcsreader.LogFileContentResult;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.vcs.VcsCommand;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.vcsreader.lang.StringUtil.trimLastNewLine;
+
+/**
+ * Reads file content in-process with {@link GitObjectDatabase} instead of running "git show"
+ * (see {@link GitSettings#withInProcessReader(boolean)}).
+ * Content is decoded in the same way as in {@link GitLogFileContent}, i.e. with auto-detected charset if possible.
+ */
+class GitObjectLogFileContent implements VcsCommand<LogFileContentResult> {
+	private static final int maxBufferForCharsetDetection = 8192;
+	private static final int gitFatalErrorExitCode = 128;
+
+	private final GitObjectRepository repository;
+	private final String filePath;
+	private final String revision;
+	private final Charset charset;
+
+
+	GitObjectLogFileContent(GitObjectRepository repository, String filePath, String revision, Charset charset) {
+		this.repository = repository;
+		this.filePath = filePath;
+		this.revision = revision;
+		this.charset = charset;
+	}
+
+	@Override public LogFileContentResult execute() {
+		try {
+			GitObjectDatabase objectDatabase = repository.get();
+			String commitId = GitRefs.resolve(objectDatabase.gitDir(), revision);
+			GitObject object = commitId == null ? null : objectDatabase.read(commitId);
+			while (object != null && object.type == GitObject.tagType) {
+				object = objectDatabase.read(object.tagTarget());
+			}
+			if (object == null || object.type != GitObject.commitType) {
+				return new LogFileContentResult("fatal: invalid object name '" + revision + "'.", gitFatalErrorExitCode);
+			}
+
+			object = objectDatabase.read(object.asCommit().tree);
+			for (String name : filePath.split("/")) {
+				if (name.isEmpty()) continue;
+				GitObject.TreeEntry entry = null;
+				if (object != null && object.type == GitObject.treeType) {
+					for (GitObject.TreeEntry treeEntry : object.asTree()) {
+						if (treeEntry.name.equals(name)) entry = treeEntry;
+					}
+				}
+				object = entry == null || entry.isGitlink() ? null : objectDatabase.read(entry.id);
+				if (object == null) {
+					return new LogFileContentResult(
+							"fatal: path '" + filePath + "' does not exist in '" + revision + "'", gitFatalErrorExitCode
+					);
+				}
+			}
+			if (object == null || object.type != GitObject.blobType) {
+				return new LogFileContentResult("fatal: path '" + filePath + "' is not a file in '" + revision + "'", gitFatalErrorExitCode);
+			}
+
+			Charset detectedCharset = CommandLine.detectCharset(object.data, maxBufferForCharsetDetection);
+			String text = new String(object.data, detectedCharset != null ? detectedCharset : charset);
+			return new LogFileContentResult(trimLastNewLine(text));
+
+		} catch (IOException | IllegalStateException e) {
+			return new LogFileContentResult(e);
+		}
+	}
+
+	@Override public String describe() {
+		return "in-process git show " + revision + ":" + filePath + " in " + repository.repoFolder();
+	}
+
+	@Override public boolean cancel() {
+		return true;
+	}
+
+	@SuppressWarnings("RedundantIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitObjectLogFileContent that = (GitObjectLogFileContent) o;
+
+		if (charset != null ? !charset.equals(that.charset) : that.charset != null) return false;
+		if (filePath != null ? !filePath.equals(that.filePath) : that.filePath != null) return false;
+		if (repository != null ? !repository.equals(that.repository) : that.repository != null) return false;
+		if (revision != null ? !revision.equals(that.revision) : that.revision != null) return false;
+
+		return true;
+	}
+
+	@Override public int hashCode() {
+		int result = repository != null ? repository.hashCode() : 0;
+		result = 31 * result + (filePath != null ? filePath.hashCode() : 0);
+		result = 31 * result + (revision != null ? revision.hashCode() : 0);
+		result = 31 * result + (charset != null ? charset.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitObjectLogFileContent{" +
+				"repository=" + repository +
+				", filePath='" + filePath + '\'' +
+				", revision='" + revision + '\'' +
+				", charset=" + charset +
+				'}';
+	}
+}
@@ -0,0 +1,60 @@
+package org.vcsreader.vcs.git;
+
+import java.io.IOException;
+
+/**
+ * Lazily opened {@link GitObjectDatabase} shared by all in-process commands of {@link GitVcsRoot}
+ * (see {@link GitSettings#withInProcessReader(boolean)}), so that pack files are mapped once
+ * and delta base caches are reused between commands instead of being rebuilt for each of them.
+ * The database is reopened after clone or update and when pack folders were modified by another process.
+ * This class is thread-safe.
+ */
+class GitObjectRepository {
+	private final String repoFolder;
+	private GitObjectDatabase database;
+	private boolean outdated;
+
+
+	GitObjectRepository(String repoFolder) {
+		this.repoFolder = repoFolder;
+	}
+
+	synchronized GitObjectDatabase get() throws IOException {
+		if (database == null || outdated || database.isOutdated()) {
+			database = GitObjectDatabase.open(repoFolder, database);
+			outdated = false;
+		}
+		return database;
+	}
+
+	/**
+	 * Makes the next {@link #get()} reopen the database, e.g. after clone or update
+	 * which might have added packs within modification time granularity of pack folder.
+	 */
+	synchronized void reopen() {
+		outdated = true;
+	}
+
+	String repoFolder() {
+		return repoFolder;
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitObjectRepository that = (GitObjectRepository) o;
+
+		return repoFolder.equals(that.repoFolder);
+	}
+
+	@Override public int hashCode() {
+		return repoFolder.hashCode();
+	}
+
+	@Override public String toString() {
+		return "GitObjectRepository{" +
+				"repoFolder='" + repoFolder + '\'' +
+				'}';
+	}
+}
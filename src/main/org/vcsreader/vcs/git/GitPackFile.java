@@ -0,0 +1,294 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static org.vcsreader.vcs.git.GitObject.idLength;
+
+/**
+ * Reads objects from memory-mapped pack file using its version 2 index.
+ * See https://git-scm.com/docs/pack-format
+ * <p>
+ * Pack file is mapped in segments so that packs larger than 2GB can be read.
+ * Objects stored as deltas are reconstructed by applying delta chain to the base object,
+ * recently reconstructed objects are cached because they are often bases of other deltas.
+ * <p>
+ * This class is thread-safe.
+ */
+class GitPackFile {
+	private static final int ofsDeltaType = 6;
+	private static final int refDeltaType = 7;
+	private static final int indexSignature = 0xff744f63;
+	private static final int segmentSizeBits = 30;
+	private static final long maxCachedBytes = 16 * 1024 * 1024;
+	private static final int inflaterInputSize = 8192;
+
+	private final File packFile;
+	private final ByteBuffer index;
+	private final int objectCount;
+	private final ByteBuffer[] segments;
+	private final Map<Long, GitObject> deltaBaseCache = new LinkedHashMap<>(64, 0.75f, true);
+	private long cachedBytes;
+
+
+	private GitPackFile(File packFile, ByteBuffer index, ByteBuffer[] segments) {
+		this.packFile = packFile;
+		this.index = index;
+		this.objectCount = index.getInt(8 + 255 * 4);
+		this.segments = segments;
+	}
+
+	/**
+	 * @param indexFile ".idx" file next to which there is ".pack" file with the same name
+	 */
+	static GitPackFile open(File indexFile) throws IOException {
+		File packFile = new File(indexFile.getParentFile(), indexFile.getName().replaceAll("\\.idx$", ".pack"));
+		ByteBuffer index = map(indexFile)[0];
+		if (index.getInt(0) != indexSignature || index.getInt(4) != 2) {
+			throw new IOException("Unsupported pack index version: " + indexFile);
+		}
+		return new GitPackFile(packFile, index, map(packFile));
+	}
+
+	private static ByteBuffer[] map(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			FileChannel channel = randomAccessFile.getChannel();
+			long size = channel.size();
+			long segmentSize = 1L << segmentSizeBits;
+			List<ByteBuffer> result = new ArrayList<>();
+			for (long position = 0; position < size || result.isEmpty(); position += segmentSize) {
+				MappedByteBuffer buffer = channel.map(READ_ONLY, position, Math.min(segmentSize, size - position));
+				result.add(buffer);
+			}
+			return result.toArray(new ByteBuffer[0]);
+		}
+	}
+
+	File packFile() {
+		return packFile;
+	}
+
+	/**
+	 * @return offset of object in pack file or -1 if pack doesn't contain the object
+	 */
+	long findOffset(byte[] id) {
+		int firstByte = id[0] & 0xff;
+		int from = firstByte == 0 ? 0 : index.getInt(8 + (firstByte - 1) * 4);
+		int to = index.getInt(8 + firstByte * 4);
+		int namesStart = 8 + 256 * 4;
+
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			int comparison = compareId(id, namesStart + middle * idLength);
+			if (comparison == 0) return objectOffset(middle);
+			if (comparison < 0) to = middle;
+			else from = middle + 1;
+		}
+		return -1;
+	}
+
+	private int compareId(byte[] id, int indexPosition) {
+		for (int i = 0; i < idLength; i++) {
+			int b1 = id[i] & 0xff;
+			int b2 = index.get(indexPosition + i) & 0xff;
+			if (b1 != b2) return b1 - b2;
+		}
+		return 0;
+	}
+
+	private long objectOffset(int objectIndex) {
+		int offsetsStart = 8 + 256 * 4 + objectCount * (idLength + 4);
+		int offset = index.getInt(offsetsStart + objectIndex * 4);
+		if ((offset & 0x80000000) == 0) return offset;
+		int largeOffsetsStart = offsetsStart + objectCount * 4;
+		return index.getLong(largeOffsetsStart + (offset & 0x7fffffff) * 8);
+	}
+
+	/**
+	 * @param objectDatabase database to read base objects of deltas which are referenced by id and are not in this pack
+	 */
+	GitObject read(long offset, GitObjectDatabase objectDatabase) throws IOException {
+		List<byte[]> deltas = new ArrayList<>();
+		GitObject base = null;
+		long position = offset;
+		while (base == null) {
+			base = cached(position);
+			if (base != null) break;
+
+			long objectStart = position;
+			int b = byteAt(position++);
+			int type = (b >> 4) & 7;
+			long size = b & 0x0f;
+			for (int shift = 4; (b & 0x80) != 0; shift += 7) {
+				b = byteAt(position++);
+				size |= (long) (b & 0x7f) << shift;
+			}
+
+			if (type == ofsDeltaType) {
+				b = byteAt(position++);
+				long baseDistance = b & 0x7f;
+				while ((b & 0x80) != 0) {
+					b = byteAt(position++);
+					baseDistance = ((baseDistance + 1) << 7) | (b & 0x7f);
+				}
+				deltas.add(inflate(position, size));
+				position = objectStart - baseDistance;
+
+			} else if (type == refDeltaType) {
+				byte[] baseId = new byte[idLength];
+				for (int i = 0; i < idLength; i++) {
+					baseId[i] = (byte) byteAt(position++);
+				}
+				deltas.add(inflate(position, size));
+				long baseOffset = findOffset(baseId);
+				if (baseOffset != -1) {
+					position = baseOffset;
+				} else {
+					base = objectDatabase.read(baseId);
+					if (base == null) throw new IOException("Missing delta base object " + GitUtil.toHex(baseId, 0, idLength));
+				}
+			} else {
+				base = new GitObject(type, inflate(position, size));
+				if (!deltas.isEmpty()) cache(objectStart, base);
+			}
+		}
+
+		GitObject result = base;
+		for (int i = deltas.size() - 1; i >= 0; i--) {
+			result = new GitObject(base.type, applyDelta(result.data, deltas.get(i)));
+		}
+		if (!deltas.isEmpty()) cache(offset, result);
+		return result;
+	}
+
+	@Nullable private synchronized GitObject cached(long offset) {
+		return deltaBaseCache.get(offset);
+	}
+
+	private synchronized void cache(long offset, GitObject object) {
+		if (object.data.length > maxCachedBytes / 4) return;
+		if (deltaBaseCache.put(offset, object) == null) {
+			cachedBytes += object.data.length;
+		}
+		Iterator<GitObject> iterator = deltaBaseCache.values().iterator();
+		while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+			cachedBytes -= iterator.next().data.length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * See "Deltified representation" at https://git-scm.com/docs/pack-format
+	 */
+	static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+		int[] position = {0};
+		long baseSize = readVarInt(delta, position);
+		if (baseSize != base.length) throw new IOException("Delta base size mismatch");
+		long resultSize = readVarInt(delta, position);
+		byte[] result = new byte[(int) resultSize];
+
+		int resultPosition = 0;
+		int i = position[0];
+		while (i < delta.length) {
+			int instruction = delta[i++] & 0xff;
+			if ((instruction & 0x80) != 0) {
+				int copyOffset = 0;
+				int copySize = 0;
+				for (int bit = 0; bit < 4; bit++) {
+					if ((instruction & (1 << bit)) != 0) copyOffset |= (delta[i++] & 0xff) << (bit * 8);
+				}
+				for (int bit = 0; bit < 3; bit++) {
+					if ((instruction & (0x10 << bit)) != 0) copySize |= (delta[i++] & 0xff) << (bit * 8);
+				}
+				if (copySize == 0) copySize = 0x10000;
+				System.arraycopy(base, copyOffset, result, resultPosition, copySize);
+				resultPosition += copySize;
+			} else if (instruction != 0) {
+				System.arraycopy(delta, i, result, resultPosition, instruction);
+				i += instruction;
+				resultPosition += instruction;
+			} else {
+				throw new IOException("Invalid delta instruction");
+			}
+		}
+		if (resultPosition != result.length) throw new IOException("Delta result size mismatch");
+		return result;
+	}
+
+	private static long readVarInt(byte[] bytes, int[] position) {
+		long result = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = bytes[position[0]++] & 0xff;
+			result |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return result;
+	}
+
+	private byte[] inflate(long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE - 8) throw new IOException("Object is too large: " + size + " bytes in " + packFile);
+		byte[] result = new byte[(int) size];
+		byte[] input = new byte[inflaterInputSize];
+		Inflater inflater = new Inflater();
+		try {
+			int resultPosition = 0;
+			while (resultPosition < result.length) {
+				if (inflater.needsInput()) {
+					int length = read(position, input);
+					if (length <= 0) throw new IOException("Unexpected end of pack file " + packFile);
+					inflater.setInput(input, 0, length);
+					position += length;
+				}
+				int n = inflater.inflate(result, resultPosition, result.length - resultPosition);
+				resultPosition += n;
+				if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+					throw new IOException("Object size mismatch in " + packFile);
+				}
+			}
+			return result;
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid compressed data in " + packFile, e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private int byteAt(long position) {
+		return segments[(int) (position >>> segmentSizeBits)].get((int) (position & ((1L << segmentSizeBits) - 1))) & 0xff;
+	}
+
+	private int read(long position, byte[] bytes) {
+		int segmentIndex = (int) (position >>> segmentSizeBits);
+		if (segmentIndex >= segments.length) return -1;
+		ByteBuffer segment = segments[segmentIndex].duplicate();
+		int segmentPosition = (int) (position & ((1L << segmentSizeBits) - 1));
+		int length = Math.min(bytes.length, segment.limit() - segmentPosition);
+		if (length <= 0) return -1;
+		segment.position(segmentPosition);
+		segment.get(bytes, 0, length);
+		return length;
+	}
+
+	@Override public String toString() {
+		return "GitPackFile{" +
+				"packFile=" + packFile +
+				", objectCount=" + objectCount +
+				'}';
+	}
+}
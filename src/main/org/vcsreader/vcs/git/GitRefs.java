@@ -0,0 +1,106 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.vcsreader.vcs.git.GitObject.idLength;
+
+/**
+ * Resolves revisions to object ids by reading refs directly from git directory without running git.
+ * Supports full object ids, "HEAD", ref names (e.g. "master", "origin/master", "refs/tags/v1")
+ * and {@link GitUpdate#upstreamRevision}.
+ * See https://git-scm.com/docs/gitrevisions
+ */
+class GitRefs {
+	private static final int maxSymbolicRefDepth = 5;
+	private static final Pattern objectIdPattern = Pattern.compile("[0-9a-f]{" + (idLength * 2) + "}");
+	private static final String[] refPrefixes = {"", "refs/", "refs/tags/", "refs/heads/", "refs/remotes/"};
+
+	/**
+	 * @return object id or null if revision can't be resolved
+	 */
+	@Nullable static String resolve(File gitDir, String revision) throws IOException {
+		if (objectIdPattern.matcher(revision).matches()) return revision;
+		if (revision.equals(GitUpdate.upstreamRevision)) {
+			String upstream = upstreamRef(gitDir);
+			return upstream == null ? null : resolveRef(gitDir, upstream, 0);
+		}
+		for (String prefix : refPrefixes) {
+			String id = resolveRef(gitDir, prefix + revision, 0);
+			if (id != null) return id;
+		}
+		return resolveRef(gitDir, "refs/remotes/" + revision + "/HEAD", 0);
+	}
+
+	@Nullable private static String resolveRef(File gitDir, String refName, int depth) throws IOException {
+		if (depth > maxSymbolicRefDepth) return null;
+		String value = readRef(gitDir, refName);
+		if (value == null) return null;
+		if (value.startsWith("ref:")) {
+			return resolveRef(gitDir, value.substring("ref:".length()).trim(), depth + 1);
+		}
+		return objectIdPattern.matcher(value).matches() ? value : null;
+	}
+
+	/**
+	 * @return content of loose ref file or object id from "packed-refs", null if ref doesn't exist
+	 */
+	@Nullable private static String readRef(File gitDir, String refName) throws IOException {
+		// per-worktree refs (e.g. HEAD) are in git dir, all other refs are in common dir
+		File commonDir = GitUtil.commonDir(gitDir);
+		File refFile = new File(refName.startsWith("refs/") ? commonDir : gitDir, refName);
+		if (refFile.isFile()) {
+			return new String(Files.readAllBytes(refFile.toPath()), UTF_8).trim();
+		}
+		File packedRefs = new File(commonDir, "packed-refs");
+		if (!refName.startsWith("refs/") || !packedRefs.isFile()) return null;
+		for (String line : Files.readAllLines(packedRefs.toPath(), UTF_8)) {
+			if (line.startsWith("#") || line.startsWith("^")) continue;
+			int separator = line.indexOf(' ');
+			if (separator != -1 && line.substring(separator + 1).equals(refName)) {
+				return line.substring(0, separator);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return remote-tracking ref of the current branch configured by "branch.{name}.remote" and "branch.{name}.merge"
+	 */
+	@Nullable private static String upstreamRef(File gitDir) throws IOException {
+		String head = readRef(gitDir, "HEAD");
+		String branchPrefix = "ref: refs/heads/";
+		if (head == null || !head.startsWith(branchPrefix)) return null;
+		String branch = head.substring(branchPrefix.length()).trim();
+
+		File config = new File(GitUtil.commonDir(gitDir), "config");
+		if (!config.isFile()) return null;
+		String remote = null;
+		String merge = null;
+		boolean inBranchSection = false;
+		Pattern sectionPattern = Pattern.compile("\\s*\\[\\s*branch\\s+\"(.*)\"\\s*]\\s*");
+		List<String> lines = Files.readAllLines(config.toPath(), UTF_8);
+		for (String line : lines) {
+			String trimmed = line.trim();
+			if (trimmed.startsWith("[")) {
+				Matcher matcher = sectionPattern.matcher(trimmed);
+				inBranchSection = matcher.matches() && matcher.group(1).equals(branch);
+			} else if (inBranchSection && trimmed.contains("=")) {
+				String key = trimmed.substring(0, trimmed.indexOf('=')).trim();
+				String value = trimmed.substring(trimmed.indexOf('=') + 1).trim();
+				if (key.equalsIgnoreCase("remote")) remote = value;
+				else if (key.equalsIgnoreCase("merge")) merge = value;
+			}
+		}
+		if (remote == null || merge == null || !merge.startsWith("refs/heads/")) return null;
+		if (remote.equals(".")) return merge;
+		return "refs/remotes/" + remote + "/" + merge.substring("refs/heads/".length());
+	}
+}
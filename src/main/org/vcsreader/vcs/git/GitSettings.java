@@ -1,8 +1,17 @@
 package org.vcsreader.vcs.git;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.ProcessGovernor;
+import org.vcsreader.lang.StreamPumpExecutors;
+import org.vcsreader.vcs.VcsCommand;
 
 import java.nio.charset.Charset;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -10,6 +19,24 @@ public class GitSettings {
 	private final String gitPath;
 	private final Charset defaultFileCharset;
 	private final boolean failFast;
+	@NotNull private final Executor asyncExecutor;
+	private final int maxConcurrentCommands;
+	@NotNull private final Executor streamPumpExecutor;
+	private final long stdoutSpillThreshold;
+	@NotNull private final Duration commandTimeout;
+	@NotNull private final Duration rootTimeout;
+	@NotNull private final ProcessGovernor processGovernor;
+	private final boolean parallelParsing;
+	@NotNull private final ForkJoinPool parseExecutor;
+	private final int logCacheSize;
+	private final boolean fetchOnly;
+	@NotNull private final CloneMode cloneMode;
+	private final boolean partialClone;
+	@Nullable private final Instant shallowSince;
+	private final int cloneDepth;
+	@Nullable private final String sharedObjectStore;
+	private final boolean maintenance;
+	private final boolean inProcessReader;
 
 	/**
 	 * @param gitPath            path to git executable
@@ -19,9 +46,39 @@ public class GitSettings {
 	 *                           otherwise will aggregate all exceptions/errors into result object
 	 */
 	public GitSettings(@NotNull String gitPath, @NotNull Charset defaultFileCharset, boolean failFast) {
+		this(gitPath, defaultFileCharset, failFast, VcsCommand.defaultAsyncExecutor, Integer.MAX_VALUE,
+				StreamPumpExecutors.defaultExecutor, CommandLine.Config.defaultStdoutSpillThreshold,
+				CommandLine.Config.noTimeout, CommandLine.Config.noTimeout, ProcessGovernor.unlimited, false, ForkJoinPool.commonPool(), 0, false, CloneMode.WorkingTree, false, null, 0, null, false, false);
+	}
+
+	private GitSettings(@NotNull String gitPath, @NotNull Charset defaultFileCharset, boolean failFast,
+	                    @NotNull Executor asyncExecutor, int maxConcurrentCommands, @NotNull Executor streamPumpExecutor,
+	                    long stdoutSpillThreshold, @NotNull Duration commandTimeout,
+	                    @NotNull Duration rootTimeout, @NotNull ProcessGovernor processGovernor,
+	                    boolean parallelParsing, @NotNull ForkJoinPool parseExecutor, int logCacheSize, boolean fetchOnly,
+	                    @NotNull CloneMode cloneMode, boolean partialClone, @Nullable Instant shallowSince, int cloneDepth,
+	                    @Nullable String sharedObjectStore, boolean maintenance, boolean inProcessReader) {
 		this.gitPath = gitPath;
 		this.defaultFileCharset = defaultFileCharset;
 		this.failFast = failFast;
+		this.asyncExecutor = asyncExecutor;
+		this.maxConcurrentCommands = maxConcurrentCommands;
+		this.streamPumpExecutor = streamPumpExecutor;
+		this.stdoutSpillThreshold = stdoutSpillThreshold;
+		this.commandTimeout = commandTimeout;
+		this.rootTimeout = rootTimeout;
+		this.processGovernor = processGovernor;
+		this.parallelParsing = parallelParsing;
+		this.parseExecutor = parseExecutor;
+		this.logCacheSize = logCacheSize;
+		this.fetchOnly = fetchOnly;
+		this.cloneMode = cloneMode;
+		this.partialClone = partialClone;
+		this.shallowSince = shallowSince;
+		this.cloneDepth = cloneDepth;
+		this.sharedObjectStore = sharedObjectStore;
+		this.maintenance = maintenance;
+		this.inProcessReader = inProcessReader;
 	}
 
 	public static GitSettings defaults() {
@@ -29,15 +86,170 @@ public class GitSettings {
 	}
 
 	public GitSettings withGitPath(String value) {
-		return new GitSettings(value, defaultFileCharset, failFast);
+		return new GitSettings(value, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
 	}
 
 	public GitSettings withDefaultFileCharset(Charset value) {
-		return new GitSettings(gitPath, value, failFast);
+		return new GitSettings(gitPath, value, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
 	}
 
 	public GitSettings withFailFast(boolean value) {
-		return new GitSettings(gitPath, defaultFileCharset, value);
+		return new GitSettings(gitPath, defaultFileCharset, value, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value executor for asynchronous commands (e.g. {@link GitVcsRoot#logAsync(org.vcsreader.lang.TimeRange)}).
+	 *              Note that tasks running on it mostly wait for VCS processes.
+	 */
+	public GitSettings withAsyncExecutor(@NotNull Executor value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, value, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value maximum number of commands which can run concurrently on a VCS root
+	 *              (other commands will wait until running commands have finished),
+	 *              {@link Integer#MAX_VALUE} means there is no limit
+	 */
+	public GitSettings withMaxConcurrentCommands(int value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, value, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value executor for reading stdout/stderr of VCS processes,
+	 *              see {@link StreamPumpExecutors} for available options (e.g. virtual threads on JDK 21+)
+	 */
+	public GitSettings withStreamPumpExecutor(@NotNull Executor value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, value, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value max size of command stdout in bytes which is kept in memory,
+	 *              larger output (e.g. log of a big repository) is written to a temporary file
+	 */
+	public GitSettings withStdoutSpillThreshold(long value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, value, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value max time of a single VCS process (e.g. git pull from stalled server),
+	 *              process which runs longer is killed and {@link org.vcsreader.vcs.VcsTimeoutError} is reported;
+	 *              {@link CommandLine.Config#noTimeout} means there is no limit
+	 */
+	public GitSettings withCommandTimeout(@NotNull Duration value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, value, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value max time of a single operation on VCS root (e.g. log) including all VCS processes it runs,
+	 *              processes still running after that are killed and {@link org.vcsreader.vcs.VcsTimeoutError} is reported;
+	 *              {@link CommandLine.Config#noTimeout} means there is no limit
+	 */
+	public GitSettings withRootTimeout(@NotNull Duration value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, value, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value governor limiting the number of VCS processes and their buffered stdout,
+	 *              the same instance should be shared by all roots of this VCS type (see {@link ProcessGovernor})
+	 */
+	public GitSettings withProcessGovernor(@NotNull ProcessGovernor value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, value, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if true, buffered log output larger than a few megabytes is split at commit boundaries
+	 *              and parsed in parallel on {@link #withParseExecutor(ForkJoinPool) parse executor} (the order of commits is preserved)
+	 */
+	public GitSettings withParallelParsing(boolean value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, value, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value pool on which log output is parsed if {@link #withParallelParsing(boolean) parallel parsing} is enabled,
+	 *              e.g. a dedicated pool so that parsing doesn't compete with other tasks of {@link ForkJoinPool#commonPool()}
+	 */
+	public GitSettings withParseExecutor(@NotNull ForkJoinPool value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, value, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value max number of time ranges for which log results are cached while repository head doesn't change
+	 *              (see {@link org.vcsreader.vcs.LogCache}), zero means log results are not cached
+	 */
+	public GitSettings withLogCacheSize(int value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, value, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if true, update runs "git fetch" instead of "git pull" so that working tree is never checked out,
+	 *              and log reads history of the remote-tracking branch of the current branch (i.e. "@{upstream}")
+	 */
+	public GitSettings withFetchOnly(boolean value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, value, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value type of repository created by clone (see {@link CloneMode}),
+	 *              bare and mirror clones are updated with "git fetch" and log history of their HEAD
+	 */
+	public GitSettings withCloneMode(@NotNull CloneMode value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, value, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if true, clone uses "--filter=blob:none" so that file contents are fetched from remote repository
+	 *              only when requested by {@link GitVcsRoot#logFileContent(String, String)} or for rename detection
+	 *              (remote repository must allow filters; local repositories must be specified with "file://" URL)
+	 */
+	public GitSettings withPartialClone(boolean value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, value, shallowSince, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if not null, clone uses "--shallow-since" so that only commits after this time are fetched;
+	 *              it should be before the start of the earliest time range requested from log
+	 *              because commits at shallow boundary are excluded from log (their parents and therefore changes are unknown),
+	 *              null means full history
+	 */
+	public GitSettings withShallowSince(@Nullable Instant value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, value, cloneDepth, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if positive, clone uses "--depth" to fetch only the specified number of latest commits
+	 *              (commits at shallow boundary are excluded from log), zero means full history
+	 */
+	public GitSettings withCloneDepth(int value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, value, sharedObjectStore, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if not null, path to bare repository which is used as a shared object store by clones of all roots
+	 *              with this setting, i.e. remote repository is fetched into it before cloning and clone is created
+	 *              with "--reference" so that objects common between clones (e.g. upstream and its forks) are stored once;
+	 *              the store is created if it doesn't contain repository and must not be deleted while clones use it
+	 */
+	public GitSettings withSharedObjectStore(@Nullable String value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, value, maintenance, inProcessReader);
+	}
+
+	/**
+	 * @param value if true, after successful clone and update repository is repacked if it has many loose objects or packs
+	 *              and commit-graph file with changed-path Bloom filters is written (see "git commit-graph"),
+	 *              which makes log faster, especially for sub-paths of repository; requires git 2.27 or later
+	 */
+	public GitSettings withMaintenance(boolean value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, value, inProcessReader);
+	}
+
+	/**
+	 * @param value if true, {@link GitVcsRoot#log(org.vcsreader.lang.TimeRange)} and {@link GitVcsRoot#logFileContent(String, String)}
+	 *              read objects directly from ".git" folder in-process instead of running git
+	 *              (other commands, e.g. log stream, still run git); objects which are missing in partial clones are reported as errors.
+	 *              Pack files are opened once per root and reopened when packs change.
+	 */
+	public GitSettings withInProcessReader(boolean value) {
+		return new GitSettings(gitPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, fetchOnly, cloneMode, partialClone, shallowSince, cloneDepth, sharedObjectStore, maintenance, value);
 	}
 
 	@NotNull public String gitPath() {
@@ -52,6 +264,96 @@ public class GitSettings {
 		return failFast;
 	}
 
+	@NotNull public Executor asyncExecutor() {
+		return asyncExecutor;
+	}
+
+	public int maxConcurrentCommands() {
+		return maxConcurrentCommands;
+	}
+
+	@NotNull public Executor streamPumpExecutor() {
+		return streamPumpExecutor;
+	}
+
+	public long stdoutSpillThreshold() {
+		return stdoutSpillThreshold;
+	}
+
+	@NotNull public Duration commandTimeout() {
+		return commandTimeout;
+	}
+
+	@NotNull public Duration rootTimeout() {
+		return rootTimeout;
+	}
+
+	@NotNull public ProcessGovernor processGovernor() {
+		return processGovernor;
+	}
+
+	public boolean parallelParsing() {
+		return parallelParsing;
+	}
+
+	@NotNull public ForkJoinPool parseExecutor() {
+		return parseExecutor;
+	}
+
+	public int logCacheSize() {
+		return logCacheSize;
+	}
+
+	public boolean fetchOnly() {
+		return fetchOnly;
+	}
+
+	@NotNull public CloneMode cloneMode() {
+		return cloneMode;
+	}
+
+	public boolean partialClone() {
+		return partialClone;
+	}
+
+	@Nullable public Instant shallowSince() {
+		return shallowSince;
+	}
+
+	public int cloneDepth() {
+		return cloneDepth;
+	}
+
+	@Nullable public String sharedObjectStore() {
+		return sharedObjectStore;
+	}
+
+	public boolean maintenance() {
+		return maintenance;
+	}
+
+	public boolean inProcessReader() {
+		return inProcessReader;
+	}
+
+	/**
+	 * @return pool for parsing log output of VCS commands or null if output should be parsed sequentially
+	 */
+	@Nullable ForkJoinPool logParsePool() {
+		return parallelParsing ? parseExecutor : null;
+	}
+
+	/**
+	 * @return config with execution settings for command lines of VCS commands
+	 */
+	@NotNull public CommandLine.Config commandLineConfig() {
+		return CommandLine.Config.defaults
+				.asyncExecutor(streamPumpExecutor)
+				.stdoutSpillThreshold(stdoutSpillThreshold)
+				.timeout(commandTimeout)
+				.governor(processGovernor);
+	}
+
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
@@ -60,13 +362,49 @@ public class GitSettings {
 
 		return failFast == that.failFast &&
 				gitPath.equals(that.gitPath) &&
-				defaultFileCharset.equals(that.defaultFileCharset);
+				defaultFileCharset.equals(that.defaultFileCharset) &&
+				asyncExecutor.equals(that.asyncExecutor) &&
+				maxConcurrentCommands == that.maxConcurrentCommands &&
+				streamPumpExecutor.equals(that.streamPumpExecutor) &&
+				stdoutSpillThreshold == that.stdoutSpillThreshold &&
+				commandTimeout.equals(that.commandTimeout) &&
+				rootTimeout.equals(that.rootTimeout) &&
+				processGovernor.equals(that.processGovernor) &&
+				parallelParsing == that.parallelParsing &&
+				parseExecutor.equals(that.parseExecutor) &&
+				logCacheSize == that.logCacheSize &&
+				fetchOnly == that.fetchOnly &&
+				cloneMode == that.cloneMode &&
+				partialClone == that.partialClone &&
+				(shallowSince != null ? shallowSince.equals(that.shallowSince) : that.shallowSince == null) &&
+				cloneDepth == that.cloneDepth &&
+				(sharedObjectStore != null ? sharedObjectStore.equals(that.sharedObjectStore) : that.sharedObjectStore == null) &&
+				maintenance == that.maintenance &&
+				inProcessReader == that.inProcessReader;
 	}
 
 	@Override public int hashCode() {
 		int result = gitPath.hashCode();
 		result = 31 * result + defaultFileCharset.hashCode();
 		result = 31 * result + (failFast ? 1 : 0);
+		result = 31 * result + asyncExecutor.hashCode();
+		result = 31 * result + maxConcurrentCommands;
+		result = 31 * result + streamPumpExecutor.hashCode();
+		result = 31 * result + Long.hashCode(stdoutSpillThreshold);
+		result = 31 * result + commandTimeout.hashCode();
+		result = 31 * result + rootTimeout.hashCode();
+		result = 31 * result + processGovernor.hashCode();
+		result = 31 * result + (parallelParsing ? 1 : 0);
+		result = 31 * result + parseExecutor.hashCode();
+		result = 31 * result + logCacheSize;
+		result = 31 * result + (fetchOnly ? 1 : 0);
+		result = 31 * result + cloneMode.hashCode();
+		result = 31 * result + (partialClone ? 1 : 0);
+		result = 31 * result + (shallowSince != null ? shallowSince.hashCode() : 0);
+		result = 31 * result + cloneDepth;
+		result = 31 * result + (sharedObjectStore != null ? sharedObjectStore.hashCode() : 0);
+		result = 31 * result + (maintenance ? 1 : 0);
+		result = 31 * result + (inProcessReader ? 1 : 0);
 		return result;
 	}
 
@@ -75,6 +413,40 @@ public class GitSettings {
 				"gitPath='" + gitPath + '\'' +
 				", defaultFileCharset=" + defaultFileCharset +
 				", failFast=" + failFast +
+				", asyncExecutor=" + asyncExecutor +
+				", maxConcurrentCommands=" + maxConcurrentCommands +
+				", streamPumpExecutor=" + streamPumpExecutor +
+				", stdoutSpillThreshold=" + stdoutSpillThreshold +
+				", commandTimeout=" + commandTimeout +
+				", rootTimeout=" + rootTimeout +
+				", processGovernor=" + processGovernor +
+				", parallelParsing=" + parallelParsing +
+				", parseExecutor=" + parseExecutor +
+				", logCacheSize=" + logCacheSize +
+				", fetchOnly=" + fetchOnly +
+				", cloneMode=" + cloneMode +
+				", partialClone=" + partialClone +
+				", shallowSince=" + shallowSince +
+				", cloneDepth=" + cloneDepth +
+				", sharedObjectStore='" + sharedObjectStore + '\'' +
+				", maintenance=" + maintenance +
+				", inProcessReader=" + inProcessReader +
 				'}';
 	}
+
+
+	public enum CloneMode {
+		/**
+		 * Clone with checked out working tree (i.e. plain "git clone").
+		 */
+		WorkingTree,
+		/**
+		 * Clone without working tree ("git clone --bare"), branches are updated with "git fetch".
+		 */
+		Bare,
+		/**
+		 * Bare clone with all refs of remote repository ("git clone --mirror").
+		 */
+		Mirror
+	}
 }
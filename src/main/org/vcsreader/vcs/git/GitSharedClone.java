@@ -0,0 +1,121 @@
+package org.vcsreader.vcs.git;
+
+import org.vcsreader.CloneResult;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.vcs.VcsCommand;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.vcsreader.vcs.git.GitUtil.containsGitRepo;
+import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
+
+/**
+ * Clones repository borrowing objects from a reference repository shared by several clones
+ * (see {@link GitSettings#withSharedObjectStore(String)}).
+ * Before cloning, branches and tags of the remote repository are fetched into reference repository
+ * (under "refs/shared/{hash of repository URL}/" so that objects of all fetched repositories stay reachable),
+ * which only downloads objects missing in reference repository, e.g. commits of a fork which are not in upstream.
+ * The clone itself is created with "--reference" and only stores objects which are not in reference repository.
+ * <p>
+ * Note that reference repository must not be deleted or garbage collected with pruning of objects
+ * still used by the clones (see "--reference" at https://git-scm.com/docs/git-clone).
+ */
+class GitSharedClone implements VcsCommand<CloneResult> {
+	private final String pathToGit;
+	private final String repoUrl;
+	private final String referenceRepo;
+	private final GitClone gitClone;
+	private final CommandLine.Config config;
+	private final AtomicReference<CommandLine> currentCommandLine = new AtomicReference<>();
+	private volatile boolean cancelled;
+
+
+	public GitSharedClone(String pathToGit, String repoUrl, String referenceRepo, GitClone gitClone, CommandLine.Config config) {
+		this.pathToGit = pathToGit;
+		this.repoUrl = repoUrl;
+		this.referenceRepo = referenceRepo;
+		this.gitClone = gitClone;
+		this.config = config;
+	}
+
+	@Override public CloneResult execute() {
+		if (!containsGitRepo(referenceRepo)) {
+			CommandLine commandLine = run(gitInitReference(pathToGit, referenceRepo));
+			if (!isSuccessful(commandLine)) return new CloneResult(commandLine.stderr());
+		}
+		CommandLine commandLine = run(gitFetchIntoReference(pathToGit, referenceRepo, repoUrl));
+		if (!isSuccessful(commandLine)) return new CloneResult(commandLine.stderr());
+
+		return gitClone.execute();
+	}
+
+	private CommandLine run(CommandLine commandLine) {
+		commandLine = commandLine.executionConfig(config);
+		currentCommandLine.set(commandLine);
+		// don't start next command line if this command was cancelled before or while the previous one was running
+		if (cancelled) commandLine.kill();
+		try {
+			return commandLine.execute();
+		} finally {
+			currentCommandLine.set(null);
+		}
+	}
+
+	static CommandLine gitInitReference(String pathToGit, String referenceRepo) {
+		return new CommandLine(pathToGit, "init", "--bare", referenceRepo);
+	}
+
+	static CommandLine gitFetchIntoReference(String pathToGit, String referenceRepo, String repoUrl) {
+		String namespace = "refs/shared/" + GitUtil.sha1Hex(repoUrl);
+		return new CommandLine(
+				pathToGit, "--git-dir=" + referenceRepo, "fetch", "--no-tags", repoUrl,
+				"+refs/heads/*:" + namespace + "/heads/*",
+				"+refs/tags/*:" + namespace + "/tags/*"
+		);
+	}
+
+	@Override public String describe() {
+		CommandLine commandLine = currentCommandLine.get();
+		return commandLine != null ? commandLine.describe() : gitClone.describe();
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		boolean notRunning = gitClone.cancel();
+		CommandLine commandLine = currentCommandLine.get();
+		if (commandLine != null) {
+			notRunning &= commandLine.kill();
+		}
+		return notRunning;
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GitSharedClone that = (GitSharedClone) o;
+
+		if (pathToGit != null ? !pathToGit.equals(that.pathToGit) : that.pathToGit != null) return false;
+		if (repoUrl != null ? !repoUrl.equals(that.repoUrl) : that.repoUrl != null) return false;
+		if (referenceRepo != null ? !referenceRepo.equals(that.referenceRepo) : that.referenceRepo != null) return false;
+		return gitClone != null ? gitClone.equals(that.gitClone) : that.gitClone == null;
+	}
+
+	@Override public int hashCode() {
+		int result = pathToGit != null ? pathToGit.hashCode() : 0;
+		result = 31 * result + (repoUrl != null ? repoUrl.hashCode() : 0);
+		result = 31 * result + (referenceRepo != null ? referenceRepo.hashCode() : 0);
+		result = 31 * result + (gitClone != null ? gitClone.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "GitSharedClone{" +
+				"pathToGit='" + pathToGit + '\'' +
+				", repoUrl='" + repoUrl + '\'' +
+				", referenceRepo='" + referenceRepo + '\'' +
+				", gitClone=" + gitClone +
+				'}';
+	}
+}
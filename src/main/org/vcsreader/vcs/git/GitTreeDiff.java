@@ -0,0 +1,303 @@
+package org.vcsreader.vcs.git;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.VcsChange;
+import org.vcsreader.vcs.Change;
+import org.vcsreader.vcs.git.GitObject.TreeEntry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.vcsreader.VcsChange.Type.*;
+
+/**
+ * Compares two trees read from {@link GitObjectDatabase} producing the same changes as "git log --name-status",
+ * i.e. recursive diff with rename detection enabled by default since git 2.9.
+ * <p>
+ * Renames are detected like in diffcore-rename.c of git source code: first deleted and added files with the same
+ * content are paired (preferring files with the same name), then remaining regular files are paired if their content
+ * is at least 50% similar (similarity is estimated by comparing hashes of lines or 64-byte chunks as in diffcore-delta.c).
+ * Similarity estimation is skipped if there are too many candidates (the same default limit as "diff.renameLimit").
+ */
+class GitTreeDiff {
+	private static final int maxScore = 60000;
+	private static final int minimumScore = maxScore / 2;
+	private static final int renameLimit = 1000;
+	private static final int candidatesPerDestination = 4;
+	private static final int hashBase = 107927;
+	private static final int binaryCheckSize = 8000;
+
+	private final GitObjectDatabase objectDatabase;
+	private final List<Entry> entries = new ArrayList<>();
+
+
+	private GitTreeDiff(GitObjectDatabase objectDatabase) {
+		this.objectDatabase = objectDatabase;
+	}
+
+	/**
+	 * @param oldTree tree of parent commit or null for the first commit
+	 */
+	static List<Change> changes(GitObjectDatabase objectDatabase, @Nullable String oldTree, String newTree,
+	                            String revision, String revisionBefore) throws IOException {
+		GitTreeDiff diff = new GitTreeDiff(objectDatabase);
+		diff.compareTrees(oldTree, newTree, "");
+		diff.detectRenames();
+
+		List<Change> result = new ArrayList<>();
+		for (Entry entry : diff.entries) {
+			if (entry.isRenameSource) continue;
+			if (entry.renamedFrom != null) {
+				result.add(new Change(Moved, entry.path, entry.renamedFrom.path, revision, revisionBefore));
+			} else if (entry.oldEntry == null) {
+				result.add(new Change(Added, entry.path, VcsChange.noFilePath, revision, VcsChange.noRevision));
+			} else if (entry.newEntry == null) {
+				result.add(new Change(Deleted, VcsChange.noFilePath, entry.path, revision, revisionBefore));
+			} else {
+				result.add(new Change(Modified, entry.path, entry.path, revision, revisionBefore));
+			}
+		}
+		return result;
+	}
+
+	private void compareTrees(@Nullable String oldTree, @Nullable String newTree, String prefix) throws IOException {
+		if (oldTree != null && oldTree.equals(newTree)) return;
+		List<TreeEntry> oldEntries = oldTree == null ? Collections.emptyList() : readTree(oldTree);
+		List<TreeEntry> newEntries = newTree == null ? Collections.emptyList() : readTree(newTree);
+
+		int i = 0;
+		int j = 0;
+		while (i < oldEntries.size() || j < newEntries.size()) {
+			TreeEntry oldEntry = i < oldEntries.size() ? oldEntries.get(i) : null;
+			TreeEntry newEntry = j < newEntries.size() ? newEntries.get(j) : null;
+			int comparison = oldEntry == null ? 1 : newEntry == null ? -1 : TreeEntry.compare(oldEntry, newEntry);
+			if (comparison < 0) {
+				compareEntries(oldEntry, null, prefix);
+				i++;
+			} else if (comparison > 0) {
+				compareEntries(null, newEntry, prefix);
+				j++;
+			} else {
+				compareEntries(oldEntry, newEntry, prefix);
+				i++;
+				j++;
+			}
+		}
+	}
+
+	private void compareEntries(@Nullable TreeEntry oldEntry, @Nullable TreeEntry newEntry, String prefix) throws IOException {
+		TreeEntry entry = oldEntry != null ? oldEntry : newEntry;
+		//noinspection ConstantConditions
+		String path = prefix + entry.name;
+		if (entry.isTree()) {
+			compareTrees(oldEntry == null ? null : oldEntry.id, newEntry == null ? null : newEntry.id, path + "/");
+		} else if (oldEntry == null || newEntry == null || !oldEntry.id.equals(newEntry.id) || oldEntry.mode != newEntry.mode) {
+			entries.add(new Entry(path, oldEntry, newEntry));
+		}
+	}
+
+	private List<TreeEntry> readTree(String id) throws IOException {
+		GitObject tree = objectDatabase.read(id);
+		if (tree == null) throw new IOException("Missing tree object " + id);
+		return tree.asTree();
+	}
+
+	private void detectRenames() throws IOException {
+		List<Entry> sources = new ArrayList<>();
+		List<Entry> destinations = new ArrayList<>();
+		for (Entry entry : entries) {
+			if (entry.newEntry == null) sources.add(entry);
+			else if (entry.oldEntry == null) destinations.add(entry);
+		}
+		if (sources.isEmpty() || destinations.isEmpty()) return;
+
+		findExactRenames(sources, destinations);
+
+		List<Entry> inexactSources = new ArrayList<>();
+		for (Entry source : sources) {
+			if (!source.isRenameSource && source.oldEntry.isRegularFile()) inexactSources.add(source);
+		}
+		List<Entry> inexactDestinations = new ArrayList<>();
+		for (Entry destination : destinations) {
+			if (destination.renamedFrom == null && destination.newEntry.isRegularFile()) inexactDestinations.add(destination);
+		}
+		if (inexactSources.isEmpty() || inexactDestinations.isEmpty()) return;
+		if ((long) inexactSources.size() * inexactDestinations.size() > (long) renameLimit * renameLimit) return;
+
+		findInexactRenames(inexactSources, inexactDestinations);
+	}
+
+	private static void findExactRenames(List<Entry> sources, List<Entry> destinations) {
+		Map<String, List<Entry>> sourcesById = new HashMap<>();
+		for (Entry source : sources) {
+			sourcesById.computeIfAbsent(source.oldEntry.id, it -> new ArrayList<>()).add(source);
+		}
+		for (Entry destination : destinations) {
+			List<Entry> candidates = sourcesById.get(destination.newEntry.id);
+			if (candidates == null) continue;
+			Entry best = null;
+			for (Entry candidate : candidates) {
+				if (candidate.isRenameSource) continue;
+				boolean isRegular = candidate.oldEntry.isRegularFile() && destination.newEntry.isRegularFile();
+				if (!isRegular && candidate.oldEntry.mode != destination.newEntry.mode) continue;
+				if (best == null) best = candidate;
+				if (sameBaseName(candidate.path, destination.path)) {
+					best = candidate;
+					break;
+				}
+			}
+			if (best != null) {
+				best.isRenameSource = true;
+				destination.renamedFrom = best;
+			}
+		}
+	}
+
+	private void findInexactRenames(List<Entry> sources, List<Entry> destinations) throws IOException {
+		Map<Entry, byte[]> contents = new HashMap<>();
+		Map<Entry, Map<Integer, Integer>> hashes = new HashMap<>();
+		List<Score> scores = new ArrayList<>();
+
+		for (int d = 0; d < destinations.size(); d++) {
+			Entry destination = destinations.get(d);
+			List<Score> destinationScores = new ArrayList<>();
+			for (int s = 0; s < sources.size(); s++) {
+				Entry source = sources.get(s);
+				int score = estimateSimilarity(source, destination, contents, hashes);
+				if (score < minimumScore) continue;
+				destinationScores.add(new Score(s, d, score, sameBaseName(source.path, destination.path)));
+			}
+			Collections.sort(destinationScores);
+			scores.addAll(destinationScores.subList(0, Math.min(candidatesPerDestination, destinationScores.size())));
+		}
+		Collections.sort(scores);
+
+		for (Score score : scores) {
+			Entry source = sources.get(score.source);
+			Entry destination = destinations.get(score.destination);
+			if (destination.renamedFrom != null || source.isRenameSource) continue;
+			source.isRenameSource = true;
+			destination.renamedFrom = source;
+		}
+	}
+
+	private int estimateSimilarity(Entry source, Entry destination,
+	                               Map<Entry, byte[]> contents, Map<Entry, Map<Integer, Integer>> hashes) throws IOException {
+		byte[] sourceContent = content(source, source.oldEntry.id, contents);
+		byte[] destinationContent = content(destination, destination.newEntry.id, contents);
+		long maxSize = Math.max(sourceContent.length, destinationContent.length);
+		long deltaSize = maxSize - Math.min(sourceContent.length, destinationContent.length);
+		if (maxSize * (maxScore - minimumScore) < deltaSize * maxScore) return 0;
+		if (destinationContent.length == 0) return 0;
+
+		Map<Integer, Integer> sourceHashes = hashes.computeIfAbsent(source, it -> hashChunks(sourceContent));
+		Map<Integer, Integer> destinationHashes = hashes.computeIfAbsent(destination, it -> hashChunks(destinationContent));
+		long copied = 0;
+		for (Map.Entry<Integer, Integer> entry : sourceHashes.entrySet()) {
+			Integer destinationCount = destinationHashes.get(entry.getKey());
+			if (destinationCount != null) copied += Math.min(entry.getValue(), destinationCount);
+		}
+		return (int) (copied * maxScore / maxSize);
+	}
+
+	private byte[] content(Entry entry, String id, Map<Entry, byte[]> contents) throws IOException {
+		byte[] content = contents.get(entry);
+		if (content == null) {
+			GitObject blob = objectDatabase.read(id);
+			if (blob == null) throw new IOException("Missing blob object " + id);
+			content = blob.data;
+			contents.put(entry, content);
+		}
+		return content;
+	}
+
+	/**
+	 * @return number of bytes in content for each hash of line (or 64-byte chunk if line is longer),
+	 * CR in CRLF is ignored for text content (see hash_chars() in diffcore-delta.c of git source code)
+	 */
+	static Map<Integer, Integer> hashChunks(byte[] content) {
+		boolean isText = !isBinary(content);
+		Map<Integer, Integer> result = new HashMap<>();
+		int accum1 = 0;
+		int accum2 = 0;
+		int n = 0;
+		for (int i = 0; i < content.length; i++) {
+			int c = content[i] & 0xff;
+			int old1 = accum1;
+			if (isText && c == '\r' && i + 1 < content.length && content[i + 1] == '\n') continue;
+
+			accum1 = (accum1 << 7) ^ (accum2 >>> 25);
+			accum2 = (accum2 << 7) ^ (old1 >>> 25);
+			accum1 += c;
+			if (++n < 64 && c != '\n') continue;
+
+			result.merge(hashValue(accum1, accum2), n, Integer::sum);
+			n = 0;
+			accum1 = 0;
+			accum2 = 0;
+		}
+		if (n > 0) {
+			result.merge(hashValue(accum1, accum2), n, Integer::sum);
+		}
+		return result;
+	}
+
+	private static int hashValue(int accum1, int accum2) {
+		return Integer.remainderUnsigned(accum1 + accum2 * 0x61, hashBase);
+	}
+
+	private static boolean isBinary(byte[] content) {
+		for (int i = 0; i < Math.min(content.length, binaryCheckSize); i++) {
+			if (content[i] == 0) return true;
+		}
+		return false;
+	}
+
+	private static boolean sameBaseName(String path1, String path2) {
+		return path1.substring(path1.lastIndexOf('/') + 1).equals(path2.substring(path2.lastIndexOf('/') + 1));
+	}
+
+
+	/**
+	 * Changed file, i.e. "git diff-tree" file pair.
+	 */
+	private static class Entry {
+		final String path;
+		@Nullable final TreeEntry oldEntry;
+		@Nullable final TreeEntry newEntry;
+		@Nullable Entry renamedFrom;
+		boolean isRenameSource;
+
+		Entry(String path, @Nullable TreeEntry oldEntry, @Nullable TreeEntry newEntry) {
+			this.path = path;
+			this.oldEntry = oldEntry;
+			this.newEntry = newEntry;
+		}
+	}
+
+
+	private static class Score implements Comparable<Score> {
+		final int source;
+		final int destination;
+		final int score;
+		final boolean sameBaseName;
+
+		Score(int source, int destination, int score, boolean sameBaseName) {
+			this.source = source;
+			this.destination = destination;
+			this.score = score;
+			this.sameBaseName = sameBaseName;
+		}
+
+		@Override public int compareTo(Score that) {
+			if (score != that.score) return Integer.compare(that.score, score);
+			if (sameBaseName != that.sameBaseName) return sameBaseName ? -1 : 1;
+			if (destination != that.destination) return Integer.compare(destination, that.destination);
+			return Integer.compare(source, that.source);
+		}
+	}
+}
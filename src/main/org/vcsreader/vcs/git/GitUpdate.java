@@ -4,18 +4,34 @@ import org.vcsreader.UpdateResult;
 import org.vcsreader.lang.CommandLine;
 import org.vcsreader.vcs.VcsCommand;
 import org.vcsreader.vcs.VcsError;
+import org.vcsreader.vcs.git.GitSettings.CloneMode;
 
 import static org.vcsreader.vcs.git.GitUtil.isSuccessful;
 
 class GitUpdate implements VcsCommand<UpdateResult> {
+	/**
+	 * Remote-tracking branch of the current branch, i.e. the branch which "git pull" would merge.
+	 * See "@{upstream}" at https://git-scm.com/docs/gitrevisions
+	 */
+	static final String upstreamRevision = "@{upstream}";
+
 	private final String gitPath;
 	private final String repoFolder;
+	private final CloneMode cloneMode;
+	private final boolean fetchOnly;
 	private final CommandLine commandLine;
 
-	public GitUpdate(String gitPath, String repoFolder) {
+	/**
+	 * @param cloneMode mode in which repository was cloned, bare and mirror clones are always updated with "git fetch"
+	 * @param fetchOnly if true, only fetches commits into remote-tracking branches without changing working tree
+	 *                  (history should then be logged from {@link #upstreamRevision})
+	 */
+	public GitUpdate(String gitPath, String repoFolder, CloneMode cloneMode, boolean fetchOnly, CommandLine.Config config) {
 		this.gitPath = gitPath;
 		this.repoFolder = repoFolder;
-		this.commandLine = gitUpdate(gitPath, repoFolder);
+		this.cloneMode = cloneMode;
+		this.fetchOnly = fetchOnly;
+		this.commandLine = gitUpdate(gitPath, repoFolder, cloneMode, fetchOnly).executionConfig(config);
 	}
 
 	@Override public UpdateResult execute() {
@@ -31,6 +47,20 @@ class GitUpdate implements VcsCommand<UpdateResult> {
 		return new CommandLine(pathToGit, "pull", "origin").workingDir(repoFolder);
 	}
 
+	static CommandLine gitUpdate(String pathToGit, String repoFolder, CloneMode cloneMode, boolean fetchOnly) {
+		if (cloneMode == CloneMode.Bare) {
+			// bare clone has no remote-tracking branches, so fetch directly into local branches
+			return new CommandLine(pathToGit, "fetch", "origin", "+refs/heads/*:refs/heads/*").workingDir(repoFolder);
+		} else if (cloneMode == CloneMode.Mirror) {
+			// mirror clone fetches all refs with "+refs/*:refs/*" refspec configured by "git clone --mirror"
+			return new CommandLine(pathToGit, "fetch", "--prune", "origin").workingDir(repoFolder);
+		} else if (fetchOnly) {
+			return new CommandLine(pathToGit, "fetch", "origin").workingDir(repoFolder);
+		} else {
+			return gitUpdate(pathToGit, repoFolder);
+		}
+	}
+
 	@Override public String describe() {
 		return commandLine.describe();
 	}
@@ -48,6 +78,8 @@ class GitUpdate implements VcsCommand<UpdateResult> {
 
 		if (repoFolder != null ? !repoFolder.equals(gitUpdate.repoFolder) : gitUpdate.repoFolder != null) return false;
 		if (gitPath != null ? !gitPath.equals(gitUpdate.gitPath) : gitUpdate.gitPath != null) return false;
+		if (cloneMode != gitUpdate.cloneMode) return false;
+		if (fetchOnly != gitUpdate.fetchOnly) return false;
 
 		return true;
 	}
@@ -55,6 +87,8 @@ class GitUpdate implements VcsCommand<UpdateResult> {
 	@Override public int hashCode() {
 		int result = gitPath != null ? gitPath.hashCode() : 0;
 		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (cloneMode != null ? cloneMode.hashCode() : 0);
+		result = 31 * result + (fetchOnly ? 1 : 0);
 		return result;
 	}
 
@@ -62,6 +96,8 @@ class GitUpdate implements VcsCommand<UpdateResult> {
 		return "GitUpdate{" +
 				"gitPath='" + gitPath + '\'' +
 				", repoFolder='" + repoFolder + '\'' +
+				", cloneMode=" + cloneMode +
+				", fetchOnly=" + fetchOnly +
 				'}';
 	}
 }
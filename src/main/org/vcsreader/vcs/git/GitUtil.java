@@ -1,8 +1,19 @@
 package org.vcsreader.vcs.git;
 
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.lang.CommandLine;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 class GitUtil {
 	public static boolean isSuccessful(CommandLine commandLine) {
@@ -14,6 +25,138 @@ class GitUtil {
 		File file = new File(path);
 		if (!file.exists()) return false;
 		String[] children = file.list((dir, name) -> name.equals(".git"));
-		return children != null && children.length > 0;
+		return (children != null && children.length > 0) || isBareRepo(file);
+	}
+
+	private static boolean isBareRepo(File folder) {
+		return new File(folder, "HEAD").isFile() && new File(folder, "refs").isDirectory() && new File(folder, "objects").isDirectory();
+	}
+
+	/**
+	 * @return commits at the boundary of shallow clone (listed in "shallow" file of git directory),
+	 * i.e. commits which parents were not fetched
+	 */
+	public static List<String> shallowCommits(String repoFolder) {
+		try {
+			File gitDir = gitDir(new File(repoFolder));
+			if (gitDir == null) return Collections.emptyList();
+			File shallow = new File(commonDir(gitDir), "shallow");
+			if (!shallow.isFile()) return Collections.emptyList();
+			List<String> result = new ArrayList<>();
+			for (String line : Files.readAllLines(shallow.toPath(), UTF_8)) {
+				if (!line.trim().isEmpty()) result.add(line.trim());
+			}
+			return result;
+		} catch (IOException e) {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Reads "HEAD", loose refs and "packed-refs" directly from git directory without running git,
+	 * so that it's cheap to check whether repository has changed (e.g. before requesting log).
+	 *
+	 * @return digest of repository head and refs, or null if they can't be read
+	 * (e.g. there is no repository or refs are being updated by another process)
+	 */
+	@Nullable public static String headFingerprint(String repoFolder) {
+		try {
+			File gitDir = gitDir(new File(repoFolder));
+			if (gitDir == null) return null;
+			File commonDir = commonDir(gitDir);
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			addFile(digest, new File(gitDir, "HEAD"));
+			addFile(digest, new File(commonDir, "packed-refs"));
+			addRefs(digest, new File(commonDir, "refs"), "refs");
+			return toHex(digest.digest());
+		} catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return ".git" folder of working tree (or folder which ".git" file points to), or repo folder itself for bare repository
+	 */
+	@Nullable static File gitDir(File repoFolder) throws IOException {
+		File dotGit = new File(repoFolder, ".git");
+		if (dotGit.isDirectory()) return dotGit;
+		if (dotGit.isFile()) {
+			String content = new String(Files.readAllBytes(dotGit.toPath()), UTF_8).trim();
+			if (!content.startsWith("gitdir:")) return null;
+			File gitDir = new File(content.substring("gitdir:".length()).trim());
+			return gitDir.isAbsolute() ? gitDir : new File(repoFolder, gitDir.getPath());
+		}
+		if (isBareRepo(repoFolder)) return repoFolder;
+		return null;
+	}
+
+	/**
+	 * @return folder with refs shared by all working trees (see "commondir" in https://git-scm.com/docs/gitrepository-layout)
+	 */
+	static File commonDir(File gitDir) throws IOException {
+		File commonDirFile = new File(gitDir, "commondir");
+		if (!commonDirFile.isFile()) return gitDir;
+		File commonDir = new File(new String(Files.readAllBytes(commonDirFile.toPath()), UTF_8).trim());
+		return commonDir.isAbsolute() ? commonDir : new File(gitDir, commonDir.getPath());
+	}
+
+	private static void addRefs(MessageDigest digest, File folder, String path) throws IOException {
+		File[] files = folder.listFiles();
+		if (files == null) return;
+		Arrays.sort(files);
+		for (File file : files) {
+			String filePath = path + "/" + file.getName();
+			if (file.isDirectory()) {
+				addRefs(digest, file, filePath);
+			} else if (!file.getName().endsWith(".lock")) {
+				digest.update(filePath.getBytes(UTF_8));
+				addFile(digest, file);
+			}
+		}
+	}
+
+	private static void addFile(MessageDigest digest, File file) throws IOException {
+		if (file.exists()) {
+			digest.update(Files.readAllBytes(file.toPath()));
+		}
+		digest.update((byte) 0);
+	}
+
+	static String sha1Hex(String s) {
+		try {
+			return toHex(MessageDigest.getInstance("SHA-1").digest(s.getBytes(UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		return toHex(bytes, 0, bytes.length);
+	}
+
+	static String toHex(byte[] bytes, int offset, int length) {
+		StringBuilder result = new StringBuilder(length * 2);
+		for (int i = offset; i < offset + length; i++) {
+			byte b = bytes[i];
+			result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return bytes of hex string, e.g. object id
+	 * @throws IllegalArgumentException if string is not a valid hex string
+	 */
+	static byte[] fromHex(String hex) {
+		if (hex.length() % 2 != 0) throw new IllegalArgumentException("Invalid hex string: " + hex);
+		byte[] result = new byte[hex.length() / 2];
+		for (int i = 0; i < result.length; i++) {
+			int high = Character.digit(hex.charAt(i * 2), 16);
+			int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+			if (high == -1 || low == -1) throw new IllegalArgumentException("Invalid hex string: " + hex);
+			result[i] = (byte) ((high << 4) | low);
+		}
+		return result;
 	}
 }
@@ -3,16 +3,30 @@ package org.vcsreader.vcs.git;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.vcsreader.*;
+import org.vcsreader.lang.CommandLine;
 import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.BatchedLogRevisions;
+import org.vcsreader.vcs.CurrentCommand;
+import org.vcsreader.vcs.LogCache;
+import org.vcsreader.vcs.RunningCommands;
 import org.vcsreader.vcs.VcsCommand;
 import org.vcsreader.vcs.VcsCommand.ExceptionWrapper;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
 public class GitVcsRoot implements VcsRoot, VcsCommand.Observer {
 	@NotNull private final String repoFolder;
 	@Nullable private final String repoUrl;
 	@NotNull private final GitSettings settings;
 	private final VcsCommand.Listener listener;
-	private volatile VcsCommand lastCommand;
+	private final RunningCommands runningCommands;
+	private final CommandLine.Config commandLineConfig;
+	@Nullable private final LogCache logCache;
+	private final GitObjectRepository objectRepository;
 
 
 	public GitVcsRoot(@NotNull String repoFolder) {
@@ -20,7 +34,7 @@ public class GitVcsRoot implements VcsRoot, VcsCommand.Observer {
 	}
 
 	public GitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl) {
-		this(repoFolder, repoUrl, GitSettings.defaults(), VcsCommand.Listener.none);
+		this(repoFolder, repoUrl, GitSettings.defaults());
 	}
 
 	/**
@@ -30,48 +44,239 @@ public class GitVcsRoot implements VcsRoot, VcsCommand.Observer {
 	 * @param settings   settings which will be used by VCS commands executed on this root
 	 */
 	public GitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl, GitSettings settings) {
-		this(repoFolder, repoUrl, settings, VcsCommand.Listener.none);
+		this(repoFolder, repoUrl, settings, VcsCommand.Listener.none,
+				settings.logCacheSize() > 0 ? new LogCache(settings.logCacheSize()) : null, new GitObjectRepository(repoFolder));
 	}
 
-	private GitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl,
-	                   @NotNull GitSettings settings, VcsCommand.Listener listener) {
+	private GitVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl, @NotNull GitSettings settings,
+	                   VcsCommand.Listener listener, @Nullable LogCache logCache, GitObjectRepository objectRepository) {
 		this.repoFolder = repoFolder;
 		this.repoUrl = repoUrl;
 		this.settings = settings;
 		this.listener = listener;
+		this.runningCommands = new RunningCommands(settings.maxConcurrentCommands(), settings.rootTimeout());
+		this.commandLineConfig = settings.commandLineConfig();
+		this.logCache = logCache;
+		this.objectRepository = objectRepository;
 	}
 
 	@Override public GitVcsRoot withListener(VcsCommand.Listener listener) {
-		return new GitVcsRoot(repoFolder, repoUrl, settings, listener);
+		return new GitVcsRoot(repoFolder, repoUrl, settings, listener, logCache, objectRepository);
 	}
 
 	@Override public CloneResult cloneIt() {
+		return cloneIt(gitClone(), new CurrentCommand());
+	}
+
+	@Override public CompletableFuture<CloneResult> cloneAsync() {
+		// clone might be followed by maintenance, so keep track of the command which is currently running
+		VcsCommand<CloneResult> gitClone = gitClone();
+		CurrentCommand currentCommand = new CurrentCommand();
+		return VcsCommand.supplyAsync(() -> cloneIt(gitClone, currentCommand), currentCommand::cancel, settings.asyncExecutor());
+	}
+
+	/**
+	 * @param currentCommand git command which is currently executed as part of this clone request
+	 */
+	private CloneResult cloneIt(VcsCommand<CloneResult> gitClone, CurrentCommand currentCommand) {
+		currentCommand.set(gitClone);
+		CloneResult cloneResult = execute(gitClone, CloneResult.adapter);
+		objectRepository.reopen();
+		if (!cloneResult.isSuccessful() || !settings.maintenance() || currentCommand.isCancelled()) return cloneResult;
+		GitMaintenance gitMaintenance = gitMaintenance();
+		currentCommand.set(gitMaintenance);
+		return withMaintenanceErrors(cloneResult, execute(gitMaintenance, UpdateResult.adapter));
+	}
+
+	private static CloneResult withMaintenanceErrors(CloneResult cloneResult, UpdateResult maintenanceResult) {
+		for (Exception e : maintenanceResult.exceptions()) {
+			cloneResult = cloneResult.aggregateWith(new CloneResult(e));
+		}
+		return cloneResult;
+	}
+
+	private VcsCommand<CloneResult> gitClone() {
 		if (repoUrl == null && settings.failFast()) {
 			throw new IllegalStateException("Cannot clone repository because remote URL is not specified for root: " + this);
 		}
-		return execute(new GitClone(settings.gitPath(), repoUrl, repoFolder), CloneResult.adapter);
+		String sharedObjectStore = repoUrl != null ? settings.sharedObjectStore() : null;
+		GitClone gitClone = new GitClone(
+				settings.gitPath(), repoUrl, repoFolder, settings.cloneMode(), settings.partialClone(),
+				settings.shallowSince(), settings.cloneDepth(), sharedObjectStore, commandLineConfig
+		);
+		if (sharedObjectStore == null) return gitClone;
+		return new GitSharedClone(settings.gitPath(), repoUrl, sharedObjectStore, gitClone, commandLineConfig);
 	}
 
 	@Override public UpdateResult update() {
-		return execute(new GitUpdate(settings.gitPath(), repoFolder), UpdateResult.adapter);
+		return update(new CurrentCommand());
+	}
+
+	/**
+	 * Note that in fetch-only mode (see {@link GitSettings#withFetchOnly(boolean)}) update doesn't modify working tree,
+	 * so it's safe to fetch several roots concurrently using {@link VcsProject#updateAsync()}
+	 * (unlike "git pull" which can fail if another process holds lock on the index).
+	 */
+	@Override public CompletableFuture<UpdateResult> updateAsync() {
+		// update might be followed by maintenance, so keep track of the command which is currently running
+		CurrentCommand currentCommand = new CurrentCommand();
+		return VcsCommand.supplyAsync(() -> update(currentCommand), currentCommand::cancel, settings.asyncExecutor());
+	}
+
+	/**
+	 * @param currentCommand git command which is currently executed as part of this update request
+	 */
+	private UpdateResult update(CurrentCommand currentCommand) {
+		GitUpdate gitUpdate = gitUpdate();
+		currentCommand.set(gitUpdate);
+		UpdateResult updateResult = execute(gitUpdate, UpdateResult.adapter);
+		objectRepository.reopen();
+		if (!updateResult.isSuccessful() || !settings.maintenance() || currentCommand.isCancelled()) return updateResult;
+		GitMaintenance gitMaintenance = gitMaintenance();
+		currentCommand.set(gitMaintenance);
+		return updateResult.aggregateWith(execute(gitMaintenance, UpdateResult.adapter));
+	}
+
+	private GitUpdate gitUpdate() {
+		return new GitUpdate(settings.gitPath(), repoFolder, settings.cloneMode(), settings.fetchOnly(), commandLineConfig);
+	}
+
+	private GitMaintenance gitMaintenance() {
+		return new GitMaintenance(settings.gitPath(), repoFolder, commandLineConfig);
 	}
 
 	@Override public LogResult log(TimeRange timeRange) {
-		return execute(new GitLog(settings.gitPath(), repoFolder, timeRange), LogResult.adapter);
+		return execute(gitLog(timeRange), LogResult.adapter);
+	}
+
+	@Override public CompletableFuture<LogResult> logAsync(TimeRange timeRange) {
+		return executeAsync(gitLog(timeRange), LogResult.adapter);
+	}
+
+	/**
+	 * If log cache is enabled (see {@link GitSettings#withLogCacheSize(int)}), git refs are read from disk
+	 * before each log request and cached result is returned if they haven't changed since previous log.
+	 */
+	private VcsCommand<LogResult> gitLog(TimeRange timeRange) {
+		VcsCommand<LogResult> gitLog = settings.inProcessReader() ?
+				new GitObjectLog(objectRepository, timeRange, logRevision()) :
+				new GitLog(settings.gitPath(), repoFolder, timeRange, logRevision(), settings.logParsePool(), commandLineConfig);
+		if (logCache == null) return gitLog;
+		return logCache.cached(timeRange, () -> GitUtil.headFingerprint(repoFolder), gitLog);
+	}
+
+	/**
+	 * Requests commits with the specified revisions passing them to a single "git log --no-walk --stdin" process
+	 * (see {@link VcsRoot#logRevisions(Collection)}).
+	 * Because git fails the whole log if one of the revisions doesn't exist, log is repeated without such revisions.
+	 */
+	@Override public LogResult logRevisions(Collection<String> revisions) {
+		if (revisions.isEmpty()) return new LogResult();
+		BatchedLogRevisions logRevisions = new BatchedLogRevisions(revisions, revisions.size(),
+				batch -> GitLog.logRevisions(settings.gitPath(), repoFolder, batch, settings.logParsePool(), commandLineConfig),
+				GitLog::missingRevisionIn
+		);
+		return execute(logRevisions, LogResult.adapter);
+	}
+
+	/**
+	 * Reads history of several sub-folders in this repository with a single "git log" command.
+	 * This is equivalent to (but faster than) requesting log for each sub-folder separately.
+	 *
+	 * @param timeRange see {@link VcsProject#log(TimeRange)}
+	 * @param subRoots  paths of sub-folders relative to repository root (empty path means the whole repository)
+	 * @return log results for each sub-root where each commit only includes changes under the sub-root
+	 * and commits without such changes are excluded.
+	 */
+	public Map<String, LogResult> logSubRoots(TimeRange timeRange, Collection<String> subRoots) {
+		GitLogSubRoots logSubRoots = new GitLogSubRoots(
+				settings.gitPath(), repoFolder, timeRange, logRevision(), subRoots, settings.logParsePool(), commandLineConfig
+		);
+		Map<String, LogResult> result = execute(logSubRoots, GitLogSubRoots.adapter(subRoots));
+		for (LogResult logResult : result.values()) {
+			for (VcsCommit commit : logResult.commits()) {
+				if (commit instanceof VcsCommit.WithRootReference) {
+					((VcsCommit.WithRootReference) commit).setVcsRoot(this);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads commits in chronological order (oldest first) using "git log --reverse".
+	 * Note that to reverse the order git has to walk all commits in the time range before it outputs the first one,
+	 * so the first commit is read only after the whole range was traversed (although commit messages and changes
+	 * are still parsed lazily and memory used by this library doesn't depend on the size of history).
+	 * If latency of the first commit matters, read history in smaller time ranges.
+	 */
+	@Override public Stream<VcsCommit> logStream(TimeRange timeRange) {
+		return executeStream(new GitLogStream(settings.gitPath(), repoFolder, timeRange, logRevision(), commandLineConfig));
+	}
+
+	@Override public LogResult log(TimeRange timeRange, LogVisitor visitor) {
+		return execute(new GitLogVisit(settings.gitPath(), repoFolder, timeRange, logRevision(), visitor, commandLineConfig), LogResult.adapter);
+	}
+
+	/**
+	 * Reads commits together with contents of changed files using a single "git fast-export" process.
+	 * This is intended for analysis of all file versions in history, e.g. instead of calling
+	 * {@link #logFileContent(String, String)} for each change of each commit.
+	 * Commits are the same as with {@link #logStream(TimeRange)} and are visited in chronological order (oldest first),
+	 * although commits with the same date on different branches might be visited in different order.
+	 *
+	 * @return result without commits (they are passed to the visitor) but with errors if any
+	 */
+	public LogResult logWithContents(TimeRange timeRange, ContentVisitor visitor) {
+		return execute(new GitFastExport(settings.gitPath(), repoFolder, timeRange, logRevision(), visitor, commandLineConfig), LogResult.adapter);
+	}
+
+	/**
+	 * @return remote-tracking branch in fetch-only mode because fetched commits are not merged into current branch,
+	 * otherwise null which means current HEAD (bare and mirror clones fetch directly into local branches)
+	 */
+	@Nullable private String logRevision() {
+		boolean hasWorkingTree = settings.cloneMode() == GitSettings.CloneMode.WorkingTree;
+		return settings.fetchOnly() && hasWorkingTree ? GitUpdate.upstreamRevision : null;
 	}
 
 	@Override public LogFileContentResult logFileContent(String filePath, String revision) {
-		GitLogFileContent logFileContent = new GitLogFileContent(settings.gitPath(), repoFolder, filePath, revision, settings.defaultFileCharset());
-		return execute(logFileContent, LogFileContentResult.adapter);
+		return execute(gitLogFileContent(filePath, revision), LogFileContentResult.adapter);
 	}
 
-	private <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
-		try {
-			lastCommand = vcsCommand;
-			return VcsCommand.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
-		} finally {
-			lastCommand = null;
+	@Override public CompletableFuture<LogFileContentResult> logFileContentAsync(String filePath, String revision) {
+		return executeAsync(gitLogFileContent(filePath, revision), LogFileContentResult.adapter);
+	}
+
+	private VcsCommand<LogFileContentResult> gitLogFileContent(String filePath, String revision) {
+		if (settings.inProcessReader()) {
+			return new GitObjectLogFileContent(objectRepository, filePath, revision, settings.defaultFileCharset());
 		}
+		return new GitLogFileContent(settings.gitPath(), repoFolder, filePath, revision, settings.defaultFileCharset(), commandLineConfig);
+	}
+
+	/**
+	 * Opens commit-graph of local clone which can be used to count commits in time range, find date boundaries
+	 * of history or walk parents without running git (the file is written after clone and update
+	 * if {@link GitSettings#withMaintenance(boolean)} is enabled).
+	 * Note that commit-graph is not updated by this method, so it might not contain the latest commits.
+	 *
+	 * @return commit graph or null if repository has no commit-graph file
+	 */
+	@Nullable public GitCommitGraph commitGraph() throws IOException {
+		return GitCommitGraph.open(repoFolder);
+	}
+
+	private <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
+		return runningCommands.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
+	}
+
+	private <T> CompletableFuture<T> executeAsync(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
+		return VcsCommand.supplyAsync(() -> execute(vcsCommand, exceptionWrapper), vcsCommand::cancel, settings.asyncExecutor());
+	}
+
+	private Stream<VcsCommit> executeStream(VcsCommand<Stream<VcsCommit>> vcsCommand) {
+		return runningCommands.executeStream(vcsCommand, listener);
 	}
 
 	@Override @NotNull public String repoFolder() {
@@ -83,8 +288,7 @@ public class GitVcsRoot implements VcsRoot, VcsCommand.Observer {
 	}
 
 	@Override public boolean cancelLastCommand() {
-		VcsCommand command = lastCommand;
-		return command == null || command.cancel();
+		return runningCommands.cancelAll();
 	}
 
 	@SuppressWarnings("RedundantIfStatement")
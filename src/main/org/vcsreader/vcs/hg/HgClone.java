@@ -12,11 +12,11 @@ class HgClone implements VcsCommand<CloneResult> {
 	private final String repoFolder;
 	private final CommandLine commandLine;
 
-	public HgClone(String pathToHg, String repoUrl, String repoFolder) {
+	public HgClone(String pathToHg, String repoUrl, String repoFolder, CommandLine.Config config) {
 		this.pathToHg = pathToHg;
 		this.repoUrl = repoUrl;
 		this.repoFolder = repoFolder;
-		this.commandLine = hgClone(pathToHg, repoUrl, repoFolder);
+		this.commandLine = hgClone(pathToHg, repoUrl, repoFolder).executionConfig(config);
 	}
 
 	@Override public CloneResult execute() {
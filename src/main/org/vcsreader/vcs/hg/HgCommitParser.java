@@ -1,15 +1,22 @@
 package org.vcsreader.vcs.hg;
 
 import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CapturedOutput;
 import org.vcsreader.lang.DateTimeUtil;
+import org.vcsreader.lang.JfrEvents;
+import org.vcsreader.lang.ParallelSplitParser;
+import org.vcsreader.lang.SplitIterator;
 import org.vcsreader.vcs.Change;
 import org.vcsreader.vcs.Commit;
 
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.time.ZoneOffset.UTC;
 import static org.vcsreader.VcsChange.Type.*;
@@ -22,24 +29,57 @@ class HgCommitParser {
 	private static final String commitStartSeparatorFormat = "\\x15\\x16\\x17\\x18\\x19";
 	private static final String commitFieldSeparatorFormat = "\\x19\\x18\\x17\\x16\\x15";
 	private static final String fileSeparatorFormat = "\\x17\\x16\\x15\\x19\\x18";
-	private static final String commitStartSeparator = "\u0015\u0016\u0017\u0018\u0019";
-	private static final String commitFieldsSeparator = "\u0019\u0018\u0017\u0016\u0015";
-	private static final String fileSeparator = "\u0017\u0016\u0015\u0019\u0018";
-	private static final String hgNoRevision = "0000000000000000000000000000000000000000";
+	static final String commitStartSeparator = "\u0015\u0016\u0017\u0018\u0019";
+	static final String commitFieldsSeparator = "\u0019\u0018\u0017\u0016\u0015";
+	static final String fileSeparator = "\u0017\u0016\u0015\u0019\u0018";
+	static final String hgNoRevision = "0000000000000000000000000000000000000000";
 	private static final DateTimeFormatter dateTimeFormatter = dateTimeFormatter("yyyy-MM-dd HH:mm:ss Z", UTC);
 
 	public static List<VcsCommit> parseListOfCommits(String stdout) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
 		ArrayList<VcsCommit> commits = new ArrayList<>();
 		List<String> commitsAsString = split(stdout, commitStartSeparator);
 
 		for (String s : commitsAsString) {
-			commits.add(parseCommit(s, commitFieldsSeparator));
+			commits.add(parseCommit(s));
 		}
+		event.commit("HgCommitParser", commits.size());
 		return commits;
 	}
 
-	private static VcsCommit parseCommit(String s, String fieldsSeparator) {
-		List<String> values = split(s, fieldsSeparator);
+	/**
+	 * Same as {@link #parseListOfCommits(String)} but reads commits incrementally
+	 * so that the whole log doesn't have to be kept in memory as a string.
+	 */
+	public static List<VcsCommit> parseListOfCommits(Reader reader) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
+		List<VcsCommit> commits = parseCommits(reader);
+		event.commit("HgCommitParser", commits.size());
+		return commits;
+	}
+
+	/**
+	 * Same as {@link #parseListOfCommits(Reader)} but splits output at commit boundaries into chunks
+	 * which are parsed in parallel on the pool (see {@link ParallelSplitParser}).
+	 */
+	public static List<VcsCommit> parseListOfCommits(CapturedOutput output, Charset charset, ForkJoinPool pool) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
+		List<VcsCommit> commits = ParallelSplitParser.parse(output, charset, commitStartSeparator, pool, HgCommitParser::parseCommits);
+		event.commit("HgCommitParser", commits.size());
+		return commits;
+	}
+
+	private static List<VcsCommit> parseCommits(Reader reader) {
+		List<VcsCommit> commits = new ArrayList<>();
+		SplitIterator iterator = new SplitIterator(reader, commitStartSeparator);
+		while (iterator.hasNext()) {
+			commits.add(parseCommit(iterator.next()));
+		}
+		return commits;
+	}
+
+	static VcsCommit parseCommit(String s) {
+		List<String> values = split(s, commitFieldsSeparator);
 
 		String revision = values.get(0);
 		String revisionBefore = values.get(1);
@@ -108,10 +148,16 @@ class HgCommitParser {
 	}
 
 	public static String logTemplate() {
+		return logTemplate("{date|isodatesec}");
+	}
+
+	/**
+	 * @param commitDate template for commit date, e.g. "{date|hgdate}" to get seconds since epoch
+	 */
+	static String logTemplate(String commitDate) {
 		// see https://www.selenic.com/mercurial/hg.1.html#templates
 		String commitNode = "{node}";
 		String commitParentNode = "{p1node}";
-		String commitDate = "{date|isodatesec}";
 		String author = "{person(author)}"; // use person() because author can also include email
 		String description = "{desc}";
 		String filesAdded = "{join(file_adds,'" + fileSeparatorFormat + "')}";
@@ -1,7 +1,9 @@
 package org.vcsreader.vcs.hg;
 
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.LogResult;
 import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CapturedOutput;
 import org.vcsreader.lang.CommandLine;
 import org.vcsreader.lang.TimeRange;
 import org.vcsreader.vcs.VcsCommand;
@@ -9,7 +11,9 @@ import org.vcsreader.vcs.VcsError;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -24,14 +28,32 @@ class HgLog implements VcsCommand<LogResult> {
 	private final String hgPath;
 	private final String repoFolder;
 	private final TimeRange timeRange;
+	@Nullable private final ForkJoinPool parsePool;
 	private final CommandLine commandLine;
 
 
-	public HgLog(String hgPath, String repoFolder, TimeRange timeRange) {
+	/**
+	 * @param parsePool pool for parsing large log output in parallel, null means output is parsed sequentially
+	 */
+	public HgLog(String hgPath, String repoFolder, TimeRange timeRange, @Nullable ForkJoinPool parsePool, CommandLine.Config config) {
+		this(hgPath, repoFolder, timeRange, parsePool, hgLog(hgPath, repoFolder, timeRange), config);
+	}
+
+	private HgLog(String hgPath, String repoFolder, TimeRange timeRange, @Nullable ForkJoinPool parsePool,
+	              CommandLine commandLine, CommandLine.Config config) {
 		this.hgPath = hgPath;
 		this.repoFolder = repoFolder;
 		this.timeRange = timeRange;
-		this.commandLine = hgLog(hgPath, repoFolder, timeRange);
+		this.parsePool = parsePool;
+		this.commandLine = commandLine.executionConfig(config);
+	}
+
+	/**
+	 * @return command which logs commits with the specified revisions using a single revset
+	 */
+	static HgLog logRevisions(String hgPath, String repoFolder, Collection<String> revisions,
+	                          @Nullable ForkJoinPool parsePool, CommandLine.Config config) {
+		return new HgLog(hgPath, repoFolder, TimeRange.all, parsePool, hgLogRevisions(hgPath, repoFolder, revisions), config);
 	}
 
 	@Override public LogResult execute() {
@@ -39,14 +61,16 @@ class HgLog implements VcsCommand<LogResult> {
 			throw new VcsError("Folder doesn't contain git repository: '" + repoFolder + "'.");
 		}
 
-		commandLine.execute();
-
-		if (isSuccessful(commandLine)) {
-			List<VcsCommit> commits = HgCommitParser.parseListOfCommits(commandLine.stdout());
-			List<Exception> errors = (commandLine.stderr().trim().isEmpty() ? new ArrayList<>() : asList(new VcsError(commandLine.stderr())));
-			return new LogResult(commits, errors);
-		} else {
-			return new LogResult(new VcsError(commandLine.stderr()));
+		try (CapturedOutput stdout = commandLine.executeCapturingStdout()) {
+			if (isSuccessful(commandLine)) {
+				List<VcsCommit> commits = parsePool != null ?
+						HgCommitParser.parseListOfCommits(stdout, commandLine.outputCharset(), parsePool) :
+						HgCommitParser.parseListOfCommits(stdout.reader(commandLine.outputCharset()));
+				List<Exception> errors = (commandLine.stderr().trim().isEmpty() ? new ArrayList<>() : asList(new VcsError(commandLine.stderr())));
+				return new LogResult(commits, errors);
+			} else {
+				return new LogResult(new VcsError(commandLine.stderr()));
+			}
 		}
 	}
 
@@ -59,10 +83,30 @@ class HgLog implements VcsCommand<LogResult> {
 	}
 
 	static CommandLine hgLog(String hgPath, String repoFolder, TimeRange timeRange) {
+		return hgLog(hgPath, repoFolder, timeRange, HgCommitParser.logTemplate());
+	}
+
+	static CommandLine hgLog(String hgPath, String repoFolder, TimeRange timeRange, String template) {
 		CommandLine commandLine = new CommandLine(
 				hgPath, "log",
 				"--encoding", UTF_8.name(),
 				"-r", "date(\"" + asHgInstant(timeRange.from()) + " to " + asHgInstant(timeRange.to()) + "\")",
+				"--template", template
+		);
+		return commandLine.workingDir(repoFolder).outputCharset(UTF_8);
+	}
+
+	static CommandLine hgLogRevisions(String hgPath, String repoFolder, Collection<String> revisions) {
+		// see 'hg help revsets', present() is used to ignore revisions which don't exist in repository
+		StringBuilder revset = new StringBuilder();
+		for (String revision : revisions) {
+			if (revset.length() > 0) revset.append(" + ");
+			revset.append("present('").append(revision.replace("\\", "\\\\").replace("'", "\\'")).append("')");
+		}
+		CommandLine commandLine = new CommandLine(
+				hgPath, "log",
+				"--encoding", UTF_8.name(),
+				"-r", revset.toString(),
 				"--template", HgCommitParser.logTemplate()
 		);
 		return commandLine.workingDir(repoFolder).outputCharset(UTF_8);
@@ -87,6 +131,7 @@ class HgLog implements VcsCommand<LogResult> {
 		if (hgPath != null ? !hgPath.equals(hgLog.hgPath) : hgLog.hgPath != null) return false;
 		if (repoFolder != null ? !repoFolder.equals(hgLog.repoFolder) : hgLog.repoFolder != null) return false;
 		if (timeRange != null ? !timeRange.equals(hgLog.timeRange) : hgLog.timeRange != null) return false;
+		if (parsePool != null ? !parsePool.equals(hgLog.parsePool) : hgLog.parsePool != null) return false;
 		return commandLine != null ? commandLine.equals(hgLog.commandLine) : hgLog.commandLine == null;
 	}
 
@@ -94,6 +139,7 @@ class HgLog implements VcsCommand<LogResult> {
 		int result = hgPath != null ? hgPath.hashCode() : 0;
 		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
 		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (parsePool != null ? parsePool.hashCode() : 0);
 		result = 31 * result + (commandLine != null ? commandLine.hashCode() : 0);
 		return result;
 	}
@@ -103,6 +149,7 @@ class HgLog implements VcsCommand<LogResult> {
 				"hgPath='" + hgPath + '\'' +
 				", repoFolder='" + repoFolder + '\'' +
 				", timeRange=" + timeRange +
+				", parsePool=" + parsePool +
 				", commandLine=" + commandLine +
 				'}';
 	}
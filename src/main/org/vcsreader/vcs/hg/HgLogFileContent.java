@@ -22,22 +22,23 @@ class HgLogFileContent implements VcsCommand<LogFileContentResult> {
 	private final Charset charset;
 	private final CommandLine commandLine;
 
-	public HgLogFileContent(String pathToHg, String repoFolder, String filePath, String revision, Charset charset) {
+	public HgLogFileContent(String pathToHg, String repoFolder, String filePath, String revision, Charset charset, CommandLine.Config config) {
 		this.pathToHg = pathToHg;
 		this.repoFolder = repoFolder;
 		this.filePath = filePath;
 		this.revision = revision;
 		this.charset = charset;
-		this.commandLine = hgLogFileContent(pathToHg, repoFolder, filePath, revision, charset);
+		this.commandLine = hgLogFileContent(pathToHg, repoFolder, filePath, revision, charset).executionConfig(config);
 	}
 
 	@Override public LogFileContentResult execute() {
-		commandLine.execute();
-		if (isSuccessful(commandLine)) {
-			return new LogFileContentResult(trimLastNewLine(commandLine.stdout()));
-		} else {
-			return new LogFileContentResult(commandLine.stderr(), commandLine.exitCode());
-		}
+		return commandLine.execute(it -> {
+			if (isSuccessful(it)) {
+				return new LogFileContentResult(trimLastNewLine(it.stdout()));
+			} else {
+				return new LogFileContentResult(it.stderr(), it.exitCode());
+			}
+		});
 	}
 
 	@Override public String describe() {
@@ -0,0 +1,78 @@
+package org.vcsreader.vcs.hg;
+
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.LogStream;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.util.stream.Stream;
+
+import static org.vcsreader.vcs.hg.HgCommitParser.commitStartSeparator;
+import static org.vcsreader.vcs.hg.HgLog.hgLog;
+import static org.vcsreader.vcs.hg.HgUtil.containsHgRepo;
+
+/**
+ * Streaming version of {@link HgLog}.
+ */
+@SuppressWarnings("Duplicates") // because it's similar to GitLogStream
+class HgLogStream implements VcsCommand<Stream<VcsCommit>> {
+	private final String hgPath;
+	private final String repoFolder;
+	private final TimeRange timeRange;
+	private final CommandLine commandLine;
+
+
+	public HgLogStream(String hgPath, String repoFolder, TimeRange timeRange, CommandLine.Config config) {
+		this.hgPath = hgPath;
+		this.repoFolder = repoFolder;
+		this.timeRange = timeRange;
+		this.commandLine = hgLog(hgPath, repoFolder, timeRange).executionConfig(config);
+	}
+
+	@Override public Stream<VcsCommit> execute() {
+		if (!containsHgRepo(repoFolder)) {
+			throw new VcsError("Folder doesn't contain hg repository: '" + repoFolder + "'.");
+		}
+
+		commandLine.start();
+
+		return new LogStream(commandLine, commitStartSeparator, HgCommitParser::parseCommit, HgUtil::isSuccessful).stream();
+	}
+
+	@Override public String describe() {
+		return commandLine.describe();
+	}
+
+	@Override public boolean cancel() {
+		return commandLine.kill();
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		HgLogStream that = (HgLogStream) o;
+
+		if (hgPath != null ? !hgPath.equals(that.hgPath) : that.hgPath != null) return false;
+		if (repoFolder != null ? !repoFolder.equals(that.repoFolder) : that.repoFolder != null) return false;
+		return timeRange != null ? timeRange.equals(that.timeRange) : that.timeRange == null;
+	}
+
+	@Override public int hashCode() {
+		int result = hgPath != null ? hgPath.hashCode() : 0;
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "HgLogStream{" +
+				"hgPath='" + hgPath + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				", timeRange=" + timeRange +
+				'}';
+	}
+}
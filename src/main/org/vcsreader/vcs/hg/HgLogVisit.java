@@ -0,0 +1,220 @@
+package org.vcsreader.vcs.hg;
+
+import org.vcsreader.LogResult;
+import org.vcsreader.LogVisitor;
+import org.vcsreader.VcsChange;
+import org.vcsreader.lang.CharSlice;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.SplitReader;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.MutableChangeView;
+import org.vcsreader.vcs.MutableCommitView;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.vcsreader.VcsChange.Type.*;
+import static org.vcsreader.vcs.hg.HgCommitParser.*;
+import static org.vcsreader.vcs.hg.HgLog.hgLog;
+import static org.vcsreader.vcs.hg.HgUtil.containsHgRepo;
+import static org.vcsreader.vcs.hg.HgUtil.isSuccessful;
+
+/**
+ * Reads the same commits as {@link HgLog} but passes them to {@link LogVisitor}
+ * using reusable views over the buffer with hg output, i.e. without allocating objects for each commit.
+ * Changes are visited in the same order and with the same values as in {@link HgCommitParser#parseCommit(String)}.
+ */
+@SuppressWarnings("Duplicates") // because it's similar to GitLogVisit
+class HgLogVisit implements VcsCommand<LogResult> {
+	private static final int fieldsCount = 9;
+
+	private final String hgPath;
+	private final String repoFolder;
+	private final TimeRange timeRange;
+	private final LogVisitor visitor;
+	private final CommandLine commandLine;
+
+	private final CharSlice commitText = new CharSlice();
+	private final CharSlice[] fields = new CharSlice[fieldsCount];
+	private final CharSlice filePath = new CharSlice();
+	private final CharSlice filePathBefore = new CharSlice();
+	private final List<CharSlice> copiedTo = new ArrayList<>();
+	private final List<CharSlice> copiedFrom = new ArrayList<>();
+	private int copiesSize;
+	private final MutableCommitView commitView = new MutableCommitView();
+	private final MutableChangeView changeView = new MutableChangeView();
+
+
+	public HgLogVisit(String hgPath, String repoFolder, TimeRange timeRange, LogVisitor visitor, CommandLine.Config config) {
+		this.hgPath = hgPath;
+		this.repoFolder = repoFolder;
+		this.timeRange = timeRange;
+		this.visitor = visitor;
+		this.commandLine = hgLog(hgPath, repoFolder, timeRange, logTemplate("{date|hgdate}")).executionConfig(config);
+		for (int i = 0; i < fieldsCount; i++) {
+			fields[i] = new CharSlice();
+		}
+	}
+
+	@Override public LogResult execute() {
+		if (!containsHgRepo(repoFolder)) {
+			throw new VcsError("Folder doesn't contain hg repository: '" + repoFolder + "'.");
+		}
+
+		commandLine.start();
+		boolean readAllOutput = false;
+		try {
+			SplitReader splitReader = new SplitReader(commandLine.stdoutReader(), commitStartSeparator);
+			while (splitReader.next(commitText)) {
+				visitCommit(commitText);
+			}
+			readAllOutput = true;
+		} finally {
+			if (!readAllOutput) commandLine.kill();
+			commandLine.finish();
+		}
+
+		if (isSuccessful(commandLine)) {
+			List<Exception> errors = (commandLine.stderr().trim().isEmpty() ? new ArrayList<>() : asList(new VcsError(commandLine.stderr())));
+			return new LogResult(new ArrayList<>(), errors);
+		} else {
+			return new LogResult(new VcsError(commandLine.stderr()));
+		}
+	}
+
+	private void visitCommit(CharSlice s) {
+		splitFields(s);
+
+		CharSlice revision = fields[0];
+		CharSequence revisionBefore = fields[1].contentEquals(hgNoRevision) ? VcsChange.noRevision : fields[1];
+		// "hgdate" format is "<seconds since epoch> <timezone offset>"
+		CharSlice date = fields[2];
+		int spaceIndex = date.indexOf(' ', 0);
+		if (spaceIndex != -1) date.set(date, 0, spaceIndex);
+		long epochMillis = date.parseLong() * 1000;
+		visitor.visitCommit(commitView.set(revision, revisionBefore, epochMillis, fields[3], fields[4]));
+
+		parseCopies(fields[7]);
+
+		CharSlice added = fields[5];
+		for (int from = nextFilePath(added, 0, filePath); from != -1; from = nextFilePath(added, from, filePath)) {
+			if (indexOfCopy(copiedTo, filePath) != -1) continue;
+			visitor.visitChange(changeView.set(Added, filePath, VcsChange.noFilePath, revision, VcsChange.noRevision));
+		}
+		CharSlice deleted = fields[6];
+		for (int from = nextFilePath(deleted, 0, filePathBefore); from != -1; from = nextFilePath(deleted, from, filePathBefore)) {
+			if (indexOfCopy(copiedFrom, filePathBefore) != -1) continue;
+			visitor.visitChange(changeView.set(Deleted, VcsChange.noFilePath, filePathBefore, revision, revisionBefore));
+		}
+		for (int i = 0; i < copiesSize; i++) {
+			visitor.visitChange(changeView.set(Moved, copiedTo.get(i), copiedFrom.get(i), revision, revisionBefore));
+		}
+		CharSlice modified = fields[8];
+		for (int from = nextFilePath(modified, 0, filePath); from != -1; from = nextFilePath(modified, from, filePath)) {
+			visitor.visitChange(changeView.set(Modified, filePath, filePath, revision, revisionBefore));
+		}
+	}
+
+	private void parseCopies(CharSlice copies) {
+		copiesSize = 0;
+		for (int from = nextFilePath(copies, 0, filePath); from != -1; from = nextFilePath(copies, from, filePath)) {
+			if (copiesSize == copiedTo.size()) {
+				copiedTo.add(new CharSlice());
+				copiedFrom.add(new CharSlice());
+			}
+			CharSlice copyTo = copiedTo.get(copiesSize);
+			CharSlice copyFrom = copiedFrom.get(copiesSize);
+			copiesSize++;
+
+			// copies are formatted as "new (old)"
+			int index = filePath.indexOf(" (", 0);
+			boolean hasFilePathBefore = index != -1 && filePath.charAt(filePath.length() - 1) == ')';
+			if (hasFilePathBefore) {
+				copyTo.set(filePath, 0, index).trim(" \t");
+				copyFrom.set(filePath, index + 2, filePath.length() - 1);
+			} else {
+				copyTo.set(filePath, 0, filePath.length());
+				copyFrom.clear();
+			}
+		}
+	}
+
+	private int indexOfCopy(List<CharSlice> filePaths, CharSlice filePath) {
+		for (int i = 0; i < copiesSize; i++) {
+			if (filePaths.get(i).contentEquals(filePath)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets {@code result} to the next non-empty file path in the list.
+	 * @return index from which to look for the following file path or -1 if there are no more file paths
+	 */
+	private static int nextFilePath(CharSlice filePaths, int from, CharSlice result) {
+		while (from < filePaths.length()) {
+			int to = filePaths.indexOf(fileSeparator, from);
+			if (to == -1) to = filePaths.length();
+			result.set(filePaths, from, to);
+			from = to + fileSeparator.length();
+			if (!result.isEmpty()) return from;
+		}
+		return -1;
+	}
+
+	private void splitFields(CharSlice s) {
+		int fieldsSize = 0;
+		int from = 0;
+		while (fieldsSize < fieldsCount) {
+			int index = s.indexOf(commitFieldsSeparator, from);
+			if (index == -1) {
+				if (from < s.length()) fields[fieldsSize++].set(s, from, s.length());
+				break;
+			}
+			fields[fieldsSize++].set(s, from, index);
+			from = index + commitFieldsSeparator.length();
+		}
+		for (int i = fieldsSize; i < fieldsCount; i++) {
+			fields[i].clear();
+		}
+	}
+
+	@Override public String describe() {
+		return commandLine.describe();
+	}
+
+	@Override public boolean cancel() {
+		return commandLine.kill();
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		HgLogVisit that = (HgLogVisit) o;
+
+		if (hgPath != null ? !hgPath.equals(that.hgPath) : that.hgPath != null) return false;
+		if (repoFolder != null ? !repoFolder.equals(that.repoFolder) : that.repoFolder != null) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		return visitor != null ? visitor.equals(that.visitor) : that.visitor == null;
+	}
+
+	@Override public int hashCode() {
+		int result = hgPath != null ? hgPath.hashCode() : 0;
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (visitor != null ? visitor.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "HgLogVisit{" +
+				"hgPath='" + hgPath + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				", timeRange=" + timeRange +
+				'}';
+	}
+}
@@ -1,8 +1,16 @@
 package org.vcsreader.vcs.hg;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.ProcessGovernor;
+import org.vcsreader.lang.StreamPumpExecutors;
+import org.vcsreader.vcs.VcsCommand;
 
 import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -10,6 +18,17 @@ public class HgSettings {
 	private final String hgPath;
 	private final Charset defaultFileCharset;
 	private final boolean failFast;
+	@NotNull private final Executor asyncExecutor;
+	private final int maxConcurrentCommands;
+	@NotNull private final Executor streamPumpExecutor;
+	private final long stdoutSpillThreshold;
+	@NotNull private final Duration commandTimeout;
+	@NotNull private final Duration rootTimeout;
+	@NotNull private final ProcessGovernor processGovernor;
+	private final boolean parallelParsing;
+	@NotNull private final ForkJoinPool parseExecutor;
+	private final int logCacheSize;
+	@Nullable private final String sharedObjectStore;
 
 
 	/**
@@ -20,9 +39,30 @@ public class HgSettings {
 	 *                           otherwise will aggregate all exceptions/errors into result object
 	 */
 	public HgSettings(@NotNull String hgPath, @NotNull Charset defaultFileCharset, boolean failFast) {
+		this(hgPath, defaultFileCharset, failFast, VcsCommand.defaultAsyncExecutor, Integer.MAX_VALUE,
+				StreamPumpExecutors.defaultExecutor, CommandLine.Config.defaultStdoutSpillThreshold,
+				CommandLine.Config.noTimeout, CommandLine.Config.noTimeout, ProcessGovernor.unlimited, false, ForkJoinPool.commonPool(), 0, null);
+	}
+
+	private HgSettings(@NotNull String hgPath, @NotNull Charset defaultFileCharset, boolean failFast,
+	                   @NotNull Executor asyncExecutor, int maxConcurrentCommands, @NotNull Executor streamPumpExecutor,
+	                   long stdoutSpillThreshold, @NotNull Duration commandTimeout, @NotNull Duration rootTimeout,
+	                   @NotNull ProcessGovernor processGovernor, boolean parallelParsing, @NotNull ForkJoinPool parseExecutor,
+	                   int logCacheSize, @Nullable String sharedObjectStore) {
 		this.hgPath = hgPath;
 		this.defaultFileCharset = defaultFileCharset;
 		this.failFast = failFast;
+		this.asyncExecutor = asyncExecutor;
+		this.maxConcurrentCommands = maxConcurrentCommands;
+		this.streamPumpExecutor = streamPumpExecutor;
+		this.stdoutSpillThreshold = stdoutSpillThreshold;
+		this.commandTimeout = commandTimeout;
+		this.rootTimeout = rootTimeout;
+		this.processGovernor = processGovernor;
+		this.parallelParsing = parallelParsing;
+		this.parseExecutor = parseExecutor;
+		this.logCacheSize = logCacheSize;
+		this.sharedObjectStore = sharedObjectStore;
 	}
 
 	public static HgSettings defaults() {
@@ -30,15 +70,108 @@ public class HgSettings {
 	}
 
 	public HgSettings withHgPath(String value) {
-		return new HgSettings(value, defaultFileCharset, failFast);
+		return new HgSettings(value, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
 	}
 
 	public HgSettings withDefaultFileCharset(Charset value) {
-		return new HgSettings(hgPath, value, failFast);
+		return new HgSettings(hgPath, value, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
 	}
 
 	public HgSettings withFailFast(boolean value) {
-		return new HgSettings(hgPath, defaultFileCharset, value);
+		return new HgSettings(hgPath, defaultFileCharset, value, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value executor for asynchronous commands (e.g. {@link HgVcsRoot#logAsync(org.vcsreader.lang.TimeRange)}).
+	 *              Note that tasks running on it mostly wait for VCS processes.
+	 */
+	public HgSettings withAsyncExecutor(@NotNull Executor value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, value, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value maximum number of commands which can run concurrently on a VCS root
+	 *              (other commands will wait until running commands have finished),
+	 *              {@link Integer#MAX_VALUE} means there is no limit
+	 */
+	public HgSettings withMaxConcurrentCommands(int value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, value, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value executor for reading stdout/stderr of VCS processes,
+	 *              see {@link StreamPumpExecutors} for available options (e.g. virtual threads on JDK 21+)
+	 */
+	public HgSettings withStreamPumpExecutor(@NotNull Executor value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, value, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value max size of command stdout in bytes which is kept in memory,
+	 *              larger output (e.g. log of a big repository) is written to a temporary file
+	 */
+	public HgSettings withStdoutSpillThreshold(long value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, value, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value max time of a single VCS process (e.g. git pull from stalled server),
+	 *              process which runs longer is killed and {@link org.vcsreader.vcs.VcsTimeoutError} is reported;
+	 *              {@link CommandLine.Config#noTimeout} means there is no limit
+	 */
+	public HgSettings withCommandTimeout(@NotNull Duration value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, value, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value max time of a single operation on VCS root (e.g. log) including all VCS processes it runs,
+	 *              processes still running after that are killed and {@link org.vcsreader.vcs.VcsTimeoutError} is reported;
+	 *              {@link CommandLine.Config#noTimeout} means there is no limit
+	 */
+	public HgSettings withRootTimeout(@NotNull Duration value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, value, processGovernor, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value governor limiting the number of VCS processes and their buffered stdout,
+	 *              the same instance should be shared by all roots of this VCS type (see {@link ProcessGovernor})
+	 */
+	public HgSettings withProcessGovernor(@NotNull ProcessGovernor value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, value, parallelParsing, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value if true, buffered log output larger than a few megabytes is split at commit boundaries
+	 *              and parsed in parallel on {@link #withParseExecutor(ForkJoinPool) parse executor} (the order of commits is preserved)
+	 */
+	public HgSettings withParallelParsing(boolean value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, value, parseExecutor, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value pool on which log output is parsed if {@link #withParallelParsing(boolean) parallel parsing} is enabled,
+	 *              e.g. a dedicated pool so that parsing doesn't compete with other tasks of {@link ForkJoinPool#commonPool()}
+	 */
+	public HgSettings withParseExecutor(@NotNull ForkJoinPool value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, value, logCacheSize, sharedObjectStore);
+	}
+
+	/**
+	 * @param value max number of time ranges for which log results are cached while repository head doesn't change
+	 *              (see {@link org.vcsreader.vcs.LogCache}), zero means log results are not cached
+	 */
+	public HgSettings withLogCacheSize(int value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, value, sharedObjectStore);
+	}
+
+	/**
+	 * @param value if not null, path to folder with hg repositories which are used as shared object stores by clones
+	 *              of all roots with this setting (one repository per remote URL), i.e. remote repository is pulled
+	 *              into the store before cloning and clone is created from the store with hardlinked revlogs,
+	 *              so that only new changesets are downloaded from remote and disk space is shared between clones
+	 */
+	public HgSettings withSharedObjectStore(@Nullable String value) {
+		return new HgSettings(hgPath, defaultFileCharset, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, parallelParsing, parseExecutor, logCacheSize, value);
 	}
 
 	@NotNull public String hgPath() {
@@ -53,6 +186,68 @@ public class HgSettings {
 		return failFast;
 	}
 
+	@NotNull public Executor asyncExecutor() {
+		return asyncExecutor;
+	}
+
+	public int maxConcurrentCommands() {
+		return maxConcurrentCommands;
+	}
+
+	@NotNull public Executor streamPumpExecutor() {
+		return streamPumpExecutor;
+	}
+
+	public long stdoutSpillThreshold() {
+		return stdoutSpillThreshold;
+	}
+
+	@NotNull public Duration commandTimeout() {
+		return commandTimeout;
+	}
+
+	@NotNull public Duration rootTimeout() {
+		return rootTimeout;
+	}
+
+	@NotNull public ProcessGovernor processGovernor() {
+		return processGovernor;
+	}
+
+	public boolean parallelParsing() {
+		return parallelParsing;
+	}
+
+	@NotNull public ForkJoinPool parseExecutor() {
+		return parseExecutor;
+	}
+
+	public int logCacheSize() {
+		return logCacheSize;
+	}
+
+	@Nullable public String sharedObjectStore() {
+		return sharedObjectStore;
+	}
+
+	/**
+	 * @return pool for parsing log output of VCS commands or null if output should be parsed sequentially
+	 */
+	@Nullable ForkJoinPool logParsePool() {
+		return parallelParsing ? parseExecutor : null;
+	}
+
+	/**
+	 * @return config with execution settings for command lines of VCS commands
+	 */
+	@NotNull public CommandLine.Config commandLineConfig() {
+		return CommandLine.Config.defaults
+				.asyncExecutor(streamPumpExecutor)
+				.stdoutSpillThreshold(stdoutSpillThreshold)
+				.timeout(commandTimeout)
+				.governor(processGovernor);
+	}
+
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
@@ -61,13 +256,35 @@ public class HgSettings {
 
 		return failFast == that.failFast &&
 				hgPath.equals(that.hgPath) &&
-				defaultFileCharset.equals(that.defaultFileCharset);
+				defaultFileCharset.equals(that.defaultFileCharset) &&
+				asyncExecutor.equals(that.asyncExecutor) &&
+				maxConcurrentCommands == that.maxConcurrentCommands &&
+				streamPumpExecutor.equals(that.streamPumpExecutor) &&
+				stdoutSpillThreshold == that.stdoutSpillThreshold &&
+				commandTimeout.equals(that.commandTimeout) &&
+				rootTimeout.equals(that.rootTimeout) &&
+				processGovernor.equals(that.processGovernor) &&
+				parallelParsing == that.parallelParsing &&
+				parseExecutor.equals(that.parseExecutor) &&
+				logCacheSize == that.logCacheSize &&
+				(sharedObjectStore != null ? sharedObjectStore.equals(that.sharedObjectStore) : that.sharedObjectStore == null);
 	}
 
 	@Override public int hashCode() {
 		int result = hgPath.hashCode();
 		result = 31 * result + defaultFileCharset.hashCode();
 		result = 31 * result + (failFast ? 1 : 0);
+		result = 31 * result + asyncExecutor.hashCode();
+		result = 31 * result + maxConcurrentCommands;
+		result = 31 * result + streamPumpExecutor.hashCode();
+		result = 31 * result + Long.hashCode(stdoutSpillThreshold);
+		result = 31 * result + commandTimeout.hashCode();
+		result = 31 * result + rootTimeout.hashCode();
+		result = 31 * result + processGovernor.hashCode();
+		result = 31 * result + (parallelParsing ? 1 : 0);
+		result = 31 * result + parseExecutor.hashCode();
+		result = 31 * result + logCacheSize;
+		result = 31 * result + (sharedObjectStore != null ? sharedObjectStore.hashCode() : 0);
 		return result;
 	}
 
@@ -76,6 +293,17 @@ public class HgSettings {
 				"hgPath='" + hgPath + '\'' +
 				", defaultFileCharset=" + defaultFileCharset +
 				", failFast=" + failFast +
+				", asyncExecutor=" + asyncExecutor +
+				", maxConcurrentCommands=" + maxConcurrentCommands +
+				", streamPumpExecutor=" + streamPumpExecutor +
+				", stdoutSpillThreshold=" + stdoutSpillThreshold +
+				", commandTimeout=" + commandTimeout +
+				", rootTimeout=" + rootTimeout +
+				", processGovernor=" + processGovernor +
+				", parallelParsing=" + parallelParsing +
+				", parseExecutor=" + parseExecutor +
+				", logCacheSize=" + logCacheSize +
+				", sharedObjectStore='" + sharedObjectStore + '\'' +
 				'}';
 	}
 }
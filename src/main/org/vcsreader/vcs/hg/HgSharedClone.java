@@ -0,0 +1,124 @@
+package org.vcsreader.vcs.hg;
+
+import org.vcsreader.CloneResult;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.vcs.VcsCommand;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.vcsreader.vcs.hg.HgUtil.containsHgRepo;
+import static org.vcsreader.vcs.hg.HgUtil.isSuccessful;
+import static org.vcsreader.vcs.hg.HgUtil.sha1Hex;
+
+/**
+ * Clones repository using local repository shared by several clones as a source of changesets
+ * (see {@link HgSettings#withSharedObjectStore(String)}).
+ * There is one shared repository per remote URL (in a sub-folder of the store named after hash of the URL)
+ * because hg can't pull unrelated repositories into the same repository without "--force",
+ * and clone of such repository from the store would have to copy revlogs instead of hardlinking them.
+ * Before cloning, remote repository is pulled into shared repository, which only downloads new changesets.
+ * The clone is then created from shared repository so that revlogs are hardlinked (on the same file system).
+ * Default path of the clone is remote repository, so that {@link HgVcsRoot#update()} pulls from it.
+ * <p>
+ * Note that "hg share" is not used because it requires share extension and shared clones
+ * would see changesets pulled into the store by other clones (e.g. from later updates).
+ */
+class HgSharedClone implements VcsCommand<CloneResult> {
+	private final String pathToHg;
+	private final String repoUrl;
+	private final String repoFolder;
+	private final String sharedObjectStore;
+	private final String sharedRepo;
+	private final CommandLine.Config config;
+	private final AtomicReference<CommandLine> currentCommandLine = new AtomicReference<>();
+	private volatile boolean cancelled;
+
+
+	public HgSharedClone(String pathToHg, String repoUrl, String repoFolder, String sharedObjectStore, CommandLine.Config config) {
+		this.pathToHg = pathToHg;
+		this.repoUrl = repoUrl;
+		this.repoFolder = repoFolder;
+		this.sharedObjectStore = sharedObjectStore;
+		this.sharedRepo = sharedRepoOf(sharedObjectStore, repoUrl);
+		this.config = config;
+	}
+
+	static String sharedRepoOf(String sharedObjectStore, String repoUrl) {
+		return new File(sharedObjectStore, sha1Hex(repoUrl)).getPath();
+	}
+
+	@Override public CloneResult execute() {
+		if (!containsHgRepo(sharedRepo)) {
+			CommandLine commandLine = run(new CommandLine(pathToHg, "init", sharedRepo));
+			if (!isSuccessful(commandLine)) return new CloneResult(commandLine.stderr());
+		}
+		CommandLine commandLine = run(new CommandLine(pathToHg, "pull", "-R", sharedRepo, repoUrl));
+		if (!isSuccessful(commandLine)) return new CloneResult(commandLine.stderr());
+
+		commandLine = run(HgClone.hgClone(pathToHg, sharedRepo, repoFolder));
+		if (!isSuccessful(commandLine)) return new CloneResult(commandLine.stderr());
+		try {
+			String hgrc = "[paths]\ndefault = " + repoUrl + "\n";
+			Files.write(new File(repoFolder, ".hg" + File.separator + "hgrc").toPath(), hgrc.getBytes(UTF_8));
+		} catch (IOException e) {
+			return new CloneResult(e);
+		}
+		return new CloneResult();
+	}
+
+	private CommandLine run(CommandLine commandLine) {
+		commandLine = commandLine.executionConfig(config);
+		currentCommandLine.set(commandLine);
+		if (cancelled) commandLine.kill();
+		try {
+			return commandLine.execute();
+		} finally {
+			currentCommandLine.set(null);
+		}
+	}
+
+	@Override public String describe() {
+		CommandLine commandLine = currentCommandLine.get();
+		return commandLine != null ? commandLine.describe() : "hg clone via " + sharedRepo + " " + repoUrl + " " + repoFolder;
+	}
+
+	@Override public boolean cancel() {
+		cancelled = true;
+		CommandLine commandLine = currentCommandLine.get();
+		return commandLine == null || commandLine.kill();
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		HgSharedClone that = (HgSharedClone) o;
+
+		if (pathToHg != null ? !pathToHg.equals(that.pathToHg) : that.pathToHg != null) return false;
+		if (repoUrl != null ? !repoUrl.equals(that.repoUrl) : that.repoUrl != null) return false;
+		if (repoFolder != null ? !repoFolder.equals(that.repoFolder) : that.repoFolder != null) return false;
+		return sharedObjectStore != null ? sharedObjectStore.equals(that.sharedObjectStore) : that.sharedObjectStore == null;
+	}
+
+	@Override public int hashCode() {
+		int result = pathToHg != null ? pathToHg.hashCode() : 0;
+		result = 31 * result + (repoUrl != null ? repoUrl.hashCode() : 0);
+		result = 31 * result + (repoFolder != null ? repoFolder.hashCode() : 0);
+		result = 31 * result + (sharedObjectStore != null ? sharedObjectStore.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "HgSharedClone{" +
+				"pathToHg='" + pathToHg + '\'' +
+				", repoUrl='" + repoUrl + '\'' +
+				", repoFolder='" + repoFolder + '\'' +
+				", sharedObjectStore='" + sharedObjectStore + '\'' +
+				'}';
+	}
+}
@@ -12,10 +12,10 @@ class HgUpdate implements VcsCommand<UpdateResult> {
 	private final String repoFolder;
 	private final CommandLine commandLine;
 
-	public HgUpdate(String hgPath, String repoFolder) {
+	public HgUpdate(String hgPath, String repoFolder, CommandLine.Config config) {
 		this.hgPath = hgPath;
 		this.repoFolder = repoFolder;
-		this.commandLine = hgUpdate(hgPath, repoFolder);
+		this.commandLine = hgUpdate(hgPath, repoFolder).executionConfig(config);
 	}
 
 	@Override public UpdateResult execute() {
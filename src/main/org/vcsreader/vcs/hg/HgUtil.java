@@ -1,8 +1,15 @@
 package org.vcsreader.vcs.hg;
 
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.lang.CommandLine;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 class HgUtil {
 	public static boolean isSuccessful(CommandLine commandLine) {
@@ -16,4 +23,42 @@ class HgUtil {
 		String[] children = file.list((dir, name) -> name.equals(".hg"));
 		return children != null && children.length > 0;
 	}
+
+	static String sha1Hex(String s) {
+		try {
+			byte[] bytes = MessageDigest.getInstance("SHA-1").digest(s.getBytes(UTF_8));
+			StringBuilder result = new StringBuilder(bytes.length * 2);
+			for (byte b : bytes) {
+				result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads size and modification time of changelog files in ".hg/store" without running hg
+	 * (changelog is append-only so any new commit changes its size),
+	 * so that it's cheap to check whether repository has changed (e.g. before requesting log).
+	 *
+	 * @return fingerprint of repository changelog, or null if it can't be read
+	 */
+	@Nullable public static String headFingerprint(String repoFolder) {
+		try {
+			File hgDir = new File(repoFolder, ".hg");
+			File sharedPath = new File(hgDir, "sharedpath");
+			if (sharedPath.isFile()) {
+				// repository created with "hg share" uses store of the source repository
+				hgDir = new File(new String(Files.readAllBytes(sharedPath.toPath()), UTF_8).trim());
+			}
+			File changelogIndex = new File(hgDir, "store/00changelog.i");
+			if (!changelogIndex.isFile()) return null;
+			File changelogData = new File(hgDir, "store/00changelog.d");
+			return changelogIndex.length() + ":" + changelogIndex.lastModified() + ":" +
+					changelogData.length() + ":" + changelogData.lastModified();
+		} catch (IOException e) {
+			return null;
+		}
+	}
 }
@@ -5,18 +5,30 @@ import org.jetbrains.annotations.Nullable;
 import org.vcsreader.CloneResult;
 import org.vcsreader.LogFileContentResult;
 import org.vcsreader.LogResult;
+import org.vcsreader.LogVisitor;
 import org.vcsreader.UpdateResult;
+import org.vcsreader.VcsCommit;
 import org.vcsreader.VcsRoot;
+import org.vcsreader.lang.CommandLine;
 import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.BatchedLogRevisions;
+import org.vcsreader.vcs.LogCache;
+import org.vcsreader.vcs.RunningCommands;
 import org.vcsreader.vcs.VcsCommand;
 import org.vcsreader.vcs.VcsCommand.ExceptionWrapper;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
 public class HgVcsRoot implements VcsRoot, VcsCommand.Observer {
 	@NotNull private final String repoFolder;
 	@Nullable private final String repoUrl;
 	@NotNull private final HgSettings settings;
 	private final VcsCommand.Listener listener;
-	private volatile VcsCommand lastCommand;
+	private final RunningCommands runningCommands;
+	private final CommandLine.Config commandLineConfig;
+	@Nullable private final LogCache logCache;
 
 
 	public HgVcsRoot(@NotNull String repoFolder) {
@@ -24,7 +36,7 @@ public class HgVcsRoot implements VcsRoot, VcsCommand.Observer {
 	}
 
 	public HgVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl) {
-		this(repoFolder, repoUrl, HgSettings.defaults(), VcsCommand.Listener.none);
+		this(repoFolder, repoUrl, HgSettings.defaults());
 	}
 
 	/**
@@ -34,45 +46,108 @@ public class HgVcsRoot implements VcsRoot, VcsCommand.Observer {
 	 * @param settings   settings which will be used by VCS commands executed on this root
 	 */
 	public HgVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl, @NotNull HgSettings settings) {
-		this(repoFolder, repoUrl, settings, VcsCommand.Listener.none);
+		this(repoFolder, repoUrl, settings, VcsCommand.Listener.none,
+				settings.logCacheSize() > 0 ? new LogCache(settings.logCacheSize()) : null);
 	}
 
 	private HgVcsRoot(@NotNull String repoFolder, @Nullable String repoUrl,
-	                  @NotNull HgSettings settings, VcsCommand.Listener listener) {
+	                  @NotNull HgSettings settings, VcsCommand.Listener listener, @Nullable LogCache logCache) {
 		this.repoFolder = repoFolder;
 		this.repoUrl = repoUrl;
 		this.settings = settings;
 		this.listener = listener;
+		this.runningCommands = new RunningCommands(settings.maxConcurrentCommands(), settings.rootTimeout());
+		this.commandLineConfig = settings.commandLineConfig();
+		this.logCache = logCache;
 	}
 
 	@Override public HgVcsRoot withListener(VcsCommand.Listener listener) {
-		return new HgVcsRoot(repoFolder, repoUrl, settings, listener);
+		return new HgVcsRoot(repoFolder, repoUrl, settings, listener, logCache);
 	}
 
 	@Override public CloneResult cloneIt() {
-		return execute(new HgClone(settings.hgPath(), repoUrl, repoFolder), CloneResult.adapter);
+		return execute(hgClone(), CloneResult.adapter);
+	}
+
+	@Override public CompletableFuture<CloneResult> cloneAsync() {
+		return executeAsync(hgClone(), CloneResult.adapter);
+	}
+
+	private VcsCommand<CloneResult> hgClone() {
+		if (repoUrl != null && settings.sharedObjectStore() != null) {
+			return new HgSharedClone(settings.hgPath(), repoUrl, repoFolder, settings.sharedObjectStore(), commandLineConfig);
+		}
+		return new HgClone(settings.hgPath(), repoUrl, repoFolder, commandLineConfig);
 	}
 
 	@Override public UpdateResult update() {
-		return execute(new HgUpdate(settings.hgPath(), repoFolder), UpdateResult.adapter);
+		return execute(new HgUpdate(settings.hgPath(), repoFolder, commandLineConfig), UpdateResult.adapter);
+	}
+
+	@Override public CompletableFuture<UpdateResult> updateAsync() {
+		return executeAsync(new HgUpdate(settings.hgPath(), repoFolder, commandLineConfig), UpdateResult.adapter);
 	}
 
 	@Override public LogResult log(TimeRange timeRange) {
-		return execute(new HgLog(settings.hgPath(), repoFolder, timeRange), LogResult.adapter);
+		return execute(hgLog(timeRange), LogResult.adapter);
+	}
+
+	@Override public CompletableFuture<LogResult> logAsync(TimeRange timeRange) {
+		return executeAsync(hgLog(timeRange), LogResult.adapter);
+	}
+
+	/**
+	 * If log cache is enabled (see {@link HgSettings#withLogCacheSize(int)}), size and modification time of hg changelog
+	 * are checked before each log request and cached result is returned if they haven't changed since previous log.
+	 */
+	private VcsCommand<LogResult> hgLog(TimeRange timeRange) {
+		HgLog hgLog = new HgLog(settings.hgPath(), repoFolder, timeRange, settings.logParsePool(), commandLineConfig);
+		if (logCache == null) return hgLog;
+		return logCache.cached(timeRange, () -> HgUtil.headFingerprint(repoFolder), hgLog);
+	}
+
+	/**
+	 * Requests commits with the specified revisions using "present()" revset (see {@link VcsRoot#logRevisions(Collection)}).
+	 */
+	@Override public LogResult logRevisions(Collection<String> revisions) {
+		if (revisions.isEmpty()) return new LogResult();
+		BatchedLogRevisions logRevisions = new BatchedLogRevisions(revisions, BatchedLogRevisions.defaultBatchSize,
+				batch -> HgLog.logRevisions(settings.hgPath(), repoFolder, batch, settings.logParsePool(), commandLineConfig),
+				message -> null
+		);
+		return execute(logRevisions, LogResult.adapter);
+	}
+
+	@Override public Stream<VcsCommit> logStream(TimeRange timeRange) {
+		return executeStream(new HgLogStream(settings.hgPath(), repoFolder, timeRange, commandLineConfig));
+	}
+
+	@Override public LogResult log(TimeRange timeRange, LogVisitor visitor) {
+		return execute(new HgLogVisit(settings.hgPath(), repoFolder, timeRange, visitor, commandLineConfig), LogResult.adapter);
 	}
 
 	@Override public LogFileContentResult logFileContent(String filePath, String revision) {
-		HgLogFileContent logFileContent = new HgLogFileContent(settings.hgPath(), repoFolder, filePath, revision, settings.defaultFileCharset());
-		return execute(logFileContent, LogFileContentResult.adapter);
+		return execute(hgLogFileContent(filePath, revision), LogFileContentResult.adapter);
+	}
+
+	@Override public CompletableFuture<LogFileContentResult> logFileContentAsync(String filePath, String revision) {
+		return executeAsync(hgLogFileContent(filePath, revision), LogFileContentResult.adapter);
+	}
+
+	private HgLogFileContent hgLogFileContent(String filePath, String revision) {
+		return new HgLogFileContent(settings.hgPath(), repoFolder, filePath, revision, settings.defaultFileCharset(), commandLineConfig);
 	}
 
 	private <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
-		try {
-			lastCommand = vcsCommand;
-			return VcsCommand.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
-		} finally {
-			lastCommand = null;
-		}
+		return runningCommands.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
+	}
+
+	private <T> CompletableFuture<T> executeAsync(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
+		return VcsCommand.supplyAsync(() -> execute(vcsCommand, exceptionWrapper), vcsCommand::cancel, settings.asyncExecutor());
+	}
+
+	private Stream<VcsCommit> executeStream(VcsCommand<Stream<VcsCommit>> vcsCommand) {
+		return runningCommands.executeStream(vcsCommand, listener);
 	}
 
 	@Override @NotNull public String repoFolder() {
@@ -84,8 +159,7 @@ public class HgVcsRoot implements VcsRoot, VcsCommand.Observer {
 	}
 
 	@Override public boolean cancelLastCommand() {
-		VcsCommand command = lastCommand;
-		return command == null || command.cancel();
+		return runningCommands.cancelAll();
 	}
 
 	@SuppressWarnings("SimplifiableIfStatement")
@@ -3,6 +3,7 @@ package org.vcsreader.vcs.svn;
 import org.jetbrains.annotations.NotNull;
 import org.vcsreader.VcsCommit;
 import org.vcsreader.lang.DateTimeUtil;
+import org.vcsreader.lang.JfrEvents;
 import org.vcsreader.vcs.Change;
 import org.vcsreader.vcs.Commit;
 import org.xml.sax.Attributes;
@@ -26,6 +27,7 @@ import static org.vcsreader.VcsChange.noRevision;
 
 class SvnCommitParser {
 	static List<VcsCommit> parseCommits(String xml) {
+		JfrEvents.Event event = JfrEvents.parse.begin();
 		try {
 			CommitReadingHandler commitReadingHandler = new CommitReadingHandler();
 
@@ -34,6 +36,7 @@ class SvnCommitParser {
 			xmlReader.setContentHandler(commitReadingHandler);
 			xmlReader.parse(new InputSource(new StringReader(xml)));
 
+			event.commit("SvnCommitParser", commitReadingHandler.commits.size());
 			return commitReadingHandler.commits;
 		} catch (SAXException e) {
 			throw new RuntimeException("Failed to parse xml: " + xml, e);
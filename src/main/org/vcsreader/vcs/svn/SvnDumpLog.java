@@ -0,0 +1,649 @@
+package org.vcsreader.vcs.svn;
+
+import org.jetbrains.annotations.Nullable;
+import org.vcsreader.ContentVisitor;
+import org.vcsreader.LogResult;
+import org.vcsreader.VcsChange;
+import org.vcsreader.VcsCommit;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.DateTimeUtil;
+import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.Change;
+import org.vcsreader.vcs.Commit;
+import org.vcsreader.vcs.VcsCommand;
+import org.vcsreader.vcs.VcsError;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.vcsreader.VcsChange.Type.*;
+import static org.vcsreader.VcsChange.noFilePath;
+import static org.vcsreader.VcsChange.noRevision;
+import static org.vcsreader.vcs.svn.SvnLog.svnDateRange;
+import static org.vcsreader.vcs.svn.SvnLog.transformToSubPathCommits;
+import static org.vcsreader.vcs.svn.SvnUtil.isSuccessful;
+import static org.vcsreader.vcs.svn.SvnUtil.newExternalCommand;
+
+/**
+ * Reads history of local svn repository from "svnadmin dump" stream instead of "svn log"
+ * (see {@link SvnSettings#withDumpReader(boolean)} and {@link SvnVcsRoot#logWithContents}).
+ * See http://svn.apache.org/repos/asf/subversion/trunk/notes/dump-load-format.txt
+ * <p>
+ * Commits are the same as with {@link SvnLog} without merge history, i.e. only revisions which change
+ * repository URL sub-path are logged and changes are transformed to be relative to the sub-path.
+ * Unlike "svn log" history of the sub-path before it was copied (e.g. trunk history of a branch) is not logged.
+ * The dump is incremental and has full texts of files (not "--deltas"), so that file contents can be read in the same pass.
+ * Because delete records in the dump don't have node kind, kinds of paths which were added before time range
+ * (i.e. are not in the dump) are requested with "svn info" for revisions which delete such paths.
+ */
+class SvnDumpLog implements VcsCommand<LogResult> {
+	private static final int bufferSize = 64 * 1024;
+
+	private final String svnadminPath;
+	private final String svnPath;
+	private final String repoUrl;
+	private final TimeRange timeRange;
+	@Nullable private final ContentVisitor visitor;
+	@Nullable private final File repoFolder;
+	private final String subPath;
+	private final CommandLine commandLine;
+	private final CommandLine.Config config;
+	private final AtomicReference<CommandLine> infoCommandLine = new AtomicReference<>();
+
+
+	/**
+	 * @param visitor visitor for commits and file contents, if null commits are returned in {@link LogResult}
+	 *                and file contents are not read
+	 */
+	public SvnDumpLog(String svnadminPath, String svnPath, String repoUrl, TimeRange timeRange,
+	                  @Nullable ContentVisitor visitor, CommandLine.Config config) {
+		this.svnadminPath = svnadminPath;
+		this.svnPath = svnPath;
+		this.repoUrl = repoUrl;
+		this.timeRange = timeRange;
+		this.visitor = visitor;
+		File urlFolder = localFolderOf(repoUrl);
+		this.repoFolder = urlFolder == null ? null : repositoryFolderOf(urlFolder);
+		this.subPath = repoFolder == null ? "" : subPathOf(urlFolder, repoFolder);
+		String repoPath = repoFolder == null ? repoUrl : repoFolder.getAbsolutePath();
+		this.commandLine = svnadminDump(svnadminPath, repoPath, timeRange).executionConfig(config);
+		this.config = config;
+	}
+
+	@Override public LogResult execute() {
+		if (repoFolder == null) {
+			throw new VcsError("Cannot read dump of svn repository because it's not local: '" + repoUrl + "'.");
+		}
+
+		commandLine.start();
+		boolean readAllOutput = false;
+		List<VcsCommit> commits;
+		try {
+			InputStream inputStream = new BufferedInputStream(commandLine.stdoutInputStream(), bufferSize);
+			commits = new DumpReader(inputStream, subPath, timeRange, visitor, this::foldersAmong).read();
+			readAllOutput = true;
+		} catch (IOException e) {
+			return new LogResult(new VcsError("Failed to read output of " + commandLine.describe() + ": " + e.getMessage()));
+		} finally {
+			if (!readAllOutput) commandLine.kill();
+			commandLine.finish();
+		}
+
+		if (isSuccessful(commandLine)) {
+			return new LogResult(commits);
+		} else {
+			return new LogResult(new VcsError(commandLine.stderr()));
+		}
+	}
+
+	static CommandLine svnadminDump(String svnadminPath, String repoPath, TimeRange timeRange) {
+		// "--quiet" because progress is written to stderr which would be reported as error
+		return new CommandLine(
+				svnadminPath, "dump", repoPath,
+				"--incremental", "--quiet",
+				"-r", svnDateRange(timeRange, false)
+		);
+	}
+
+	/**
+	 * @return paths which are folders in the specified revision (paths which don't exist in the revision are ignored)
+	 */
+	private Set<String> foldersAmong(List<String> paths, String revision) {
+		String repoRootPath = repoFolder.getAbsoluteFile().toURI().getPath();
+		List<String> args = new ArrayList<>(asList("info", "--xml"));
+		for (String path : paths) {
+			args.add(fileUrlOf(repoRootPath + path) + "@" + revision);
+		}
+		CommandLine info = newExternalCommand(svnPath, args.toArray(new String[0]))
+				.outputCharset(UTF_8).executionConfig(config).subCommandOf(commandLine);
+		infoCommandLine.set(info);
+		try {
+			return info.execute(it -> {
+				// exit code is not checked because svn info fails if one of the paths doesn't exist
+				Set<String> folders = new HashSet<>();
+				for (String folderPath : parseFolderPaths(it.stdout())) {
+					if (folderPath.startsWith(repoRootPath)) folders.add(folderPath.substring(repoRootPath.length()));
+				}
+				return folders;
+			});
+		} finally {
+			infoCommandLine.set(null);
+		}
+	}
+
+	private static String fileUrlOf(String path) {
+		try {
+			return new URI("file", "", path, null).toASCIIString();
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return decoded paths of URLs of entries with "dir" kind in output of "svn info --xml"
+	 */
+	static List<String> parseFolderPaths(String xml) {
+		List<String> result = new ArrayList<>();
+		if (xml.trim().isEmpty()) return result;
+		try {
+			XMLReader xmlReader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+			xmlReader.setContentHandler(new DefaultHandler() {
+				private boolean isFolder;
+				private StringBuilder url;
+
+				@Override public void startElement(String uri, String localName, String name, Attributes attributes) {
+					if (name.equals("entry")) isFolder = "dir".equals(attributes.getValue("kind"));
+					else if (name.equals("url") && isFolder) url = new StringBuilder();
+				}
+
+				@Override public void characters(char[] chars, int start, int length) {
+					if (url != null) url.append(chars, start, length);
+				}
+
+				@Override public void endElement(String uri, String localName, String name) {
+					if (name.equals("url") && url != null) {
+						result.add(URI.create(url.toString().trim()).getPath());
+						url = null;
+					}
+				}
+			});
+			xmlReader.parse(new InputSource(new StringReader(xml)));
+			return result;
+		} catch (SAXException | IllegalArgumentException e) {
+			throw new VcsError("Failed to parse output of svn info: " + xml);
+		} catch (ParserConfigurationException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return local folder of "file://" URL or null if URL is not local
+	 */
+	@Nullable static File localFolderOf(String repoUrl) {
+		if (!repoUrl.startsWith("file:")) return null;
+		try {
+			return new File(new URI(repoUrl));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return folder of svn repository which contains the specified folder (e.g. if URL points to "trunk")
+	 */
+	@Nullable static File repositoryFolderOf(File folder) {
+		for (File file = folder.getAbsoluteFile(); file != null; file = file.getParentFile()) {
+			if (new File(file, "format").isFile() && new File(file, "db").isDirectory()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return youngest revision of local repository (which can be used to check if repository has new commits)
+	 */
+	@Nullable static String youngestRevision(@Nullable File repoFolder) {
+		if (repoFolder == null) return null;
+		try {
+			String current = new String(Files.readAllBytes(new File(repoFolder, "db/current").toPath()), UTF_8);
+			return current.split("[ \n]")[0];
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static String subPathOf(File urlFolder, File repoFolder) {
+		String subPath = repoFolder.toURI().relativize(urlFolder.getAbsoluteFile().toURI()).getPath();
+		if (!subPath.isEmpty() && !subPath.endsWith("/")) subPath += "/";
+		return subPath;
+	}
+
+	@Nullable File repoFolder() {
+		return repoFolder;
+	}
+
+	@Override public String describe() {
+		return commandLine.describe();
+	}
+
+	@Override public boolean cancel() {
+		boolean notRunning = commandLine.kill();
+		CommandLine subCommand = infoCommandLine.get();
+		if (subCommand != null) {
+			notRunning &= subCommand.kill();
+		}
+		return notRunning;
+	}
+
+	@SuppressWarnings("SimplifiableIfStatement")
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		SvnDumpLog that = (SvnDumpLog) o;
+
+		if (svnadminPath != null ? !svnadminPath.equals(that.svnadminPath) : that.svnadminPath != null) return false;
+		if (svnPath != null ? !svnPath.equals(that.svnPath) : that.svnPath != null) return false;
+		if (repoUrl != null ? !repoUrl.equals(that.repoUrl) : that.repoUrl != null) return false;
+		if (timeRange != null ? !timeRange.equals(that.timeRange) : that.timeRange != null) return false;
+		return visitor != null ? visitor.equals(that.visitor) : that.visitor == null;
+	}
+
+	@Override public int hashCode() {
+		int result = svnadminPath != null ? svnadminPath.hashCode() : 0;
+		result = 31 * result + (svnPath != null ? svnPath.hashCode() : 0);
+		result = 31 * result + (repoUrl != null ? repoUrl.hashCode() : 0);
+		result = 31 * result + (timeRange != null ? timeRange.hashCode() : 0);
+		result = 31 * result + (visitor != null ? visitor.hashCode() : 0);
+		return result;
+	}
+
+	@Override public String toString() {
+		return "SvnDumpLog{" +
+				"svnadminPath='" + svnadminPath + '\'' +
+				", svnPath='" + svnPath + '\'' +
+				", repoUrl='" + repoUrl + '\'' +
+				", timeRange=" + timeRange +
+				'}';
+	}
+
+
+	/**
+	 * Finds kinds of paths which are deleted in the dump but were added before it.
+	 */
+	interface FolderFinder {
+		/**
+		 * @return paths which are folders in the specified revision
+		 */
+		Set<String> foldersAmong(List<String> paths, String revision);
+	}
+
+
+	/**
+	 * Reads revision and node records of dump stream and converts them to commits in the same way as {@link SvnCommitParser}.
+	 * Note that delete records don't have node kind, so kinds of paths are tracked while reading the dump
+	 * and kinds of paths which were added before the dump are requested from {@link FolderFinder}.
+	 */
+	static class DumpReader {
+		private final InputStream inputStream;
+		private final String subPath;
+		private final TimeRange timeRange;
+		@Nullable private final ContentVisitor visitor;
+		private final FolderFinder folderFinder;
+		private final List<VcsCommit> commits = new ArrayList<>();
+		private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+		private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+		private final Set<String> folders = new HashSet<>();
+		private final Set<String> files = new HashSet<>();
+		private final Set<String> visitedContents = new HashSet<>();
+
+		@Nullable private String revision;
+		private String author;
+		private Instant dateTime;
+		private String message;
+		private boolean changesSubPath;
+		private final List<Change> changes = new ArrayList<>();
+		private final Map<String, String> contentIds = new HashMap<>();
+		private final Set<String> movedPaths = new HashSet<>();
+		private final List<String> deletedPathsOfUnknownKind = new ArrayList<>();
+
+
+		/**
+		 * @param subPath path of repository URL relative to repository root (empty or ending with "/")
+		 * @param visitor visitor for commits and file contents, if null commits are returned by {@link #read()}
+		 */
+		DumpReader(InputStream inputStream, String subPath, TimeRange timeRange,
+		           @Nullable ContentVisitor visitor, FolderFinder folderFinder) {
+			this.inputStream = inputStream;
+			this.subPath = subPath;
+			this.timeRange = timeRange;
+			this.visitor = visitor;
+			this.folderFinder = folderFinder;
+		}
+
+		List<VcsCommit> read() throws IOException {
+			Map<String, String> headers;
+			while ((headers = readHeaders()) != null) {
+				if (headers.containsKey("Revision-number")) {
+					finishRevision();
+					readRevision(headers);
+				} else if (headers.containsKey("Node-path")) {
+					readNode(headers);
+				} else {
+					skip(contentLength(headers, "Content-length"));
+				}
+			}
+			finishRevision();
+			return commits;
+		}
+
+		private void readRevision(Map<String, String> headers) throws IOException {
+			revision = headers.get("Revision-number");
+			Map<String, String> properties = readProperties(contentLength(headers, "Prop-content-length"));
+			skip(contentLength(headers, "Content-length") - contentLength(headers, "Prop-content-length"));
+
+			author = properties.getOrDefault("svn:author", "");
+			message = properties.getOrDefault("svn:log", "");
+			String date = properties.get("svn:date");
+			dateTime = date == null ? Instant.EPOCH : dateTimeFormatter.parse(date, DateTimeUtil::asInstant);
+			// like "svn log" for repository root, log revisions without changes (e.g. with only revision properties)
+			changesSubPath = subPath.isEmpty();
+		}
+
+		private void readNode(Map<String, String> headers) throws IOException {
+			String path = trimPath(headers.get("Node-path"));
+			String action = headers.get("Node-action");
+			String copyFromPath = trimPath(headers.get("Node-copyfrom-path"));
+			String copyFromRevision = headers.get("Node-copyfrom-rev");
+			boolean isCopy = copyFromPath != null;
+			boolean hasText = headers.containsKey("Text-content-length");
+			boolean underSubPath = isUnderSubPath(path);
+			if (underSubPath || (path + "/").equals(subPath)) changesSubPath = true;
+
+			String kind = headers.get("Node-kind");
+			if (kind == null) kind = folders.contains(path) ? "dir" : files.contains(path) ? "file" : null;
+			if (kind == null && underSubPath && revision != null) {
+				// delete of path added before the dump, its kind is found when revision is finished
+				deletedPathsOfUnknownKind.add(path);
+			}
+			updateKnownPaths(path, kind, action, copyFromPath);
+
+			skip(contentLength(headers, "Prop-content-length"));
+			int textLength = contentLength(headers, "Text-content-length");
+			boolean readText = hasText && visitor != null && underSubPath && isInTimeRange() && "file".equals(kind);
+			if (readText) {
+				byte[] text = readBytes(textLength);
+				String contentId = headers.get("Text-content-sha1");
+				if (contentId == null) contentId = sha1(text);
+				if (visitedContents.add(contentId)) {
+					visitor.visitContent(contentId, text);
+				}
+				contentIds.put(path, contentId);
+			} else {
+				skip(textLength);
+				if (isCopy && !hasText && headers.containsKey("Text-copy-source-sha1")) {
+					contentIds.put(path, headers.get("Text-copy-source-sha1"));
+				}
+			}
+			int otherLength = contentLength(headers, "Content-length") - contentLength(headers, "Prop-content-length") - textLength;
+			if (otherLength > 0) skip(otherLength);
+
+			if (!"file".equals(kind) || revision == null) return;
+			String revisionBefore = previous(revision);
+			if (isCopy && (action.equals("add") || action.equals("replace"))) {
+				changes.add(new Change(Moved, path, copyFromPath, revision, copyFromRevision));
+				movedPaths.add(copyFromPath);
+			} else if (action.equals("add")) {
+				changes.add(new Change(Added, path, revision));
+			} else if (action.equals("delete")) {
+				changes.add(new Change(Deleted, noFilePath, path, revision, revisionBefore));
+			} else if (action.equals("replace")) {
+				changes.add(new Change(Deleted, noFilePath, path, revision, revisionBefore));
+				changes.add(new Change(Added, path, revision));
+			} else if (hasText) {
+				// there can also be svn properties modifications
+				changes.add(new Change(Modified, path, path, revision, revisionBefore));
+			}
+		}
+
+		private void updateKnownPaths(String path, @Nullable String kind, String action, @Nullable String copyFromPath) {
+			if (action.equals("delete") || action.equals("replace")) {
+				removePath(folders, path);
+				removePath(files, path);
+			}
+			if (action.equals("delete") || kind == null) return;
+			if (kind.equals("file")) {
+				files.add(path);
+			} else if (kind.equals("dir")) {
+				folders.add(path);
+				if (copyFromPath != null) {
+					copyPaths(folders, copyFromPath, path);
+					copyPaths(files, copyFromPath, path);
+				}
+			}
+		}
+
+		private void removePath(Set<String> paths, String path) {
+			paths.remove(path);
+			paths.removeIf(it -> it.startsWith(path + "/"));
+		}
+
+		private void copyPaths(Set<String> paths, String fromFolder, String toFolder) {
+			List<String> copiedPaths = new ArrayList<>();
+			for (String path : paths) {
+				if (path.startsWith(fromFolder + "/")) {
+					copiedPaths.add(toFolder + path.substring(fromFolder.length()));
+				}
+			}
+			paths.addAll(copiedPaths);
+		}
+
+		private void finishRevision() {
+			if (revision == null || revision.equals("0")) return;
+			boolean include = changesSubPath && isInTimeRange();
+			if (include) {
+				addDeletedFilesOfUnknownKind();
+				changes.removeIf(it -> it.getType() == Deleted && movedPaths.contains(it.getFilePathBefore()));
+				changes.sort((change1, change2) -> compareSvnPaths(pathOf(change1), pathOf(change2)));
+				VcsCommit commit = new Commit(revision, previous(revision), dateTime, author, message, new ArrayList<>(changes));
+				commit = transformToSubPathCommits(subPath, new ArrayList<>(singletonList(commit))).get(0);
+
+				if (visitor == null) {
+					commits.add(commit);
+				} else {
+					Map<String, String> commitContentIds = new HashMap<>();
+					for (Map.Entry<String, String> entry : contentIds.entrySet()) {
+						if (isUnderSubPath(entry.getKey())) {
+							commitContentIds.put(entry.getKey().substring(subPath.length()), entry.getValue());
+						}
+					}
+					visitor.visitCommit(commit, commitContentIds);
+				}
+			}
+			revision = null;
+			changes.clear();
+			contentIds.clear();
+			movedPaths.clear();
+			deletedPathsOfUnknownKind.clear();
+		}
+
+		private void addDeletedFilesOfUnknownKind() {
+			if (deletedPathsOfUnknownKind.isEmpty()) return;
+			String revisionBefore = previous(revision);
+			Set<String> deletedFolders = folderFinder.foldersAmong(deletedPathsOfUnknownKind, revisionBefore);
+			for (String path : deletedPathsOfUnknownKind) {
+				if (deletedFolders.contains(path)) continue;
+				changes.add(new Change(Deleted, noFilePath, path, revision, revisionBefore));
+			}
+		}
+
+		/**
+		 * "svnadmin dump" finds the most recent revision as of the start of time range (see {@link SvnLog#deleteCommitsBefore})
+		 */
+		private boolean isInTimeRange() {
+			return timeRange.from() == Instant.MIN || !dateTime.isBefore(timeRange.from());
+		}
+
+		private boolean isUnderSubPath(String path) {
+			return path.startsWith(subPath);
+		}
+
+		private Map<String, String> readProperties(int length) throws IOException {
+			Map<String, String> properties = new HashMap<>();
+			if (length == 0) return properties;
+			byte[] bytes = readBytes(length);
+			int offset = 0;
+			while (offset < bytes.length) {
+				int lineEnd = indexOf(bytes, '\n', offset);
+				String line = new String(bytes, offset, lineEnd - offset, UTF_8);
+				offset = lineEnd + 1;
+				if (line.equals("PROPS-END")) break;
+				if (!line.startsWith("K ")) continue;
+
+				int keyLength = Integer.parseInt(line.substring(2));
+				String key = new String(bytes, offset, keyLength, UTF_8);
+				offset += keyLength + 1;
+				lineEnd = indexOf(bytes, '\n', offset);
+				int valueLength = Integer.parseInt(new String(bytes, offset + 2, lineEnd - offset - 2, UTF_8));
+				offset = lineEnd + 1;
+				properties.put(key, new String(bytes, offset, valueLength, UTF_8));
+				offset += valueLength + 1;
+			}
+			return properties;
+		}
+
+		@Nullable private Map<String, String> readHeaders() throws IOException {
+			String line;
+			do {
+				line = readLine();
+				if (line == null) return null;
+			} while (line.isEmpty());
+
+			Map<String, String> headers = new HashMap<>();
+			while (line != null && !line.isEmpty()) {
+				int separator = line.indexOf(": ");
+				if (separator != -1) {
+					headers.put(line.substring(0, separator), line.substring(separator + 2));
+				}
+				line = readLine();
+			}
+			return headers;
+		}
+
+		@Nullable private String readLine() throws IOException {
+			lineBuffer.reset();
+			int b;
+			while ((b = inputStream.read()) != -1 && b != '\n') {
+				lineBuffer.write(b);
+			}
+			if (b == -1 && lineBuffer.size() == 0) return null;
+			return new String(lineBuffer.toByteArray(), UTF_8);
+		}
+
+		private byte[] readBytes(int length) throws IOException {
+			byte[] bytes = new byte[length];
+			int offset = 0;
+			while (offset < length) {
+				int read = inputStream.read(bytes, offset, length - offset);
+				if (read == -1) throw new EOFException("Unexpected end of svnadmin dump output");
+				offset += read;
+			}
+			return bytes;
+		}
+
+		private void skip(long length) throws IOException {
+			while (length > 0) {
+				long skipped = inputStream.skip(length);
+				if (skipped <= 0) {
+					if (inputStream.read() == -1) throw new EOFException("Unexpected end of svnadmin dump output");
+					skipped = 1;
+				}
+				length -= skipped;
+			}
+		}
+	}
+
+	private static int contentLength(Map<String, String> headers, String name) {
+		String value = headers.get(name);
+		return value == null ? 0 : Integer.parseInt(value);
+	}
+
+	private static int indexOf(byte[] bytes, char c, int from) {
+		for (int i = from; i < bytes.length; i++) {
+			if (bytes[i] == c) return i;
+		}
+		return bytes.length;
+	}
+
+	@Nullable private static String trimPath(@Nullable String path) {
+		if (path == null) return null;
+		return path.startsWith("/") ? path.substring(1) : path;
+	}
+
+	private static String pathOf(VcsChange change) {
+		return change.getType() == Deleted ? change.getFilePathBefore() : change.getFilePath();
+	}
+
+	/**
+	 * Compares paths in the same order as changed paths in "svn log" output, i.e. by path components.
+	 */
+	static int compareSvnPaths(String path1, String path2) {
+		int length = Math.min(path1.length(), path2.length());
+		for (int i = 0; i < length; i++) {
+			char c1 = path1.charAt(i);
+			char c2 = path2.charAt(i);
+			if (c1 == c2) continue;
+			if (c1 == '/') return -1;
+			if (c2 == '/') return 1;
+			return c1 < c2 ? -1 : 1;
+		}
+		return Integer.compare(path1.length(), path2.length());
+	}
+
+	private static String previous(String revision) {
+		int i = Integer.parseInt(revision);
+		return i == 1 ? noRevision : String.valueOf(i - 1);
+	}
+
+	private static String sha1(byte[] bytes) {
+		try {
+			StringBuilder result = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes)) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
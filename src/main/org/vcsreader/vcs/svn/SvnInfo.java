@@ -15,10 +15,10 @@ class SvnInfo implements VcsCommand<SvnInfo.Result> {
 	private final String repoUrl;
 	private final CommandLine commandLine;
 
-	public SvnInfo(String svnPath, String repoUrl) {
+	public SvnInfo(String svnPath, String repoUrl, CommandLine.Config config) {
 		this.svnPath = svnPath;
 		this.repoUrl = repoUrl;
-		this.commandLine = svnInfo(svnPath, repoUrl);
+		this.commandLine = svnInfo(svnPath, repoUrl).executionConfig(config);
 	}
 
 	@Override public SvnInfo.Result execute() {
@@ -26,11 +26,11 @@ class SvnInfo implements VcsCommand<SvnInfo.Result> {
 
 		if (!isSuccessful(commandLine)) return new Result(new VcsError(commandLine.stdout()));
 
-		String repoRoot = parse(commandLine.stdout());
+		String repoRoot = parse(commandLine.stdout(), "Repository Root:");
 		if (repoRoot == null) {
 			return new Result(new VcsError("Didn't find svn root in output for " + repoUrl));
 		} else {
-			return new Result(repoRoot);
+			return new Result(repoRoot, parse(commandLine.stdout(), "Last Changed Rev:"));
 		}
 	}
 
@@ -38,11 +38,11 @@ class SvnInfo implements VcsCommand<SvnInfo.Result> {
 		return newExternalCommand(svnPath, "info", repoUrl);
 	}
 
-	@Nullable private static String parse(String stdout) {
+	@Nullable private static String parse(String stdout, String label) {
 		String[] lines = stdout.split("\n");
 		for (String line : lines) {
-			if (line.contains("Repository Root:")) {
-				return line.replace("Repository Root:", "").trim();
+			if (line.contains(label)) {
+				return line.replace(label, "").trim();
 			}
 		}
 		return null;
@@ -87,19 +87,28 @@ class SvnInfo implements VcsCommand<SvnInfo.Result> {
 		public static final String unknownRoot = "";
 
 		public final String repoRoot;
+		/**
+		 * Last revision in which repository URL (including its sub-folders) was changed.
+		 */
+		@Nullable public final String lastChangedRevision;
 		public final Exception exception;
 
 
 		public Result(String repoRoot) {
-			this(repoRoot, null);
+			this(repoRoot, null, null);
+		}
+
+		public Result(String repoRoot, @Nullable String lastChangedRevision) {
+			this(repoRoot, lastChangedRevision, null);
 		}
 
 		public Result(Exception exception) {
-			this(unknownRoot, exception);
+			this(unknownRoot, null, exception);
 		}
 
-		private Result(String repoRoot, Exception exception) {
+		private Result(String repoRoot, String lastChangedRevision, Exception exception) {
 			this.repoRoot = repoRoot;
+			this.lastChangedRevision = lastChangedRevision;
 			this.exception = exception;
 		}
 
@@ -1,5 +1,6 @@
 package org.vcsreader.vcs.svn;
 
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.LogResult;
 import org.vcsreader.VcsChange;
 import org.vcsreader.VcsCommit;
@@ -13,10 +14,14 @@ import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
 import static org.vcsreader.vcs.svn.SvnUtil.isSuccessful;
 import static org.vcsreader.vcs.svn.SvnUtil.newExternalCommand;
 
@@ -26,6 +31,7 @@ import static org.vcsreader.vcs.svn.SvnUtil.newExternalCommand;
 class SvnLog implements VcsCommand<LogResult> {
 	private static final String minSvnDate = "1970-01-01";
 	private static final String maxSvnDate = "2999-01-01";
+	private static final Pattern noSuchRevision = Pattern.compile("E160006: No such revision (\\d+)");
 
 	private final String pathToSvn;
 	private final String repoUrl;
@@ -37,26 +43,41 @@ class SvnLog implements VcsCommand<LogResult> {
 
 
 	public SvnLog(String pathToSvn, String repoUrl, String repoRoot, TimeRange timeRange,
-	              boolean useMergeHistory, boolean quoteDateRange) {
+	              boolean useMergeHistory, boolean quoteDateRange, CommandLine.Config config) {
+		this(pathToSvn, repoUrl, repoRoot, timeRange, useMergeHistory, quoteDateRange,
+				svnLog(pathToSvn, repoUrl, timeRange, useMergeHistory, quoteDateRange), config);
+	}
+
+	private SvnLog(String pathToSvn, String repoUrl, String repoRoot, TimeRange timeRange,
+	               boolean useMergeHistory, boolean quoteDateRange, CommandLine commandLine, CommandLine.Config config) {
 		this.pathToSvn = pathToSvn;
 		this.repoUrl = repoUrl;
 		this.repoRoot = repoRoot;
 		this.timeRange = timeRange;
 		this.useMergeHistory = useMergeHistory;
 		this.quoteDateRange = quoteDateRange;
-		this.commandLine = svnLog(pathToSvn, repoUrl, timeRange, useMergeHistory, quoteDateRange);
+		this.commandLine = commandLine.executionConfig(config);
+	}
+
+	/**
+	 * @return command which logs commits with the specified revisions using a single svn process
+	 */
+	static SvnLog logRevisions(String pathToSvn, String repoUrl, String repoRoot, Collection<String> revisions,
+	                           boolean useMergeHistory, CommandLine.Config config) {
+		CommandLine commandLine = svnLogRevisions(pathToSvn, repoUrl, revisions, useMergeHistory);
+		return new SvnLog(pathToSvn, repoUrl, repoRoot, TimeRange.all, useMergeHistory, false, commandLine, config);
 	}
 
 	@Override public LogResult execute() {
-		commandLine.execute();
-
-		if (isSuccessful(commandLine)) {
-			List<VcsCommit> allCommits = SvnCommitParser.parseCommits(commandLine.stdout());
-			List<VcsCommit> commits = transformToSubPathCommits(deleteCommitsBefore(timeRange.from(), allCommits));
-			return new LogResult(commits);
-		} else {
-			return new LogResult(new VcsError(commandLine.stderr()));
-		}
+		return commandLine.execute(it -> {
+			if (isSuccessful(it)) {
+				List<VcsCommit> allCommits = SvnCommitParser.parseCommits(it.stdout());
+				List<VcsCommit> commits = transformToSubPathCommits(subPathOf(repoUrl, repoRoot), deleteCommitsBefore(timeRange.from(), allCommits));
+				return new LogResult(commits);
+			} else {
+				return new LogResult(new VcsError(it.stderr()));
+			}
+		});
 	}
 
 	static CommandLine svnLog(String pathToSvn, String repoUrl, TimeRange timeRange,
@@ -79,7 +100,31 @@ class SvnLog implements VcsCommand<LogResult> {
 		).outputCharset(svnXmlCharset);
 	}
 
-	private static String svnDateRange(TimeRange timeRange, boolean quoteDateRange) {
+	static CommandLine svnLogRevisions(String pathToSvn, String repoUrl, Collection<String> revisions, boolean useMergeHistory) {
+		List<String> args = new ArrayList<>(asList("log", repoUrl));
+		for (String revision : revisions) {
+			// revisions starting with "-" would be interpreted by svn as options
+			if (revision.isEmpty() || revision.startsWith("-") || revision.matches(".*\\s.*")) {
+				throw new IllegalArgumentException("Invalid revision: '" + revision + "'");
+			}
+			args.add("-r");
+			args.add(revision);
+		}
+		if (useMergeHistory) args.add("--use-merge-history");
+		args.addAll(asList("--verbose", "--xml"));
+		return newExternalCommand(pathToSvn, args.toArray(new String[0])).outputCharset(UTF_8);
+	}
+
+	/**
+	 * @return revision from "No such revision" error of svn (which fails the whole log if one of requested revisions
+	 * doesn't exist) or null if error is not about missing revision
+	 */
+	@Nullable static String missingRevisionIn(String stderr) {
+		Matcher matcher = noSuchRevision.matcher(stderr);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	static String svnDateRange(TimeRange timeRange, boolean quoteDateRange) {
 		// Svn supports any ISO 8601 date format (https://en.wikipedia.org/wiki/ISO_8601).
 		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(UTC);
 		String from = timeRange.from() == Instant.MIN ? minSvnDate : formatter.format(timeRange.from());
@@ -96,13 +141,16 @@ class SvnLog implements VcsCommand<LogResult> {
 	 * Delete commits because "Subversion will find the most recent revision of the repository as of the date you give".
 	 * See http://svnbook.red-bean.com/en/1.8/svn.tour.revs.specifiers.html#svn.tour.revs.keywords
 	 */
-	private static List<VcsCommit> deleteCommitsBefore(Instant instant, List<VcsCommit> commits) {
+	static List<VcsCommit> deleteCommitsBefore(Instant instant, List<VcsCommit> commits) {
 		commits.removeIf(it -> instant != Instant.MIN && it.getDateTime().isBefore(instant));
 		return commits;
 	}
 
-	private List<VcsCommit> transformToSubPathCommits(List<VcsCommit> commits) {
-		String subPath = subPathOf(repoUrl, repoRoot);
+	/**
+	 * @return commits with changes under sub-path where file paths are relative to the sub-path
+	 * (e.g. for repository URL pointing to "trunk" folder)
+	 */
+	static List<VcsCommit> transformToSubPathCommits(String subPath, List<VcsCommit> commits) {
 		commits = removeChangesNotIn(subPath, commits);
 		commits = modifyChanges(subPath, commits);
 		return commits;
@@ -141,7 +189,7 @@ class SvnLog implements VcsCommand<LogResult> {
 		return result;
 	}
 
-	private static String subPathOf(String repoUrl, String repoRoot) {
+	static String subPathOf(String repoUrl, String repoRoot) {
 		String subPath = repoUrl.replace(repoRoot, "");
 		if (subPath.startsWith("/")) subPath = subPath.substring(1);
 		if (!subPath.isEmpty() && !subPath.endsWith("/")) subPath += "/";
@@ -21,13 +21,13 @@ class SvnLogFileContent implements VcsCommand<LogFileContentResult> {
 	private final Charset charset;
 	private final CommandLine commandLine;
 
-	SvnLogFileContent(String svnPath, String repoRoot, String filePath, String revision, Charset charset) {
+	SvnLogFileContent(String svnPath, String repoRoot, String filePath, String revision, Charset charset, CommandLine.Config config) {
 		this.svnPath = svnPath;
 		this.repoRoot = repoRoot;
 		this.filePath = filePath;
 		this.revision = revision;
 		this.charset = charset;
-		this.commandLine = svnLogFileContent(svnPath, repoRoot, filePath, revision, charset);
+		this.commandLine = svnLogFileContent(svnPath, repoRoot, filePath, revision, charset).executionConfig(config);
 	}
 
 	static CommandLine svnLogFileContent(String pathToSvn, String repoRoot, String filePath, String revision, Charset charset) {
@@ -41,12 +41,13 @@ class SvnLogFileContent implements VcsCommand<LogFileContentResult> {
 	}
 
 	@Override public LogFileContentResult execute() {
-		commandLine.execute();
-		if (isSuccessful(commandLine)) {
-			return new LogFileContentResult(trimLastNewLine(commandLine.stdout()));
-		} else {
-			return new LogFileContentResult(commandLine.stderr(), commandLine.exitCode());
-		}
+		return commandLine.execute(it -> {
+			if (isSuccessful(it)) {
+				return new LogFileContentResult(trimLastNewLine(it.stdout()));
+			} else {
+				return new LogFileContentResult(it.stderr(), it.exitCode());
+			}
+		});
 	}
 
 	@Override public String describe() {
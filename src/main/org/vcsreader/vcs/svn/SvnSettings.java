@@ -1,8 +1,14 @@
 package org.vcsreader.vcs.svn;
 
 import org.jetbrains.annotations.NotNull;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.ProcessGovernor;
+import org.vcsreader.lang.StreamPumpExecutors;
+import org.vcsreader.vcs.VcsCommand;
 
 import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.concurrent.Executor;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -11,6 +17,16 @@ public class SvnSettings {
 	@NotNull private final Charset defaultFileCharset;
 	private final boolean useMergeHistory;
 	private final boolean failFast;
+	@NotNull private final Executor asyncExecutor;
+	private final int maxConcurrentCommands;
+	@NotNull private final Executor streamPumpExecutor;
+	private final long stdoutSpillThreshold;
+	@NotNull private final Duration commandTimeout;
+	@NotNull private final Duration rootTimeout;
+	@NotNull private final ProcessGovernor processGovernor;
+	private final int logCacheSize;
+	@NotNull private final String svnadminPath;
+	private final boolean dumpReader;
 
 	/**
 	 * @param svnPath            path to svn executable
@@ -22,10 +38,30 @@ public class SvnSettings {
 	 *                           otherwise will aggregate all exceptions/errors into result object
 	 */
 	public SvnSettings(@NotNull String svnPath, @NotNull Charset defaultFileCharset, boolean useMergeHistory, boolean failFast) {
+		this(svnPath, defaultFileCharset, useMergeHistory, failFast, VcsCommand.defaultAsyncExecutor, Integer.MAX_VALUE,
+				StreamPumpExecutors.defaultExecutor, CommandLine.Config.defaultStdoutSpillThreshold,
+				CommandLine.Config.noTimeout, CommandLine.Config.noTimeout, ProcessGovernor.unlimited, 0, "svnadmin", false);
+	}
+
+	private SvnSettings(@NotNull String svnPath, @NotNull Charset defaultFileCharset, boolean useMergeHistory, boolean failFast,
+	                    @NotNull Executor asyncExecutor, int maxConcurrentCommands, @NotNull Executor streamPumpExecutor,
+	                    long stdoutSpillThreshold, @NotNull Duration commandTimeout,
+	                    @NotNull Duration rootTimeout, @NotNull ProcessGovernor processGovernor, int logCacheSize,
+	                    @NotNull String svnadminPath, boolean dumpReader) {
 		this.svnPath = svnPath;
 		this.defaultFileCharset = defaultFileCharset;
 		this.useMergeHistory = useMergeHistory;
 		this.failFast = failFast;
+		this.asyncExecutor = asyncExecutor;
+		this.maxConcurrentCommands = maxConcurrentCommands;
+		this.streamPumpExecutor = streamPumpExecutor;
+		this.stdoutSpillThreshold = stdoutSpillThreshold;
+		this.commandTimeout = commandTimeout;
+		this.rootTimeout = rootTimeout;
+		this.processGovernor = processGovernor;
+		this.logCacheSize = logCacheSize;
+		this.svnadminPath = svnadminPath;
+		this.dumpReader = dumpReader;
 	}
 
 	public static SvnSettings defaults() {
@@ -33,19 +69,102 @@ public class SvnSettings {
 	}
 
 	public SvnSettings withSvnPath(String value) {
-		return new SvnSettings(value, defaultFileCharset, useMergeHistory, failFast);
+		return new SvnSettings(value, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
 	}
 
 	public SvnSettings withDefaultFileCharset(Charset value) {
-		return new SvnSettings(svnPath, value, useMergeHistory, failFast);
+		return new SvnSettings(svnPath, value, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
 	}
 
 	public SvnSettings withMergeHistory(boolean value) {
-		return new SvnSettings(svnPath, defaultFileCharset, value, failFast);
+		return new SvnSettings(svnPath, defaultFileCharset, value, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
 	}
 
 	public SvnSettings withFailFast(boolean value) {
-		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, value);
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, value, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value executor for asynchronous commands (e.g. {@link SvnVcsRoot#logAsync(org.vcsreader.lang.TimeRange)}).
+	 *              Note that tasks running on it mostly wait for VCS processes.
+	 */
+	public SvnSettings withAsyncExecutor(@NotNull Executor value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, value, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value maximum number of commands which can run concurrently on a VCS root
+	 *              (other commands will wait until running commands have finished),
+	 *              {@link Integer#MAX_VALUE} means there is no limit
+	 */
+	public SvnSettings withMaxConcurrentCommands(int value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, value, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value executor for reading stdout/stderr of VCS processes,
+	 *              see {@link StreamPumpExecutors} for available options (e.g. virtual threads on JDK 21+)
+	 */
+	public SvnSettings withStreamPumpExecutor(@NotNull Executor value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, value, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value max size of command stdout in bytes which is kept in memory,
+	 *              larger output (e.g. log of a big repository) is written to a temporary file
+	 */
+	public SvnSettings withStdoutSpillThreshold(long value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, value, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value max time of a single VCS process (e.g. git pull from stalled server),
+	 *              process which runs longer is killed and {@link org.vcsreader.vcs.VcsTimeoutError} is reported;
+	 *              {@link CommandLine.Config#noTimeout} means there is no limit
+	 */
+	public SvnSettings withCommandTimeout(@NotNull Duration value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, value, rootTimeout, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value max time of a single operation on VCS root (e.g. log) including all VCS processes it runs,
+	 *              processes still running after that are killed and {@link org.vcsreader.vcs.VcsTimeoutError} is reported;
+	 *              {@link CommandLine.Config#noTimeout} means there is no limit
+	 */
+	public SvnSettings withRootTimeout(@NotNull Duration value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, value, processGovernor, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value governor limiting the number of VCS processes and their buffered stdout,
+	 *              the same instance should be shared by all roots of this VCS type (see {@link ProcessGovernor})
+	 */
+	public SvnSettings withProcessGovernor(@NotNull ProcessGovernor value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, value, logCacheSize, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value max number of time ranges for which log results are cached while repository head doesn't change
+	 *              (see {@link org.vcsreader.vcs.LogCache}), zero means log results are not cached
+	 */
+	public SvnSettings withLogCacheSize(int value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, value, svnadminPath, dumpReader);
+	}
+
+	/**
+	 * @param value path to svnadmin executable which is used to read local repositories
+	 *              (see {@link #withDumpReader(boolean)} and {@link SvnVcsRoot#logWithContents})
+	 */
+	public SvnSettings withSvnadminPath(@NotNull String value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, value, dumpReader);
+	}
+
+	/**
+	 * @param value if true, history of local repository (i.e. with "file://" URL) is read from "svnadmin dump" stream
+	 *              instead of "svn log" (see {@link SvnVcsRoot#logWithContents} for details)
+	 */
+	public SvnSettings withDumpReader(boolean value) {
+		return new SvnSettings(svnPath, defaultFileCharset, useMergeHistory, failFast, asyncExecutor, maxConcurrentCommands, streamPumpExecutor, stdoutSpillThreshold, commandTimeout, rootTimeout, processGovernor, logCacheSize, svnadminPath, value);
 	}
 
 	@NotNull public String svnPath() {
@@ -64,6 +183,57 @@ public class SvnSettings {
 		return failFast;
 	}
 
+	@NotNull public Executor asyncExecutor() {
+		return asyncExecutor;
+	}
+
+	public int maxConcurrentCommands() {
+		return maxConcurrentCommands;
+	}
+
+	@NotNull public Executor streamPumpExecutor() {
+		return streamPumpExecutor;
+	}
+
+	public long stdoutSpillThreshold() {
+		return stdoutSpillThreshold;
+	}
+
+	@NotNull public Duration commandTimeout() {
+		return commandTimeout;
+	}
+
+	@NotNull public Duration rootTimeout() {
+		return rootTimeout;
+	}
+
+	@NotNull public ProcessGovernor processGovernor() {
+		return processGovernor;
+	}
+
+	public int logCacheSize() {
+		return logCacheSize;
+	}
+
+	@NotNull public String svnadminPath() {
+		return svnadminPath;
+	}
+
+	public boolean dumpReader() {
+		return dumpReader;
+	}
+
+	/**
+	 * @return config with execution settings for command lines of VCS commands
+	 */
+	@NotNull public CommandLine.Config commandLineConfig() {
+		return CommandLine.Config.defaults
+				.asyncExecutor(streamPumpExecutor)
+				.stdoutSpillThreshold(stdoutSpillThreshold)
+				.timeout(commandTimeout)
+				.governor(processGovernor);
+	}
+
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
@@ -73,7 +243,17 @@ public class SvnSettings {
 		return useMergeHistory == that.useMergeHistory &&
 				failFast == that.failFast &&
 				svnPath.equals(that.svnPath) &&
-				defaultFileCharset.equals(that.defaultFileCharset);
+				defaultFileCharset.equals(that.defaultFileCharset) &&
+				asyncExecutor.equals(that.asyncExecutor) &&
+				maxConcurrentCommands == that.maxConcurrentCommands &&
+				streamPumpExecutor.equals(that.streamPumpExecutor) &&
+				stdoutSpillThreshold == that.stdoutSpillThreshold &&
+				commandTimeout.equals(that.commandTimeout) &&
+				rootTimeout.equals(that.rootTimeout) &&
+				processGovernor.equals(that.processGovernor) &&
+				logCacheSize == that.logCacheSize &&
+				svnadminPath.equals(that.svnadminPath) &&
+				dumpReader == that.dumpReader;
 	}
 
 	@Override public int hashCode() {
@@ -81,6 +261,16 @@ public class SvnSettings {
 		result = 31 * result + defaultFileCharset.hashCode();
 		result = 31 * result + (useMergeHistory ? 1 : 0);
 		result = 31 * result + (failFast ? 1 : 0);
+		result = 31 * result + asyncExecutor.hashCode();
+		result = 31 * result + maxConcurrentCommands;
+		result = 31 * result + streamPumpExecutor.hashCode();
+		result = 31 * result + Long.hashCode(stdoutSpillThreshold);
+		result = 31 * result + commandTimeout.hashCode();
+		result = 31 * result + rootTimeout.hashCode();
+		result = 31 * result + processGovernor.hashCode();
+		result = 31 * result + logCacheSize;
+		result = 31 * result + svnadminPath.hashCode();
+		result = 31 * result + (dumpReader ? 1 : 0);
 		return result;
 	}
 
@@ -90,6 +280,16 @@ public class SvnSettings {
 				", defaultFileCharset=" + defaultFileCharset +
 				", useMergeHistory=" + useMergeHistory +
 				", failFast=" + failFast +
+				", asyncExecutor=" + asyncExecutor +
+				", maxConcurrentCommands=" + maxConcurrentCommands +
+				", streamPumpExecutor=" + streamPumpExecutor +
+				", stdoutSpillThreshold=" + stdoutSpillThreshold +
+				", commandTimeout=" + commandTimeout +
+				", rootTimeout=" + rootTimeout +
+				", processGovernor=" + processGovernor +
+				", logCacheSize=" + logCacheSize +
+				", svnadminPath='" + svnadminPath + '\'' +
+				", dumpReader=" + dumpReader +
 				'}';
 	}
 }
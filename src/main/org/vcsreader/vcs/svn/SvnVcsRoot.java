@@ -1,18 +1,30 @@
 package org.vcsreader.vcs.svn;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.vcsreader.*;
+import org.vcsreader.lang.CommandLine;
+import org.vcsreader.lang.Deadline;
 import org.vcsreader.lang.TimeRange;
+import org.vcsreader.vcs.BatchedLogRevisions;
+import org.vcsreader.vcs.CurrentCommand;
+import org.vcsreader.vcs.LogCache;
+import org.vcsreader.vcs.RunningCommands;
 import org.vcsreader.vcs.VcsCommand;
 import org.vcsreader.vcs.VcsCommand.ExceptionWrapper;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
 public class SvnVcsRoot implements VcsRoot, VcsCommand.Observer {
 	@NotNull private final String repoUrl;
 	@NotNull private final SvnSettings settings;
 	private final VcsCommand.Listener listener;
-	private String repoRoot;
-	private boolean quoteDateRange = false;
-	private volatile VcsCommand lastCommand;
+	private final RunningCommands runningCommands;
+	private final CommandLine.Config commandLineConfig;
+	@Nullable private final LogCache logCache;
+	private volatile String repoRoot;
+	private volatile boolean quoteDateRange = false;
 
 
 	public SvnVcsRoot(@NotNull String repoUrl) {
@@ -24,17 +36,22 @@ public class SvnVcsRoot implements VcsRoot, VcsCommand.Observer {
 	 * @param settings settings which will be used by VCS commands executed on this root
 	 */
 	public SvnVcsRoot(@NotNull String repoUrl, @NotNull SvnSettings settings) {
-		this(repoUrl, settings, VcsCommand.Listener.none);
+		this(repoUrl, settings, VcsCommand.Listener.none,
+				settings.logCacheSize() > 0 ? new LogCache(settings.logCacheSize()) : null);
 	}
 
-	private SvnVcsRoot(@NotNull String repoUrl, @NotNull SvnSettings settings, VcsCommand.Listener listener) {
+	private SvnVcsRoot(@NotNull String repoUrl, @NotNull SvnSettings settings,
+	                   VcsCommand.Listener listener, @Nullable LogCache logCache) {
 		this.repoUrl = repoUrl;
 		this.settings = settings;
 		this.listener = listener;
+		this.runningCommands = new RunningCommands(settings.maxConcurrentCommands(), settings.rootTimeout());
+		this.commandLineConfig = settings.commandLineConfig();
+		this.logCache = logCache;
 	}
 
 	@Override public SvnVcsRoot withListener(VcsCommand.Listener listener) {
-		return new SvnVcsRoot(repoUrl, settings, listener);
+		return new SvnVcsRoot(repoUrl, settings, listener, logCache);
 	}
 
 	@Override public CloneResult cloneIt() {
@@ -45,41 +62,162 @@ public class SvnVcsRoot implements VcsRoot, VcsCommand.Observer {
 		return new UpdateResult();
 	}
 
+	@Override public CompletableFuture<CloneResult> cloneAsync() {
+		return CompletableFuture.completedFuture(cloneIt());
+	}
+
+	@Override public CompletableFuture<UpdateResult> updateAsync() {
+		return CompletableFuture.completedFuture(update());
+	}
+
 	@Override public LogResult log(TimeRange timeRange) {
-		if (repoRoot == null) {
-			SvnInfo.Result result = execute(new SvnInfo(settings.svnPath(), repoUrl), SvnInfo.adapter);
-			if (!result.isSuccessful()) {
-				return new LogResult(result.exception);
-			}
-			repoRoot = result.repoRoot;
+		return log(timeRange, new CurrentCommand());
+	}
+
+	/**
+	 * @param currentCommand svn command which is currently executed as part of this log request
+	 */
+	private LogResult log(TimeRange timeRange, CurrentCommand currentCommand) {
+		// log might need several svn commands, so all of them share the same deadline
+		return Deadline.runWithin(Deadline.after(settings.rootTimeout()), () -> logWithinDeadline(timeRange, currentCommand));
+	}
+
+	/**
+	 * If log cache is enabled (see {@link SvnSettings#withLogCacheSize(int)}), "svn info" is executed before each log request
+	 * and cached result is returned if last changed revision of repository URL is the same as in previous log.
+	 */
+	private LogResult logWithinDeadline(TimeRange timeRange, CurrentCommand currentCommand) {
+		if (settings.dumpReader()) {
+			return logDump(timeRange, currentCommand);
+		}
+		SvnInfo.Result repoRootResult = logCache == null ? findRepoRoot(currentCommand) : svnInfo(currentCommand);
+		if (!repoRootResult.isSuccessful()) {
+			return new LogResult(repoRootResult.exception);
 		}
-		LogResult logResult = execute(svnLog(timeRange), LogResult.adapter);
+		String repoRoot = repoRootResult.repoRoot;
+		String lastChangedRevision = repoRootResult.lastChangedRevision;
+		boolean quoteDateRange = this.quoteDateRange;
+		VcsCommand<LogResult> svnLog = withLogCache(svnLog(timeRange, repoRoot, quoteDateRange), timeRange, lastChangedRevision);
+		currentCommand.set(svnLog);
+		LogResult logResult = execute(svnLog, LogResult.adapter);
 		if (hasRevisionArgumentError(logResult)) {
 			quoteDateRange = !quoteDateRange;
-			logResult = execute(svnLog(timeRange), LogResult.adapter);
+			this.quoteDateRange = quoteDateRange;
+			svnLog = withLogCache(svnLog(timeRange, repoRoot, quoteDateRange), timeRange, lastChangedRevision);
+			currentCommand.set(svnLog);
+			logResult = execute(svnLog, LogResult.adapter);
 		}
 		return logResult;
 	}
 
+	/**
+	 * Reads log from "svnadmin dump" without running "svn info" because local repository root is found on disk.
+	 * If log cache is enabled, youngest revision of repository is read from disk before each log request.
+	 */
+	private LogResult logDump(TimeRange timeRange, CurrentCommand currentCommand) {
+		SvnDumpLog dumpLog = svnDumpLog(timeRange, null);
+		VcsCommand<LogResult> command = dumpLog;
+		if (logCache != null) {
+			command = logCache.cached(timeRange, () -> SvnDumpLog.youngestRevision(dumpLog.repoFolder()), dumpLog);
+		}
+		currentCommand.set(command);
+		return execute(command, LogResult.adapter);
+	}
+
+	/**
+	 * Reads commits together with contents of changed files from a single "svnadmin dump" stream.
+	 * This is intended for analysis of all file versions in history, e.g. instead of calling
+	 * {@link #logFileContent(String, String)} for each change of each commit.
+	 * It only works for local repositories (i.e. with "file://" URL) and can be used regardless of {@link SvnSettings#withDumpReader(boolean)}.
+	 * Commits are the same as logged in dump reader mode and are visited in chronological order (oldest first).
+	 *
+	 * @return result without commits (they are passed to the visitor) but with errors if any
+	 */
+	public LogResult logWithContents(TimeRange timeRange, ContentVisitor visitor) {
+		return execute(svnDumpLog(timeRange, visitor), LogResult.adapter);
+	}
+
+	private SvnDumpLog svnDumpLog(TimeRange timeRange, @Nullable ContentVisitor visitor) {
+		return new SvnDumpLog(settings.svnadminPath(), settings.svnPath(), repoUrl, timeRange, visitor, commandLineConfig);
+	}
+
+	private VcsCommand<LogResult> withLogCache(SvnLog svnLog, TimeRange timeRange, @Nullable String lastChangedRevision) {
+		if (logCache == null) return svnLog;
+		return logCache.cached(timeRange, () -> lastChangedRevision, svnLog);
+	}
+
+	/**
+	 * Requests commits with the specified revisions using "svn log" with "-r" argument for each revision
+	 * (see {@link VcsRoot#logRevisions(Collection)}).
+	 * Because svn fails the whole log if one of the revisions doesn't exist, log is repeated without such revisions.
+	 */
+	@Override public LogResult logRevisions(Collection<String> revisions) {
+		if (revisions.isEmpty()) return new LogResult();
+		return Deadline.runWithin(Deadline.after(settings.rootTimeout()), () -> {
+			SvnInfo.Result repoRootResult = findRepoRoot(new CurrentCommand());
+			if (!repoRootResult.isSuccessful()) {
+				return new LogResult(repoRootResult.exception);
+			}
+			BatchedLogRevisions logRevisions = new BatchedLogRevisions(revisions, BatchedLogRevisions.defaultBatchSize,
+					batch -> SvnLog.logRevisions(settings.svnPath(), repoUrl, repoRootResult.repoRoot, batch, settings.useMergeHistory(), commandLineConfig),
+					SvnLog::missingRevisionIn
+			);
+			return execute(logRevisions, LogResult.adapter);
+		});
+	}
+
+	private SvnInfo.Result findRepoRoot(CurrentCommand currentCommand) {
+		String repoRoot = this.repoRoot;
+		if (repoRoot != null) return new SvnInfo.Result(repoRoot);
+		return svnInfo(currentCommand);
+	}
+
+	private SvnInfo.Result svnInfo(CurrentCommand currentCommand) {
+		SvnInfo svnInfo = new SvnInfo(settings.svnPath(), repoUrl, commandLineConfig);
+		currentCommand.set(svnInfo);
+		SvnInfo.Result result = execute(svnInfo, SvnInfo.adapter);
+		if (result.isSuccessful()) {
+			this.repoRoot = result.repoRoot;
+		}
+		return result;
+	}
+
 	@Override public LogFileContentResult logFileContent(String filePath, String revision) {
-		SvnLogFileContent logFileContent = new SvnLogFileContent(
+		SvnLogFileContent logFileContent = svnLogFileContent(filePath, revision);
+		return execute(logFileContent, LogFileContentResult.adapter);
+	}
+
+	@Override public CompletableFuture<LogResult> logAsync(TimeRange timeRange) {
+		// log might need several svn commands, so keep track of the one which is currently running
+		CurrentCommand currentCommand = new CurrentCommand();
+		return VcsCommand.supplyAsync(() -> log(timeRange, currentCommand), currentCommand::cancel, settings.asyncExecutor());
+	}
+
+	@Override public CompletableFuture<LogFileContentResult> logFileContentAsync(String filePath, String revision) {
+		SvnLogFileContent logFileContent = svnLogFileContent(filePath, revision);
+		return VcsCommand.supplyAsync(() -> execute(logFileContent, LogFileContentResult.adapter), logFileContent::cancel, settings.asyncExecutor());
+	}
+
+	private SvnLogFileContent svnLogFileContent(String filePath, String revision) {
+		return new SvnLogFileContent(
 				settings.svnPath(),
 				repoUrl,
 				filePath,
 				revision,
-				settings.defaultFileCharset()
+				settings.defaultFileCharset(),
+				commandLineConfig
 		);
-		return execute(logFileContent, LogFileContentResult.adapter);
 	}
 
-	private SvnLog svnLog(TimeRange timeRange) {
+	private SvnLog svnLog(TimeRange timeRange, String repoRoot, boolean quoteDateRange) {
 		return new SvnLog(
 				settings.svnPath(),
 				repoUrl,
 				repoRoot,
 				timeRange,
 				settings.useMergeHistory(),
-				quoteDateRange
+				quoteDateRange,
+				commandLineConfig
 		);
 	}
 
@@ -99,12 +237,7 @@ public class SvnVcsRoot implements VcsRoot, VcsCommand.Observer {
 	}
 
 	private <T> T execute(VcsCommand<T> vcsCommand, ExceptionWrapper<T> exceptionWrapper) {
-		try {
-			lastCommand = vcsCommand;
-			return VcsCommand.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
-		} finally {
-			lastCommand = null;
-		}
+		return runningCommands.execute(vcsCommand, exceptionWrapper, listener, settings.failFast());
 	}
 
 	@NotNull @Override public String repoFolder() {
@@ -116,8 +249,7 @@ public class SvnVcsRoot implements VcsRoot, VcsCommand.Observer {
 	}
 
 	@Override public boolean cancelLastCommand() {
-		VcsCommand command = lastCommand;
-		return command == null || command.cancel();
+		return runningCommands.cancelAll();
 	}
 
 	@Override public boolean equals(Object o) {
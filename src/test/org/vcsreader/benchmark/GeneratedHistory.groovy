@@ -0,0 +1,166 @@
+package org.vcsreader.benchmark
+
+/**
+ * Deterministic synthetic commit history, i.e. the same spec always produces the same commits.
+ * Files are added until there are {@link Spec#files} of them, after that commits modify, rename or delete files.
+ */
+class GeneratedHistory {
+	static final long startEpochSeconds = 1_500_000_000L
+	static final List<String> authors = ["Alice Author", "Bob Builder", "Carol Coder", "Dave Developer"]
+
+	final Spec spec
+	final List<Commit> commits
+
+
+	GeneratedHistory(Spec spec, List<Commit> commits) {
+		this.spec = spec
+		this.commits = commits
+	}
+
+	static GeneratedHistory generate(Spec spec) {
+		def random = new Random(spec.seed)
+		def liveFiles = new ArrayList<FileState>()
+		def commits = new ArrayList<Commit>()
+		int nextFileId = 0
+
+		for (int i = 0; i < spec.commits; i++) {
+			def changes = new ArrayList<Change>()
+			def touched = new HashSet<FileState>()
+			for (int j = 0; j < spec.filesPerCommit; j++) {
+				if (liveFiles.size() < spec.files) {
+					def file = new FileState(nextFileId++, random.nextInt(spec.directories), spec.linesPerFile)
+					liveFiles.add(file)
+					touched.add(file)
+					changes.add(new Change(Change.Type.Added, file.path(), null, file.content()))
+					continue
+				}
+				def file = liveFiles.get(random.nextInt(liveFiles.size()))
+				if (touched.contains(file)) continue
+				touched.add(file)
+
+				double dice = random.nextDouble()
+				if (dice < spec.renameRatio) {
+					def pathBefore = file.path()
+					file.renames++
+					file.directory = random.nextInt(spec.directories)
+					changes.add(new Change(Change.Type.Renamed, file.path(), pathBefore, file.content()))
+				} else if (dice < spec.renameRatio + spec.deleteRatio) {
+					liveFiles.remove(file)
+					changes.add(new Change(Change.Type.Deleted, null, file.path(), null))
+				} else {
+					file.version++
+					changes.add(new Change(Change.Type.Modified, file.path(), file.path(), file.content()))
+				}
+			}
+			if (changes.empty) {
+				def file = liveFiles.get(random.nextInt(liveFiles.size()))
+				file.version++
+				changes.add(new Change(Change.Type.Modified, file.path(), file.path(), file.content()))
+			}
+			def author = authors[random.nextInt(authors.size())]
+			commits.add(new Commit(i, startEpochSeconds + i * 3600L, author, message(i, spec.messageSize, random), changes))
+		}
+		new GeneratedHistory(spec, commits)
+	}
+
+	private static String message(int index, int size, Random random) {
+		def words = ["fix", "add", "remove", "refactor", "update", "parser", "log", "command", "settings", "test"]
+		def result = new StringBuilder("commit ").append(index)
+		while (result.length() < size) {
+			result.append(' ').append(words[random.nextInt(words.size())])
+		}
+		result.toString()
+	}
+
+	int changeCount() {
+		(int) commits.sum { it.changes.size() } ?: 0
+	}
+
+	List<String> directories() {
+		(0..<spec.directories).collect { "src/dir" + it }
+	}
+
+
+	static class Spec {
+		int commits = 1000
+		int files = 200
+		int filesPerCommit = 5
+		int directories = 10
+		int linesPerFile = 20
+		double renameRatio = 0.05
+		double deleteRatio = 0.01
+		int messageSize = 100
+		long seed = 42
+
+		Map<String, Object> toMap() {
+			[
+				commits: commits, files: files, filesPerCommit: filesPerCommit, directories: directories,
+				linesPerFile: linesPerFile, renameRatio: renameRatio, deleteRatio: deleteRatio,
+				messageSize: messageSize, seed: seed
+			]
+		}
+	}
+
+	static class Commit {
+		final int index
+		final long epochSeconds
+		final String author
+		final String message
+		final List<Change> changes
+
+		Commit(int index, long epochSeconds, String author, String message, List<Change> changes) {
+			this.index = index
+			this.epochSeconds = epochSeconds
+			this.author = author
+			this.message = message
+			this.changes = changes
+		}
+
+		String authorEmail() {
+			author.toLowerCase().replace(' ', '.') + "@mail.com"
+		}
+	}
+
+	static class Change {
+		enum Type { Added, Modified, Renamed, Deleted }
+
+		final Type type
+		final String path
+		final String pathBefore
+		final String content
+
+		Change(Type type, String path, String pathBefore, String content) {
+			this.type = type
+			this.path = path
+			this.pathBefore = pathBefore
+			this.content = content
+		}
+	}
+
+	private static class FileState {
+		final int id
+		final int lines
+		int directory
+		int version = 0
+		int renames = 0
+
+		FileState(int id, int directory, int lines) {
+			this.id = id
+			this.directory = directory
+			this.lines = lines
+		}
+
+		String path() {
+			"src/dir${directory}/file${id}" + (renames == 0 ? "" : "_r${renames}") + ".txt"
+		}
+
+		String content() {
+			def result = new StringBuilder()
+			for (int line = 0; line < lines; line++) {
+				int lineVersion = (line == version % lines) ? version : 0
+				result.append("line ").append(line).append(" of file ").append(id).append(" version ").append(lineVersion).append('\n')
+			}
+			result.toString()
+		}
+	}
+}
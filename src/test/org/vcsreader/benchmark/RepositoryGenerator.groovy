@@ -0,0 +1,187 @@
+package org.vcsreader.benchmark
+
+import java.nio.charset.StandardCharsets
+
+import static org.vcsreader.benchmark.GeneratedHistory.Change.Type.*
+
+/**
+ * Creates local repositories with {@link GeneratedHistory}.
+ * Git repository is created with "git fast-import", hg repository is converted from git repository
+ * and svn repository is created with "svnadmin create" and loaded from generated dump.
+ */
+class RepositoryGenerator {
+	private static final String utf8 = StandardCharsets.UTF_8.name()
+
+	private final GeneratedHistory history
+	private final File workDir
+
+
+	RepositoryGenerator(GeneratedHistory history, File workDir) {
+		this.history = history
+		this.workDir = workDir
+	}
+
+	/**
+	 * @return path to non-bare git repository with checked out master branch
+	 */
+	String createGitRepository(String pathToGit) {
+		def repoDir = new File(workDir, "git-repo")
+		run([pathToGit, "init", repoDir.absolutePath], workDir)
+
+		def streamFile = new File(workDir, "git-fast-import.txt")
+		streamFile.withOutputStream { writeFastImportStream(new BufferedOutputStream(it)) }
+		run([pathToGit, "fast-import", "--quiet"], repoDir, streamFile)
+		run([pathToGit, "checkout", "--quiet", "--force", "master"], repoDir)
+		streamFile.delete()
+		repoDir.absolutePath
+	}
+
+	/**
+	 * @return path to hg repository converted from git repository (see {@link #createGitRepository(String)})
+	 */
+	String createHgRepository(String pathToHg, String gitRepoPath) {
+		def repoDir = new File(workDir, "hg-repo")
+		run([pathToHg, "convert", "--config", "extensions.convert=", "--datesort", gitRepoPath, repoDir.absolutePath], workDir)
+		run([pathToHg, "update", "--clean", "tip"], repoDir)
+		repoDir.absolutePath
+	}
+
+	/**
+	 * @return "file://" url of svn repository
+	 */
+	String createSvnRepository(String pathToSvnAdmin) {
+		def repoDir = new File(workDir, "svn-repo")
+		run([pathToSvnAdmin, "create", repoDir.absolutePath], workDir)
+
+		def dumpFile = new File(workDir, "svn-dump.txt")
+		dumpFile.withOutputStream { writeSvnDump(new BufferedOutputStream(it)) }
+		run([pathToSvnAdmin, "load", "--quiet", repoDir.absolutePath], workDir, dumpFile)
+		dumpFile.delete()
+		"file://" + repoDir.absolutePath
+	}
+
+	private void writeFastImportStream(OutputStream out) {
+		for (def commit : history.commits) {
+			def identity = "${commit.author} <${commit.authorEmail()}> ${commit.epochSeconds} +0000"
+			write(out, "commit refs/heads/master\n")
+			write(out, "mark :${commit.index + 1}\n")
+			write(out, "author ${identity}\n")
+			write(out, "committer ${identity}\n")
+			writeData(out, commit.message)
+			for (def change : commit.changes) {
+				if (change.type == Added || change.type == Modified) {
+					write(out, "M 100644 inline ${change.path}\n")
+					writeData(out, change.content)
+				} else if (change.type == Renamed) {
+					write(out, "R ${change.pathBefore} ${change.path}\n")
+				} else if (change.type == Deleted) {
+					write(out, "D ${change.pathBefore}\n")
+				}
+			}
+			write(out, "\n")
+		}
+		write(out, "done\n")
+		out.flush()
+	}
+
+	private static void writeData(OutputStream out, String data) {
+		def bytes = data.getBytes(utf8)
+		write(out, "data ${bytes.length}\n")
+		out.write(bytes)
+		write(out, "\n")
+	}
+
+	/**
+	 * See https://svn.apache.org/repos/asf/subversion/trunk/notes/dump-load-format.txt
+	 */
+	private void writeSvnDump(OutputStream out) {
+		write(out, "SVN-fs-dump-format-version: 2\n\n")
+		for (def commit : history.commits) {
+			def date = new Date(commit.epochSeconds * 1000).format("yyyy-MM-dd'T'HH:mm:ss.000000'Z'", TimeZone.getTimeZone("UTC"))
+			def props = properties(["svn:log": commit.message, "svn:author": commit.author, "svn:date": date])
+			write(out, "Revision-number: ${commit.index + 1}\n")
+			write(out, "Prop-content-length: ${props.length}\n")
+			write(out, "Content-length: ${props.length}\n\n")
+			out.write(props)
+			write(out, "\n")
+
+			if (commit.index == 0) {
+				writeSvnDirectory(out, "src")
+				history.directories().each { writeSvnDirectory(out, it) }
+			}
+			for (def change : commit.changes) {
+				if (change.type == Added) {
+					writeSvnFile(out, change.path, "add", change.content)
+				} else if (change.type == Modified) {
+					writeSvnFile(out, change.path, "change", change.content)
+				} else if (change.type == Renamed) {
+					write(out, "Node-path: ${change.path}\nNode-kind: file\nNode-action: add\n")
+					write(out, "Node-copyfrom-rev: ${commit.index}\nNode-copyfrom-path: ${change.pathBefore}\n\n\n")
+					write(out, "Node-path: ${change.pathBefore}\nNode-action: delete\n\n\n")
+				} else if (change.type == Deleted) {
+					write(out, "Node-path: ${change.pathBefore}\nNode-action: delete\n\n\n")
+				}
+			}
+		}
+		out.flush()
+	}
+
+	private static void writeSvnDirectory(OutputStream out, String path) {
+		def props = properties([:])
+		write(out, "Node-path: ${path}\nNode-kind: dir\nNode-action: add\n")
+		write(out, "Prop-content-length: ${props.length}\nContent-length: ${props.length}\n\n")
+		out.write(props)
+		write(out, "\n\n")
+	}
+
+	private static void writeSvnFile(OutputStream out, String path, String action, String content) {
+		def props = properties([:])
+		def text = content.getBytes(utf8)
+		write(out, "Node-path: ${path}\nNode-kind: file\nNode-action: ${action}\n")
+		write(out, "Prop-content-length: ${props.length}\nText-content-length: ${text.length}\n")
+		write(out, "Content-length: ${props.length + text.length}\n\n")
+		out.write(props)
+		out.write(text)
+		write(out, "\n\n")
+	}
+
+	private static byte[] properties(Map<String, String> properties) {
+		def result = new ByteArrayOutputStream()
+		properties.each { key, value ->
+			def keyBytes = key.getBytes(utf8)
+			def valueBytes = value.getBytes(utf8)
+			write(result, "K ${keyBytes.length}\n")
+			result.write(keyBytes)
+			write(result, "\nV ${valueBytes.length}\n")
+			result.write(valueBytes)
+			write(result, "\n")
+		}
+		write(result, "PROPS-END\n")
+		result.toByteArray()
+	}
+
+	private static void write(OutputStream out, CharSequence s) {
+		out.write(s.toString().getBytes(utf8))
+	}
+
+	static void run(List<String> command, File directory, File input = null) {
+		def processBuilder = new ProcessBuilder(command).directory(directory).redirectErrorStream(true)
+		if (input != null) processBuilder.redirectInput(input)
+		def process = processBuilder.start()
+		def output = process.inputStream.getText(utf8)
+		if (process.waitFor() != 0) {
+			throw new IllegalStateException("Failed to run: ${command.join(" ")}\n${output}")
+		}
+	}
+
+	static String output(List<String> command) {
+		try {
+			def process = new ProcessBuilder(command).redirectErrorStream(true).start()
+			def output = process.inputStream.getText(utf8).trim()
+			process.waitFor()
+			output.readLines().find() ?: ""
+		} catch (IOException e) {
+			"unavailable: " + e.message
+		}
+	}
+}
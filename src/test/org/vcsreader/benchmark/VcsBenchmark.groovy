@@ -0,0 +1,295 @@
+package org.vcsreader.benchmark
+
+import org.vcsreader.LogVisitor
+import org.vcsreader.VcsChange
+import org.vcsreader.VcsProject
+import org.vcsreader.VcsRoot
+import org.vcsreader.vcs.git.GitSettings
+import org.vcsreader.vcs.git.GitVcsRoot
+import org.vcsreader.vcs.hg.HgSettings
+import org.vcsreader.vcs.hg.HgVcsRoot
+import org.vcsreader.vcs.svn.SvnSettings
+import org.vcsreader.vcs.svn.SvnVcsRoot
+
+import java.time.Instant
+import java.util.concurrent.CompletableFuture
+
+import static org.vcsreader.lang.FileUtil.deleteOnShutdown
+import static org.vcsreader.lang.FileUtil.findSequentNonExistentFile
+import static org.vcsreader.lang.FileUtil.tempDirectoryFile
+import static org.vcsreader.lang.TimeRange.all
+import static org.vcsreader.vcs.git.GitIntegrationTestConfig.pathToGit
+import static org.vcsreader.vcs.hg.HgIntegrationTestConfig.pathToHg
+import static org.vcsreader.vcs.svn.SvnIntegrationTestConfig.pathToSvn
+import static org.vcsreader.vcs.svn.SvnIntegrationTestConfig.pathToSvnAdmin
+
+/**
+ * Benchmark of clone, update, log and file content commands over generated local repositories
+ * (see {@link GeneratedHistory} and {@link RepositoryGenerator}).
+ * Each operation is measured in all execution modes (sync, async, stream, visitor)
+ * and results are written as JSON, so that they can be compared between versions.
+ * <p>
+ * Example:
+ * <pre>
+ * groovy -cp ... org.vcsreader.benchmark.VcsBenchmark --vcs=git,hg --commits=5000 --out=results.json
+ * </pre>
+ * Paths to VCS commands are configured with the same system properties as integration tests
+ * (e.g. "vcsreader.test.gitPath").
+ */
+class VcsBenchmark {
+	private final Options options
+	private final GeneratedHistory history
+	private final List<Map<String, Object>> results = []
+
+
+	VcsBenchmark(Options options) {
+		this.options = options
+		this.history = GeneratedHistory.generate(options.spec)
+	}
+
+	static void main(String[] args) {
+		def options = Options.parse(args)
+		def benchmark = new VcsBenchmark(options)
+		def report = benchmark.run()
+		new File(options.out).setText(Json.toJson(report) + "\n", "UTF-8")
+		println("Wrote benchmark results to ${new File(options.out).absolutePath}")
+	}
+
+	Map<String, Object> run() {
+		def workDir = deleteOnShutdown(findSequentNonExistentFile(tempDirectoryFile(), "vcsreader-benchmark-", ""))
+		workDir.mkdirs()
+		def generator = new RepositoryGenerator(history, workDir)
+
+		String gitRepoPath = null
+		for (String vcs : options.vcs) {
+			println("Generating ${vcs} repository with ${history.commits.size()} commits")
+			if (vcs == "git") {
+				gitRepoPath = gitRepoPath ?: generator.createGitRepository(pathToGit)
+				benchmark("git", { String folder -> new GitVcsRoot(folder, gitRepoPath, GitSettings.defaults().withGitPath(pathToGit)) }, workDir)
+			} else if (vcs == "hg") {
+				gitRepoPath = gitRepoPath ?: generator.createGitRepository(pathToGit)
+				def hgRepoPath = generator.createHgRepository(pathToHg, gitRepoPath)
+				benchmark("hg", { String folder -> new HgVcsRoot(folder, hgRepoPath, HgSettings.defaults().withHgPath(pathToHg)) }, workDir)
+			} else if (vcs == "svn") {
+				def svnUrl = generator.createSvnRepository(pathToSvnAdmin)
+				benchmark("svn", { String folder -> new SvnVcsRoot(svnUrl, SvnSettings.defaults().withSvnPath(pathToSvn)) }, workDir)
+			} else {
+				throw new IllegalArgumentException("Unknown vcs: " + vcs)
+			}
+		}
+		[
+			timestamp  : Instant.now().toString(),
+			environment: environment(),
+			spec       : options.spec.toMap(),
+			iterations : options.iterations,
+			warmup     : options.warmup,
+			results    : results
+		]
+	}
+
+	private void benchmark(String vcs, Closure<VcsRoot> newVcsRoot, File workDir) {
+		int cloneCount = 0
+		def newFolder = { new File(workDir, "${vcs}-clone-${cloneCount++}").absolutePath }
+
+		measure(vcs, "clone", "sync", 1) {
+			assertSuccessful(new VcsProject(newVcsRoot(newFolder())).cloneIt())
+		}
+		measure(vcs, "clone", "async", 1) {
+			assertSuccessful(new VcsProject(newVcsRoot(newFolder())).cloneAsync().get())
+		}
+
+		def project = new VcsProject(newVcsRoot(newFolder()))
+		assertSuccessful(project.cloneIt())
+
+		measure(vcs, "update", "sync", 1) {
+			assertSuccessful(project.update())
+		}
+		measure(vcs, "update", "async", 1) {
+			assertSuccessful(project.updateAsync().get())
+		}
+
+		int commitCount = history.commits.size()
+		measure(vcs, "log", "sync", commitCount) {
+			def logResult = project.log(all)
+			assertSuccessful(logResult)
+			assert logResult.commits().size() == commitCount
+		}
+		measure(vcs, "log", "async", commitCount) {
+			def logResult = project.logAsync(all).get()
+			assertSuccessful(logResult)
+			assert logResult.commits().size() == commitCount
+		}
+		measure(vcs, "log", "stream", commitCount) {
+			def stream = project.logStream(all)
+			try {
+				assert stream.count() == commitCount
+			} finally {
+				stream.close()
+			}
+		}
+		measure(vcs, "log", "visitor", commitCount) {
+			def visitor = new CountingVisitor()
+			assertSuccessful(project.log(all, visitor))
+			assert visitor.commits == commitCount
+		}
+
+		def vcsRoot = project.vcsRoots().first()
+		def fileRevisions = fileRevisions(project)
+		measure(vcs, "fileContent", "sync", fileRevisions.size()) {
+			for (def fileRevision : fileRevisions) {
+				assertSuccessful(vcsRoot.logFileContent(fileRevision[0], fileRevision[1]))
+			}
+		}
+		measure(vcs, "fileContent", "async", fileRevisions.size()) {
+			def futures = fileRevisions.collect { vcsRoot.logFileContentAsync(it[0], it[1]) }
+			CompletableFuture.allOf(futures as CompletableFuture[]).get()
+			futures.each { assertSuccessful(it.get()) }
+		}
+	}
+
+	/**
+	 * @return pairs of file path and revision for the latest changes which have file content
+	 */
+	private List<List<String>> fileRevisions(VcsProject project) {
+		def result = []
+		def commits = project.log(all).commits()
+		for (def commit : commits.reverse()) {
+			for (def change : commit.changes) {
+				if (change.type == VcsChange.Type.Deleted) continue
+				result.add([change.filePath, change.revision])
+				if (result.size() >= options.fileContents) return result
+			}
+		}
+		result
+	}
+
+	private void measure(String vcs, String operation, String mode, int items, Closure closure) {
+		for (int i = 0; i < options.warmup; i++) {
+			closure.call()
+		}
+		def durations = []
+		for (int i = 0; i < options.iterations; i++) {
+			long start = System.nanoTime()
+			closure.call()
+			durations.add((System.nanoTime() - start) / 1_000_000.0)
+		}
+		durations.sort()
+		double median = durations[durations.size().intdiv(2)]
+		def result = [
+			vcs           : vcs,
+			operation     : operation,
+			mode          : mode,
+			items         : items,
+			millis        : durations,
+			minMillis     : durations.first(),
+			medianMillis  : median,
+			maxMillis     : durations.last(),
+			itemsPerSecond: median == 0 ? 0 : items * 1000.0 / median
+		]
+		results.add(result)
+		println("${vcs} ${operation} (${mode}): median ${String.format("%.1f", median)} ms, ${String.format("%.1f", result.itemsPerSecond)} items/s")
+	}
+
+	private static void assertSuccessful(result) {
+		if (!result.isSuccessful()) throw new IllegalStateException("Command failed: " + result)
+	}
+
+	private Map<String, Object> environment() {
+		def versions = [:]
+		if (options.vcs.contains("git") || options.vcs.contains("hg")) versions.git = RepositoryGenerator.output([pathToGit, "--version"])
+		if (options.vcs.contains("hg")) versions.hg = RepositoryGenerator.output([pathToHg, "--version", "--quiet"])
+		if (options.vcs.contains("svn")) versions.svn = RepositoryGenerator.output([pathToSvn, "--version", "--quiet"])
+		[
+			javaVersion        : System.getProperty("java.version"),
+			javaVmName         : System.getProperty("java.vm.name"),
+			osName             : System.getProperty("os.name"),
+			osArch             : System.getProperty("os.arch"),
+			availableProcessors: Runtime.runtime.availableProcessors(),
+			maxMemory          : Runtime.runtime.maxMemory(),
+			vcsVersions        : versions
+		]
+	}
+
+
+	static class Options {
+		List<String> vcs = ["git", "hg", "svn"]
+		GeneratedHistory.Spec spec = new GeneratedHistory.Spec()
+		int iterations = 5
+		int warmup = 1
+		int fileContents = 100
+		String out = "benchmark-results.json"
+
+		static Options parse(String[] args) {
+			def options = new Options()
+			for (String arg : args) {
+				def (String key, String value) = arg.replaceFirst("^--", "").split("=", 2).toList() + [""]
+				switch (key) {
+					case "vcs": options.vcs = value.split(",").toList(); break
+					case "commits": options.spec.commits = value.toInteger(); break
+					case "files": options.spec.files = value.toInteger(); break
+					case "files-per-commit": options.spec.filesPerCommit = value.toInteger(); break
+					case "lines-per-file": options.spec.linesPerFile = value.toInteger(); break
+					case "rename-ratio": options.spec.renameRatio = value.toDouble(); break
+					case "delete-ratio": options.spec.deleteRatio = value.toDouble(); break
+					case "message-size": options.spec.messageSize = value.toInteger(); break
+					case "seed": options.spec.seed = value.toLong(); break
+					case "iterations": options.iterations = value.toInteger(); break
+					case "warmup": options.warmup = value.toInteger(); break
+					case "file-contents": options.fileContents = value.toInteger(); break
+					case "out": options.out = value; break
+					default: throw new IllegalArgumentException("Unknown option: " + arg)
+				}
+			}
+			options
+		}
+	}
+
+
+	private static class CountingVisitor implements LogVisitor {
+		int commits
+		int changes
+
+		@Override void visitCommit(LogVisitor.CommitView commit) {
+			commits++
+		}
+
+		@Override void visitChange(LogVisitor.ChangeView change) {
+			changes++
+		}
+	}
+
+
+	/**
+	 * Minimal JSON writer for benchmark results (maps, lists, strings, numbers and booleans).
+	 */
+	static class Json {
+		static String toJson(Object value, String indent = "") {
+			if (value == null) return "null"
+			if (value instanceof Number || value instanceof Boolean) return value.toString()
+			if (value instanceof Map) {
+				if (value.isEmpty()) return "{}"
+				def nextIndent = indent + "  "
+				def entries = value.collect { key, entryValue -> nextIndent + quote(key.toString()) + ": " + toJson(entryValue, nextIndent) }
+				return "{\n" + entries.join(",\n") + "\n" + indent + "}"
+			}
+			if (value instanceof Collection) {
+				if (!value.any { it instanceof Map }) return "[" + value.collect { toJson(it, indent) }.join(", ") + "]"
+				def nextIndent = indent + "  "
+				return "[\n" + value.collect { nextIndent + toJson(it, nextIndent) }.join(",\n") + "\n" + indent + "]"
+			}
+			quote(value.toString())
+		}
+
+		private static String quote(String s) {
+			def result = new StringBuilder("\"")
+			for (char c : s.toCharArray()) {
+				if (c == '"' as char) result.append("\\\"")
+				else if (c == '\\' as char) result.append("\\\\")
+				else if (c == '\n' as char) result.append("\\n")
+				else if (c < 0x20) result.append(String.format("\\u%04x", (int) c))
+				else result.append(c)
+			}
+			result.append('"').toString()
+		}
+	}
+}
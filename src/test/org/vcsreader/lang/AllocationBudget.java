@@ -0,0 +1,61 @@
+package org.vcsreader.lang;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures bytes allocated by the current thread with {@code com.sun.management.ThreadMXBean}
+ * so that tests can check that hot paths (e.g. log parsing) stay within allocation budget.
+ * Each scenario is run several times to warm up JIT and the smallest measurement is used to reduce noise.
+ * Tests are skipped on JVMs which don't support allocation measurement.
+ */
+public class AllocationBudget {
+	private static final int warmupRuns = 5;
+	private static final int measuredRuns = 5;
+
+
+	public static void assertWithinBudget(String scenario, long budgetBytesPerItem, int items, Runnable runnable) {
+		Assume.assumeTrue("Thread allocation measurement is not supported", isSupported());
+		long bytesPerItem = bytesPerItem(items, runnable);
+		if (Boolean.getBoolean("vcsreader.test.printAllocations")) {
+			System.out.println(scenario + ": " + bytesPerItem + " bytes per item (budget " + budgetBytesPerItem + ")");
+		}
+		if (bytesPerItem > budgetBytesPerItem) {
+			throw new AssertionError(scenario + " allocated " + bytesPerItem + " bytes per item, " +
+					"budget is " + budgetBytesPerItem + " bytes per item");
+		}
+	}
+
+	public static long bytesPerItem(int items, Runnable runnable) {
+		for (int i = 0; i < warmupRuns; i++) {
+			runnable.run();
+		}
+		long minBytes = Long.MAX_VALUE;
+		for (int i = 0; i < measuredRuns; i++) {
+			long before = allocatedBytes();
+			runnable.run();
+			minBytes = Math.min(minBytes, allocatedBytes() - before);
+		}
+		return minBytes / Math.max(items, 1);
+	}
+
+	public static boolean isSupported() {
+		try {
+			com.sun.management.ThreadMXBean bean = threadMXBean();
+			if (!bean.isThreadAllocatedMemorySupported()) return false;
+			if (!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+			return bean.isThreadAllocatedMemoryEnabled();
+		} catch (LinkageError | ClassCastException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	private static long allocatedBytes() {
+		return threadMXBean().getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean threadMXBean() {
+		return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	}
+}
@@ -0,0 +1,50 @@
+package org.vcsreader.lang
+
+import org.junit.Test
+
+class CapturedOutputTest {
+	@Test void "keep output in memory if it's not larger than spill threshold"() {
+		def output = CapturedOutput.read(new ByteArrayInputStream("abc".bytes), 2, 3)
+
+		assert !output.isSpilledToFile()
+		assert output.size() == 3
+		assert output.inputStream().text == "abc"
+	}
+
+	@Test void "map spilled output in chunks"() {
+		def bytes = (0..<1000).collect { (byte) (it % 128) } as byte[]
+		def output = CapturedOutput.read(new ByteArrayInputStream(bytes), 16, 100, ProcessGovernor.unlimited.newLease(), 300)
+
+		try {
+			assert output.isSpilledToFile()
+			assert output.buffers()*.remaining() == [300, 300, 300, 100]
+			assert output.inputStream().bytes == bytes
+			assert output.toByteArray() == bytes
+		} finally {
+			output.close()
+		}
+	}
+
+	@Test void "read range and find bytes across chunks"() {
+		def bytes = (0..<1000).collect { (byte) (it % 128) } as byte[]
+		def output = CapturedOutput.read(new ByteArrayInputStream(bytes), 16, 100, ProcessGovernor.unlimited.newLease(), 300)
+
+		try {
+			assert output.inputStream(250, 650).bytes == bytes[250..<650] as byte[]
+			assert output.inputStream(300, 300).read() == -1
+			assert output.indexOf([126, 127, 0, 1] as byte[], 0) == 126
+			assert output.indexOf([126, 127, 0, 1] as byte[], 127) == 254
+			assert output.indexOf([44, 45] as byte[], 900) == 940
+			assert output.indexOf([127, 127] as byte[], 0) == -1
+		} finally {
+			output.close()
+		}
+	}
+
+	@Test void "empty output"() {
+		def output = CapturedOutput.read(new ByteArrayInputStream(new byte[0]), 16, 0)
+
+		assert output.size() == 0
+		assert output.inputStream().read() == -1
+	}
+}
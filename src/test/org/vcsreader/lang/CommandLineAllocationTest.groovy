@@ -0,0 +1,57 @@
+package org.vcsreader.lang
+
+import org.junit.AfterClass
+import org.junit.Test
+
+import java.nio.charset.StandardCharsets
+
+import static org.vcsreader.lang.AllocationBudget.assertWithinBudget
+
+class CommandLineAllocationTest {
+	private static final int contentSize = 4 * 1024 * 1024
+	private static final File contentFile = createContentFile(contentSize)
+	// read stdout/stderr on the current thread so that allocations are measured
+	private static final CommandLine.Config config = CommandLine.Config.defaults.asyncExecutor({ it.run() })
+
+	@Test void "decode stdout as string within allocation budget"() {
+		assertWithinBudget("CommandLine.execute", 6, contentSize) {
+			def commandLine = new CommandLine(config, "cat", contentFile.absolutePath).execute()
+			assert commandLine.stdout().length() == contentSize
+		}
+	}
+
+	@Test void "decode captured stdout within allocation budget"() {
+		assertWithinBudget("CommandLine.executeCapturingStdout", 5, contentSize) {
+			def commandLine = new CommandLine(config, "cat", contentFile.absolutePath)
+			def output = commandLine.executeCapturingStdout()
+			try {
+				def reader = output.reader(commandLine.outputCharset())
+				def buffer = new char[8192]
+				long charCount = 0
+				int n
+				while ((n = reader.read(buffer)) != -1) charCount += n
+				assert charCount == contentSize
+			} finally {
+				output.close()
+			}
+		}
+	}
+
+	@AfterClass static void deleteContentFile() {
+		contentFile.delete()
+	}
+
+	private static File createContentFile(int size) {
+		def file = File.createTempFile("vcsreader-content-", ".txt")
+		def line = "some file content line which is long enough to be realistic\n".getBytes(StandardCharsets.UTF_8)
+		file.withOutputStream { out ->
+			int written = 0
+			while (written < size) {
+				int n = Math.min(line.length, size - written)
+				out.write(line, 0, n)
+				written += n
+			}
+		}
+		file
+	}
+}
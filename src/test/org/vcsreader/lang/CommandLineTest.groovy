@@ -2,8 +2,11 @@ package org.vcsreader.lang
 
 import org.junit.Test
 
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
 import java.util.concurrent.CountDownLatch
 import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ThreadPoolExecutor
 import java.util.concurrent.atomic.AtomicBoolean
 
 import static java.util.concurrent.Executors.newSingleThreadExecutor
@@ -20,6 +23,13 @@ class CommandLineTest {
 		assert commandLine.exitCode() == 0
 	}
 
+	@Test
+	void "command line with stdin"() {
+		def commandLine = new CommandLine("cat").stdin("some input".bytes).execute()
+		assert commandLine.stdout() == "some input"
+		assert commandLine.exitCode() == 0
+	}
+
 	@Test
 	void "failed command line execution"() {
 		def commandLine = new CommandLine("fake-commandLine")
@@ -75,6 +85,146 @@ class CommandLineTest {
 		assert isDead.get()
 	}
 
+	@Test
+	void "read stdout of started command"() {
+		def commandLine = new CommandLine("printf", "line1\nline2").start()
+		def lines = commandLine.stdoutReader().readLines()
+		commandLine.finish()
+
+		assert lines == ["line1", "line2"]
+		assert commandLine.exitCode() == 0
+	}
+
+	@Test(timeout = 1000L)
+	void "finish started command without reading all stdout"() {
+		def commandLine = new CommandLine("yes").start()
+		assert commandLine.stdoutReader().read() == ('y' as char)
+
+		commandLine.kill()
+		commandLine.finish()
+
+		assert commandLine.exitCode() != 0
+	}
+
+	@Test(timeout = 2000L)
+	void "read stdout and stderr with executor which has single pooled thread"() {
+		def config = CommandLine.Config.defaults.asyncExecutor(StreamPumpExecutors.pooled(1))
+		// print more than pipe buffer size to stderr so that the process blocks if stderr is not read concurrently with stdout
+		def commandLine = new CommandLine(config, "sh", "-c", "echo out; head -c 100000 /dev/zero | tr '\\0' e >&2").execute()
+
+		assert commandLine.stdout() == "out\n"
+		assert commandLine.stderr().length() == 100000
+		assert commandLine.exitCode() == 0
+	}
+
+	@Test
+	void "use execution config but keep command settings"() {
+		def config = CommandLine.Config.defaults.asyncExecutor(StreamPumpExecutors.pooled(1))
+		def commandLine = new CommandLine("pwd").workingDir("/").executionConfig(config).execute()
+
+		assert commandLine.stdout() == "/\n"
+	}
+
+	@Test
+	void "virtual threads executor if supported"() {
+		def executor = StreamPumpExecutors.virtualThreadsIfSupported()
+		def thread = CompletableFuture.supplyAsync({ Thread.currentThread() }, executor).get()
+		if (StreamPumpExecutors.isVirtualThreadsSupported()) {
+			assert thread.isVirtual()
+			assert StreamPumpExecutors.defaultExecutor.class == executor.class
+		} else {
+			assert thread.daemon
+			assert executor instanceof ThreadPoolExecutor
+			assert StreamPumpExecutors.defaultExecutor instanceof ThreadPoolExecutor
+		}
+		def commandLine = new CommandLine(CommandLine.Config.defaults.asyncExecutor(executor), "echo", "hello").execute()
+		assert commandLine.stdout() == "hello\n"
+	}
+
+	@Test
+	void "capture small stdout in memory"() {
+		def commandLine = new CommandLine("echo", "hello")
+
+		commandLine.executeCapturingStdout().withCloseable { stdout ->
+			assert !stdout.isSpilledToFile()
+			assert new String(stdout.toByteArray()) == "hello\n"
+			assert stdout.reader(commandLine.outputCharset()).text == "hello\n"
+		}
+		assert commandLine.exitCode() == 0
+	}
+
+	@Test
+	void "spill large stdout to temporary file"() {
+		def config = CommandLine.Config.defaults.stdoutSpillThreshold(1000)
+		def commandLine = new CommandLine(config, "sh", "-c", "head -c 100000 /dev/zero | tr '\\0' e")
+
+		def stdout = commandLine.executeCapturingStdout()
+		def file = new File(stdout.toString().replaceAll(/.*file=(.*)}/, '$1'))
+		try {
+			assert stdout.isSpilledToFile()
+			assert stdout.size() == 100000
+			assert stdout.reader(commandLine.outputCharset()).text == "e" * 100000
+			assert file.exists()
+		} finally {
+			stdout.close()
+		}
+		assert !file.exists()
+	}
+
+	@Test(timeout = 2000L)
+	void "kill command after timeout"() {
+		def commandLine = new CommandLine(CommandLine.Config.defaults.timeout(Duration.ofMillis(100)), "sleep", "10")
+
+		try {
+			commandLine.execute()
+			fail()
+		} catch (CommandLine.Timeout e) {
+			assert e.message == "Command timed out: sleep 10"
+		}
+		assert commandLine.isTimedOut()
+	}
+
+	@Test(timeout = 2000L)
+	void "kill command after deadline of the current thread"() {
+		def commandLine = new CommandLine("sleep", "10")
+
+		try {
+			Deadline.runWithin(Deadline.after(Duration.ofMillis(100))) { commandLine.execute() }
+			fail()
+		} catch (CommandLine.Timeout ignored) {
+		}
+		assert commandLine.isTimedOut()
+		assert Deadline.current().isNone()
+	}
+
+	@Test(timeout = 2000L)
+	void "timeout command when child process keeps its output open"() {
+		def commandLine = new CommandLine(CommandLine.Config.defaults.timeout(Duration.ofMillis(100)), "sh", "-c", "sleep 10 & sleep 10")
+
+		try {
+			commandLine.execute()
+			fail()
+		} catch (CommandLine.Timeout ignored) {
+		}
+		assert commandLine.isTimedOut()
+	}
+
+	@Test(timeout = 2000L)
+	void "forcibly kill command which ignores termination signal"() {
+		def commandLine = new CommandLine("sh", "-c", "trap '' TERM; echo started; while true; do :; done").start()
+		assert commandLine.stdoutReader().read() == ('s' as char)
+
+		assert commandLine.kill()
+	}
+
+	@Test
+	void "command which finished before timeout"() {
+		def commandLine = new CommandLine(CommandLine.Config.defaults.timeout(Duration.ofSeconds(10)), "echo", "hello").execute()
+
+		assert commandLine.stdout() == "hello\n"
+		assert !commandLine.isTimedOut()
+	}
+
 	@Test
 	void "command description"() {
 		assert new CommandLine("ls", "-l").describe() == "ls -l"
@@ -0,0 +1,46 @@
+package org.vcsreader.lang
+
+import org.junit.Test
+
+import java.nio.file.Files
+
+import static org.junit.Assume.assumeTrue
+
+class JfrEventsTest {
+	@Test void "events are no-op when not recorded"() {
+		assert !JfrEvents.process.isEnabled()
+		assert JfrEvents.process.begin().isNone()
+	}
+
+	@Test void "record process event"() {
+		assumeTrue(isJfrSupported())
+		// use dynamic calls because JFR API is not available in Java 8
+		def recording = Class.forName("jdk.jfr.Recording").newInstance()
+		recording.enable("org.vcsreader.Process")
+		recording.start()
+		new CommandLine("echo", "hello").execute()
+		recording.stop()
+
+		def file = Files.createTempFile("vcsreader-", ".jfr")
+		try {
+			recording.dump(file)
+			def events = Class.forName("jdk.jfr.consumer.RecordingFile").readAllEvents(file)
+			def event = events.find { it.eventType.name == "org.vcsreader.Process" }
+			assert event.getString("command") == "echo hello"
+			assert event.getInt("exitCode") == 0
+			assert event.getLong("stdoutBytes") == 6
+		} finally {
+			recording.close()
+			Files.delete(file)
+		}
+	}
+
+	private static boolean isJfrSupported() {
+		try {
+			Class.forName("jdk.jfr.Recording")
+			return true
+		} catch (ClassNotFoundException ignored) {
+			return false
+		}
+	}
+}
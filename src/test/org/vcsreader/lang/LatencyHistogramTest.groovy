@@ -0,0 +1,39 @@
+package org.vcsreader.lang
+
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+
+class LatencyHistogramTest {
+	@Test void "percentiles are bucket upper bounds"() {
+		def histogram = new LatencyHistogram()
+		(1..99).each { histogram.record(MILLISECONDS.toNanos(1)) }
+		histogram.record(MILLISECONDS.toNanos(100))
+
+		assert histogram.count() == 100
+		assert histogram.percentileNanos(50) == 1024000
+		assert histogram.percentileNanos(99) == 1024000
+		assert histogram.percentileNanos(100) == MILLISECONDS.toNanos(100)
+		assert histogram.maxNanos() == MILLISECONDS.toNanos(100)
+	}
+
+	@Test void "merge histograms"() {
+		def histogram1 = new LatencyHistogram()
+		def histogram2 = new LatencyHistogram()
+		histogram1.record(1000)
+		histogram2.record(3000)
+
+		def merged = histogram1.merge(histogram2)
+
+		assert merged.count() == 2
+		assert merged.totalNanos() == 4000
+		assert merged.meanNanos() == 2000
+		assert histogram1.count() == 1
+	}
+
+	@Test void "empty histogram"() {
+		def histogram = new LatencyHistogram()
+		assert histogram.percentileNanos(99) == 0
+		assert histogram.meanNanos() == 0
+	}
+}
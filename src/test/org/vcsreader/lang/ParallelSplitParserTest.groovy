@@ -0,0 +1,64 @@
+package org.vcsreader.lang
+
+import org.junit.Test
+
+import java.util.concurrent.ForkJoinPool
+
+import static java.nio.charset.StandardCharsets.UTF_16
+import static java.nio.charset.StandardCharsets.UTF_8
+
+class ParallelSplitParserTest {
+	private static final String separator = "\u0015\u0016\u0017\u0018\u0019"
+	private final pool = new ForkJoinPool(4)
+
+	@Test void "split output at separator boundaries"() {
+		def output = CapturedOutput.inMemory("${separator}a1${separator}b22${separator}c333${separator}d".getBytes(UTF_8))
+
+		def chunks = ParallelSplitParser.chunks(output, separator.getBytes(UTF_8), 3)
+
+		assert chunks.collect { output.inputStream(it[0], it[1]).getText("UTF-8") } == [
+				"${separator}a1", "${separator}b22", "${separator}c333", "${separator}d"
+		]*.toString()
+	}
+
+	@Test void "parse chunks in parallel preserving the order of results"() {
+		def text = (1..1000).collect { "${separator}commit ${it} with non-ascii message ąčę" }.join("")
+		def output = CapturedOutput.inMemory(text.getBytes(UTF_8))
+
+		def result = ParallelSplitParser.parse(output, UTF_8, separator, pool, { Reader reader -> parse(reader) }, 100)
+
+		assert result == (1..1000).collect { "commit ${it} with non-ascii message ąčę".toString() }
+	}
+
+	@Test void "parse output spilled to file in several buffers"() {
+		def text = (1..1000).collect { "${separator}commit ${it}" }.join("")
+		def bytes = text.getBytes(UTF_8)
+		def output = CapturedOutput.read(new ByteArrayInputStream(bytes), 16, 100, ProcessGovernor.unlimited.newLease(), 1000)
+
+		try {
+			def result = ParallelSplitParser.parse(output, UTF_8, separator, pool, { Reader reader -> parse(reader) }, 100)
+			assert result == (1..1000).collect { "commit ${it}".toString() }
+		} finally {
+			output.close()
+		}
+	}
+
+	@Test void "parse sequentially if separator can't be found in bytes"() {
+		def text = (1..100).collect { "${separator}commit ${it}" }.join("")
+		def output = CapturedOutput.inMemory(text.getBytes(UTF_16))
+
+		def result = ParallelSplitParser.parse(output, UTF_16, separator, pool, { Reader reader -> parse(reader) }, 10)
+
+		assert result == (1..100).collect { "commit ${it}".toString() }
+	}
+
+	private static List<String> parse(Reader reader) {
+		def result = []
+		def iterator = new SplitIterator(reader, separator)
+		while (iterator.hasNext()) {
+			def s = iterator.next()
+			if (!s.empty) result.add(s)
+		}
+		result
+	}
+}
@@ -0,0 +1,32 @@
+package org.vcsreader.lang
+
+import org.junit.Test
+
+class PathPrefixTrieTest {
+	@Test void "match path prefixes by whole segments"() {
+		def trie = new PathPrefixTrie<String>()
+				.put("src/main", "main")
+				.put("src/main/java", "java")
+				.put("lib/", "lib")
+
+		assert trie.valuesMatching("src/main/Foo.java") == ["main"]
+		assert trie.valuesMatching("src/main/java/Foo.java") == ["main", "java"]
+		assert trie.valuesMatching("src/mainframe/Foo.java") == []
+		assert trie.valuesMatching("lib/foo.jar") == ["lib"]
+		assert trie.valuesMatching("") == []
+	}
+
+	@Test void "empty prefix matches all paths"() {
+		def trie = new PathPrefixTrie<String>().put("", "root").put("src", "src")
+
+		assert trie.valuesMatching("src/Foo.java") == ["root", "src"]
+		assert trie.valuesMatching("Foo.java") == ["root"]
+		assert trie.valuesMatching("") == ["root"]
+	}
+
+	@Test void "keep all values of the same prefix"() {
+		def trie = new PathPrefixTrie<String>().put("src", "src1").put("src/", "src2").put("/src", "src3")
+
+		assert trie.valuesMatching("src/Foo.java") == ["src1", "src2", "src3"]
+	}
+}
@@ -0,0 +1,134 @@
+package org.vcsreader.lang
+
+import org.junit.Test
+
+import java.time.Duration
+
+import static org.junit.Assert.fail
+
+class ProcessGovernorTest {
+	@Test(timeout = 5000L)
+	void "limit number of live processes"() {
+		def governor = new ProcessGovernor(1, Long.MAX_VALUE)
+		def config = CommandLine.Config.defaults.governor(governor)
+		def maxQueueDepth = 0
+
+		def threads = (1..3).collect {
+			Thread.start { new CommandLine(config, "sleep", "0.2").execute() }
+		}
+		while (threads.any { it.alive }) {
+			assert governor.liveProcesses() <= 1
+			maxQueueDepth = Math.max(maxQueueDepth, governor.queueDepth())
+			Thread.sleep(10)
+		}
+
+		assert maxQueueDepth > 0
+		assert governor.liveProcesses() == 0
+		assert governor.queueDepth() == 0
+	}
+
+	@Test(timeout = 5000L)
+	void "exceed memory budget instead of deadlock when all readers are waiting"() {
+		def governor = new ProcessGovernor(10, 10000)
+		def config = CommandLine.Config.defaults.governor(governor)
+
+		def commandLines = (1..3).collect { new CommandLine(config, "sh", "-c", "head -c 100000 /dev/zero | tr '\\0' e") }
+		def threads = commandLines.collect { commandLine -> Thread.start { commandLine.execute() } }
+		threads.each { it.join() }
+
+		assert commandLines.every { it.stdout().length() == 100000 }
+		assert governor.bufferedBytes() == 0
+	}
+
+	@Test void "spill captured output to file when memory budget is exhausted"() {
+		def governor = new ProcessGovernor(10, 1000)
+		def config = CommandLine.Config.defaults.governor(governor)
+
+		def stdout = new CommandLine(config, "sh", "-c", "head -c 2000 /dev/zero").executeCapturingStdout()
+		try {
+			assert stdout.isSpilledToFile()
+			assert stdout.size() == 2000
+			assert governor.bufferedBytes() == 0
+		} finally {
+			stdout.close()
+		}
+	}
+
+	@Test void "release budget of captured output on close"() {
+		def governor = new ProcessGovernor(10, 1000)
+
+		def stdout = new CommandLine(CommandLine.Config.defaults.governor(governor), "echo", "hello").executeCapturingStdout()
+		assert governor.bufferedBytes() == 6
+		stdout.close()
+
+		assert governor.bufferedBytes() == 0
+	}
+
+	@Test void "keep memory budget of stdout until output is handled"() {
+		def governor = new ProcessGovernor(10, 1000)
+		def commandLine = new CommandLine(CommandLine.Config.defaults.governor(governor), "echo", "hello")
+
+		def bufferedBytes = commandLine.execute { governor.bufferedBytes() }
+
+		assert bufferedBytes == 6
+		assert governor.bufferedBytes() == 0
+		assert commandLine.stdout() == ""
+	}
+
+	@Test(timeout = 5000L)
+	void "run sub-command in process slot of its parent"() {
+		def governor = new ProcessGovernor(1, Long.MAX_VALUE)
+		def config = CommandLine.Config.defaults.governor(governor)
+		def parent = new CommandLine(config, "sleep", "10").start()
+		try {
+			def subCommand = new CommandLine(config, "echo", "hello").subCommandOf(parent).execute()
+
+			assert subCommand.stdout() == "hello\n"
+			assert governor.liveProcesses() == 1
+		} finally {
+			parent.kill()
+			parent.finish()
+		}
+		assert governor.liveProcesses() == 0
+	}
+
+	@Test void "time out waiting for process"() {
+		def governor = new ProcessGovernor(1, Long.MAX_VALUE)
+		assert governor.acquireProcess(Deadline.none)
+
+		def commandLine = new CommandLine(CommandLine.Config.defaults.governor(governor).timeout(Duration.ofMillis(50)), "echo")
+		try {
+			commandLine.execute()
+			fail()
+		} catch (CommandLine.Timeout ignored) {
+		}
+		governor.releaseProcess()
+		assert governor.liveProcesses() == 0
+	}
+
+	@Test(timeout = 5000L)
+	void "don't start process of command killed while waiting for process slot"() {
+		def governor = new ProcessGovernor(1, Long.MAX_VALUE)
+		assert governor.acquireProcess(Deadline.none)
+		def markerFile = File.createTempFile("vcsreader-", ".marker")
+		assert markerFile.delete()
+		def commandLine = new CommandLine(CommandLine.Config.defaults.governor(governor), "touch", markerFile.absolutePath)
+		def failure = null
+		def thread = Thread.start {
+			try {
+				commandLine.execute()
+			} catch (CommandLine.Failure e) {
+				failure = e
+			}
+		}
+
+		Thread.sleep(100)
+		assert commandLine.kill()
+		governor.releaseProcess()
+		thread.join()
+
+		assert failure != null
+		assert !markerFile.exists()
+		assert governor.liveProcesses() == 0
+	}
+}
@@ -21,6 +21,18 @@ class StringUtilTest {
 		assert split("|a|b|", "|") == ["a", "b"]
 	}
 
+	@Test void "splitting text from reader"() {
+		def splitReader = { String s, String separator, int bufferSize ->
+			new SplitIterator(new StringReader(s), separator, bufferSize).toList()
+		}
+		for (int bufferSize in [1, 2, 3, 100]) {
+			assert splitReader("", "|", bufferSize) == []
+			assert splitReader("|a|b|", "|", bufferSize) == ["a", "b"]
+			assert splitReader("a--b--c", "--", bufferSize) == ["a", "b", "c"]
+			assert splitReader("--aa--bb-b--", "--", bufferSize) == ["aa", "bb-b"]
+		}
+	}
+
 	@Test void "trimming strings"() {
 		assert trim("", " ") == ""
 		assert trim(" ", " ") == ""
@@ -0,0 +1,66 @@
+package org.vcsreader.vcs
+
+import org.junit.Test
+import org.vcsreader.LogResult
+
+import java.time.Instant
+
+import static org.vcsreader.VcsChange.noRevision
+
+class BatchedLogRevisionsTest {
+	private final existingRevisions = ["1", "2", "3", "4", "5"]
+	private final executedBatches = []
+
+	@Test void "log revisions in batches"() {
+		def logRevisions = new BatchedLogRevisions(["1", "2", "3", "4", "5"], 2, this.&fakeLog, { null })
+
+		def logResult = logRevisions.execute()
+
+		assert logResult.isSuccessful()
+		assert logResult.commits()*.revision == ["1", "2", "3", "4", "5"]
+		assert executedBatches == [["1", "2"], ["3", "4"], ["5"]]
+	}
+
+	@Test void "repeat batch without missing revision"() {
+		def logRevisions = new BatchedLogRevisions(["1", "100", "2", "3"], 3, this.&fakeLog, { it.find(/No such revision (\d+)/) { match, revision -> revision } })
+
+		def logResult = logRevisions.execute()
+
+		assert logResult.commits()*.revision == ["1", "2", "3"]
+		assert logResult.exceptions()*.message == ["No such revision 100"]
+		assert executedBatches == [["1", "100", "2"], ["1", "2"], ["3"]]
+	}
+
+	@Test void "don't start batches after cancel"() {
+		BatchedLogRevisions logRevisions
+		logRevisions = new BatchedLogRevisions(["1", "2", "3"], 1, { batch ->
+			new FakeLogCommand(batch: batch, onExecute: { if (batch == ["1"]) logRevisions.cancel() })
+		}, { null })
+
+		def logResult = logRevisions.execute()
+
+		assert logResult.commits().empty
+		assert executedBatches == [["1"]]
+	}
+
+	private VcsCommand<LogResult> fakeLog(List<String> batch) {
+		new FakeLogCommand(batch: batch)
+	}
+
+	private class FakeLogCommand implements VcsCommand<LogResult> {
+		List<String> batch
+		Closure onExecute = {}
+
+		@Override LogResult execute() {
+			executedBatches.add(new ArrayList(batch))
+			onExecute()
+			def missingRevision = batch.find { !existingRevisions.contains(it) }
+			if (missingRevision != null) return new LogResult(new VcsError("No such revision " + missingRevision))
+			new LogResult(batch.collect { new Commit(it, noRevision, Instant.EPOCH, "author", "message", []) })
+		}
+
+		@Override String describe() { "fake log " + batch }
+
+		@Override boolean cancel() { true }
+	}
+}
@@ -0,0 +1,72 @@
+package org.vcsreader.vcs
+
+import org.junit.Test
+import org.vcsreader.LogResult
+import org.vcsreader.lang.TimeRange
+
+import java.time.Instant
+
+class LogCacheTest {
+	private final logCache = new LogCache(2)
+	private final range1 = new TimeRange(Instant.ofEpochSecond(0), Instant.ofEpochSecond(100))
+	private final range2 = new TimeRange(Instant.ofEpochSecond(0), Instant.ofEpochSecond(200))
+	private final range3 = new TimeRange(Instant.ofEpochSecond(0), Instant.ofEpochSecond(300))
+
+	@Test void "return cached result while fingerprint doesn't change"() {
+		def logCommand = new FakeLogCommand()
+
+		def command = logCache.cached(range1, { "fingerprint1" }, logCommand)
+		def result = command.execute()
+		assert !command.isCacheHit()
+
+		command = logCache.cached(range1, { "fingerprint1" }, logCommand)
+		assert command.execute().is(result)
+		assert command.isCacheHit()
+		assert logCommand.executions == 1
+
+		command = logCache.cached(range1, { "fingerprint2" }, logCommand)
+		assert !command.execute().is(result)
+		assert !command.isCacheHit()
+		assert logCommand.executions == 2
+	}
+
+	@Test void "cache results per time range"() {
+		def logCommand = new FakeLogCommand()
+
+		logCache.cached(range1, { "fingerprint" }, logCommand).execute()
+		logCache.cached(range2, { "fingerprint" }, logCommand).execute()
+		assert logCache.cached(range1, { "fingerprint" }, logCommand).with { execute(); isCacheHit() }
+		assert logCache.cached(range2, { "fingerprint" }, logCommand).with { execute(); isCacheHit() }
+
+		// evicts range1 which is the least recently used
+		logCache.cached(range3, { "fingerprint" }, logCommand).execute()
+		assert !logCache.cached(range1, { "fingerprint" }, logCommand).with { execute(); isCacheHit() }
+	}
+
+	@Test void "don't cache failed results or results with unknown fingerprint"() {
+		def logCommand = new FakeLogCommand(failed: true)
+		logCache.cached(range1, { "fingerprint" }, logCommand).execute()
+		logCache.cached(range1, { "fingerprint" }, logCommand).execute()
+		assert logCommand.executions == 2
+
+		logCommand = new FakeLogCommand()
+		logCache.cached(range1, { null }, logCommand).execute()
+		logCache.cached(range1, { null }, logCommand).execute()
+		assert logCommand.executions == 2
+	}
+
+
+	private static class FakeLogCommand implements VcsCommand<LogResult> {
+		boolean failed
+		int executions
+
+		@Override LogResult execute() {
+			executions++
+			failed ? new LogResult(new VcsError("failed")) : new LogResult()
+		}
+
+		@Override String describe() { "fake log" }
+
+		@Override boolean cancel() { true }
+	}
+}
@@ -0,0 +1,37 @@
+package org.vcsreader.vcs
+
+import org.junit.Test
+import org.vcsreader.LogResult
+import org.vcsreader.VcsCommit
+
+import java.time.Instant
+
+import static org.vcsreader.VcsChange.Type.Modified
+import static org.vcsreader.lang.AllocationBudget.assertWithinBudget
+
+class LogResultAllocationTest {
+	private static final int rootCount = 10
+	private static final int commitsPerRoot = 1000
+	private static final List<LogResult> rootResults = (0..<rootCount).collect { generateLogResult(it, commitsPerRoot) }
+
+	@Test void "aggregate log results within allocation budget"() {
+		assertWithinBudget("LogResult.aggregateWith", 100, rootCount * commitsPerRoot) {
+			def result = new LogResult()
+			for (LogResult rootResult : rootResults) {
+				result = result.aggregateWith(rootResult)
+			}
+			assert result.commits().size() == rootCount * commitsPerRoot
+		}
+	}
+
+	private static LogResult generateLogResult(int root, int commitCount) {
+		def commits = new ArrayList<VcsCommit>()
+		for (int i = 0; i < commitCount; i++) {
+			def revision = "${root}-${i}"
+			def dateTime = Instant.ofEpochSecond(1500000000L + i * rootCount + root)
+			commits.add(new Commit(revision, "${root}-${i - 1}", dateTime, "Some Author", "message",
+					[new Change(Modified, "file.txt", "file.txt", revision, "${root}-${i - 1}")]))
+		}
+		new LogResult(commits)
+	}
+}
@@ -0,0 +1,95 @@
+package org.vcsreader.vcs
+
+import org.junit.Test
+import org.vcsreader.lang.CommandLine
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+import static java.util.concurrent.TimeUnit.SECONDS
+
+class RunningCommandsTest {
+	private static final VcsCommand.ExceptionWrapper<Integer> exitCodeOnError = { -1 }
+
+	@Test(timeout = 2000L)
+	void "cancel all running commands"() {
+		def runningCommands = new RunningCommands(Integer.MAX_VALUE)
+		def started = new CountDownLatch(2)
+		def commands = [new SleepCommand(started), new SleepCommand(started)]
+		def threads = commands.collect { command ->
+			Thread.start { runningCommands.execute(command, exitCodeOnError, VcsCommand.Listener.none, false) }
+		}
+		started.await(1, SECONDS)
+		Thread.sleep(200) // wait for processes to start
+
+		assert runningCommands.size() == 2
+		assert runningCommands.cancelAll()
+
+		threads.each { it.join() }
+		assert runningCommands.size() == 0
+		assert commands.every { it.exitCode == 143 }
+	}
+
+	@Test(timeout = 2000L)
+	void "limit number of concurrent commands"() {
+		def runningCommands = new RunningCommands(1)
+		def maxRunning = new AtomicInteger()
+		def running = new AtomicInteger()
+		def command = new VcsCommand<Integer>() {
+			@Override String describe() { "command" }
+			@Override boolean cancel() { true }
+			@Override Integer execute() {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math.&max)
+				Thread.sleep(50)
+				running.decrementAndGet()
+			}
+		}
+
+		def threads = (1..3).collect {
+			Thread.start { runningCommands.execute(command, exitCodeOnError, VcsCommand.Listener.none, false) }
+		}
+		threads.each { it.join() }
+
+		assert maxRunning.get() == 1
+		assert runningCommands.size() == 0
+	}
+
+	@Test(timeout = 2000L)
+	void "report timeout as vcs error"() {
+		def runningCommands = new RunningCommands(Integer.MAX_VALUE, Duration.ofMillis(100))
+		def error = null
+
+		runningCommands.execute(new SleepCommand(new CountDownLatch(1)), { error = it; -1 } as VcsCommand.ExceptionWrapper<Integer>, VcsCommand.Listener.none, false)
+
+		assert error instanceof VcsTimeoutError
+		assert error.message == "Command timed out: sleep 10"
+		assert runningCommands.size() == 0
+	}
+
+	@Test(expected = IllegalArgumentException)
+	void "max concurrent commands must be positive"() {
+		new RunningCommands(0)
+	}
+
+
+	private static class SleepCommand implements VcsCommand<Integer> {
+		private final CommandLine commandLine = new CommandLine("sleep", "10")
+		private final CountDownLatch started
+		volatile int exitCode
+
+		SleepCommand(CountDownLatch started) {
+			this.started = started
+		}
+
+		@Override String describe() { commandLine.describe() }
+
+		@Override Integer execute() {
+			started.countDown()
+			exitCode = commandLine.execute().exitCode()
+			exitCode
+		}
+
+		@Override boolean cancel() { commandLine.kill() }
+	}
+}
@@ -12,8 +12,10 @@ import org.vcsreader.vcs.git.GitVcsRoot;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
@@ -86,6 +88,42 @@ public class VcsProjectTest {
 		project.log(timeRange("01/07/2014", "08/07/2014"));
 	}
 
+	@Test public void mergeResultsOfAsyncLogProjectHistory() throws Exception {
+		// given
+		VcsCommit commit1 = new Commit("1", "", Instant.ofEpochMilli(0), "", "", new ArrayList<>());
+		VcsCommit commit2 = new Commit("2", "", Instant.ofEpochMilli(0), "", "", new ArrayList<>());
+		when(root1.logAsync(anyTimeRange())).thenReturn(completedFuture(new LogResult(asList(commit1), asList(new VcsError("some error")))));
+		when(root2.logAsync(anyTimeRange())).thenReturn(completedFuture(new LogResult(asList(commit2))));
+		VcsProject project = new VcsProject(asList(root1, root2));
+
+		// when
+		LogResult logResult = project.logAsync(timeRange("01/07/2014", "08/07/2014")).get();
+
+		// then
+		assertThat(logResult.commits(), equalTo(asList(commit1, commit2)));
+		assertThat(logResult.exceptions(), equalTo(asList(
+				new VcsError("some error")
+		)));
+	}
+
+	@Test public void cancelAsyncLogForAllRoots() {
+		// given
+		CompletableFuture<LogResult> future1 = new CompletableFuture<>();
+		CompletableFuture<LogResult> future2 = new CompletableFuture<>();
+		when(root1.logAsync(anyTimeRange())).thenReturn(future1);
+		when(root2.logAsync(anyTimeRange())).thenReturn(future2);
+		VcsProject project = new VcsProject(asList(root1, root2));
+
+		// when
+		CompletableFuture<LogResult> future = project.logAsync(timeRange("01/07/2014", "08/07/2014"));
+		future.cancel(true);
+
+		// then
+		assertThat(future.isCancelled(), equalTo(true));
+		assertThat(future1.isCancelled(), equalTo(true));
+		assertThat(future2.isCancelled(), equalTo(true));
+	}
+
 	private static TimeRange anyTimeRange() {
 		return any(TimeRange.class);
 	}
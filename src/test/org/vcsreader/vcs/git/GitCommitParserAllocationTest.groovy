@@ -0,0 +1,43 @@
+package org.vcsreader.vcs.git
+
+import org.junit.Test
+
+import static org.vcsreader.lang.AllocationBudget.assertWithinBudget
+import static org.vcsreader.vcs.git.GitCommitParser.commitFieldsSeparator
+import static org.vcsreader.vcs.git.GitCommitParser.commitStartSeparator
+
+class GitCommitParserAllocationTest {
+	private static final int commitCount = 1000
+	private static final String logOutput = generateLogOutput(commitCount)
+
+	@Test void "parse log from string within allocation budget"() {
+		assertWithinBudget("GitCommitParser.parseListOfCommits(String)", 3_600, commitCount) {
+			assert GitCommitParser.parseListOfCommits(logOutput).size() == commitCount
+		}
+	}
+
+	@Test void "parse log from reader within allocation budget"() {
+		assertWithinBudget("GitCommitParser.parseListOfCommits(Reader)", 3_600, commitCount) {
+			assert GitCommitParser.parseListOfCommits(new StringReader(logOutput)).size() == commitCount
+		}
+	}
+
+	static String generateLogOutput(int commitCount) {
+		def result = new StringBuilder()
+		def revisionBefore = ""
+		for (int i = 0; i < commitCount; i++) {
+			def revision = String.format("%040x", i + 1)
+			result.append(commitStartSeparator)
+					.append(revision).append(commitFieldsSeparator)
+					.append(revisionBefore).append(commitFieldsSeparator)
+					.append(1500000000L + i).append(commitFieldsSeparator)
+					.append("Some Author").append(commitFieldsSeparator)
+					.append("commit message number ${i}\n\n").append(commitFieldsSeparator)
+					.append("\nA\tsrc/dir${i % 10}/added${i}.txt")
+					.append("\nM\tsrc/dir${i % 10}/modified${i}.txt")
+					.append("\nR100\tsrc/dir${i % 10}/old${i}.txt\tsrc/dir${i % 10}/new${i}.txt\n\n")
+			revisionBefore = revision
+		}
+		result.toString()
+	}
+}
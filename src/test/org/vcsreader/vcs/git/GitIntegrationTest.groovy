@@ -1,20 +1,32 @@
 package org.vcsreader.vcs.git
 
 import org.junit.Test
+import org.vcsreader.ContentVisitor
+import org.vcsreader.LogVisitor
 import org.vcsreader.VcsChange
+import org.vcsreader.VcsCommit
 import org.vcsreader.VcsProject
+import org.vcsreader.VcsRoot
+import org.vcsreader.lang.ProcessGovernor
 import org.vcsreader.lang.TimeRange
 import org.vcsreader.vcs.Change
+import org.vcsreader.vcs.CommandMetrics
 import org.vcsreader.vcs.Commit
 import org.vcsreader.vcs.VcsError
 
+import javax.management.openmbean.TabularData
+import java.lang.management.ManagementFactory
+import java.util.concurrent.ForkJoinPool
+
 import static org.hamcrest.CoreMatchers.equalTo
+import static java.util.stream.Collectors.toList
 import static org.junit.Assert.assertThat
 import static org.vcsreader.VcsChange.Type.*
 import static org.vcsreader.VcsChange.noRevision
 import static org.vcsreader.lang.DateTimeUtil.date
 import static org.vcsreader.lang.DateTimeUtil.dateTime
 import static org.vcsreader.lang.DateTimeUtil.timeRange
+import static org.vcsreader.lang.StringUtil.trimLastNewLine
 import static org.vcsreader.vcs.TestUtil.assertCommitsIn
 import static org.vcsreader.vcs.TestUtil.printingListener
 import static org.vcsreader.vcs.git.GitIntegrationTestConfig.*
@@ -57,7 +69,7 @@ class GitIntegrationTest {
 		def repository = new GitRepository().init()
 		def project = newProject(repository)
 		// delete project directory so that update fails
-		assert new File((project.vcsRoots().first() as GitVcsRoot).repoFolder()).deleteDir()
+		assert new File(project.vcsRoots().first().repoFolder()).deleteDir()
 
 		def updateResult = project.update()
 
@@ -388,6 +400,546 @@ class GitIntegrationTest {
 		])
 	}
 
+	@Test void "log commits as a stream"() {
+		def repository = 'repo with two commits with three added files'()
+		def project = newProject(repository)
+
+		def commits = project.logStream(TimeRange.all).withCloseable { it.collect(toList()) }
+
+		assert commits == project.log(TimeRange.all).commits()
+		assert commits.first().changes.first().fileContent().value == ""
+	}
+
+	@Test void "close log stream before reading all commits"() {
+		def repository = 'repo with two commits with three added files'()
+		def project = newProject(repository)
+
+		def commit = project.logStream(TimeRange.all).withCloseable { it.findFirst().get() }
+
+		assert commit.message == "initial commit"
+		assert project.cancelLastCommand()
+	}
+
+	@Test(timeout = 10000L)
+	void "log moved file as a stream when only one process is allowed"() {
+		def repository = 'repo with moved file'()
+		def settings = gitSettings.withProcessGovernor(new ProcessGovernor(1, Long.MAX_VALUE))
+		def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, settings)
+		vcsRoot.cloneIt()
+
+		def commits = vcsRoot.logStream(TimeRange.all).withCloseable { it.collect(toList()) }
+
+		assert commits.last().changes == [new Change(Moved, "folder/file.txt", "file.txt", repository.revisions[1], repository.revisions[0])]
+	}
+
+	@Test void "log commits and file content asynchronously"() {
+		def repository = 'repo with two added and modified files'()
+		def project = newProject(repository)
+
+		def logResult = project.logAsync(TimeRange.all).get()
+
+		assert logResult == project.log(TimeRange.all)
+		def vcsRoot = project.vcsRoots().first()
+		def fileContent = vcsRoot.logFileContentAsync("file1.txt", repository.revisions[1]).get()
+		assert fileContent == vcsRoot.logFileContent("file1.txt", repository.revisions[1])
+	}
+
+	@Test void "cancel asynchronous update"() {
+		def repository = someNonEmptyRepository()
+		def projectPath = newProjectPath()
+		new GitVcsRoot(projectPath, repository.path, gitSettings).cloneIt()
+		def scriptFolder = slowGitFolder()
+		def vcsRoot = new GitVcsRoot(projectPath, repository.path, gitSettings.withGitPath(scriptFolder.absolutePath + "/slow-git"))
+
+		def future = vcsRoot.updateAsync()
+		awaitFile(new File(scriptFolder, "started"))
+		future.cancel(true)
+		sleep(3000)
+
+		assert future.isCancelled()
+		assert !new File(scriptFolder, "finished").exists()
+		assert new GitVcsRoot(projectPath, repository.path, gitSettings).update().isSuccessful()
+	}
+
+	@Test void "cancel asynchronous log waiting for another command to finish"() {
+		def repository = someNonEmptyRepository()
+		def projectPath = newProjectPath()
+		new GitVcsRoot(projectPath, repository.path, gitSettings).cloneIt()
+		def scriptFolder = slowGitFolder()
+		def settings = gitSettings.withGitPath(scriptFolder.absolutePath + "/slow-git").withMaxConcurrentCommands(1)
+		def vcsRoot = new GitVcsRoot(projectPath, repository.path, settings)
+
+		def update = vcsRoot.updateAsync()
+		awaitFile(new File(scriptFolder, "started"))
+		def log = vcsRoot.logAsync(TimeRange.all)
+		sleep(100)
+		log.cancel(true)
+		assert update.get().isSuccessful()
+		sleep(500)
+
+		assert log.isCancelled()
+		def gitCalls = new File(scriptFolder, "calls").readLines()
+		assert gitCalls.size() == 1 && !gitCalls.first().startsWith("log")
+	}
+
+	@Test void "log file content concurrently from the same root"() {
+		def repository = 'repo with two added and modified files'()
+		def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, gitSettings.withMaxConcurrentCommands(2))
+		vcsRoot.cloneIt()
+		def revisions = repository.revisions
+
+		def futures = (1..10).collect { i ->
+			vcsRoot.logFileContentAsync(i % 2 == 0 ? "file1.txt" : "file2.txt", revisions[i % 2])
+		}
+		def contents = futures.collect { it.get().text() }
+
+		assert contents == (1..10).collect { i -> vcsRoot.logFileContent(i % 2 == 0 ? "file1.txt" : "file2.txt", revisions[i % 2]).text() }
+		assert vcsRoot.cancelLastCommand()
+	}
+
+	@Test void "log commits with stdout spilled to temporary file"() {
+		def repository = 'repo with two commits with three added files'()
+		def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, gitSettings.withStdoutSpillThreshold(10))
+		def project = new VcsProject(vcsRoot)
+		project.cloneIt()
+
+		def logResult = project.log(TimeRange.all)
+
+		assert logResult.isSuccessful()
+		assert logResult == newProject(repository).log(TimeRange.all)
+	}
+
+	@Test void "log commits by revisions"() {
+		def repository = 'repo with moved file'()
+		def vcsRoot = newProject(repository).vcsRoots().first()
+		def allCommits = vcsRoot.log(TimeRange.all).commits()
+
+		def logResult = vcsRoot.logRevisions([repository.revisions[1]])
+
+		assert logResult.isSuccessful()
+		assert logResult.commits() == allCommits.findAll { it.revision == repository.revisions[1] }
+		assert vcsRoot.logRevisions([]).commits().empty
+		assert !vcsRoot.logRevisions(["0000000000000000000000000000000000000000"]).isSuccessful()
+		vcsRoot.logRevisions(["0000000000000000000000000000000000000000", repository.revisions[1], "non-existent-branch"]).with {
+			assert it.exceptions().size() == 2
+			assert it.commits() == allCommits.findAll { it.revision == repository.revisions[1] }
+		}
+	}
+
+	@Test void "log commits with parallel parsing"() {
+		def repository = 'repo with two commits with three added files'()
+		def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, gitSettings.withParallelParsing(true))
+		def project = new VcsProject(vcsRoot)
+		project.cloneIt()
+
+		def logResult = project.log(TimeRange.all)
+
+		assert logResult.isSuccessful()
+		assert logResult == newProject(repository).log(TimeRange.all)
+	}
+
+	@Test void "log commits with parallel parsing on custom pool"() {
+		def repository = 'repo with two commits with three added files'()
+		def pool = new ForkJoinPool(2)
+		try {
+			def settings = gitSettings.withParallelParsing(true).withParseExecutor(pool)
+			def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, settings)
+			def project = new VcsProject(vcsRoot)
+			project.cloneIt()
+
+			def logResult = project.log(TimeRange.all)
+
+			assert settings.parseExecutor() == pool
+			assert logResult.isSuccessful()
+			assert logResult == newProject(repository).log(TimeRange.all)
+		} finally {
+			pool.shutdown()
+		}
+	}
+
+	@Test void "update and log in fetch-only mode"() {
+		def repository = 'repo with two commits with three added files'()
+		def settings = gitSettings.withFetchOnly(true)
+		def vcsRoots = [
+			new GitVcsRoot(newProjectPath(), repository.path, settings),
+			new GitVcsRoot(newProjectPath(), repository.path, settings)
+		]
+		def project = new VcsProject(vcsRoots)
+		project.cloneIt()
+
+		repository.create("file4.txt")
+		repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+		def updateResult = project.updateAsync().get()
+
+		assert updateResult.isSuccessful()
+		vcsRoots.each { vcsRoot ->
+			assert !new File(vcsRoot.repoFolder(), "file4.txt").exists()
+			assert vcsRoot.log(TimeRange.all).commits().size() == 3
+			assert vcsRoot.logStream(TimeRange.all).withCloseable { it.count() } == 3
+		}
+	}
+
+	@Test void "update and log bare and mirror clones"() {
+		[GitSettings.CloneMode.Bare, GitSettings.CloneMode.Mirror].each { cloneMode ->
+			def repository = 'repo with two commits with three added files'()
+			def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, gitSettings.withCloneMode(cloneMode))
+			assert vcsRoot.cloneIt().isSuccessful()
+			assert !new File(vcsRoot.repoFolder(), ".git").exists()
+			assert vcsRoot.log(TimeRange.all).commits().size() == 2
+
+			repository.create("file4.txt", "file4 content")
+			repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+			assert vcsRoot.update().isSuccessful()
+
+			def commits = vcsRoot.log(TimeRange.all).commits()
+			assert commits.size() == 3
+			assert vcsRoot.logFileContent("file4.txt", commits.first().revision).text() == "file4 content"
+		}
+	}
+
+	@Test void "log partial clone"() {
+		def repository = 'repo with two added and modified files'()
+		repository.config("uploadpack.allowFilter", "true")
+		def vcsRoot = new GitVcsRoot(newProjectPath(), "file://" + repository.path, gitSettings.withPartialClone(true))
+		assert vcsRoot.cloneIt().isSuccessful()
+		assert new File(vcsRoot.repoFolder(), ".git/config").text.contains("partialclonefilter = blob:none")
+
+		def logResult = vcsRoot.log(TimeRange.all)
+
+		assert logResult.isSuccessful()
+		assert logResult.commits() == newProject(repository).vcsRoots().first().log(TimeRange.all).commits()
+		assert vcsRoot.logFileContent("file1.txt", repository.revisions[0]).text() == "file1 content"
+	}
+
+	@Test void "clone with shared object store"() {
+		def repository = 'repo with two commits with three added files'()
+		def settings = gitSettings.withSharedObjectStore(newProjectPath())
+		def vcsRoot1 = new GitVcsRoot(newProjectPath(), repository.path, settings)
+		assert vcsRoot1.cloneIt().isSuccessful()
+		repository.create("file4.txt")
+		repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+		def vcsRoot2 = new GitVcsRoot(newProjectPath(), repository.path, settings)
+		assert vcsRoot2.cloneIt().isSuccessful()
+
+		[vcsRoot1, vcsRoot2].each { vcsRoot ->
+			def alternates = new File(vcsRoot.repoFolder(), ".git/objects/info/alternates")
+			assert alternates.text.trim() == new File(settings.sharedObjectStore(), "objects").absolutePath
+		}
+		assert vcsRoot1.log(TimeRange.all).commits().size() == 2
+		assert vcsRoot2.log(TimeRange.all).commits() == newProject(repository).vcsRoots().first().log(TimeRange.all).commits()
+		assert vcsRoot2.logFileContent("file4.txt", repository.revisions.last()).isSuccessful()
+	}
+
+	@Test void "write commit-graph after clone and update"() {
+		def repository = 'repo with two commits with three added files'()
+		def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, gitSettings.withMaintenance(true))
+		def commitGraph = new File(vcsRoot.repoFolder(), ".git/objects/info/commit-graph")
+
+		assert vcsRoot.cloneIt().isSuccessful()
+		assert commitGraph.exists()
+
+		repository.create("file4.txt")
+		repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+		commitGraph.delete()
+		assert vcsRoot.updateAsync().get().isSuccessful()
+		assert commitGraph.exists()
+		assert vcsRoot.log(TimeRange.all).commits() == newProject(repository).vcsRoots().first().log(TimeRange.all).commits()
+	}
+
+	@Test void "read commits, parents and dates from commit-graph"() {
+		def repository = 'repo with history of modified, renamed and merged files'()
+		def vcsRoot = new GitVcsRoot(newProjectPath(), "file://" + repository.path, gitSettings.withMaintenance(true))
+		assert new GitVcsRoot(repository.path, null, gitSettings).commitGraph() == null
+		assert vcsRoot.cloneIt().isSuccessful()
+
+		def commitGraph = vcsRoot.commitGraph()
+		def commits = vcsRoot.log(TimeRange.all).commits()
+		// log doesn't include merge commit
+		assert commitGraph.commitCount() == commits.size() + 1
+		assert commitGraph.position("0" * 40) == -1
+
+		commits.each { commit ->
+			def position = commitGraph.position(commit.revision)
+			assert commitGraph.commitId(position) == commit.revision
+			assert commitGraph.commitTime(position) == commit.dateTime.epochSecond
+			if (commit.revisionBefore == VcsChange.noRevision) {
+				assert commitGraph.parentCount(position) == 0
+				assert commitGraph.generation(position) == 1
+			} else {
+				def parent = commitGraph.parent(position, 0)
+				assert commitGraph.parentCount(position) == 1
+				assert commitGraph.commitId(parent) == commit.revisionBefore
+				assert commitGraph.generation(position) > commitGraph.generation(parent)
+			}
+			assert commitGraph.parent(position, 1) == GitCommitGraph.noParent
+		}
+
+		def merge = (0..<commitGraph.commitCount()).find{ commitGraph.parentCount(it) == 2 }
+		assert commitGraph.countAncestors(merge, TimeRange.all) == commitGraph.commitCount()
+		assert commitGraph.earliestCommitTime() == commits.collect{ it.dateTime }.min()
+		def timeRange = new TimeRange(dateTime("14:00:00 11/08/2014"), dateTime("00:00:00 17/08/2014"))
+		assert commitGraph.countCommits(timeRange) == vcsRoot.log(timeRange).commits().size()
+	}
+
+	@Test void "in-process reader logs the same commits and file contents as git"() {
+		def repositories = [
+			'repo with two commits with three added files'(),
+			'repo with moved and renamed file'(),
+			'repo with deleted file'(),
+			'repo with file with spaces and quotes'(),
+			'repo with non-ascii file name and commit message'(),
+			'repo with history of modified, renamed and merged files'()
+		]
+		repositories.each { repository ->
+			[false, true].each { packed ->
+				if (packed) repository.repack()
+				def gitRoot = new GitVcsRoot(repository.path, null, gitSettings)
+				def inProcessRoot = new GitVcsRoot(repository.path, null, gitSettings.withInProcessReader(true))
+
+				def commits = inProcessRoot.log(TimeRange.all).commits()
+				assert commits == gitRoot.log(TimeRange.all).commits()
+				def timeRange = new TimeRange(dateTime("14:00:00 11/08/2014"), dateTime("00:00:00 17/08/2014"))
+				assert inProcessRoot.log(timeRange).commits() == gitRoot.log(timeRange).commits()
+
+				commits.each { commit ->
+					commit.changes.findAll{ it.filePath != VcsChange.noFilePath }.each { change ->
+						def content = inProcessRoot.logFileContent(change.filePath, change.revision)
+						assert content.isSuccessful()
+						assert content.text() == gitRoot.logFileContent(change.filePath, change.revision).text()
+					}
+				}
+			}
+		}
+	}
+
+	@Test void "in-process reader reports missing revisions and files"() {
+		def repository = 'repo with two added and modified files'()
+		def vcsRoot = new GitVcsRoot(repository.path, null, gitSettings.withInProcessReader(true))
+
+		assert !vcsRoot.logFileContent("non-existent.txt", repository.revisions.last()).isSuccessful()
+		assert !vcsRoot.logFileContent("file1.txt", "0000000000000000000000000000000000000000").isSuccessful()
+		assert vcsRoot.logFileContent("file1.txt", "master").text() == "file1 new content"
+	}
+
+	@Test void "in-process reader keeps object database open until packs change"() {
+		def repository = 'repo with two added and modified files'()
+		repository.repack()
+		def vcsRoot = new GitVcsRoot(repository.path, null, gitSettings.withInProcessReader(true))
+		assert vcsRoot.logFileContent("file1.txt", "master").text() == "file1 new content"
+		def objectDatabase = vcsRoot.objectRepository.get()
+		assert vcsRoot.logFileContent("file2.txt", "master").text() == "file2 new content"
+		assert vcsRoot.objectRepository.get().is(objectDatabase)
+
+		repository.create("file3.txt", "file3 content")
+		repository.commit("added file3", "Aug 13 14:00:00 2014 +0000")
+		repository.git("repack", "-d")
+		// as if packs were changed later than the database was opened (modification time might have coarse granularity)
+		assert new File(repository.path, ".git/objects/pack").setLastModified(System.currentTimeMillis() + 2000)
+
+		assert vcsRoot.logFileContent("file3.txt", "master").text() == "file3 content"
+		def reopenedDatabase = vcsRoot.objectRepository.get()
+		assert !reopenedDatabase.is(objectDatabase)
+		assert reopenedDatabase.packs.size() == 2
+		assert reopenedDatabase.packs.containsAll(objectDatabase.packs)
+	}
+
+	@Test void "in-process reader reads objects from shared object store"() {
+		def repository = 'repo with history of modified, renamed and merged files'()
+		repository.repack()
+		def settings = gitSettings.withSharedObjectStore(newProjectPath())
+		def gitRoot = new GitVcsRoot(newProjectPath(), repository.path, settings)
+		assert gitRoot.cloneIt().isSuccessful()
+		def inProcessRoot = new GitVcsRoot(gitRoot.repoFolder(), repository.path, settings.withInProcessReader(true))
+
+		assert inProcessRoot.log(TimeRange.all).commits() == gitRoot.log(TimeRange.all).commits()
+		assert inProcessRoot.logFileContent("folder/file2.txt", "HEAD").text() == "file2 content"
+	}
+
+	@Test void "log commits with file contents from git fast-export"() {
+		def repositories = [
+			'repo with two added and modified files'(),
+			'repo with moved and renamed file'(),
+			'repo with deleted file'(),
+			'repo with file with spaces and quotes'(),
+			'repo with non-ascii file name and commit message'(),
+			'repo with history of modified, renamed and merged files'()
+		]
+		def timeRanges = [TimeRange.all, new TimeRange(dateTime("14:00:00 11/08/2014"), dateTime("00:00:00 17/08/2014"))]
+		repositories.each { repository ->
+			def vcsRoot = new GitVcsRoot(repository.path, null, gitSettings)
+			timeRanges.each { timeRange ->
+				def contents = [:]
+				def commits = []
+				def visitor = new ContentVisitor() {
+					@Override void visitContent(String contentId, byte[] content) {
+						assert !contents.containsKey(contentId)
+						contents[contentId] = content
+					}
+					@Override void visitCommit(VcsCommit commit, Map<String, String> contentIds) {
+						commits.add([commit, contentIds])
+					}
+				}
+
+				def logResult = vcsRoot.logWithContents(timeRange, visitor)
+
+				assert logResult.isSuccessful()
+				assert commits.collect{ it[0] } == vcsRoot.logStream(timeRange).withCloseable{ it.collect(toList()) }
+				if (timeRange != TimeRange.all) return
+				commits.each { VcsCommit commit, Map<String, String> contentIds ->
+					commit.changes.findAll{ it.filePath != VcsChange.noFilePath }.each { change ->
+						def content = new String(contents[contentIds[change.filePath]] as byte[], "UTF-8")
+						assert trimLastNewLine(content) == vcsRoot.logFileContent(change.filePath, change.revision).text()
+					}
+				}
+			}
+		}
+	}
+
+	@Test void "exclude commits at shallow boundary from log"() {
+		def repository = 'repo with two commits with three added files'()
+		repository.create("file4.txt")
+		repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+		def allCommits = newProject(repository).log(TimeRange.all).commits()
+
+		def shallowSinceRoot = new GitVcsRoot(newProjectPath(), "file://" + repository.path,
+				gitSettings.withShallowSince(dateTime("00:00:00 11/08/2014")))
+		def depthRoot = new GitVcsRoot(newProjectPath(), "file://" + repository.path, gitSettings.withCloneDepth(2))
+
+		[shallowSinceRoot, depthRoot].each { vcsRoot ->
+			assert vcsRoot.cloneIt().isSuccessful()
+			assert vcsRoot.log(TimeRange.all).commits() == [allCommits.last()]
+			assert vcsRoot.logStream(TimeRange.all).withCloseable { it.collect(toList()) } == [allCommits.last()]
+		}
+	}
+
+	@Test void "log commits with log cache"() {
+		def repository = 'repo with two commits with three added files'()
+		def metrics = new CommandMetrics()
+		def project = new VcsProject(new GitVcsRoot(newProjectPath(), repository.path, gitSettings.withLogCacheSize(10)))
+		project.cloneIt()
+		project.addListener(metrics)
+
+		def logResult = project.log(TimeRange.all)
+		assert project.log(TimeRange.all).commits() == logResult.commits()
+		assert logResult.commits().size() == 2
+
+		repository.create("file4.txt")
+		repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+		project.update()
+		assert project.log(TimeRange.all).commits().size() == 3
+
+		def entry = metrics.snapshot().entry("git", "GitLog")
+		assert entry.count() == 3
+		assert entry.cacheHits() == 1
+		assert entry.cacheMisses() == 2
+		assert entry.processCount() == 2
+	}
+
+	@Test void "collect command metrics"() {
+		def repository = 'repo with two commits with three added files'()
+		def metrics = new CommandMetrics()
+		def project = newProject(repository).addListener(metrics)
+
+		project.update()
+		project.log(TimeRange.all)
+		project.log(TimeRange.all)
+
+		def entry = metrics.snapshot().entry("git", "GitLog")
+		assert entry.count() == 2
+		assert entry.failures() == 0
+		assert entry.processCount() == 2
+		assert entry.stdoutBytes() > 0
+		assert entry.commits() == 4
+		assert entry.changes() == 6
+		assert entry.processTime().totalNanos() > 0
+		assert entry.wallTime().totalNanos() >= entry.processTime().totalNanos()
+		assert metrics.snapshot().byVcs()["git"].count() == 3
+
+		def objectName = metrics.registerMBean("GitIntegrationTest")
+		try {
+			def stats = ManagementFactory.platformMBeanServer.getAttribute(objectName, "Stats") as TabularData
+			assert stats.get(["git/GitLog"] as Object[]).get("value").get(["count"] as Object[]).get("value") == 2L
+		} finally {
+			metrics.unregisterMBean("GitIntegrationTest")
+		}
+	}
+
+	@Test void "log commits with visitor"() {
+		def repositories = [
+			'repo with two added and modified files'(),
+			'repo with moved and renamed file'(),
+			'repo with deleted file'(),
+			'repo with file with spaces and quotes'()
+		]
+		repositories.each { repository ->
+			def project = newProject(repository)
+			def visited = []
+			def visitor = new LogVisitor() {
+				@Override void visitCommit(LogVisitor.CommitView commit) {
+					visited.add([commit.revision(), commit.revisionBefore(), commit.epochMillis(), commit.author(), commit.message()]*.toString())
+				}
+				@Override void visitChange(LogVisitor.ChangeView change) {
+					visited.add([change.type(), change.filePath(), change.filePathBefore(), change.revision(), change.revisionBefore()]*.toString())
+				}
+			}
+
+			def logResult = project.log(TimeRange.all, visitor)
+
+			def expected = project.log(TimeRange.all).commits().collectMany { commit ->
+				[[commit.revision, commit.revisionBefore, commit.dateTime.toEpochMilli(), commit.author, commit.message]*.toString()] +
+				commit.changes.collect { [it.type, it.filePath, it.filePathBefore, it.revision, it.revisionBefore]*.toString() }
+			}
+			assert logResult.isSuccessful()
+			assert logResult.commits().isEmpty()
+			assert visited == expected
+		}
+	}
+
+	@Test void "log sub-roots with single git log"() {
+		def repository = new GitRepository().init().with {
+			mkdir("module1")
+			mkdir("module2")
+			create("module1/file1.txt")
+			commit("added file1", "Aug 22 10:00:00 2014 +0000")
+
+			create("module2/file2.txt")
+			create("readme.txt")
+			commit("added file2 and readme", "Aug 22 11:00:00 2014 +0000")
+			it
+		}
+		def revisions = repository.revisions
+		def vcsRoot = new GitVcsRoot(newProjectPath(), repository.path, gitSettings)
+		vcsRoot.cloneIt()
+
+		def logResults = vcsRoot.logSubRoots(timeRange("22/08/2014", "23/08/2014"), ["module1", "module2/", ""])
+
+		assert logResults.keySet().toList() == ["module1", "module2/", ""]
+		assertCommitsIn(logResults["module1"], [
+			new Commit(
+				revisions[0], noRevision,
+				dateTime("10:00:00 22/08/2014"),
+				author,
+				"added file1",
+				[new Change(Added, "module1/file1.txt", revisions[0])]
+			)
+		])
+		assertCommitsIn(logResults["module2/"], [
+			new Commit(
+				revisions[1], revisions[0],
+				dateTime("11:00:00 22/08/2014"),
+				author,
+				"added file2 and readme",
+				[new Change(Added, "module2/file2.txt", revisions[1])]
+			)
+		])
+		assert logResults[""].commits().size() == 2
+		assert logResults["module1"].commits().first().changes.first().fileContent().value == ""
+
+		def sameSubRootResults = vcsRoot.logSubRoots(timeRange("22/08/2014", "23/08/2014"), ["module1", "module1/"])
+		assert sameSubRootResults["module1"] == logResults["module1"]
+		assert sameSubRootResults["module1/"] == logResults["module1"]
+	}
+
 	@Test void "log content of modified file"() {
 		def repository = 'repo with two added and modified files'()
 
@@ -434,8 +986,41 @@ class GitIntegrationTest {
 		assert cloneResult.isSuccessful()
 	}
 
-	private static VcsProject newProject(GitRepository repository) {
-		def project = new VcsProject(new GitVcsRoot(newProjectPath(), repository.path, gitSettings))
+	/**
+	 * Root used by tests which don't depend on git command line, so that they can be run against other backends.
+	 */
+	protected VcsRoot newVcsRoot(String repoFolder, String repoUrl) {
+		new GitVcsRoot(repoFolder, repoUrl, gitSettings)
+	}
+
+	/**
+	 * @return folder with "slow-git" script which writes its arguments to "calls" file and
+	 * sleeps before running git for the first time (with "started" and "finished" files around the sleep)
+	 */
+	private static File slowGitFolder() {
+		def folder = new File(newProjectPath())
+		def script = new File(folder, "slow-git")
+		script.text = """#!/bin/sh
+			|echo "\$*" >> '$folder/calls'
+			|if [ ! -f '$folder/started' ]; then
+			|  touch '$folder/started'
+			|  sleep 2
+			|  touch '$folder/finished'
+			|fi
+			|exec '$pathToGit' "\$@"
+			|""".stripMargin()
+		assert script.setExecutable(true)
+		folder
+	}
+
+	private static void awaitFile(File file) {
+		def deadline = System.currentTimeMillis() + 10000
+		while (!file.exists() && System.currentTimeMillis() < deadline) sleep(10)
+		assert file.exists()
+	}
+
+	protected VcsProject newProject(GitRepository repository) {
+		def project = new VcsProject(newVcsRoot(newProjectPath(), repository.path))
 		project.addListener(printingListener)
 		project.cloneIt()
 		project
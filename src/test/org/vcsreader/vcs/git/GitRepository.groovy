@@ -77,6 +77,15 @@ class GitRepository {
 		git(env, "commit", "--amend", "-m", message)
 	}
 
+	def config(String name, String value) {
+		git("config", name, value)
+	}
+
+	def repack() {
+		// recompute deltas so that objects are stored as delta chains
+		git("repack", "-a", "-d", "-f", "--depth=50", "--window=50")
+	}
+
 	def commit(String message, String commitTime) {
 		def epochSeconds = String.valueOf(DateTimeUtil.dateTime(commitTime).epochSecond)
 
@@ -193,6 +202,36 @@ class GitRepository {
 			}
 		}
 
+		static 'repo with history of modified, renamed and merged files'() {
+			def lines = (1..200).collect{ "line $it of some text file" }
+			new GitRepository().init().with {
+				create("file1.txt", lines.join("\n"))
+				create("file2.txt", "file2 content")
+				commit("added file1, file2", "Aug 10 00:00:00 2014 +0000")
+
+				(1..5).each { i ->
+					lines[i * 10] = "modified line ${i * 10}"
+					create("file1.txt", lines.join("\n"))
+					commit("modified file1\n\nchange number $i", "Aug ${10 + i} 00:00:00 2014 +0000")
+				}
+
+				createAndCheckoutBranch("branch")
+				create("file3.txt", "file3 content")
+				commit("added file3 on branch", "Aug 16 00:00:00 2014 +0000")
+				checkoutBranch("master")
+
+				mkdir("folder")
+				lines[0] = "modified first line"
+				delete("file1.txt")
+				create("folder/renamed_file1.txt", lines.join("\n"))
+				move("file2.txt", "folder/file2.txt")
+				commit("moved and modified files", "Aug 17 00:00:00 2014 +0000")
+
+				mergeBranch("branch", "merged branch", "Aug 18 00:00:00 2014 +0000")
+				it
+			}
+		}
+
 		static someNonEmptyRepository() {
 			'repo with two added and modified files'()
 		}
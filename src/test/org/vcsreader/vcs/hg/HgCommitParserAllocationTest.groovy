@@ -0,0 +1,44 @@
+package org.vcsreader.vcs.hg
+
+import org.junit.Test
+
+import static org.vcsreader.lang.AllocationBudget.assertWithinBudget
+import static org.vcsreader.vcs.hg.HgCommitParser.*
+
+class HgCommitParserAllocationTest {
+	private static final int commitCount = 1000
+	private static final String logOutput = generateLogOutput(commitCount)
+
+	@Test void "parse log from string within allocation budget"() {
+		assertWithinBudget("HgCommitParser.parseListOfCommits(String)", 14_000, commitCount) {
+			assert HgCommitParser.parseListOfCommits(logOutput).size() == commitCount
+		}
+	}
+
+	@Test void "parse log from reader within allocation budget"() {
+		assertWithinBudget("HgCommitParser.parseListOfCommits(Reader)", 14_000, commitCount) {
+			assert HgCommitParser.parseListOfCommits(new StringReader(logOutput)).size() == commitCount
+		}
+	}
+
+	static String generateLogOutput(int commitCount) {
+		def result = new StringBuilder()
+		def revisionBefore = hgNoRevision
+		for (int i = 0; i < commitCount; i++) {
+			def revision = String.format("%040x", i + 1)
+			def dir = "src/dir${i % 10}"
+			result.append(commitStartSeparator)
+					.append(revision).append(commitFieldsSeparator)
+					.append(revisionBefore).append(commitFieldsSeparator)
+					.append(String.format("2017-07-%02d 10:%02d:00 +0000", i % 28 + 1, i % 60)).append(commitFieldsSeparator)
+					.append("Some Author").append(commitFieldsSeparator)
+					.append("commit message number ${i}").append(commitFieldsSeparator)
+					.append("${dir}/added${i}.txt").append(fileSeparator).append("${dir}/new${i}.txt").append(commitFieldsSeparator)
+					.append("${dir}/old${i}.txt").append(commitFieldsSeparator)
+					.append("${dir}/new${i}.txt (${dir}/old${i}.txt)").append(commitFieldsSeparator)
+					.append("${dir}/modified${i}.txt").append(commitFieldsSeparator)
+			revisionBefore = revision
+		}
+		result.toString()
+	}
+}
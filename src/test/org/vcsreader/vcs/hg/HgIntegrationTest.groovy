@@ -8,6 +8,8 @@ import org.vcsreader.vcs.Change
 import org.vcsreader.vcs.Commit
 import org.vcsreader.vcs.VcsError
 
+import java.nio.file.Files
+
 import static org.hamcrest.CoreMatchers.equalTo
 import static org.junit.Assert.assertThat
 import static org.vcsreader.VcsChange.Type.*
@@ -178,6 +180,19 @@ class HgIntegrationTest {
 		])
 	}
 
+	@Test void "log commits by revisions"() {
+		def repository = 'repo with moved file'()
+		def vcsRoot = newProject(repository).vcsRoots().first()
+		def allCommits = vcsRoot.log(TimeRange.all).commits()
+
+		def logResult = vcsRoot.logRevisions([repository.revisions[1]])
+
+		assert logResult.isSuccessful()
+		assert logResult.commits() == allCommits.findAll { it.revision == repository.revisions[1] }
+		assert vcsRoot.logRevisions([]).commits().empty
+		assert vcsRoot.logRevisions(["0000000000000000000000000000000000000000"]).commits().empty
+	}
+
 	@Test void "log moved file commit"() {
 		def repository = 'repo with moved file'()
 		def revisions = repository.revisions
@@ -304,6 +319,28 @@ class HgIntegrationTest {
 		assert change.fileContentBefore().value == "file content"
 	}
 
+	@Test void "clone unrelated repositories with shared object store"() {
+		def repository = 'repo with two commits with three added files'()
+		def otherRepository = 'repo with moved file'()
+		def settings = hgSettings.withSharedObjectStore(newProjectPath())
+		def vcsRoot1 = new HgVcsRoot(newProjectPath(), repository.path, settings)
+		def vcsRoot2 = new HgVcsRoot(newProjectPath(), otherRepository.path, settings)
+		assert vcsRoot1.cloneIt().isSuccessful()
+		assert vcsRoot2.cloneIt().isSuccessful()
+		repository.create("file4.txt")
+		repository.commit("added file4", "Aug 12 14:00:00 2014 +0000")
+		def vcsRoot3 = new HgVcsRoot(newProjectPath(), repository.path, settings)
+		assert vcsRoot3.cloneIt().isSuccessful()
+
+		assert vcsRoot1.log(TimeRange.all).commits().size() == 2
+		assert vcsRoot2.log(TimeRange.all).commits() == newProject(otherRepository).vcsRoots().first().log(TimeRange.all).commits()
+		assert vcsRoot3.log(TimeRange.all).commits() == newProject(repository).vcsRoots().first().log(TimeRange.all).commits()
+		def changelog = new File(vcsRoot3.repoFolder(), ".hg/store/00changelog.i").toPath()
+		assert (Files.getAttribute(changelog, "unix:nlink") as int) > 1
+		assert vcsRoot1.update().isSuccessful()
+		assert vcsRoot1.log(TimeRange.all).commits().size() == 3
+	}
+
 	private static VcsProject newProject(HgRepository repository) {
 		def project = new VcsProject(new HgVcsRoot(newProjectPath(), repository.path, hgSettings))
 		project.addListener(printingListener)
@@ -0,0 +1,40 @@
+package org.vcsreader.vcs.jgit
+
+import org.junit.Test
+import org.vcsreader.VcsRoot
+import org.vcsreader.lang.TimeRange
+import org.vcsreader.vcs.CommandMetrics
+import org.vcsreader.vcs.git.GitIntegrationTest
+import org.vcsreader.vcs.git.GitSettings
+
+import static org.vcsreader.vcs.git.GitRepository.Scripts.*
+
+/**
+ * Runs the same tests as {@link GitIntegrationTest} against JGit backend
+ * (tests which depend on git command line settings still use {@link org.vcsreader.vcs.git.GitVcsRoot}).
+ */
+class JGit_GitIntegrationTest extends GitIntegrationTest {
+	private static final gitSettings = GitSettings.defaults().withFailFast(false)
+
+	@Override protected VcsRoot newVcsRoot(String repoFolder, String repoUrl) {
+		new JGitVcsRoot(repoFolder, repoUrl, gitSettings)
+	}
+
+	@Override @Test void "collect command metrics"() {
+		def repository = 'repo with two commits with three added files'()
+		def metrics = new CommandMetrics()
+		def project = newProject(repository).addListener(metrics)
+
+		project.update()
+		project.log(TimeRange.all)
+		project.log(TimeRange.all)
+
+		def entry = metrics.snapshot().entry("jgit", "JGitLog")
+		assert entry.count() == 2
+		assert entry.failures() == 0
+		assert entry.processCount() == 0
+		assert entry.commits() == 4
+		assert entry.changes() == 6
+		assert metrics.snapshot().byVcs()["jgit"].count() == 3
+	}
+}
@@ -0,0 +1,36 @@
+package org.vcsreader.vcs.svn
+
+import org.junit.Test
+
+import static org.vcsreader.lang.AllocationBudget.assertWithinBudget
+
+class SvnCommitParserAllocationTest {
+	private static final int commitCount = 1000
+	private static final String logXml = generateLogXml(commitCount)
+
+	@Test void "parse log within allocation budget"() {
+		assertWithinBudget("SvnCommitParser.parseCommits", 7_500, commitCount) {
+			assert SvnCommitParser.parseCommits(logXml).size() == commitCount
+		}
+	}
+
+	static String generateLogXml(int commitCount) {
+		def result = new StringBuilder('<?xml version="1.0" encoding="UTF-8"?>\n<log>\n')
+		for (int i = 0; i < commitCount; i++) {
+			def dir = "/src/dir${i % 10}"
+			result.append("""<logentry revision="${i + 1}">
+				<author>Some Author</author>
+				<date>${String.format("2017-07-%02dT10:%02d:00.000000Z", i % 28 + 1, i % 60)}</date>
+				<paths>
+					<path kind="file" action="A">${dir}/added${i}.txt</path>
+					<path kind="file" action="M">${dir}/modified${i}.txt</path>
+					<path kind="file" action="A" copyfrom-path="${dir}/old${i}.txt" copyfrom-rev="${i}">${dir}/new${i}.txt</path>
+					<path kind="file" action="D">${dir}/old${i}.txt</path>
+				</paths>
+				<msg>commit message number ${i}</msg>
+				</logentry>
+			""")
+		}
+		result.append("</log>\n").toString()
+	}
+}
@@ -0,0 +1,356 @@
+package org.vcsreader.vcs.svn
+
+import org.junit.Test
+import org.vcsreader.ContentVisitor
+import org.vcsreader.VcsCommit
+import org.vcsreader.lang.TimeRange
+import org.vcsreader.vcs.Change
+import org.vcsreader.vcs.Commit
+
+import static org.vcsreader.VcsChange.Type.*
+import static org.vcsreader.VcsChange.noFilePath
+import static org.vcsreader.VcsChange.noRevision
+import static org.vcsreader.lang.DateTimeUtil.dateTime
+import static org.vcsreader.vcs.TestUtil.assertEqualCommits
+
+class SvnDumpLogTest {
+	private final foldersRequests = []
+
+	@Test void "read commits from dump"() {
+		def commits = readDump(dump, "")
+
+		assertEqualCommits(commits, [
+				new Commit(
+						"1", noRevision,
+						dateTime("00:00:00 10/08/2014"),
+						"Some Author",
+						"initial commit",
+						[new Change(Added, "file.txt", "1"), new Change(Added, "sp ace ы.txt", "1")]
+				),
+				new Commit(
+						"2", "1",
+						dateTime("14:00:00 14/08/2014"),
+						"Some Author",
+						"moved and renamed file",
+						[new Change(Moved, "folder/renamed_file.txt", "file.txt", "2", "1")]
+				),
+				new Commit(
+						"3", "2",
+						dateTime("14:00:00 15/08/2014"),
+						"Some Author",
+						"modified and deleted",
+						[
+								new Change(Added, "a.txt", "3"),
+								new Change(Modified, "folder/renamed_file.txt", "folder/renamed_file.txt", "3", "2"),
+								new Change(Deleted, noFilePath, "sp ace ы.txt", "3", "2")
+						]
+				)
+		])
+		assert foldersRequests.empty
+	}
+
+	@Test void "read commits of sub path from dump"() {
+		def commits = readDump(dump, "folder/")
+
+		assertEqualCommits(commits, [
+				new Commit(
+						"2", "1",
+						dateTime("14:00:00 14/08/2014"),
+						"Some Author",
+						"moved and renamed file",
+						// change has ADDED type because it was moved from outside sub path (the same as in svn log)
+						[new Change(Added, "renamed_file.txt", noFilePath, "2", "1")]
+				),
+				new Commit(
+						"3", "2",
+						dateTime("14:00:00 15/08/2014"),
+						"Some Author",
+						"modified and deleted",
+						[new Change(Modified, "renamed_file.txt", "renamed_file.txt", "3", "2")]
+				)
+		])
+	}
+
+	@Test void "visit each file content once"() {
+		def contents = [:]
+		def commitContentIds = [:]
+		def visitor = new ContentVisitor() {
+			@Override void visitContent(String contentId, byte[] content) {
+				assert !contents.containsKey(contentId)
+				contents[contentId] = new String(content, "UTF-8")
+			}
+
+			@Override void visitCommit(VcsCommit commit, Map<String, String> contentIds) {
+				commitContentIds[commit.revision] = contentIds
+			}
+		}
+
+		def commits = readDump(dump, "", visitor)
+
+		assert commits.empty
+		assert contents == [
+				"87758871f598e1a3b4679953589ae2f57a0bb43c": "file content",
+				"12ab7d7c89a00c30779be39b0b96b1c353da7fa8": "non-ascii содержимое",
+				"ca527369d9e8c1e081558bd92f90f65c4eb77e21": "new content"
+		]
+		assert commitContentIds == [
+				"1": ["file.txt": "87758871f598e1a3b4679953589ae2f57a0bb43c", "sp ace ы.txt": "12ab7d7c89a00c30779be39b0b96b1c353da7fa8"],
+				"2": ["folder/renamed_file.txt": "87758871f598e1a3b4679953589ae2f57a0bb43c"],
+				"3": ["folder/renamed_file.txt": "ca527369d9e8c1e081558bd92f90f65c4eb77e21", "a.txt": "87758871f598e1a3b4679953589ae2f57a0bb43c"]
+		]
+	}
+
+	@Test void "find kinds of paths deleted in incremental dump"() {
+		def commits = readDump(incrementalDump, "")
+
+		assertEqualCommits(commits, [
+				new Commit(
+						"3", "2",
+						dateTime("14:00:00 15/08/2014"),
+						"Some Author",
+						"modified and deleted",
+						[
+								new Change(Added, "a.txt", "3"),
+								new Change(Modified, "folder/renamed_file.txt", "folder/renamed_file.txt", "3", "2"),
+								new Change(Deleted, noFilePath, "sp ace ы.txt", "3", "2")
+						]
+				)
+		])
+		assert foldersRequests == [[["folder/sub", "sp ace ы.txt"], "2"]]
+	}
+
+	@Test void "don't find kinds of deleted paths outside of sub path"() {
+		def commits = readDump(incrementalDump, "folder/")
+
+		assert commits*.revision == ["3"]
+		assert foldersRequests == [[["folder/sub"], "2"]]
+	}
+
+	@Test void "parse folder paths from svn info"() {
+		def xml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <info>
+                <entry kind="dir" path="sub" revision="2">
+                    <url>file:///tmp/repo/folder/sub</url>
+                </entry>
+                <entry kind="file" path="sp ace ы.txt" revision="2">
+                    <url>file:///tmp/repo/sp%20ace%20%D1%8B.txt</url>
+                </entry>
+                <entry kind="dir" path="sp ace ы" revision="2">
+                    <url>file:///tmp/repo/sp%20ace%20%D1%8B</url>
+                </entry>
+            </info>
+        """.trim()
+
+		assert SvnDumpLog.parseFolderPaths(xml) == ["/tmp/repo/folder/sub", "/tmp/repo/sp ace ы"]
+		assert SvnDumpLog.parseFolderPaths("") == []
+	}
+
+	private List<VcsCommit> readDump(String dump, String subPath, ContentVisitor visitor = null) {
+		def folderFinder = { List<String> paths, String revision ->
+			foldersRequests.add([new ArrayList(paths), revision])
+			paths.findAll { it == "folder/sub" }.toSet()
+		} as SvnDumpLog.FolderFinder
+		def inputStream = new ByteArrayInputStream(dump.getBytes("UTF-8"))
+		new SvnDumpLog.DumpReader(inputStream, subPath, TimeRange.all, visitor, folderFinder).read()
+	}
+
+	private static final String dumpHeader = """\
+SVN-fs-dump-format-version: 2
+
+UUID: 0e4c2d6f
+
+"""
+
+	private static final String dump = dumpHeader + """\
+Revision-number: 1
+Prop-content-length: 121
+Content-length: 121
+
+K 10
+svn:author
+V 11
+Some Author
+K 8
+svn:date
+V 27
+2014-08-10T00:00:00.000000Z
+K 7
+svn:log
+V 14
+initial commit
+PROPS-END
+
+Node-path: file.txt
+Node-kind: file
+Node-action: add
+Prop-content-length: 10
+Text-content-length: 12
+Text-content-sha1: 87758871f598e1a3b4679953589ae2f57a0bb43c
+Content-length: 22
+
+PROPS-END
+file content
+
+Node-path: sp ace ы.txt
+Node-kind: file
+Node-action: add
+Prop-content-length: 10
+Text-content-length: 30
+Text-content-sha1: 12ab7d7c89a00c30779be39b0b96b1c353da7fa8
+Content-length: 40
+
+PROPS-END
+non-ascii содержимое
+
+Revision-number: 2
+Prop-content-length: 129
+Content-length: 129
+
+K 10
+svn:author
+V 11
+Some Author
+K 8
+svn:date
+V 27
+2014-08-14T14:00:00.000000Z
+K 7
+svn:log
+V 22
+moved and renamed file
+PROPS-END
+
+Node-path: folder
+Node-kind: dir
+Node-action: add
+Prop-content-length: 10
+Content-length: 10
+
+PROPS-END
+
+
+Node-path: folder/renamed_file.txt
+Node-kind: file
+Node-action: add
+Node-copyfrom-rev: 1
+Node-copyfrom-path: file.txt
+Text-copy-source-sha1: 87758871f598e1a3b4679953589ae2f57a0bb43c
+Prop-content-length: 10
+Content-length: 10
+
+PROPS-END
+
+
+Node-path: file.txt
+Node-action: delete
+
+
+Node-path: folder/sub
+Node-kind: dir
+Node-action: add
+Prop-content-length: 10
+Content-length: 10
+
+PROPS-END
+
+
+Revision-number: 3
+Prop-content-length: 127
+Content-length: 127
+
+K 10
+svn:author
+V 11
+Some Author
+K 8
+svn:date
+V 27
+2014-08-15T14:00:00.000000Z
+K 7
+svn:log
+V 20
+modified and deleted
+PROPS-END
+
+Node-path: folder/renamed_file.txt
+Node-kind: file
+Node-action: change
+Prop-content-length: 0
+Text-content-length: 11
+Text-content-sha1: ca527369d9e8c1e081558bd92f90f65c4eb77e21
+Content-length: 11
+
+new content
+
+Node-path: folder/sub
+Node-action: delete
+
+
+Node-path: sp ace ы.txt
+Node-action: delete
+
+
+Node-path: a.txt
+Node-kind: file
+Node-action: add
+Prop-content-length: 10
+Text-content-length: 12
+Text-content-sha1: 87758871f598e1a3b4679953589ae2f57a0bb43c
+Content-length: 22
+
+PROPS-END
+file content
+
+"""
+
+	private static final String incrementalDump = dumpHeader + """\
+Revision-number: 3
+Prop-content-length: 127
+Content-length: 127
+
+K 10
+svn:author
+V 11
+Some Author
+K 8
+svn:date
+V 27
+2014-08-15T14:00:00.000000Z
+K 7
+svn:log
+V 20
+modified and deleted
+PROPS-END
+
+Node-path: folder/renamed_file.txt
+Node-kind: file
+Node-action: change
+Prop-content-length: 0
+Text-content-length: 11
+Text-content-sha1: ca527369d9e8c1e081558bd92f90f65c4eb77e21
+Content-length: 11
+
+new content
+
+Node-path: folder/sub
+Node-action: delete
+
+
+Node-path: sp ace ы.txt
+Node-action: delete
+
+
+Node-path: a.txt
+Node-kind: file
+Node-action: add
+Prop-content-length: 10
+Text-content-length: 12
+Text-content-sha1: 87758871f598e1a3b4679953589ae2f57a0bb43c
+Content-length: 22
+
+PROPS-END
+file content
+
+"""
+}
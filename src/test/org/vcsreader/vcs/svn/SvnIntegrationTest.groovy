@@ -1,8 +1,11 @@
 package org.vcsreader.vcs.svn
 
 import org.junit.Test
+import org.vcsreader.ContentVisitor
 import org.vcsreader.VcsChange
+import org.vcsreader.VcsCommit
 import org.vcsreader.VcsProject
+import org.vcsreader.lang.CommandLine
 import org.vcsreader.lang.TimeRange
 import org.vcsreader.vcs.Change
 import org.vcsreader.vcs.Commit
@@ -154,6 +157,23 @@ class SvnIntegrationTest {
 		])
 	}
 
+	@Test void "log commits by revisions"() {
+		def repository = 'repo with moved file'()
+		def vcsRoot = newProject(repository).vcsRoots().first()
+		def allCommits = vcsRoot.log(TimeRange.all).commits()
+
+		def logResult = vcsRoot.logRevisions([repository.revisions[1]])
+
+		assert logResult.isSuccessful()
+		assert logResult.commits() == allCommits.findAll { it.revision == repository.revisions[1] }
+		assert vcsRoot.logRevisions([]).commits().empty
+		assert !vcsRoot.logRevisions(["100"]).isSuccessful()
+		vcsRoot.logRevisions([repository.revisions[1], "100"]).with {
+			assert !it.isSuccessful()
+			assert it.commits() == allCommits.findAll { it.revision == repository.revisions[1] }
+		}
+	}
+
 	@Test void "log moved file commit"() {
 		def repository = 'repo with moved file'()
 		def revisions = repository.revisions
@@ -410,10 +430,57 @@ class SvnIntegrationTest {
 		assert change.fileContent().value == "file content"
 	}
 
+	@Test void "dump reader logs the same commits and file contents as svn log"() {
+		def movedFileRepository = 'repo with moved and renamed file'()
+		def repoUrls = [
+			'repo with two added and modified files'(),
+			movedFileRepository,
+			'repo with deleted file'(),
+			'repo with file with spaces and quotes'(),
+			'repo with non-ascii file name and commit message'()
+		].collect{ "file://$it.repoPath".toString() } + ["file://$movedFileRepository.repoPath/folder".toString()]
+		def dumpSettings = svnSettings.withSvnadminPath(pathToSvnAdmin).withDumpReader(true)
+		def timeRanges = [TimeRange.all, timeRange("11/08/2014", "15/08/2014")]
+		repoUrls.each { repoUrl ->
+			def svnRoot = new SvnVcsRoot(repoUrl, svnSettings)
+			def dumpRoot = new SvnVcsRoot(repoUrl, dumpSettings)
+			timeRanges.each { timeRange ->
+				assert dumpRoot.log(timeRange).commits() == svnRoot.log(timeRange).commits()
+			}
+
+			def contents = [:]
+			def commits = []
+			def visitor = new ContentVisitor() {
+				@Override void visitContent(String contentId, byte[] content) {
+					assert !contents.containsKey(contentId)
+					contents[contentId] = content
+				}
+				@Override void visitCommit(VcsCommit commit, Map<String, String> contentIds) {
+					commits.add([commit, contentIds])
+				}
+			}
+			assert dumpRoot.logWithContents(TimeRange.all, visitor).isSuccessful()
+			assert commits.collect{ it[0] } == svnRoot.log(TimeRange.all).commits()
+			commits.each { VcsCommit commit, Map<String, String> contentIds ->
+				commit.changes.findAll{ it.filePath != VcsChange.noFilePath && contents.containsKey(contentIds[it.filePath]) }.each { change ->
+					def content = new String(contents[contentIds[change.filePath]] as byte[], "UTF-8")
+					assert content == svnRoot.logFileContent(change.filePath, change.revision).text()
+				}
+			}
+		}
+	}
+
+	@Test void "dump reader requires local repository"() {
+		def vcsRoot = new SvnVcsRoot("svn://localhost/repo", svnSettings.withFailFast(false).withDumpReader(true))
+		def logResult = vcsRoot.log(TimeRange.all)
+		assert !logResult.isSuccessful()
+		assert logResult.exceptions().first().message.contains("not local")
+	}
+
 	@Test void "run svn info command to find repository root from relative url"() {
 		def repository = 'repo with moved and renamed file'()
 
-		def svnInfo = new SvnInfo(pathToSvn, "file://$repository.repoPath/folder")
+		def svnInfo = new SvnInfo(pathToSvn, "file://$repository.repoPath/folder", CommandLine.Config.defaults)
 		def result = svnInfo.execute()
 
 		assert result.repoRoot == 'file://' + repository.repoPath